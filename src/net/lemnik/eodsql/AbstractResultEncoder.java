@@ -0,0 +1,273 @@
+package net.lemnik.eodsql;
+
+import java.io.IOException;
+
+import java.math.BigDecimal;
+
+import java.sql.Types;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.ResultSetMetaData;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import net.lemnik.eodsql.spi.util.DataObjectBinding;
+
+/**
+ * <p>
+ * The base of most {@link ResultEncoder}s. An
+ * <code>AbstractResultEncoder</code> chooses the columns to encode when an
+ * export {@link #begin(ResultSetMetaData, ExportBuffer) begins}, and reads
+ * each column of a row with the primitive <code>ResultSet</code> method
+ * matching it's SQL type, so that numbers and booleans are written without
+ * creating any objects. Only text, decimal and binary columns are read as
+ * objects.
+ * </p><p>
+ * By default every column of the <code>ResultSet</code> is encoded, named by
+ * it's label. An encoder created with a data-object type only encodes the
+ * columns that the data-object is bound to, so that an export has the same
+ * columns as the data-objects selected by the same query would.
+ * </p>
+ *
+ * @author Jason Morris
+ * @since 2.2
+ */
+public abstract class AbstractResultEncoder implements ResultEncoder {
+
+    private final String[] dataObjectColumns;
+
+    private int[] columns = new int[0];
+
+    private String[] names = new String[0];
+
+    private int[] types = new int[0];
+
+    /**
+     * Creates an encoder of every column of the <code>ResultSet</code>.
+     */
+    protected AbstractResultEncoder() {
+        this.dataObjectColumns = null;
+    }
+
+    /**
+     * Creates an encoder of the columns the given data-object type is bound
+     * to.
+     *
+     * @param dataObjectType the data-object type to take the columns from
+     * @throws InvalidDataTypeException if the type is not a valid data-object
+     */
+    protected AbstractResultEncoder(final Class<?> dataObjectType)
+            throws InvalidDataTypeException {
+
+        DataObjectBinding.validate(dataObjectType);
+
+        this.dataObjectColumns = DataObjectBinding.getDataObjectBinding(
+                dataObjectType,
+                DataObjectBinding.BindingType.NORMAL_BINDING).
+                getColumnNames();
+    }
+
+    private boolean isSelected(final String label) {
+        if(dataObjectColumns == null) {
+            return true;
+        }
+
+        for(final String column : dataObjectColumns) {
+            if(column.equalsIgnoreCase(label)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Chooses the columns to encode. Implementations that write a header
+     * should call this method first.
+     */
+    public void begin(final ResultSetMetaData metaData, final ExportBuffer out)
+            throws SQLException,
+            IOException {
+
+        final List<Integer> selected = new ArrayList<Integer>();
+
+        for(int i = 1; i <= metaData.getColumnCount(); i++) {
+            if(isSelected(metaData.getColumnLabel(i))) {
+                selected.add(i);
+            }
+        }
+
+        columns = new int[selected.size()];
+        names = new String[columns.length];
+        types = new int[columns.length];
+
+        for(int i = 0; i < columns.length; i++) {
+            columns[i] = selected.get(i);
+            names[i] = metaData.getColumnLabel(columns[i]);
+            types[i] = metaData.getColumnType(columns[i]);
+        }
+    }
+
+    public void end(final ExportBuffer out) throws IOException {
+    }
+
+    /**
+     * Returns the number of columns being encoded.
+     */
+    protected int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the name of a column being encoded.
+     *
+     * @param index the index of the column, from {@literal 0}
+     * @return the name of the column
+     */
+    protected String getColumnName(final int index) {
+        return names[index];
+    }
+
+    /**
+     * Encodes the value of a single column. The value is read from the row
+     * with the <code>ResultSet</code> method matching it's SQL type, and
+     * given to the matching <code>write</code> method.
+     *
+     * @param row the <code>ResultSet</code>, positioned on the row to encode
+     * @param index the index of the column, from {@literal 0}
+     * @param out where to write the value
+     * @throws SQLException if the column cannot be read
+     * @throws IOException if the output cannot be written
+     */
+    protected void encodeColumn(
+            final ResultSet row,
+            final int index,
+            final ExportBuffer out)
+            throws SQLException,
+            IOException {
+
+        final int column = columns[index];
+
+        switch(types[index]) {
+            case Types.BIT:
+            case Types.BOOLEAN: {
+                final boolean value = row.getBoolean(column);
+
+                if(row.wasNull()) {
+                    writeNull(out);
+                } else {
+                    writeBoolean(value, out);
+                }
+
+                break;
+            }
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT: {
+                final long value = row.getLong(column);
+
+                if(row.wasNull()) {
+                    writeNull(out);
+                } else {
+                    writeLong(value, out);
+                }
+
+                break;
+            }
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                final double value = row.getDouble(column);
+
+                if(row.wasNull()) {
+                    writeNull(out);
+                } else {
+                    writeNumber(Double.toString(value), out);
+                }
+
+                break;
+            }
+            case Types.DECIMAL:
+            case Types.NUMERIC: {
+                final BigDecimal value = row.getBigDecimal(column);
+
+                if(value == null) {
+                    writeNull(out);
+                } else {
+                    writeNumber(value.toPlainString(), out);
+                }
+
+                break;
+            }
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB: {
+                final byte[] value = row.getBytes(column);
+
+                if(value == null) {
+                    writeNull(out);
+                } else {
+                    writeBinary(value, out);
+                }
+
+                break;
+            }
+            default: {
+                final String value = row.getString(column);
+
+                if(value == null) {
+                    writeNull(out);
+                } else {
+                    writeText(value, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes an SQL {@literal NULL}.
+     */
+    protected abstract void writeNull(ExportBuffer out) throws IOException;
+
+    /**
+     * Writes a boolean column value.
+     */
+    protected abstract void writeBoolean(boolean value, ExportBuffer out)
+            throws IOException;
+
+    /**
+     * Writes an integer column value. By default it is written as it's
+     * decimal digits.
+     */
+    protected void writeLong(final long value, final ExportBuffer out)
+            throws IOException {
+
+        out.writeLong(value);
+    }
+
+    /**
+     * Writes a floating point or decimal column value, given as it's
+     * decimal text. By default the text is written as-is.
+     */
+    protected void writeNumber(final String value, final ExportBuffer out)
+            throws IOException {
+
+        out.writeAscii(value);
+    }
+
+    /**
+     * Writes a binary column value.
+     */
+    protected abstract void writeBinary(byte[] value, ExportBuffer out)
+            throws IOException;
+
+    /**
+     * Writes a text column value, or any other column read as text.
+     */
+    protected abstract void writeText(String value, ExportBuffer out)
+            throws IOException;
+
+}
@@ -0,0 +1,44 @@
+package net.lemnik.eodsql;
+
+/**
+ * <p>
+ * A <code>BatchPartitioner</code> decides which partition each row of a
+ * {@link Update#parallelism() parallel} batch update is executed in. Each
+ * partition is executed on it's own <code>Connection</code> and thread, so
+ * partitioning by a hash of the partitioning key of the target table allows
+ * each connection to work on it's own part of the table:
+ * </p>
+ *
+ * <pre>
+ *        public class UserPartitioner implements BatchPartitioner {
+ *            public int getPartition(Object[] parameters, int partitions) {
+ *                final User user = (User)parameters[0];
+ *                return (user.region.hashCode() &amp; Integer.MAX_VALUE) % partitions;
+ *            }
+ *        }
+ * </pre>
+ *
+ * <p>
+ * When no <code>BatchPartitioner</code> is specified the rows are assigned to
+ * the partitions in round-robin order. A <code>BatchPartitioner</code> must
+ * have a public default constructor, and a single instance will be shared
+ * between concurrent invocations of the method it is used by.
+ * </p>
+ *
+ * @author Jason Morris
+ * @see Update#partitioner()
+ * @since 2.2
+ */
+public interface BatchPartitioner {
+    /**
+     * Returns the partition that the given row of the batch should be
+     * executed in.
+     *
+     * @param parameters the parameters of the method for this row of the batch,
+     *      with each batch parameter replaced by the current element
+     * @param partitions the number of partitions the batch is split into
+     * @return the partition for the row, between <code>0</code> and
+     *      <code>partitions - 1</code>
+     */
+    int getPartition(Object[] parameters, int partitions);
+}
@@ -0,0 +1,135 @@
+package net.lemnik.eodsql;
+
+/**
+ * <p>
+ * The base class of the {@link DataSetCache} implementations that hold no
+ * more than a fixed number of rows, no matter how large the {@link DataSet}
+ * is. Each lookup is counted in a {@link DataSetCacheStatistics} object.
+ * </p><p>
+ * Implementations need only store and find rows, calling
+ * {@link #evicted()} each time a row is dropped from the cache.
+ * </p>
+ *
+ * @param <T> the row data-type to cache
+ * @since 2.2
+ * @author Jason Morris
+ * @see LruDataSetCache
+ * @see SegmentedLruDataSetCache
+ * @see SoftDataSetCache
+ */
+public abstract class BoundedDataSetCache<T> implements DataSetCache<T> {
+
+    /**
+     * The number of rows held by the bounded caches when they are
+     * created with their default constructors.
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final int capacity;
+
+    private final DataSetCacheStatistics statistics;
+
+    /**
+     * Creates a new {@code BoundedDataSetCache}.
+     *
+     * @param capacity the largest number of rows to hold
+     * @param statistics where to count the hits, misses and evictions of this
+     *      cache
+     * @throws IllegalArgumentException if the capacity is less than
+     *      {@literal 1}, or the statistics are {@literal null}
+     */
+    protected BoundedDataSetCache(
+            final int capacity,
+            final DataSetCacheStatistics statistics) {
+
+        if(capacity < 1) {
+            throw new IllegalArgumentException(
+                    "The capacity of a cache must be at least 1: " + capacity);
+        }
+
+        if(statistics == null) {
+            throw new IllegalArgumentException(
+                    "DataSetCacheStatistics cannot be null.");
+        }
+
+        this.capacity = capacity;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the largest number of rows this cache will hold.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the {@code DataSetCacheStatistics} counting the hits, misses
+     * and evictions of this cache.
+     */
+    public DataSetCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns whether the given row is held in this cache, without
+     * counting it as a use of the row.
+     */
+    protected abstract boolean contains(int row);
+
+    /**
+     * Returns the given row, or {@literal null} if it is not held in this
+     * cache, marking it as recently used.
+     */
+    protected abstract T get(int row);
+
+    /**
+     * Stores the given row, evicting others if the cache is full.
+     */
+    protected abstract void put(int row, T object);
+
+    /**
+     * Drops every row held by this cache, without counting evictions.
+     */
+    protected abstract void clear();
+
+    /**
+     * Counts the eviction of a single row.
+     */
+    protected void evicted() {
+        statistics.evicted();
+    }
+
+    public void init(final DataSet<T> dataSet) {
+    }
+
+    public boolean isCached(final int row) {
+        if(contains(row)) {
+            return true;
+        }
+
+        statistics.miss();
+        return false;
+    }
+
+    public T getObject(final int row) {
+        final T value = get(row);
+
+        if(value != null) {
+            statistics.hit();
+        } else {
+            statistics.miss();
+        }
+
+        return value;
+    }
+
+    public void setObject(final int row, final T object) {
+        put(row, object);
+    }
+
+    public void destroy() {
+        clear();
+    }
+
+}
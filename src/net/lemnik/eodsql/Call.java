@@ -115,6 +115,34 @@ public @interface Call {
      */
     Class<? extends DataSetCache> cache() default ArrayDataSetCache.class;
 
+    /**
+     * <p>
+     * The largest block of rows a connected {@link DataSet} returned by the
+     * annotated method will read in a single pass.
+     * <code>0</code> (the default) disables prefetching.
+     * </p>
+     *
+     * @since 2.2
+     * @see Select#prefetch()
+     */
+    int prefetch() default 0;
+
+    /**
+     * <p>
+     * The longest time (in seconds) the database may spend executing the call,
+     * set on each of it's statements through
+     * {@link java.sql.Statement#setQueryTimeout(int)}. If the calling thread
+     * has a {@link QueryDeadline} which leaves less time than this, the deadline
+     * is used instead. A query that takes too long is cancelled, and the method
+     * throws a {@link QueryCancelledException}.
+     * </p><p>
+     * {@literal 0} (the default) sets no timeout.
+     * </p>
+     *
+     * @since 2.2
+     */
+    int timeout() default 0;
+
     /**
      * <p>
      * A custom data object binding to be used on the result set of this query. The default value
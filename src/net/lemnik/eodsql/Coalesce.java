@@ -0,0 +1,84 @@
+package net.lemnik.eodsql;
+
+import java.lang.annotation.Target;
+import java.lang.annotation.Retention;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * <p>
+ * The <code>@Coalesce</code> annotation marks a single-key
+ * {@link Select @Select} method whose concurrent invocations should be
+ * collected together and answered by a single invocation of a companion
+ * multi-key method. The companion method must be declared in the same
+ * query interface, take a single array or <code>Collection</code> of keys,
+ * and return an array or <code>Collection</code> of the data-object:
+ * </p>
+ * <pre>
+ *     public class User {
+ *         <span style="color: #00f;">@AutoGeneratedKeys</span>
+ *         public Long id;
+ *         public String username;
+ *     }
+ *
+ *     public interface UserQuery extends BaseQuery {
+ *         <span style="color: #00f;">@Coalesce("getUsersById")</span>
+ *         @Select("SELECT * FROM user WHERE id = ?1")
+ *         public User getUserById(long id);
+ *
+ *         @Select("SELECT * FROM user WHERE id IN (?{1[]})")
+ *         public User[] getUsersById(long[] ids);
+ *     }
+ * </pre>
+ * <p>
+ * The first invocation of a coalesced method waits for up to
+ * {@link #window()} milliseconds (or until {@link #maxBatchSize()} keys have
+ * been collected) for other invocations, and then invokes the companion
+ * method once with all of the distinct keys. The results are dispatched back
+ * to each caller by matching the single {@link AutoGeneratedKeys} column of
+ * the data-object against the key it asked for. A caller whose key was not
+ * found receives <code>null</code>. Callers asking for the same key receive
+ * the <em>same</em> object instance, so the data-objects returned by a
+ * coalesced method should be treated as read-only (or copied before they are
+ * changed).
+ * </p><p>
+ * The companion method runs under the latest {@link QueryDeadline} of the
+ * callers in the batch, and an interrupt of the first caller does not cancel
+ * it. Every other caller waits for the batch under it's own deadline, and
+ * throws a {@link QueryCancelledException} if it's deadline passes or it's
+ * thread is interrupted while it waits.
+ * </p><p>
+ * Invocations with a <code>null</code> key, and all invocations on a
+ * {@link TransactionQuery} (which must see their own transaction) are not
+ * coalesced, and invoke the annotated method directly.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+
+  /**
+   * The name of the companion multi-key method declared in the same
+   * query interface.
+   */
+  String value();
+
+  /**
+   * The number of milliseconds the first invocation of a batch will wait for
+   * other invocations to join it. A value of <code>0</code> disables the wait,
+   * so only invocations that arrive before the batch is closed are
+   * coalesced.
+   */
+  long window() default 2;
+
+  /**
+   * The largest number of distinct keys that will be passed to a single
+   * invocation of the companion method. A batch is executed as soon as it
+   * is full, without waiting for the rest of the {@link #window()}.
+   */
+  int maxBatchSize() default 100;
+
+}
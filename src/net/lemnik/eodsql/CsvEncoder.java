@@ -0,0 +1,165 @@
+package net.lemnik.eodsql;
+
+import java.io.IOException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.ResultSetMetaData;
+
+/**
+ * <p>
+ * A {@link ResultEncoder} writing comma-separated values, as described by
+ * RFC 4180. The first line holds the column names, unless the encoder is
+ * created without a header, and each row is ended by a <code>CRLF</code>.
+ * Fields containing a separator, a quote or a line break are quoted, an SQL
+ * {@literal NULL} is written as an empty field, and binary columns are
+ * written as Base64.
+ * </p>
+ *
+ * @author Jason Morris
+ * @since 2.2
+ */
+public class CsvEncoder extends AbstractResultEncoder {
+
+    private final char separator;
+
+    private final boolean header;
+
+    /**
+     * Creates a <code>CsvEncoder</code> of every column, with a header line.
+     */
+    public CsvEncoder() {
+        this(',', true);
+    }
+
+    /**
+     * Creates a <code>CsvEncoder</code> of every column.
+     *
+     * @param separator the character written between fields
+     * @param header whether to write a line of column names first
+     */
+    public CsvEncoder(final char separator, final boolean header) {
+        this.separator = separator;
+        this.header = header;
+    }
+
+    /**
+     * Creates a <code>CsvEncoder</code> of the columns the given data-object
+     * type is bound to.
+     *
+     * @param dataObjectType the data-object type to take the columns from
+     * @param separator the character written between fields
+     * @param header whether to write a line of column names first
+     * @throws InvalidDataTypeException if the type is not a valid data-object
+     */
+    public CsvEncoder(
+            final Class<?> dataObjectType,
+            final char separator,
+            final boolean header)
+            throws InvalidDataTypeException {
+
+        super(dataObjectType);
+
+        this.separator = separator;
+        this.header = header;
+    }
+
+    @Override
+    public void begin(final ResultSetMetaData metaData, final ExportBuffer out)
+            throws SQLException,
+            IOException {
+
+        super.begin(metaData, out);
+
+        if(header) {
+            final int count = getColumnCount();
+
+            for(int i = 0; i < count; i++) {
+                if(i != 0) {
+                    out.writeCodePoint(separator);
+                }
+
+                writeText(getColumnName(i), out);
+            }
+
+            out.writeAscii("\r\n");
+        }
+    }
+
+    public void encode(final ResultSet row, final ExportBuffer out)
+            throws SQLException,
+            IOException {
+
+        final int count = getColumnCount();
+
+        for(int i = 0; i < count; i++) {
+            if(i != 0) {
+                out.writeCodePoint(separator);
+            }
+
+            encodeColumn(row, i, out);
+        }
+
+        out.writeAscii("\r\n");
+    }
+
+    @Override
+    protected void writeNull(final ExportBuffer out) {
+    }
+
+    @Override
+    protected void writeBoolean(final boolean value, final ExportBuffer out)
+            throws IOException {
+
+        out.writeAscii(value ? "true" : "false");
+    }
+
+    @Override
+    protected void writeBinary(final byte[] value, final ExportBuffer out)
+            throws IOException {
+
+        out.writeBase64(value);
+    }
+
+    private boolean needsQuotes(final String value) {
+        final int length = value.length();
+
+        for(int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if(c == separator || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    protected void writeText(final String value, final ExportBuffer out)
+            throws IOException {
+
+        if(!needsQuotes(value)) {
+            out.writeText(value);
+            return;
+        }
+
+        final int length = value.length();
+        int start = 0;
+
+        out.write('"');
+
+        for(int i = 0; i < length; i++) {
+            if(value.charAt(i) == '"') {
+                // write up to and including the quote, and then double it
+                out.writeText(value, start, i + 1);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+
+        out.writeText(value, start, length);
+        out.write('"');
+    }
+
+}
@@ -81,4 +81,42 @@ public interface DataSet<T> extends List<T> {
      */
     void disconnect();
 
+    /**
+     * <p>
+     * Returns the first row of this <code>DataSet</code> with the given key,
+     * or <code>null</code> if there is no such row. The key columns are those
+     * named by {@link Select#keyColumns()}, or else the
+     * {@link AutoGeneratedKeys} columns of the data-object (in alphabetical
+     * order if there are several).
+     * </p><p>
+     * The first lookup builds a hash index of the keys in a single pass over
+     * the rows, after which every lookup takes constant time. Integral keys
+     * are compared as <code>Long</code>s, so an <code>int</code> key will find
+     * a <code>long</code> column.
+     * </p>
+     *
+     * @param key the values of the key columns, in order
+     * @return the row with the given key, or <code>null</code>
+     * @throws IllegalArgumentException if the number of key values does not
+     *      match the number of key columns
+     * @throws EoDException if the data-object has no key columns
+     * @since 2.2
+     * @see #indexOfKey(Object[])
+     */
+    T getByKey(Object... key);
+
+    /**
+     * Returns the index of the first row of this <code>DataSet</code> with the
+     * given key, or <code>-1</code> if there is no such row.
+     *
+     * @param key the values of the key columns, in order
+     * @return the index of the row with the given key, or <code>-1</code>
+     * @throws IllegalArgumentException if the number of key values does not
+     *      match the number of key columns
+     * @throws EoDException if the data-object has no key columns
+     * @since 2.2
+     * @see #getByKey(Object[])
+     */
+    int indexOfKey(Object... key);
+
 }
\ No newline at end of file
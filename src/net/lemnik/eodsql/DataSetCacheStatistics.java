@@ -0,0 +1,101 @@
+package net.lemnik.eodsql;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Counts the hits, misses and evictions of one or more
+ * {@link BoundedDataSetCache} objects. Since a new {@code DataSetCache} is
+ * created for every {@link DataSet}, a {@code DataSetCacheStatistics} is
+ * normally shared by all of the caches of a single implementation, and is
+ * thus safe to update from several threads at once.
+ * </p><p>
+ * To count the caches of a single query separately, extend the cache
+ * implementation and pass it a {@code DataSetCacheStatistics} of it's own:
+ * </p>
+ * <pre>
+ * public class UserCache extends LruDataSetCache&lt;User&gt; {
+ *     public static final DataSetCacheStatistics STATISTICS =
+ *             new DataSetCacheStatistics();
+ *
+ *     public UserCache() {
+ *         super(500, STATISTICS);
+ *     }
+ * }
+ * </pre>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see BoundedDataSetCache#getStatistics()
+ */
+public class DataSetCacheStatistics {
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of rows that were found in the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of rows that were looked for, but not found in the
+     * cache (and thus had to be read from the {@code ResultSet} again).
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of rows that were removed from the cache to make
+     * room for others, or that were reclaimed by the garbage collector.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the fraction of rows looked for that were found in the cache,
+     * or {@literal 0} if no rows have been looked for yet.
+     */
+    public double getHitRatio() {
+        final long h = hits.get();
+        final long total = h + misses.get();
+
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    /**
+     * Sets all of the counters back to {@literal 0}.
+     */
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount();
+    }
+
+}
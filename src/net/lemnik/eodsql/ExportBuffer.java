@@ -0,0 +1,238 @@
+package net.lemnik.eodsql;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>
+ * The output of a {@link ResultEncoder}. An <code>ExportBuffer</code>
+ * encodes text and numbers straight into a direct <code>ByteBuffer</code>,
+ * and writes it to a <code>WritableByteChannel</code> each time it fills up,
+ * so that exporting a row does not need any intermediate <code>String</code>
+ * or <code>byte[]</code> objects. Text is always encoded as UTF-8.
+ * </p><p>
+ * The <code>ByteBuffer</code> is allocated once for each thread, and re-used
+ * by every export the thread runs. An <code>ExportBuffer</code> is not
+ * thread-safe.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see QueryTool#export(java.sql.Connection, ResultEncoder, WritableByteChannel, String, Object[])
+ */
+public final class ExportBuffer {
+
+    /**
+     * The size of the direct <code>ByteBuffer</code> held by each thread.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            new ThreadLocal<ByteBuffer>() {
+
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+    };
+
+    private static final byte[] BASE64 =
+            ("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
+            "0123456789+/").getBytes();
+
+    private static final byte[] MIN_LONG = "-9223372036854775808".getBytes();
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final byte[] digits = new byte[20];
+
+    private long written = 0;
+
+    ExportBuffer(final WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = BUFFERS.get();
+        this.buffer.clear();
+    }
+
+    private void ensureRemaining(final int count) throws IOException {
+        if(buffer.remaining() < count) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+
+        while(buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b the byte to write
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void write(final int b) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte)b);
+    }
+
+    /**
+     * Writes text that is known to only contain ASCII characters, such as
+     * separators and keywords.
+     *
+     * @param text the text to write
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void writeAscii(final CharSequence text) throws IOException {
+        final int length = text.length();
+
+        for(int i = 0; i < length; i++) {
+            ensureRemaining(1);
+            buffer.put((byte)text.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a single Unicode code-point as UTF-8.
+     *
+     * @param codePoint the code-point to write
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void writeCodePoint(final int codePoint) throws IOException {
+        ensureRemaining(4);
+
+        if(codePoint < 0x80) {
+            buffer.put((byte)codePoint);
+        } else if(codePoint < 0x800) {
+            buffer.put((byte)(0xc0 | (codePoint >> 6)));
+            buffer.put((byte)(0x80 | (codePoint & 0x3f)));
+        } else if(codePoint < 0x10000) {
+            buffer.put((byte)(0xe0 | (codePoint >> 12)));
+            buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3f)));
+            buffer.put((byte)(0x80 | (codePoint & 0x3f)));
+        } else {
+            buffer.put((byte)(0xf0 | (codePoint >> 18)));
+            buffer.put((byte)(0x80 | ((codePoint >> 12) & 0x3f)));
+            buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3f)));
+            buffer.put((byte)(0x80 | (codePoint & 0x3f)));
+        }
+    }
+
+    /**
+     * Writes text as UTF-8, without any escaping.
+     *
+     * @param text the text to write
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void writeText(final CharSequence text) throws IOException {
+        writeText(text, 0, text.length());
+    }
+
+    /**
+     * Writes part of some text as UTF-8, without any escaping. This allows
+     * encoders to write the text between the characters they escape without
+     * creating sub-strings.
+     *
+     * @param text the text to write part of
+     * @param start the index of the first character to write
+     * @param end the index after the last character to write
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void writeText(
+            final CharSequence text,
+            final int start,
+            final int end)
+            throws IOException {
+
+        for(int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+
+            if(Character.isHighSurrogate(c) && i + 1 < end &&
+                    Character.isLowSurrogate(text.charAt(i + 1))) {
+
+                writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                writeCodePoint(c);
+            }
+        }
+    }
+
+    /**
+     * Writes the decimal digits of a number.
+     *
+     * @param value the number to write
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void writeLong(final long value) throws IOException {
+        if(value == Long.MIN_VALUE) {
+            ensureRemaining(MIN_LONG.length);
+            buffer.put(MIN_LONG);
+            return;
+        }
+
+        long remaining = Math.abs(value);
+        int position = digits.length;
+
+        do {
+            digits[--position] = (byte)('0' + (remaining % 10));
+            remaining /= 10;
+        } while(remaining != 0);
+
+        ensureRemaining(digits.length + 1);
+
+        if(value < 0) {
+            buffer.put((byte)'-');
+        }
+
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    /**
+     * Writes binary data as Base64 text.
+     *
+     * @param data the data to write
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void writeBase64(final byte[] data) throws IOException {
+        for(int i = 0; i < data.length; i += 3) {
+            final int b0 = data[i] & 0xff;
+            final int b1 = i + 1 < data.length ? data[i + 1] & 0xff : 0;
+            final int b2 = i + 2 < data.length ? data[i + 2] & 0xff : 0;
+
+            ensureRemaining(4);
+            buffer.put(BASE64[b0 >> 2]);
+            buffer.put(BASE64[((b0 << 4) | (b1 >> 4)) & 0x3f]);
+            buffer.put(i + 1 < data.length
+                    ? BASE64[((b1 << 2) | (b2 >> 6)) & 0x3f]
+                    : (byte)'=');
+            buffer.put(i + 2 < data.length ? BASE64[b2 & 0x3f] : (byte)'=');
+        }
+    }
+
+    /**
+     * Writes everything in the buffer to the channel.
+     *
+     * @throws IOException if the buffer could not be written to the channel
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Returns the number of bytes written to the channel so far.
+     */
+    public long getBytesWritten() {
+        return written;
+    }
+
+}
@@ -0,0 +1,185 @@
+package net.lemnik.eodsql;
+
+import java.io.IOException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.ResultSetMetaData;
+
+/**
+ * <p>
+ * A {@link ResultEncoder} writing one JSON object per row, each on it's own
+ * line (the "JSON Lines" format). The keys of each object are the column
+ * names. Numbers and booleans are written as JSON numbers and booleans, an
+ * SQL {@literal NULL} as <code>null</code>, binary columns as Base64 strings,
+ * and every other column as a string.
+ * </p>
+ *
+ * @author Jason Morris
+ * @since 2.2
+ */
+public class JsonLinesEncoder extends AbstractResultEncoder {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * The keys of each object, already quoted and followed by a colon.
+     */
+    private String[] keys = new String[0];
+
+    /**
+     * Creates a <code>JsonLinesEncoder</code> of every column.
+     */
+    public JsonLinesEncoder() {
+    }
+
+    /**
+     * Creates a <code>JsonLinesEncoder</code> of the columns the given
+     * data-object type is bound to.
+     *
+     * @param dataObjectType the data-object type to take the columns from
+     * @throws InvalidDataTypeException if the type is not a valid data-object
+     */
+    public JsonLinesEncoder(final Class<?> dataObjectType)
+            throws InvalidDataTypeException {
+
+        super(dataObjectType);
+    }
+
+    @Override
+    public void begin(final ResultSetMetaData metaData, final ExportBuffer out)
+            throws SQLException,
+            IOException {
+
+        super.begin(metaData, out);
+
+        keys = new String[getColumnCount()];
+
+        for(int i = 0; i < keys.length; i++) {
+            final StringBuilder key = new StringBuilder();
+            escape(getColumnName(i), key);
+            keys[i] = key.append(':').toString();
+        }
+    }
+
+    public void encode(final ResultSet row, final ExportBuffer out)
+            throws SQLException,
+            IOException {
+
+        out.write('{');
+
+        for(int i = 0; i < keys.length; i++) {
+            if(i != 0) {
+                out.write(',');
+            }
+
+            out.writeText(keys[i]);
+            encodeColumn(row, i, out);
+        }
+
+        out.writeAscii("}\n");
+    }
+
+    @Override
+    protected void writeNull(final ExportBuffer out) throws IOException {
+        out.writeAscii("null");
+    }
+
+    @Override
+    protected void writeBoolean(final boolean value, final ExportBuffer out)
+            throws IOException {
+
+        out.writeAscii(value ? "true" : "false");
+    }
+
+    @Override
+    protected void writeNumber(final String value, final ExportBuffer out)
+            throws IOException {
+
+        // NaN and Infinity are not JSON numbers
+        if(Character.isLetter(value.charAt(value.length() - 1))) {
+            out.write('"');
+            out.writeAscii(value);
+            out.write('"');
+        } else {
+            out.writeAscii(value);
+        }
+    }
+
+    @Override
+    protected void writeBinary(final byte[] value, final ExportBuffer out)
+            throws IOException {
+
+        out.write('"');
+        out.writeBase64(value);
+        out.write('"');
+    }
+
+    @Override
+    protected void writeText(final String value, final ExportBuffer out)
+            throws IOException {
+
+        final int length = value.length();
+        int start = 0;
+
+        out.write('"');
+
+        for(int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if(c == '"' || c == '\\' || c < 0x20) {
+                out.writeText(value, start, i);
+                writeEscape(c, out);
+                start = i + 1;
+            }
+        }
+
+        out.writeText(value, start, length);
+        out.write('"');
+    }
+
+    private static void writeEscape(final char c, final ExportBuffer out)
+            throws IOException {
+
+        switch(c) {
+            case '"':
+                out.writeAscii("\\\"");
+                break;
+            case '\\':
+                out.writeAscii("\\\\");
+                break;
+            case '\n':
+                out.writeAscii("\\n");
+                break;
+            case '\r':
+                out.writeAscii("\\r");
+                break;
+            case '\t':
+                out.writeAscii("\\t");
+                break;
+            default:
+                out.writeAscii("\\u00");
+                out.write(HEX[c >> 4]);
+                out.write(HEX[c & 0xf]);
+        }
+    }
+
+    private static void escape(final String value, final StringBuilder out) {
+        out.append('"');
+
+        for(int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if(c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if(c < 0x20) {
+                out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+            } else {
+                out.append(c);
+            }
+        }
+
+        out.append('"');
+    }
+
+}
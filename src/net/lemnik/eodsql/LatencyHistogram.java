@@ -0,0 +1,190 @@
+package net.lemnik.eodsql;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A histogram of latencies in nanoseconds, kept in the same log-linear
+ * form as an HDR histogram: each power of two is split into
+ * {@value #SUB_BUCKETS} equally sized buckets, so that every value is counted
+ * to within about 6% of it's real value no matter how large it is, in a fixed
+ * number of buckets. Latencies up to {@link #HIGHEST_TRACKABLE_VALUE}
+ * (about 9.7 hours) are tracked, larger values are counted as that value.
+ * </p><p>
+ * Recording a value only updates a single bucket, so threads recording
+ * different latencies seldom contend with each other. Reading the histogram
+ * walks all of the buckets, and may see a recording that is still in
+ * progress partly applied.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see MethodMetrics
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of buckets each power of two is split into.
+     */
+    public static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Values below this are each counted in their own bucket.
+     */
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+
+    private static final int HIGHEST_BIT = 44;
+
+    /**
+     * The largest latency that is counted as itself.
+     */
+    public static final long HIGHEST_TRACKABLE_VALUE = (1L << (HIGHEST_BIT + 1)) - 1;
+
+    private static final int BUCKETS =
+            LINEAR_BUCKETS + (HIGHEST_BIT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final StripedCounter total = new StripedCounter();
+
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    private static int getBucket(final long value) {
+        if(value < LINEAR_BUCKETS) {
+            return (int)value;
+        }
+
+        final int bit = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = bit - SUB_BUCKET_BITS;
+
+        return LINEAR_BUCKETS +
+                (shift - 1) * SUB_BUCKETS +
+                (int)(value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest value that is counted in the given bucket.
+     */
+    private static long getHighestValue(final int bucket) {
+        if(bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+
+        final int index = bucket - LINEAR_BUCKETS;
+        final int shift = index / SUB_BUCKETS + 1;
+        final long lowest = (long)(index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+
+    void record(final long nanos) {
+        final long value = Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_VALUE);
+
+        counts.incrementAndGet(getBucket(value));
+        total.add(value);
+
+        long current = max.get();
+
+        while(value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     */
+    public long getCount() {
+        long count = 0;
+
+        for(int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the sum of all of the latencies recorded, in nanoseconds.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the largest latency recorded, in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean latency in nanoseconds, or {@literal 0} if none have
+     * been recorded.
+     */
+    public double getMean() {
+        final long count = getCount();
+        return count == 0 ? 0 : (double)getTotal() / count;
+    }
+
+    /**
+     * Returns the latency that the given percentage of the recorded
+     * latencies were less than or equal to, in nanoseconds. The value is the
+     * largest that would be counted in the same bucket, so it may be up to
+     * about 6% larger than the real latency.
+     *
+     * @param percentile the percentage of latencies, from {@literal 0} to
+     *      {@literal 100}
+     * @return the latency at the percentile, or {@literal 0} if none have
+     *      been recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long count = getCount();
+
+        if(count == 0) {
+            return 0;
+        }
+
+        final double fraction = Math.min(Math.max(percentile, 0), 100) / 100;
+        final long target = Math.max(1, (long)Math.ceil(fraction * count));
+        final long highest = max.get();
+
+        long seen = 0;
+
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+
+            if(seen >= target) {
+                return Math.min(getHighestValue(i), highest);
+            }
+        }
+
+        return highest;
+    }
+
+    /**
+     * Discards all of the latencies recorded.
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+
+        total.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+                ", mean=" + (long)getMean() +
+                "ns, p99=" + getValueAtPercentile(99) +
+                "ns, max=" + getMax() + "ns";
+    }
+
+}
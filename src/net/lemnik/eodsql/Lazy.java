@@ -0,0 +1,100 @@
+package net.lemnik.eodsql;
+
+/**
+ * <p>
+ * A value that is only loaded from the database when it is first asked for.
+ * EoD SQL assigns a <code>Lazy</code> to each field of a data-object that is
+ * annotated as a {@link ResultColumn#lazy() lazy} column. The value is
+ * loaded by the first invocation of {@link #get()}, and returned by every
+ * invocation after that.
+ * </p><p>
+ * A <code>Lazy</code> that already holds it's value can be created with
+ * {@link #of(Object)}, for data-objects that are created by hand.
+ * </p>
+ *
+ * @param <T> the type of the value
+ * @since 2.2
+ * @author Jason Morris
+ */
+public abstract class Lazy<T> {
+
+    private volatile boolean loaded = false;
+
+    private volatile T value = null;
+
+    protected Lazy() {
+    }
+
+    /**
+     * Loads the value, when {@link #get()} is first invoked. Implementations
+     * may load other values at the same time, and hand them to the other
+     * <code>Lazy</code> objects with {@link #setValue(Object)}.
+     *
+     * @return the value
+     * @throws EoDException if the value could not be loaded
+     */
+    protected abstract T load() throws EoDException;
+
+    /**
+     * Sets the value of this <code>Lazy</code>, marking it as loaded.
+     *
+     * @param value the loaded value
+     */
+    protected final void setValue(final T value) {
+        this.value = value;
+        this.loaded = true;
+    }
+
+    /**
+     * Returns the value, loading it first if it has not yet been loaded.
+     *
+     * @return the value, which may be <code>null</code>
+     * @throws EoDException if the value could not be loaded
+     */
+    public T get() throws EoDException {
+        if(!loaded) {
+            final T loadedValue = load();
+
+            if(!loaded) {
+                setValue(loadedValue);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns whether the value has been loaded.
+     *
+     * @return <code>true</code> if {@link #get()} will not touch the database
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Creates a <code>Lazy</code> that already holds the given value.
+     *
+     * @param value the value
+     * @return a loaded <code>Lazy</code> holding the value
+     */
+    public static <T> Lazy<T> of(final T value) {
+        final Lazy<T> lazy = new Lazy<T>() {
+
+            @Override
+            protected T load() {
+                return value;
+            }
+
+        };
+
+        lazy.setValue(value);
+        return lazy;
+    }
+
+    @Override
+    public String toString() {
+        return loaded ? "Lazy[" + value + "]" : "Lazy[not loaded]";
+    }
+
+}
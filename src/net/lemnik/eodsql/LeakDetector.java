@@ -0,0 +1,387 @@
+package net.lemnik.eodsql;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.PhantomReference;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Finds query results that are never closed. A {@code DataIterator} or
+ * connected {@code DataSet} holds a {@code Connection}, statement and cursor
+ * open until it is closed (and a disconnected {@code DataSet} that spilled
+ * it's rows to a file holds the file), and if it is simply dropped those
+ * resources are lost. The {@code LeakDetector} tracks each such result with a
+ * {@code PhantomReference}. When the result is garbage collected without
+ * being closed, it's resources are closed (reclaimed) and the leak is passed
+ * to the {@link Handler}.
+ * </p><p>
+ * Tracking is enabled by default, and costs a single reference for each
+ * connected result. A result may also be reported while it is still open,
+ * once it has been open longer than the {@link #setMaxAge(long, TimeUnit)
+ * maximum age}, and optionally have it's resources forcibly closed. Since
+ * working out where a leaked result was created needs a stack trace, the
+ * allocation site is only captured for the {@link #setSampleRate(int)
+ * sampled} results.
+ * </p><p>
+ * Leaks are reclaimed by a single background thread. The {@code Connection}
+ * of a query object created on a single {@code Connection} can only be
+ * released by the thread that took it, so only it's statement and cursor can
+ * be reclaimed.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see ResourceLeak
+ */
+public final class LeakDetector {
+
+    /**
+     * How often results are checked against the maximum age.
+     */
+    private static final long CHECK_INTERVAL = 1000;
+
+    private static final ReferenceQueue<Object> QUEUE =
+            new ReferenceQueue<Object>();
+
+    private static final ConcurrentMap<Tracker, Boolean> TRACKED =
+            new ConcurrentHashMap<Tracker, Boolean>();
+
+    private static final AtomicLong ALLOCATIONS = new AtomicLong();
+
+    private static final AtomicLong RECLAIMED = new AtomicLong();
+
+    private static volatile boolean enabled = true;
+
+    private static volatile int sampleRate = 0;
+
+    private static volatile long maxAge = -1;
+
+    private static volatile boolean forceClose = false;
+
+    private static volatile Handler handler = null;
+
+    private static Thread reclaimer = null;
+
+    private LeakDetector() {
+    }
+
+    /**
+     * Sets whether new results are tracked. Results that are already tracked
+     * remain so.
+     */
+    public static void setEnabled(final boolean enabled) {
+        LeakDetector.enabled = enabled;
+    }
+
+    /**
+     * Returns whether new results are tracked.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets how often the allocation site of a result is captured: one
+     * result in every {@code rate}. {@literal 1} captures every allocation
+     * site, and {@literal 0} (the default) none.
+     */
+    public static void setSampleRate(final int rate) {
+        sampleRate = Math.max(rate, 0);
+    }
+
+    /**
+     * Sets how long a result may be open before it is reported, even though
+     * it has not been garbage collected. A negative age (the default)
+     * disables these reports.
+     *
+     * @param age the longest a result may be open
+     * @param unit the unit of {@code age}
+     */
+    public static void setMaxAge(final long age, final TimeUnit unit) {
+        maxAge = age < 0 ? -1 : unit.toMillis(age);
+    }
+
+    /**
+     * Sets whether the resources of results open longer than the maximum
+     * age are closed when they are reported. The result itself is left in
+     * place, and will fail if it is used again.
+     */
+    public static void setForceClose(final boolean forceClose) {
+        LeakDetector.forceClose = forceClose;
+    }
+
+    /**
+     * Sets the {@code Handler} told of each leak, or {@literal null} for
+     * none. Leaks are still reclaimed without a {@code Handler}.
+     */
+    public static void setHandler(final Handler handler) {
+        LeakDetector.handler = handler;
+    }
+
+    /**
+     * Returns the number of results whose resources have all been closed by
+     * the {@code LeakDetector}.
+     */
+    public static long getReclaimedCount() {
+        return RECLAIMED.get();
+    }
+
+    /**
+     * <p>
+     * Tracks a result that holds database resources open. This is invoked
+     * by {@link net.lemnik.eodsql.spi.Context#track(Object)}, and will seldom
+     * need to be invoked by anything else.
+     * </p><p>
+     * The {@code resources} must not refer to the {@code owner}, or the
+     * owner will never be garbage collected.
+     * </p>
+     *
+     * @param owner the result holding the resources
+     * @param sql the SQL the result was selected with, if it is known
+     * @param resources closes the resources of the result
+     * @return a handle to pass to {@link #untrack(Object)} when the result
+     *      is closed, or {@literal null} if tracking is disabled
+     */
+    public static Object track(
+            final Object owner,
+            final String sql,
+            final Closeable resources) {
+
+        if(!enabled) {
+            return null;
+        }
+
+        final int rate = sampleRate;
+        final Throwable site =
+                rate > 0 && ALLOCATIONS.getAndIncrement() % rate == 0
+                ? new Throwable("Allocation site of a " +
+                        owner.getClass().getName())
+                : null;
+
+        final Tracker tracker = new Tracker(owner, sql, resources, site);
+        TRACKED.put(tracker, Boolean.TRUE);
+        startReclaimer();
+
+        return tracker;
+    }
+
+    /**
+     * Stops tracking a result that has been closed.
+     *
+     * @param handle the handle returned by
+     *      {@link #track(Object, String, Closeable)}
+     */
+    public static void untrack(final Object handle) {
+        if(handle != null) {
+            final Tracker tracker = (Tracker)handle;
+            TRACKED.remove(tracker);
+            tracker.clear();
+        }
+    }
+
+    /**
+     * Returns the results that are currently open, the oldest first.
+     *
+     * @return a new list of the open results
+     */
+    public static List<ResourceLeak> getOpenResources() {
+        final List<Tracker> trackers = new ArrayList<Tracker>(TRACKED.keySet());
+        final List<ResourceLeak> open = new ArrayList<ResourceLeak>(trackers.size());
+        final long now = System.currentTimeMillis();
+
+        java.util.Collections.sort(trackers);
+
+        for(final Tracker tracker : trackers) {
+            open.add(tracker.toLeak(now, false, false));
+        }
+
+        return open;
+    }
+
+    /**
+     * Checks the open results against the maximum age now, rather than
+     * waiting for the background thread to do so.
+     */
+    public static void check() {
+        final long age = maxAge;
+
+        if(age < 0) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final boolean close = forceClose;
+
+        for(final Tracker tracker : TRACKED.keySet()) {
+            if(!tracker.reported && now - tracker.created >= age) {
+                tracker.reported = true;
+
+                boolean reclaimed = false;
+
+                if(close && TRACKED.remove(tracker) != null) {
+                    tracker.clear();
+                    reclaimed = tracker.reclaim();
+                }
+
+                report(tracker.toLeak(now, false, reclaimed));
+            }
+        }
+    }
+
+    private static void report(final ResourceLeak leak) {
+        final Handler current = handler;
+
+        if(current != null) {
+            try {
+                current.leaked(leak);
+            } catch(final RuntimeException re) {
+                // a broken Handler must not stop the reclaiming
+            }
+        }
+    }
+
+    private static synchronized void startReclaimer() {
+        if(reclaimer == null) {
+            reclaimer = new Thread(new Reclaimer(), "EoD SQL leak detector");
+            reclaimer.setDaemon(true);
+            reclaimer.start();
+        }
+    }
+
+    /**
+     * Closes the resources of the results that are collected without being
+     * closed, and checks the open results against the maximum age.
+     */
+    private static class Reclaimer implements Runnable {
+
+        public void run() {
+            long checked = System.currentTimeMillis();
+
+            while(true) {
+                try {
+                    final Tracker tracker = (Tracker)QUEUE.remove(CHECK_INTERVAL);
+
+                    if(tracker != null && TRACKED.remove(tracker) != null) {
+                        final boolean reclaimed = tracker.reclaim();
+
+                        report(tracker.toLeak(
+                                System.currentTimeMillis(),
+                                true,
+                                reclaimed));
+                    }
+                } catch(final InterruptedException ie) {
+                    // we are a daemon, there is nobody to interrupt us
+                }
+
+                final long now = System.currentTimeMillis();
+
+                if(now - checked >= CHECK_INTERVAL) {
+                    checked = now;
+                    check();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Tracks a single result. The {@code Tracker} only refers to the
+     * resources of the result, never to the result itself.
+     */
+    private static class Tracker extends PhantomReference<Object>
+            implements Comparable<Tracker> {
+
+        private final String ownerType;
+
+        private final String sql;
+
+        private final Closeable resources;
+
+        private final Throwable site;
+
+        private final long created = System.currentTimeMillis();
+
+        private volatile boolean reported = false;
+
+        Tracker(
+                final Object owner,
+                final String sql,
+                final Closeable resources,
+                final Throwable site) {
+
+            super(owner, QUEUE);
+
+            this.ownerType = owner.getClass().getName();
+            this.sql = sql;
+            this.resources = resources;
+            this.site = site;
+        }
+
+        /**
+         * Closes the resources of the result, returning whether every one of
+         * them was closed.
+         */
+        boolean reclaim() {
+            try {
+                resources.close();
+            } catch(final IOException ioe) {
+                // there is nobody to throw this to, the leak is still
+                // reported but not as reclaimed
+                return false;
+            } catch(final RuntimeException re) {
+                return false;
+            }
+
+            RECLAIMED.incrementAndGet();
+            return true;
+        }
+
+        ResourceLeak toLeak(
+                final long now,
+                final boolean collected,
+                final boolean reclaimed) {
+
+            return new ResourceLeak(
+                    ownerType,
+                    sql,
+                    created,
+                    now - created,
+                    site,
+                    collected,
+                    reclaimed);
+        }
+
+        public int compareTo(final Tracker other) {
+            return created < other.created ? -1
+                    : (created == other.created ? 0 : 1);
+        }
+
+    }
+
+    /**
+     * Is told of each leaked result. A {@code Handler} is invoked by the
+     * background thread of the {@code LeakDetector}, or by the thread
+     * invoking {@link LeakDetector#check()}.
+     */
+    public static interface Handler {
+
+        /**
+         * Invoked once for each leaked result.
+         *
+         * @param leak describes the leaked result
+         */
+        public void leaked(ResourceLeak leak);
+
+    }
+
+}
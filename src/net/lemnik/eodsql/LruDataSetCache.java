@@ -0,0 +1,92 @@
+package net.lemnik.eodsql;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+/**
+ * <p>
+ * A {@link DataSetCache} that holds up to a fixed number of rows, evicting
+ * the least recently used row to make room for a new one. Unlike the
+ * {@link ArrayDataSetCache} the rows are held strongly, so they are not lost
+ * to the garbage collector, and only the rows held take up any memory.
+ * </p><p>
+ * A single scan of a large {@code DataSet} will push every other row out of
+ * an {@code LruDataSetCache}. If a {@code DataSet} is scanned while some
+ * rows are used over and over, look at the {@link SegmentedLruDataSetCache}.
+ * </p>
+ *
+ * @param <T> the row data-type to cache
+ * @since 2.2
+ * @author Jason Morris
+ * @see BoundedDataSetCache
+ */
+public class LruDataSetCache<T> extends BoundedDataSetCache<T> {
+
+    /**
+     * Counts the hits, misses and evictions of all the
+     * {@code LruDataSetCache} objects created with the default constructor.
+     */
+    public static final DataSetCacheStatistics STATISTICS =
+            new DataSetCacheStatistics();
+
+    private final Map<Integer, T> rows;
+
+    /**
+     * Creates a new {@code LruDataSetCache} holding up to
+     * {@link #DEFAULT_CAPACITY} rows, counted in {@link #STATISTICS}.
+     */
+    public LruDataSetCache() {
+        this(DEFAULT_CAPACITY, STATISTICS);
+    }
+
+    /**
+     * Creates a new {@code LruDataSetCache}.
+     *
+     * @param capacity the largest number of rows to hold
+     * @param statistics where to count the hits, misses and evictions
+     */
+    public LruDataSetCache(
+            final int capacity,
+            final DataSetCacheStatistics statistics) {
+
+        super(capacity, statistics);
+
+        rows = new LinkedHashMap<Integer, T>(
+                Math.min(capacity, 64) * 4 / 3 + 1,
+                0.75f,
+                true) {
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, T> e) {
+                if(size() > getCapacity()) {
+                    evicted();
+                    return true;
+                }
+
+                return false;
+            }
+
+        };
+    }
+
+    @Override
+    protected boolean contains(final int row) {
+        return rows.containsKey(row);
+    }
+
+    @Override
+    protected T get(final int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    protected void put(final int row, final T object) {
+        rows.put(row, object);
+    }
+
+    @Override
+    protected void clear() {
+        rows.clear();
+    }
+
+}
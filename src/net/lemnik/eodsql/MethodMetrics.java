@@ -0,0 +1,247 @@
+package net.lemnik.eodsql;
+
+import java.lang.reflect.Method;
+
+import net.lemnik.eodsql.spi.Execution;
+import net.lemnik.eodsql.spi.Execution.Phase;
+
+/**
+ * <p>
+ * The metrics of a single query method, shared by every query object
+ * implementing it's interface. A {@code MethodMetrics} counts the calls
+ * to the method, those that failed, and the rows they returned and affected,
+ * and keeps a {@link LatencyHistogram} of the time taken by whole calls,
+ * and one for each {@link Phase} of a call.
+ * </p><p>
+ * The {@code MethodMetrics} of each method are held by {@link QueryMetrics}.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Method method;
+
+    private final String name;
+
+    private final StripedCounter calls = new StripedCounter();
+
+    private final StripedCounter errors = new StripedCounter();
+
+    private final StripedCounter rowsReturned = new StripedCounter();
+
+    private final StripedCounter rowsAffected = new StripedCounter();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private volatile int fetchSize = 0;
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+
+    MethodMetrics(final Method method) {
+        this.method = method;
+        this.name = getName(method);
+
+        for(int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    static String getName(final Method method) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(method.getDeclaringClass().getName()).append('.');
+        builder.append(method.getName()).append('(');
+
+        final Class<?>[] parameters = method.getParameterTypes();
+
+        for(int i = 0; i < parameters.length; i++) {
+            if(i > 0) {
+                builder.append(',');
+            }
+
+            builder.append(parameters[i].getSimpleName());
+        }
+
+        return builder.append(')').toString();
+    }
+
+    void record(final Execution execution, final boolean failed) {
+        calls.increment();
+
+        if(failed) {
+            errors.increment();
+        }
+
+        rowsReturned.add(execution.getRowsReturned());
+        rowsAffected.add(execution.getRowsAffected());
+
+        if(execution.getFetchSize() != 0) {
+            fetchSize = execution.getFetchSize();
+        }
+
+        latency.record(execution.getTotalTime());
+
+        for(int i = 0; i < PHASES.length; i++) {
+            phases[i].record(execution.getTime(PHASES[i]));
+        }
+    }
+
+    /**
+     * Returns the query method these metrics are of.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the name of the method, including it's interface and the
+     * simple names of it's parameter types.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of times the method has been called, including
+     * those that failed.
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     * Returns the number of calls to the method that threw an exception.
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    /**
+     * Returns the number of rows returned by all of the calls to the method,
+     * where they were known when the call returned.
+     *
+     * @see Execution#getRowsReturned()
+     */
+    public long getRowsReturned() {
+        return rowsReturned.sum();
+    }
+
+    /**
+     * Returns the number of rows affected by all of the calls to the method.
+     */
+    public long getRowsAffected() {
+        return rowsAffected.sum();
+    }
+
+    /**
+     * Returns the fetch size most recently set on the statement of the
+     * method, or {@literal 0} if it has always been left to the driver. For a
+     * method with an {@link Select#adaptiveFetchSize() adaptive fetch size}
+     * this is the size currently chosen.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Returns the histogram of the time taken by whole calls to the method.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the histogram of the time taken by a single phase of the calls
+     * to the method.
+     *
+     * @param phase the phase to return the histogram of
+     * @return the latencies of the phase
+     */
+    public LatencyHistogram getLatency(final Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    private static double toMillis(final double nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    public double getMeanMillis() {
+        return toMillis(latency.getMean());
+    }
+
+    public double getP50Millis() {
+        return toMillis(latency.getValueAtPercentile(50));
+    }
+
+    public double getP99Millis() {
+        return toMillis(latency.getValueAtPercentile(99));
+    }
+
+    public double getMaxMillis() {
+        return toMillis(latency.getMax());
+    }
+
+    public double getConnectionMeanMillis() {
+        return toMillis(getLatency(Phase.CONNECTION).getMean());
+    }
+
+    public double getPrepareMeanMillis() {
+        return toMillis(getLatency(Phase.PREPARE).getMean());
+    }
+
+    public double getExecuteMeanMillis() {
+        return toMillis(getLatency(Phase.EXECUTE).getMean());
+    }
+
+    public double getFetchMeanMillis() {
+        return toMillis(getLatency(Phase.FETCH).getMean());
+    }
+
+    public double getCloseMeanMillis() {
+        return toMillis(getLatency(Phase.CLOSE).getMean());
+    }
+
+    public double getPercentileMillis(
+            final String phase,
+            final double percentile) {
+
+        final LatencyHistogram histogram = phase == null
+                ? latency
+                : getLatency(Phase.valueOf(phase.toUpperCase()));
+
+        return toMillis(histogram.getValueAtPercentile(percentile));
+    }
+
+    /**
+     * Sets all of the counters back to {@literal 0}, and discards the
+     * latencies recorded.
+     */
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rowsReturned.reset();
+        rowsAffected.reset();
+        latency.reset();
+
+        for(final LatencyHistogram histogram : phases) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name +
+                ": calls=" + getCallCount() +
+                ", errors=" + getErrorCount() +
+                ", rowsReturned=" + getRowsReturned() +
+                ", rowsAffected=" + getRowsAffected() +
+                ", fetchSize=" + getFetchSize() +
+                ", " + latency;
+    }
+
+}
@@ -0,0 +1,57 @@
+package net.lemnik.eodsql;
+
+/**
+ * <p>
+ * The management interface of {@link MethodMetrics}, published for each query
+ * method by {@link QueryMetrics#registerMBeans()}. Latencies are given in
+ * milliseconds.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public interface MethodMetricsMBean {
+
+    String getName();
+
+    long getCallCount();
+
+    long getErrorCount();
+
+    long getRowsReturned();
+
+    long getRowsAffected();
+
+    int getFetchSize();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getConnectionMeanMillis();
+
+    double getPrepareMeanMillis();
+
+    double getExecuteMeanMillis();
+
+    double getFetchMeanMillis();
+
+    double getCloseMeanMillis();
+
+    /**
+     * Returns the latency of a phase at a percentile.
+     *
+     * @param phase the name of an {@link net.lemnik.eodsql.spi.Execution.Phase},
+     *      or {@literal null} for the whole invocation
+     * @param percentile the percentile, from {@literal 0} to {@literal 100}
+     * @return the latency at the percentile, in milliseconds
+     */
+    double getPercentileMillis(String phase, double percentile);
+
+    void reset();
+
+}
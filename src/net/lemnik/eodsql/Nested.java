@@ -0,0 +1,90 @@
+package net.lemnik.eodsql;
+
+import java.lang.annotation.Target;
+import java.lang.annotation.Retention;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * <p>
+ * The <code>@Nested</code> annotation maps the columns of a <code>JOIN</code>
+ * onto an object graph instead of a single flat data-object. It may annotate
+ * a field holding another data-object, which is then <i>embedded</i>: it's
+ * columns are read from the same row as the outer object, with the
+ * {@link #prefix()} in front of each of their names.
+ * </p>
+ * <pre>
+ *     public class Address {
+ *         public String street;
+ *         public String city;
+ *     }
+ *
+ *     public class Customer {
+ *         &#64;AutoGeneratedKeys
+ *         public long id;
+ *         public String name;
+ *
+ *         <span style="color: #00f;">@Nested(prefix = "address_")</span>
+ *         public Address address;
+ *     }
+ * </pre>
+ * <p>
+ * Here the <code>"address_street"</code> and <code>"address_city"</code>
+ * columns are mapped to the <code>street</code> and <code>city</code> of the
+ * <code>Address</code>. The <code>Address</code> is only created if at least
+ * one of it's columns is not <code>null</code>, so an outer join that finds
+ * no match leaves the field <code>null</code>.
+ * </p><p>
+ * <code>@Nested</code> may also annotate a <code>List</code>,
+ * <code>Set</code>, <code>SortedSet</code> or <code>Collection</code> field
+ * of data-objects (the element type is read from the generic type of the
+ * field). Each row of the <code>ResultSet</code> then contributes one element
+ * to the collection, and the rows are grouped by the
+ * {@link AutoGeneratedKeys} columns of the outer object, so that a single
+ * query can load each parent together with it's children:
+ * </p>
+ * <pre>
+ *     public class Order {
+ *         &#64;AutoGeneratedKeys
+ *         public long id;
+ *         public String customer;
+ *
+ *         <span style="color: #00f;">@Nested(prefix = "item_")</span>
+ *         public List&lt;LineItem&gt; items;
+ *     }
+ *
+ *     public interface OrderQuery extends BaseQuery {
+ *         &#64;Select("SELECT o.*, i.id AS item_id, i.product AS item_product " +
+ *                 "FROM orders o LEFT JOIN line_item i ON i.order_id = o.id")
+ *         public Order[] getOrdersWithItems();
+ *     }
+ * </pre>
+ * <p>
+ * A parent with no children (all of the child columns are <code>null</code>)
+ * is returned with an empty collection. Where the element type has key
+ * columns of it's own, repeated children (such as those produced by joining
+ * two collections at once) are only added once.
+ * </p><p>
+ * Rows are grouped by queries returning a single object, an array, a
+ * <code>Collection</code> or a disconnected {@link DataSet}. A
+ * {@link DataIterator} or a connected <code>DataSet</code> reads a single
+ * row at a time, and so returns one object (with a single child) per row.
+ * Collections may only be nested one level deep, but embedded objects may be
+ * nested within each other and within the elements of a collection.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Nested {
+
+  /**
+   * The prefix of the names of the nested object's columns in the
+   * <code>ResultSet</code>. Defaults to no prefix at all, in which case the
+   * nested columns must not share names with the outer object's columns.
+   */
+  String prefix() default "";
+
+}
@@ -0,0 +1,69 @@
+package net.lemnik.eodsql;
+
+/**
+ * Thrown when one or more partitions of a {@link Update#parallelism() parallel}
+ * batch update fail. The partitions that did not fail will have been executed
+ * in full, the number of rows they affected is available through
+ * {@link #getUpdateCount()}.
+ *
+ * @author Jason Morris
+ * @since 2.2
+ */
+public class ParallelBatchException extends EoDException {
+
+    private final Throwable[] failures;
+
+    private final long updateCount;
+
+    /**
+     * Creates a new {@code ParallelBatchException}. The first of the
+     * given failures becomes the cause of the new exception.
+     *
+     * @param message the detail message
+     * @param failures the failure of each partition, {@literal null} for the
+     *      partitions that succeeded
+     * @param updateCount the number of rows affected by the executed chunks
+     */
+    public ParallelBatchException(
+            final String message,
+            final Throwable[] failures,
+            final long updateCount) {
+
+        super(message, firstFailure(failures));
+
+        this.failures = failures.clone();
+        this.updateCount = updateCount;
+    }
+
+    private static Throwable firstFailure(final Throwable[] failures) {
+        for(final Throwable failure : failures) {
+            if(failure != null) {
+                return failure;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the failure of each partition of the batch, indexed by
+     * partition number. Partitions that succeeded have a {@literal null}
+     * entry.
+     *
+     * @return the failures of the batch partitions
+     */
+    public Throwable[] getFailures() {
+        return failures.clone();
+    }
+
+    /**
+     * Returns the total number of rows affected by the chunks of the batch that
+     * were executed successfully, as reported by the database.
+     *
+     * @return the number of rows affected before the batch failed
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+}
@@ -0,0 +1,87 @@
+package net.lemnik.eodsql;
+
+import java.lang.annotation.Target;
+import java.lang.annotation.Retention;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * <p>
+ * The <code>@Prefetch</code> annotation loads the related objects of a
+ * data-object field with a single extra query, instead of one query for each
+ * row. After a {@link Select @Select} method has returned it's data-objects,
+ * EoD SQL collects the keys of all of them, invokes the named query method
+ * once with all of the keys, and attaches the objects it returns to the
+ * data-objects they belong to.
+ * </p><p>
+ * The query method is declared in the {@link #query()} interface, and must
+ * take a single array or <code>Collection</code> of keys, and return an
+ * array or <code>Collection</code> of the related objects. The keys are
+ * normally passed to a list parameter, so that a large number of keys is
+ * split into several <code>IN</code> lists of at most
+ * {@link Select#maxListSize()} keys:
+ * </p>
+ * <pre>
+ *     public interface LineItemQuery extends BaseQuery {
+ *         &#64;Select("SELECT * FROM line_item WHERE order_id IN (?{1[]})")
+ *         public LineItem[] getItemsByOrder(long[] orders);
+ *     }
+ *
+ *     public class Order {
+ *         &#64;AutoGeneratedKeys
+ *         public long id;
+ *
+ *         <span style="color: #00f;">@Prefetch(query = LineItemQuery.class,
+ *                 method = "getItemsByOrder", column = "order_id")</span>
+ *         public List&lt;LineItem&gt; items;
+ *     }
+ * </pre>
+ * <p>
+ * A <code>List</code>, <code>Set</code>, <code>SortedSet</code> or
+ * <code>Collection</code> field is given the related objects whose
+ * {@link #column()} holds the (single) {@link AutoGeneratedKeys} value of the
+ * data-object, and an empty collection if there are none. Any other field is
+ * a reference to a single related object, and is given the related object
+ * whose <code>AutoGeneratedKeys</code> value is held in the
+ * {@link #column()} of the data-object (or <code>null</code> if there is no
+ * such object).
+ * </p><p>
+ * Related objects are prefetched for <code>@Select</code> methods returning
+ * a single object, an array, a <code>Collection</code> or a disconnected
+ * {@link DataSet}. They are not prefetched for a {@link DataIterator}, a
+ * connected <code>DataSet</code> or one with a
+ * {@link Select#spillThreshold()}, since these do not hold all of their
+ * rows up-front. The query method is invoked on the same <code>Connection</code>
+ * (and so within the same transaction) as the <code>@Select</code>, and may
+ * itself return data-objects with <code>@Prefetch</code> fields, as long as
+ * they do not form a cycle.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Prefetch {
+
+  /**
+   * The query interface declaring the {@link #method()} that loads the
+   * related objects.
+   */
+  Class<? extends BaseQuery> query();
+
+  /**
+   * The name of the query method that loads the related objects. It must
+   * take a single array or <code>Collection</code> of keys.
+   */
+  String method();
+
+  /**
+   * The column joining the related objects to the data-object. For a
+   * collection field this is a column of the related objects holding the key
+   * of the data-object, for a reference field it is a column of the
+   * data-object holding the key of the related object.
+   */
+  String column();
+
+}
@@ -0,0 +1,61 @@
+package net.lemnik.eodsql;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a query is cancelled before it completes: because it ran
+ * longer than it's {@link Select#timeout() timeout} or the
+ * {@link QueryDeadline} of it's thread, or because it's thread was
+ * interrupted.
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public class QueryCancelledException extends EoDException {
+
+    /**
+     * The SQLState of a statement that was cancelled because it's time ran
+     * out.
+     */
+    public static final String TIMEOUT_STATE = "HYT00";
+
+    /**
+     * The SQLState of a statement that was cancelled.
+     */
+    public static final String CANCELLED_STATE = "HY008";
+
+    public QueryCancelledException() {
+    }
+
+    public QueryCancelledException(final String msg) {
+        super(msg);
+    }
+
+    public QueryCancelledException(final Throwable cause) {
+        super(cause);
+    }
+
+    public QueryCancelledException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Returns whether the query was cancelled because it's time ran out,
+     * rather than because it's thread was interrupted.
+     */
+    public boolean isTimedOut() {
+        for(Throwable cause = getCause(); cause != null; cause = cause.getCause()) {
+            if(cause instanceof SQLException) {
+                if(TIMEOUT_STATE.equals(((SQLException)cause).getSQLState()) ||
+                        cause.getClass().getName().equals(
+                        "java.sql.SQLTimeoutException")) {
+
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,83 @@
+package net.lemnik.eodsql;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A per-thread deadline for the queries run by the current thread. While a
+ * deadline is set, each statement created for a query method is given a
+ * {@link java.sql.Statement#setQueryTimeout(int) query timeout} of the time
+ * left (or the method's own {@code timeout}, if that is shorter), and any
+ * statement still running when the deadline passes is cancelled. A method
+ * invoked after the deadline has passed fails without running at all. In
+ * each case the method throws a {@link QueryCancelledException}.
+ * </p><p>
+ * A deadline is normally set at the start of a unit of work, such as a
+ * single request, and cleared at it's end:
+ * </p>
+ * <pre>
+ * QueryDeadline.set(2, TimeUnit.SECONDS);
+ * try {
+ *     ...
+ * } finally {
+ *     QueryDeadline.clear();
+ * }
+ * </pre>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see Select#timeout()
+ */
+public final class QueryDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<Long>();
+
+    private QueryDeadline() {
+    }
+
+    /**
+     * Sets the deadline of the current thread to the given time from now,
+     * replacing any deadline that was already set.
+     *
+     * @param timeout the time the thread's queries may take
+     * @param unit the unit of {@code timeout}
+     */
+    public static void set(final long timeout, final TimeUnit unit) {
+        DEADLINE.set(Long.valueOf(System.nanoTime() + unit.toNanos(timeout)));
+    }
+
+    /**
+     * Removes the deadline of the current thread.
+     */
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * Returns whether the current thread has a deadline.
+     */
+    public static boolean isSet() {
+        return DEADLINE.get() != null;
+    }
+
+    /**
+     * Returns the time left before the deadline of the current thread.
+     *
+     * @param unit the unit to return the time in
+     * @return the time left, {@literal 0} if the deadline has passed, or
+     *      {@literal -1} if the current thread has no deadline
+     */
+    public static long getRemaining(final TimeUnit unit) {
+        final Long deadline = DEADLINE.get();
+
+        if(deadline == null) {
+            return -1;
+        }
+
+        final long remaining = deadline.longValue() - System.nanoTime();
+        return remaining > 0
+                ? unit.convert(remaining, TimeUnit.NANOSECONDS)
+                : 0;
+    }
+
+}
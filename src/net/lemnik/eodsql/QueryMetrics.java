@@ -0,0 +1,269 @@
+package net.lemnik.eodsql;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.ObjectName;
+import javax.management.MBeanServer;
+import javax.management.JMException;
+
+import net.lemnik.eodsql.spi.Execution;
+
+/**
+ * <p>
+ * Holds the {@link MethodMetrics} of every query method that has been
+ * invoked. Each query object records the calls to it's methods here, so the
+ * metrics of a method cover every query object implementing it's interface.
+ * Metrics are recorded from the moment a method is first invoked until they
+ * are {@link #setEnabled(boolean) disabled}.
+ * </p><p>
+ * The metrics can be read through {@link #getMethodMetrics()}, or published
+ * as an MBean for each method with {@link #registerMBeans()}. Each MBean is
+ * named after {@link #DOMAIN}, the interface and the method:
+ * </p>
+ * <pre>
+ * net.lemnik.eodsql:type=MethodMetrics,interface=com.example.UserQuery,method="getUser(int)"
+ * </pre>
+ * <p>
+ * A simple way to find the methods taking the most time in the database is:
+ * </p>
+ * <pre>
+ * for(final MethodMetrics metrics : QueryMetrics.getMethodMetrics()) {
+ *     System.out.println(metrics);
+ * }
+ * </pre>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public final class QueryMetrics {
+
+    /**
+     * The domain of the {@code ObjectName} of every MBean registered by
+     * {@link #registerMBeans()}.
+     */
+    public static final String DOMAIN = "net.lemnik.eodsql";
+
+    private static final ConcurrentMap<Method, MethodMetrics> METRICS =
+            new ConcurrentHashMap<Method, MethodMetrics>();
+
+    private static final Comparator<MethodMetrics> BY_TOTAL_TIME =
+            new Comparator<MethodMetrics>() {
+
+        public int compare(final MethodMetrics m1, final MethodMetrics m2) {
+            final long t1 = m1.getLatency().getTotal();
+            final long t2 = m2.getLatency().getTotal();
+
+            return t1 < t2 ? 1 : (t1 == t2 ? 0 : -1);
+        }
+
+    };
+
+    private static volatile boolean enabled = true;
+
+    private static MBeanServer server = null;
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Returns whether the calls to query methods are being recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether the calls to query methods are recorded. Metrics are
+     * enabled by default. Disabling them keeps the metrics recorded so far.
+     *
+     * @param enabled {@literal false} to stop recording calls
+     */
+    public static void setEnabled(final boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    /**
+     * <p>
+     * Records a single call to a query method. This is invoked by the
+     * query objects after each call to one of their methods, and will
+     * seldom need to be invoked by anything else.
+     * </p>
+     *
+     * @param method the query method that was called
+     * @param execution the measurements of the call
+     * @param failed whether the call threw an exception
+     */
+    public static void record(
+            final Method method,
+            final Execution execution,
+            final boolean failed) {
+
+        if(enabled) {
+            getMethodMetrics(method).record(execution, failed);
+        }
+    }
+
+    /**
+     * Returns the metrics of a single query method, creating them if the
+     * method has not been called yet.
+     *
+     * @param method the query method
+     * @return the metrics of the method
+     */
+    public static MethodMetrics getMethodMetrics(final Method method) {
+        MethodMetrics metrics = METRICS.get(method);
+
+        if(metrics == null) {
+            final MethodMetrics created = new MethodMetrics(method);
+            metrics = METRICS.putIfAbsent(method, created);
+
+            if(metrics == null) {
+                metrics = created;
+                register(created);
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of every query method that has been called, those
+     * that have spent the most time in the database first.
+     *
+     * @return a new list of the metrics of each method
+     */
+    public static List<MethodMetrics> getMethodMetrics() {
+        final List<MethodMetrics> metrics =
+                new ArrayList<MethodMetrics>(METRICS.values());
+
+        Collections.sort(metrics, BY_TOTAL_TIME);
+        return metrics;
+    }
+
+    /**
+     * Resets the metrics of every query method.
+     *
+     * @see MethodMetrics#reset()
+     */
+    public static void reset() {
+        for(final MethodMetrics metrics : METRICS.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Publishes the metrics of each query method as an MBean in the
+     * platform {@code MBeanServer}.
+     *
+     * @throws EoDException if the MBeans cannot be registered
+     * @see #registerMBeans(MBeanServer)
+     */
+    public static void registerMBeans() throws EoDException {
+        registerMBeans(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Publishes the metrics of each query method as an MBean in the given
+     * {@code MBeanServer}. The metrics of methods that are first called after
+     * this are published as soon as they are created. If the MBeans have
+     * already been published in another {@code MBeanServer} they are
+     * removed from it first.
+     *
+     * @param mbeanServer the {@code MBeanServer} to register the MBeans in
+     * @throws EoDException if the MBeans cannot be registered
+     */
+    public static synchronized void registerMBeans(
+            final MBeanServer mbeanServer)
+            throws EoDException {
+
+        unregisterMBeans();
+        server = mbeanServer;
+
+        for(final MethodMetrics metrics : METRICS.values()) {
+            registerMBean(metrics);
+        }
+    }
+
+    /**
+     * Removes the MBeans published by {@link #registerMBeans()}.
+     *
+     * @throws EoDException if the MBeans cannot be unregistered
+     */
+    public static synchronized void unregisterMBeans() throws EoDException {
+        if(server == null) {
+            return;
+        }
+
+        try {
+            for(final MethodMetrics metrics : METRICS.values()) {
+                final ObjectName name = getObjectName(metrics);
+
+                if(server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            }
+        } catch(final JMException jme) {
+            throw new EoDException("Could not unregister the metrics MBeans", jme);
+        } finally {
+            server = null;
+        }
+    }
+
+    private static synchronized void register(final MethodMetrics metrics) {
+        if(server == null) {
+            return;
+        }
+
+        try {
+            registerMBean(metrics);
+        } catch(final EoDException ee) {
+            // a query should not fail because it's metrics cannot be
+            // published, they can still be read from getMethodMetrics()
+        }
+    }
+
+    private static void registerMBean(final MethodMetrics metrics)
+            throws EoDException {
+
+        try {
+            final ObjectName name = getObjectName(metrics);
+
+            if(!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch(final JMException jme) {
+            throw new EoDException("Could not register the metrics MBean of " +
+                    metrics.getName(), jme);
+        }
+    }
+
+    /**
+     * Returns the {@code ObjectName} the metrics of a method are published
+     * under.
+     *
+     * @param metrics the metrics of a query method
+     * @return the name of the MBean of the metrics
+     * @throws JMException if the name is not valid
+     */
+    public static ObjectName getObjectName(final MethodMetrics metrics)
+            throws JMException {
+
+        final Method method = metrics.getMethod();
+        final String name = metrics.getName();
+
+        return new ObjectName(DOMAIN + ":type=MethodMetrics" +
+                ",interface=" + method.getDeclaringClass().getName() +
+                ",method=" + ObjectName.quote(name.substring(
+                name.lastIndexOf('.', name.indexOf('(')) + 1)));
+    }
+
+}
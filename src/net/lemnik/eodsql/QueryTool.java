@@ -6,6 +6,10 @@ import java.lang.reflect.Type;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.ParameterizedType;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -635,6 +639,223 @@ public class QueryTool {
             parameters );
   }
 
+  /**
+   * <p>
+   * Exports the results of a query straight to a channel, without creating a
+   * data-object for any of the rows. The <code>ResultSet</code> is read
+   * forwards only, and each row is handed to the {@link ResultEncoder} (for
+   * example a {@link CsvEncoder} or {@link JsonLinesEncoder}), which encodes
+   * it's columns into a re-used direct {@link ExportBuffer}.
+   * </p><p>
+   * The query string is parsed in the same way as a query string passed to
+   * an {@link Select @Select} annotation. The channel is not closed.
+   * </p>
+   *
+   * @param connection the <code>Connection</code> to use to perform the
+   * query, it will <b>not</b> be closed
+   * @param encoder encodes the rows of the query
+   * @param out the channel to write the encoded rows to
+   * @param query the SQL query to be executed
+   * @param parameters the parameters to be used in conjunction with the query
+   * string.
+   * @return the number of rows exported
+   * @throws InvalidQueryException if the query string given cannot be parsed,
+   * or doesn't match the given parameters
+   * @throws EoDException if the encoded rows could not be written
+   * @throws IllegalArgumentException if the <code>Connection</code>,
+   * <code>ResultEncoder</code> or channel is <code>null</code>
+   * @since 2.2
+   */
+  public static long export(
+          final Connection connection,
+          final ResultEncoder encoder,
+          final WritableByteChannel out,
+          final String query,
+          final Object... parameters )
+          throws InvalidQueryException,
+          EoDException{
+
+    if( connection == null ){
+      throw new IllegalArgumentException(
+              "A Connection must be specified for export" );
+    }
+
+    validateExport( encoder, out, query );
+
+    return export( connection, false, encoder, out, query, parameters );
+  }
+
+  /**
+   * <p>
+   * Exports the results of a query straight to a channel, using a
+   * <code>Connection</code> from the given <code>DataSource</code>. See
+   * {@link #export(Connection, ResultEncoder, WritableByteChannel, String, Object[])}.
+   * </p>
+   *
+   * @param dataSource the <code>DataSource</code> to obtain a database
+   * connection through
+   * @param encoder encodes the rows of the query
+   * @param out the channel to write the encoded rows to
+   * @param query the SQL query to be executed
+   * @param parameters the parameters to be used in conjunction with the query
+   * string.
+   * @return the number of rows exported
+   * @throws InvalidQueryException if the query string given cannot be parsed,
+   * or doesn't match the given parameters
+   * @throws EoDException if the encoded rows could not be written
+   * @throws IllegalArgumentException if the <code>DataSource</code>,
+   * <code>ResultEncoder</code> or channel is <code>null</code>
+   * @since 2.2
+   */
+  public static long export(
+          final DataSource dataSource,
+          final ResultEncoder encoder,
+          final WritableByteChannel out,
+          final String query,
+          final Object... parameters )
+          throws InvalidQueryException,
+          EoDException{
+
+    if( dataSource == null ){
+      throw new IllegalArgumentException(
+              "A DataSource must be specified for export" );
+    }
+
+    validateExport( encoder, out, query );
+
+    final Connection connection;
+
+    try {
+      connection = dataSource.getConnection();
+    } catch( final SQLException sqle ){
+      throw new InvalidQueryException(
+              "Couldn't execute query: '" + query + "'", sqle );
+    }
+
+    return export( connection, true, encoder, out, query, parameters );
+  }
+
+  /**
+   * <p>
+   * Exports the results of a query straight to an <code>OutputStream</code>.
+   * See
+   * {@link #export(Connection, ResultEncoder, WritableByteChannel, String, Object[])}.
+   * </p>
+   *
+   * @param connection the <code>Connection</code> to use to perform the
+   * query, it will <b>not</b> be closed
+   * @param encoder encodes the rows of the query
+   * @param out the stream to write the encoded rows to, which is not closed
+   * @param query the SQL query to be executed
+   * @param parameters the parameters to be used in conjunction with the query
+   * string.
+   * @return the number of rows exported
+   * @throws InvalidQueryException if the query string given cannot be parsed,
+   * or doesn't match the given parameters
+   * @throws EoDException if the encoded rows could not be written
+   * @since 2.2
+   */
+  public static long export(
+          final Connection connection,
+          final ResultEncoder encoder,
+          final OutputStream out,
+          final String query,
+          final Object... parameters )
+          throws InvalidQueryException,
+          EoDException{
+
+    if( out == null ){
+      throw new IllegalArgumentException(
+              "An OutputStream must be specified for export" );
+    }
+
+    return export( connection, encoder, Channels.newChannel( out ),
+            query, parameters );
+  }
+
+  /**
+   * <p>
+   * Exports the results of a query straight to an <code>OutputStream</code>,
+   * using a <code>Connection</code> from the given <code>DataSource</code>.
+   * See
+   * {@link #export(Connection, ResultEncoder, WritableByteChannel, String, Object[])}.
+   * </p>
+   *
+   * @param dataSource the <code>DataSource</code> to obtain a database
+   * connection through
+   * @param encoder encodes the rows of the query
+   * @param out the stream to write the encoded rows to, which is not closed
+   * @param query the SQL query to be executed
+   * @param parameters the parameters to be used in conjunction with the query
+   * string.
+   * @return the number of rows exported
+   * @throws InvalidQueryException if the query string given cannot be parsed,
+   * or doesn't match the given parameters
+   * @throws EoDException if the encoded rows could not be written
+   * @since 2.2
+   */
+  public static long export(
+          final DataSource dataSource,
+          final ResultEncoder encoder,
+          final OutputStream out,
+          final String query,
+          final Object... parameters )
+          throws InvalidQueryException,
+          EoDException{
+
+    if( out == null ){
+      throw new IllegalArgumentException(
+              "An OutputStream must be specified for export" );
+    }
+
+    return export( dataSource, encoder, Channels.newChannel( out ),
+            query, parameters );
+  }
+
+  private static void validateExport(
+          final ResultEncoder encoder,
+          final WritableByteChannel out,
+          final String query ){
+
+    if( encoder == null || out == null ){
+      throw new IllegalArgumentException(
+              "A ResultEncoder and channel must be specified for export" );
+    }
+
+    if( query == null || query.length() == 0 ){
+      throw new IllegalArgumentException(
+              "You must specify a query for export" );
+    }
+  }
+
+  private static long export(
+          final Connection connection,
+          final boolean closeConnection,
+          final ResultEncoder encoder,
+          final WritableByteChannel out,
+          final String query,
+          final Object... parameters ){
+
+    try {
+      return QuickQueryUtil.export(
+              connection,
+              closeConnection,
+              encoder,
+              out,
+              query,
+              parameters );
+    } catch( final SQLException sqle ){
+      throw new InvalidQueryException(
+              "Couldn't execute query: '" + query + "'", sqle );
+    } catch( final ParseException pe ){
+      throw new InvalidQueryException(
+              "Cannot parser EoD SQL query: '" + query + "'", pe );
+    } catch( final IOException ioe ){
+      throw new EoDException(
+              "Couldn't write the results of query: '" + query + "'", ioe );
+    }
+  }
+
   /**
    * <p>
    * Sometimes you need to perform a less structured "UPDATE", "INSERT" or
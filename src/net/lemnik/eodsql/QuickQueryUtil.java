@@ -1,21 +1,29 @@
 package net.lemnik.eodsql;
 
+import java.io.IOException;
+
 import java.lang.annotation.Annotation;
 
 import java.lang.reflect.Type;
 import java.lang.reflect.ParameterizedType;
 
+import java.sql.Types;
 import java.sql.ResultSet;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.PreparedStatement;
 
+import java.nio.channels.WritableByteChannel;
+
 import java.text.ParseException;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Collections;
 
+import net.lemnik.eodsql.impl.StatementWatchdog;
+
 import net.lemnik.eodsql.spi.Context;
 import net.lemnik.eodsql.spi.Resource;
 import net.lemnik.eodsql.spi.ResultSetResource;
@@ -77,6 +85,46 @@ class QuickQueryUtil {
             return 0;
         }
 
+        public boolean adaptiveFetchSize() {
+            return false;
+        }
+
+        public int timeout() {
+            return 0;
+        }
+
+        public int maxListSize() {
+            return 512;
+        }
+
+        public int prefetch() {
+            return 0;
+        }
+
+        public int spillThreshold() {
+            return 0;
+        }
+
+        public SizeStrategy sizeStrategy() {
+            return SizeStrategy.LAST_ROW;
+        }
+
+        public String countQuery() {
+            return "";
+        }
+
+        public String[] keyColumns() {
+            return new String[0];
+        }
+
+        public int pageSize() {
+            return 0;
+        }
+
+        public int startAfter() {
+            return 0;
+        }
+
         public int into() {
             return 0;
         }
@@ -99,6 +147,34 @@ class QuickQueryUtil {
 	    return false;
 	}
 
+	public int batchSize() {
+	    return 0;
+	}
+
+	public int parallelism() {
+	    return 1;
+	}
+
+	public Class<? extends BatchPartitioner> partitioner() {
+	    return BatchPartitioner.class;
+	}
+
+	public boolean rewriteInserts() {
+	    return false;
+	}
+
+	public int maxBindParameters() {
+	    return 999;
+	}
+
+	public int maxListSize() {
+	    return 512;
+	}
+
+	public int timeout() {
+	    return 0;
+	}
+
 	public GeneratedKeys keys() {
 	    return GeneratedKeys.NO_KEYS_RETURNED;
 	}
@@ -163,21 +239,52 @@ class QuickQueryUtil {
 
         final Map<Class, TypeMapper> mappers = QueryTool.getTypeMap();
         final int parameterCount = eodquery.getParameterCount();
+        int column = 1;
 
         for(int i = 0; i < parameterCount; i++) {
-            final Class<?> type = eodquery.getParameterType(i);
-            @SuppressWarnings("unchecked")
-            final TypeMapper<Object> mapper = mappers.get(type);
-
-            if(mapper != null) {
-                mapper.set(statement, i + 1, eodquery.getParameter(context, i));
+            if(eodquery.isListParameter(i)) {
+                final List<?> values = eodquery.getListParameter(context, i);
+                final int size = values.size();
+                final int expanded = Query.getExpandedSize(
+                        size,
+                        Integer.MAX_VALUE);
+
+                for(int j = 0; j < expanded; j++) {
+                    final Object value = values.get(Math.min(j, size - 1));
+
+                    if(value != null) {
+                        getTypeMapper(mappers, value.getClass()).set(
+                                statement,
+                                column++,
+                                value);
+                    } else {
+                        statement.setNull(column++, Types.NULL);
+                    }
+                }
             } else {
-                throw new InvalidQueryException(
-                        "No TypeMapper found for " + type);
+                getTypeMapper(mappers, eodquery.getParameterType(i)).set(
+                        statement,
+                        column++,
+                        eodquery.getParameter(context, i));
             }
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static TypeMapper<Object> getTypeMapper(
+            final Map<Class, TypeMapper> mappers,
+            final Class<?> type) {
+
+        final TypeMapper<Object> mapper = mappers.get(type);
+
+        if(mapper == null) {
+            throw new InvalidQueryException(
+                    "No TypeMapper found for " + type);
+        }
+
+        return mapper;
+    }
+
     @SuppressWarnings("unchecked")
     public static <T> DataSet<T> selectDataSet(
             final Connection connection,
@@ -192,6 +299,7 @@ class QuickQueryUtil {
         final Context<Select> context = new Context<Select>(
                 DEFAULT_SELECT_PARAMETERS,
                 parameters);
+        final StatementWatchdog.Watch watch = StatementWatchdog.begin();
 
         try {
             final ResultSetWrapper<DataSet> wrapper = ResultSetWrapper.get(
@@ -202,18 +310,23 @@ class QuickQueryUtil {
                     closeConnection));
             final Query eodquery = Query.getQuery(query, parameterTypes);
             final PreparedStatement statement = connection.prepareStatement(
-                    eodquery.toString(),
+                    eodquery.toString(context, Integer.MAX_VALUE),
                     wrapper.getPreferredResultSetType(),
                     wrapper.getPreferredResultSetConcurrency());
 
-            fillStatementParameters(eodquery, statement, context);
             context.setResource(new StatementResource(statement));
+            StatementWatchdog.apply(statement, 0);
+            fillStatementParameters(eodquery, statement, context);
 
             final ResultSet results = statement.executeQuery();
             context.setResource(new ResultSetResource(results));
 
             output = wrapper.wrap(context);
+        } catch(final SQLException sqle) {
+            throw watch.translate(sqle);
         } finally {
+            watch.end();
+
             if(output == null) {
                 context.close();
             }
@@ -222,6 +335,60 @@ class QuickQueryUtil {
         return output;
     }
 
+    public static long export(
+            final Connection connection,
+            final boolean closeConnection,
+            final ResultEncoder encoder,
+            final WritableByteChannel channel,
+            final String query,
+            final Object... parameters)
+            throws SQLException, ParseException, IOException {
+
+        final Context<Select> context = new Context<Select>(
+                DEFAULT_SELECT_PARAMETERS,
+                parameters);
+        final StatementWatchdog.Watch watch = StatementWatchdog.begin();
+
+        try {
+            final Class<?>[] parameterTypes = getParameterTypes(parameters);
+
+            context.setResource(new ConnectionResource(connection,
+                    closeConnection));
+            final Query eodquery = Query.getQuery(query, parameterTypes);
+            final PreparedStatement statement = connection.prepareStatement(
+                    eodquery.toString(context, Integer.MAX_VALUE),
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+
+            context.setResource(new StatementResource(statement));
+            StatementWatchdog.apply(statement, 0);
+            fillStatementParameters(eodquery, statement, context);
+
+            final ResultSet results = statement.executeQuery();
+            context.setResource(new ResultSetResource(results));
+
+            final ExportBuffer out = new ExportBuffer(channel);
+            long rows = 0;
+
+            encoder.begin(results.getMetaData(), out);
+
+            while(results.next()) {
+                encoder.encode(results, out);
+                rows++;
+            }
+
+            encoder.end(out);
+            out.flush();
+
+            return rows;
+        } catch(final SQLException sqle) {
+            throw watch.translate(sqle);
+        } finally {
+            watch.end();
+            context.close();
+        }
+    }
+
     public static int update(
             final Connection connection,
             final boolean closeConnection,
@@ -232,6 +399,7 @@ class QuickQueryUtil {
         final Context<Update> context = new Context<Update>(
                 DEFAULT_UPDATE_PARAMETERS,
                 parameters);
+        final StatementWatchdog.Watch watch = StatementWatchdog.begin();
 
         try {
             final Class<?>[] parameterTypes = getParameterTypes(parameters);
@@ -239,12 +407,16 @@ class QuickQueryUtil {
             context.setResource(new ConnectionResource(connection, closeConnection));
             final Query eodquery = Query.getQuery(query, parameterTypes);
             final PreparedStatement statement = connection.prepareStatement(
-                    eodquery.toString());
+                    eodquery.toString(context, Integer.MAX_VALUE));
 
-            fillStatementParameters(eodquery, statement, context);
             context.setResource(new StatementResource(statement));
+            StatementWatchdog.apply(statement, 0);
+            fillStatementParameters(eodquery, statement, context);
             return statement.executeUpdate();
+        } catch(final SQLException sqle) {
+            throw watch.translate(sqle);
         } finally {
+            watch.end();
             context.close();
         }
     }
@@ -0,0 +1,116 @@
+package net.lemnik.eodsql;
+
+/**
+ * <p>
+ * Describes a query result that held it's database resources (it's
+ * {@code Connection}, statement and cursor) open for too long: either it was
+ * garbage collected without being closed, or it has been open for longer than
+ * the {@link LeakDetector#setMaxAge(long, java.util.concurrent.TimeUnit)
+ * maximum age}. A {@code ResourceLeak} is passed to the
+ * {@link LeakDetector.Handler}, and returned by
+ * {@link LeakDetector#getOpenResources()}.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public final class ResourceLeak {
+
+    private final String ownerType;
+
+    private final String sql;
+
+    private final long created;
+
+    private final long age;
+
+    private final Throwable allocationSite;
+
+    private final boolean collected;
+
+    private final boolean reclaimed;
+
+    ResourceLeak(
+            final String ownerType,
+            final String sql,
+            final long created,
+            final long age,
+            final Throwable allocationSite,
+            final boolean collected,
+            final boolean reclaimed) {
+
+        this.ownerType = ownerType;
+        this.sql = sql;
+        this.created = created;
+        this.age = age;
+        this.allocationSite = allocationSite;
+        this.collected = collected;
+        this.reclaimed = reclaimed;
+    }
+
+    /**
+     * Returns the class name of the object holding the resources, such as
+     * a {@code DataIterator} or connected {@code DataSet}.
+     */
+    public String getOwnerType() {
+        return ownerType;
+    }
+
+    /**
+     * Returns the SQL the result was selected with, or {@literal null} if
+     * it is not known.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the time the result was created, in milliseconds since the
+     * epoch.
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns how long the resources had been open when this
+     * {@code ResourceLeak} was created, in milliseconds.
+     */
+    public long getAge() {
+        return age;
+    }
+
+    /**
+     * Returns an exception whose stack trace shows where the result was
+     * created, or {@literal null} if the allocation was not
+     * {@link LeakDetector#setSampleRate(int) sampled}.
+     */
+    public Throwable getAllocationSite() {
+        return allocationSite;
+    }
+
+    /**
+     * Returns whether the result was garbage collected without being closed,
+     * rather than simply being open for longer than the maximum age.
+     */
+    public boolean isCollected() {
+        return collected;
+    }
+
+    /**
+     * Returns whether the {@code LeakDetector} has closed every one of the
+     * resources. A leak is not reclaimed if closing any of them failed.
+     */
+    public boolean isReclaimed() {
+        return reclaimed;
+    }
+
+    @Override
+    public String toString() {
+        return (collected ? "Unclosed " : "Long open ") + ownerType +
+                " (open " + age + "ms" +
+                (reclaimed ? ", reclaimed" : "") +
+                ") sql=" + sql;
+    }
+
+}
@@ -67,4 +67,47 @@ public @interface ResultColumn {
    */
   String value();
 
+  /**
+   * <p>
+   * Marks the column as lazy. A lazy column is never read by the
+   * <code>@Select</code> that returns the data-object. Instead the field is
+   * given a {@link Lazy} that loads the column from the {@link #table()} by
+   * the (single) {@link AutoGeneratedKeys} value of the data-object, the
+   * first time it's {@link Lazy#get()} method is invoked:
+   * </p>
+   * <pre>
+   *        public class Document {
+   *            &#64;AutoGeneratedKeys
+   *            public long id;
+   *            public String title;
+   *
+   *            <span style="color: #00f;">@ResultColumn(value = "content", lazy = true, table = "documents")</span>
+   *            public Lazy&lt;byte[]&gt; content;
+   *        }
+   * </pre>
+   * <p>
+   * The lazy columns of all the data-objects returned by a single invocation
+   * are loaded together: each load reads the requested row and a number of
+   * the rows that follow it with a single <code>IN</code> query, reading more
+   * rows each time as more of them are touched. A lazy column must be a
+   * field of type <code>Lazy</code>, and may only be used by a
+   * <code>@Select</code> that returns a single object, an array, a
+   * <code>Collection</code> or a disconnected {@link DataSet} without a
+   * {@link Select#spillThreshold()}. The
+   * <code>@Select</code> should leave the column out of it's results, since
+   * it is not read from them.
+   * </p>
+   *
+   * @since 2.2
+   */
+  boolean lazy() default false;
+
+  /**
+   * The table a {@link #lazy()} column is loaded from. This is required for
+   * a lazy column, and ignored otherwise.
+   *
+   * @since 2.2
+   */
+  String table() default "";
+
 }
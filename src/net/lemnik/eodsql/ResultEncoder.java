@@ -0,0 +1,59 @@
+package net.lemnik.eodsql;
+
+import java.io.IOException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.ResultSetMetaData;
+
+/**
+ * <p>
+ * A <code>ResultEncoder</code> encodes the rows of a <code>ResultSet</code>
+ * into text or binary output, for {@link QueryTool#export(java.sql.Connection,
+ * ResultEncoder, java.nio.channels.WritableByteChannel, String, Object[])
+ * exporting} the results of a query without creating a data-object for each
+ * row. EoD SQL includes the {@link CsvEncoder} and {@link JsonLinesEncoder},
+ * and most encoders will extend {@link AbstractResultEncoder}, which chooses
+ * the columns to encode.
+ * </p><p>
+ * An export invokes {@link #begin(ResultSetMetaData, ExportBuffer) begin}
+ * once, {@link #encode(ResultSet, ExportBuffer) encode} once for each row,
+ * and then {@link #end(ExportBuffer) end}. An encoder may keep state between
+ * these calls, so a single encoder should not be used by concurrent exports.
+ * </p>
+ *
+ * @author Jason Morris
+ * @since 2.2
+ */
+public interface ResultEncoder {
+    /**
+     * Starts an export, writing any header the format has.
+     *
+     * @param metaData describes the columns of the rows that will be encoded
+     * @param out where to write the header
+     * @throws SQLException if the meta-data cannot be read
+     * @throws IOException if the output cannot be written
+     */
+    void begin(ResultSetMetaData metaData, ExportBuffer out)
+            throws SQLException, IOException;
+
+    /**
+     * Encodes the current row of the <code>ResultSet</code>. The encoder must
+     * not move the <code>ResultSet</code> to another row.
+     *
+     * @param row the <code>ResultSet</code>, positioned on the row to encode
+     * @param out where to write the row
+     * @throws SQLException if the row cannot be read
+     * @throws IOException if the output cannot be written
+     */
+    void encode(ResultSet row, ExportBuffer out)
+            throws SQLException, IOException;
+
+    /**
+     * Finishes an export, writing any footer the format has.
+     *
+     * @param out where to write the footer
+     * @throws IOException if the output cannot be written
+     */
+    void end(ExportBuffer out) throws IOException;
+}
@@ -0,0 +1,172 @@
+package net.lemnik.eodsql;
+
+import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * <p>
+ * A scan resistant {@link DataSetCache} that holds up to a fixed number of
+ * rows in two segments. A row is first placed in the <i>probationary</i>
+ * segment, and is only moved into the <i>protected</i> segment if it is used
+ * again while still cached. When the protected segment is full, it's least
+ * recently used row is moved back to the probationary segment, and rows are
+ * only evicted from the probationary segment.
+ * </p><p>
+ * This means a scan through a large {@code DataSet} (which uses each row
+ * once) can only push out other rows that have been used once, while the
+ * rows that are used over and over stay in the protected segment.
+ * </p>
+ *
+ * @param <T> the row data-type to cache
+ * @since 2.2
+ * @author Jason Morris
+ * @see BoundedDataSetCache
+ * @see LruDataSetCache
+ */
+public class SegmentedLruDataSetCache<T> extends BoundedDataSetCache<T> {
+
+    /**
+     * Counts the hits, misses and evictions of all the
+     * {@code SegmentedLruDataSetCache} objects created with the default
+     * constructor.
+     */
+    public static final DataSetCacheStatistics STATISTICS =
+            new DataSetCacheStatistics();
+
+    /**
+     * The percentage of the capacity given to the protected segment when it
+     * is not specified.
+     */
+    public static final int DEFAULT_PROTECTED_PERCENT = 80;
+
+    private final int protectedCapacity;
+
+    private final Map<Integer, T> probation =
+            new LinkedHashMap<Integer, T>(16, 0.75f, true);
+
+    private final Map<Integer, T> protectedRows =
+            new LinkedHashMap<Integer, T>(16, 0.75f, true);
+
+    /**
+     * Creates a new {@code SegmentedLruDataSetCache} holding up to
+     * {@link #DEFAULT_CAPACITY} rows, counted in {@link #STATISTICS}.
+     */
+    public SegmentedLruDataSetCache() {
+        this(DEFAULT_CAPACITY, STATISTICS);
+    }
+
+    /**
+     * Creates a new {@code SegmentedLruDataSetCache} giving
+     * {@link #DEFAULT_PROTECTED_PERCENT} of it's capacity to the protected
+     * segment.
+     *
+     * @param capacity the largest number of rows to hold
+     * @param statistics where to count the hits, misses and evictions
+     */
+    public SegmentedLruDataSetCache(
+            final int capacity,
+            final DataSetCacheStatistics statistics) {
+
+        this(capacity,
+                capacity * DEFAULT_PROTECTED_PERCENT / 100,
+                statistics);
+    }
+
+    /**
+     * Creates a new {@code SegmentedLruDataSetCache}.
+     *
+     * @param capacity the largest number of rows to hold in both segments
+     * @param protectedCapacity the largest number of rows to hold in the
+     *      protected segment, which must be less than the capacity
+     * @param statistics where to count the hits, misses and evictions
+     * @throws IllegalArgumentException if the protected capacity leaves no
+     *      room for a probationary segment
+     */
+    public SegmentedLruDataSetCache(
+            final int capacity,
+            final int protectedCapacity,
+            final DataSetCacheStatistics statistics) {
+
+        super(capacity, statistics);
+
+        if(protectedCapacity < 0 || protectedCapacity >= capacity) {
+            throw new IllegalArgumentException("The protected capacity " +
+                    "must be less than the capacity: " + protectedCapacity);
+        }
+
+        this.protectedCapacity = protectedCapacity;
+    }
+
+    /**
+     * Removes the least recently used entry of the given segment.
+     */
+    private static <T> Map.Entry<Integer, T> removeEldest(
+            final Map<Integer, T> segment) {
+
+        final Iterator<Map.Entry<Integer, T>> it =
+                segment.entrySet().iterator();
+
+        final Map.Entry<Integer, T> eldest = it.next();
+        it.remove();
+
+        return eldest;
+    }
+
+    private void addToProbation(final Integer row, final T object) {
+        probation.put(row, object);
+
+        if(probation.size() + protectedRows.size() > getCapacity()) {
+            removeEldest(probation);
+            evicted();
+        }
+    }
+
+    @Override
+    protected boolean contains(final int row) {
+        return protectedRows.containsKey(row) || probation.containsKey(row);
+    }
+
+    @Override
+    protected T get(final int row) {
+        final Integer key = row;
+        T value = protectedRows.get(key);
+
+        if(value == null) {
+            value = probation.remove(key);
+
+            if(value != null) {
+                // used a second time, so it earns a place in
+                // the protected segment
+                protectedRows.put(key, value);
+
+                if(protectedRows.size() > protectedCapacity) {
+                    final Map.Entry<Integer, T> demoted =
+                            removeEldest(protectedRows);
+
+                    addToProbation(demoted.getKey(), demoted.getValue());
+                }
+            }
+        }
+
+        return value;
+    }
+
+    @Override
+    protected void put(final int row, final T object) {
+        final Integer key = row;
+
+        if(protectedRows.containsKey(key)) {
+            protectedRows.put(key, object);
+        } else {
+            addToProbation(key, object);
+        }
+    }
+
+    @Override
+    protected void clear() {
+        probation.clear();
+        protectedRows.clear();
+    }
+
+}
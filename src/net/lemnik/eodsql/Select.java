@@ -181,6 +181,10 @@ public @interface Select {
    * larger {@code ResultSet}s, you may want to look into a
    * {@link NullDataSetCache} or using a {@link DataIterator} instead of the
    * {@code DataSet} class.
+   * </p><p>
+   * The {@link LruDataSetCache}, {@link SegmentedLruDataSetCache} and
+   * {@link SoftDataSetCache} hold a bounded number of rows, and count their
+   * hits, misses and evictions in a {@link DataSetCacheStatistics}.
    * </p>
    *
    * @see DataSet
@@ -190,6 +194,97 @@ public @interface Select {
    */
   Class<? extends DataSetCache> cache() default ArrayDataSetCache.class;
 
+  /**
+   * <p>
+   * The largest block of rows a connected {@link DataSet} returned by the
+   * annotated method will read when a row is asked for that has not yet been
+   * read. Rather than positioning the {@link ResultSet} on every row, the
+   * block is read in a single forward pass, and kept until another block is
+   * needed.
+   * </p><p>
+   * The block starts small and grows while the <code>DataSet</code> is walked
+   * forwards or backwards (in steps of up to the current block size), and
+   * shrinks again when the access looks random. Rows held in the
+   * {@link #cache()} are always re-used.
+   * </p><p>
+   * A value of <code>0</code> (the default) disables prefetching, so each row
+   * is read by positioning the <code>ResultSet</code> on it.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int prefetch() default 0;
+
+  /**
+   * <p>
+   * The largest number of rows a {@link #disconnected() disconnected}
+   * {@link DataSet} returned by the annotated method will hold on the heap.
+   * When more rows than this are selected, they are written to a temporary
+   * file instead, which is memory-mapped and decoded a row at a time as the
+   * rows are asked for. The file is deleted when the <code>DataSet</code> is
+   * {@link DataSet#close() closed}, so a spilled <code>DataSet</code> should
+   * always be closed.
+   * </p><p>
+   * Each call to {@link DataSet#get(int) get} on a spilled
+   * <code>DataSet</code> returns a new copy of the row, and only it's plain
+   * columns are held in the file: {@link Prefetch @Prefetch} fields are not
+   * filled in, and lazy columns are not allowed. Rows of data-objects with
+   * {@link Nested @Nested} collections, or of a custom
+   * {@link #resultSetBinding()}, are always held on the heap.
+   * </p><p>
+   * A value of <code>0</code> (the default) holds every row on the heap.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int spillThreshold() default 0;
+
+  /**
+   * <p>
+   * How the number of rows selected is found when it is needed, either by a
+   * connected {@link DataSet}, or to pre-size an array. By default the
+   * {@link ResultSet} is scrolled to it's last row, which can transfer every
+   * row on drivers that emulate scrolling in the client.
+   * </p>
+   *
+   * @since 2.2
+   * @see SizeStrategy
+   * @see #countQuery()
+   */
+  SizeStrategy sizeStrategy() default SizeStrategy.LAST_ROW;
+
+  /**
+   * <p>
+   * A query to count the rows selected, used by the
+   * {@link SizeStrategy#COUNT COUNT} size strategy in place of wrapping the
+   * query in a <code>SELECT COUNT(*)</code>. The query is given the same
+   * parameters as the annotated method, and must select a single number.
+   * Setting a count query implies {@link SizeStrategy#COUNT}.
+   * </p><p>
+   * A query ending in an <code>ORDER BY</code> must have a count query to
+   * use the <code>COUNT</code> strategy, since many databases don't allow
+   * an ordered sub-query. Such a method fails when it's query object is
+   * created.
+   * </p>
+   *
+   * @since 2.2
+   * @see #sizeStrategy()
+   */
+  String countQuery() default "";
+
+  /**
+   * <p>
+   * The columns of the data-object that {@link DataSet#getByKey(Object[])}
+   * and {@link DataSet#indexOfKey(Object[])} look rows up by, in the order
+   * the key values are given. Each must be bound to a field or property of
+   * the data-object. By default the {@link AutoGeneratedKeys} columns of the
+   * data-object are used.
+   * </p>
+   *
+   * @since 2.2
+   */
+  String[] keyColumns() default {};
+
   /**
    * <p>
    * This is a hint to the database driver to suggest the number of rows to
@@ -208,6 +303,106 @@ public @interface Select {
    */
   int fetchSize() default 0;
 
+  /**
+   * <p>
+   * Lets EoD SQL choose the fetch-size of the method from the number of rows
+   * it has recently returned: large for a method that usually returns
+   * thousands of rows (to save round trips to the database), and small for
+   * one that returns a handful (to save memory). The {@link #fetchSize()},
+   * if it is set, is the largest fetch-size that will be chosen. The
+   * fetch-size currently chosen is published in the
+   * {@link net.lemnik.eodsql.MethodMetrics} of the method.
+   * </p><p>
+   * Only methods returning an array, a {@code Collection} or a
+   * {@link #disconnected() disconnected} {@link DataSet} are tuned, since the
+   * number of rows returned by the others is not known when they return.
+   * Methods returning a single object always fetch a single row.
+   * </p>
+   *
+   * @since 2.2
+   */
+  boolean adaptiveFetchSize() default false;
+
+  /**
+   * <p>
+   * The longest time (in seconds) the database may spend executing the query,
+   * set on each of it's statements through
+   * {@link java.sql.Statement#setQueryTimeout(int)}. If the calling thread
+   * has a {@link QueryDeadline} which leaves less time than this, the deadline
+   * is used instead. A query that takes too long is cancelled, and the method
+   * throws a {@link QueryCancelledException}.
+   * </p><p>
+   * {@literal 0} (the default) sets no timeout.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int timeout() default 0;
+
+  /**
+   * <p>
+   * The largest list that will be bound to a single statement for a list
+   * parameter (written as <code>?{1[]}</code> in the query). List parameters
+   * are expanded into a placeholder for each of their values, for example
+   * <code>WHERE id IN (?{1[]})</code>, and padded to the next power of two
+   * (by repeating the last value) so that only a few distinct statements
+   * are ever prepared.
+   * </p><p>
+   * A <code>null</code> or empty list is rejected with an
+   * <code>IllegalArgumentException</code>, since there is no portable SQL
+   * for an empty <code>IN</code> list (and binding a <code>NULL</code>
+   * instead would have <code>NOT IN</code> match no rows). A method that may
+   * be given an empty list should check for it before invoking the query.
+   * </p><p>
+   * If a query has a single list parameter which has more values than
+   * this, and the results of the method can be combined (an array or a <code>Collection</code> that is not a
+   * {@link DataSet}), the list is
+   * split and the query executed once for each part.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int maxListSize() default 512;
+
+  /**
+   * <p>
+   * Turns a {@link DataIterator} into a keyset-paginated iterator, which
+   * reads the results in pages of <code>pageSize</code> rows. Rather than
+   * holding a cursor (and a <code>Connection</code>) open for the whole
+   * iteration, each page is read by running the query as:
+   * </p><pre>
+   * SELECT * FROM (<i>query</i>) eodsql_page
+   *     WHERE <i>key</i> &gt; ? ORDER BY <i>key</i>
+   * </pre><p>
+   * where <i>key</i> is the single {@link AutoGeneratedKeys} column of the
+   * data-object, and <code>?</code> is the key of the last row of the
+   * previous page. The <code>Connection</code> is released between pages.
+   * The query itself may not be ordered, since the database may not
+   * allow an ordered sub-query, and a method whose query has an
+   * <code>ORDER BY</code> fails when it's query object is created.
+   * </p><p>
+   * A value of <code>0</code> (the default) disables pagination. A paginated
+   * <code>DataIterator</code> may not be {@link #rubberstamp() rubberstamping}.
+   * </p>
+   *
+   * @since 2.2
+   * @see #startAfter()
+   */
+  int pageSize() default 0;
+
+  /**
+   * <p>
+   * The index (starting at <code>1</code>) of a method parameter holding the
+   * key after which a {@link #pageSize() paginated} <code>DataIterator</code>
+   * should start. This allows a long scan to be resumed from the last key it
+   * processed. A <code>null</code> key starts from the first row. A value of
+   * <code>0</code> (the default) always starts from the first row.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int startAfter() default 0;
+
   /**
    * <p>
    * This attribute optionally allows you to populate one of the parameters of
@@ -0,0 +1,59 @@
+package net.lemnik.eodsql;
+
+import java.sql.ResultSet;
+
+/**
+ * Enumeration used by the {@link Select @Select} annotation to specify how
+ * the number of rows selected should be found, when it is needed.
+ *
+ * @since 2.2
+ * @author Jason Morris
+ *
+ * @see Select#sizeStrategy()
+ * @see Select#countQuery()
+ */
+public enum SizeStrategy {
+
+    /**
+     * <p>
+     * The {@code ResultSet} is scrolled to it's {@link ResultSet#last() last}
+     * row, and the row number read. This is the default, and is fast where the
+     * database holds a server-side cursor. On drivers that emulate a scrollable
+     * {@code ResultSet} in the client it will transfer every row.
+     * </p><p>
+     * A connected {@link DataSet} will also use it's size to decide whether it
+     * is empty, and when iteration has finished.
+     * </p>
+     */
+    LAST_ROW,
+    /**
+     * <p>
+     * The rows are counted by a second query, run on the same
+     * {@code Connection} (and thus in the same transaction) when the size of
+     * a connected {@link DataSet} is first asked for. By default the query is
+     * wrapped as:
+     * </p><pre>
+     * SELECT COUNT(*) FROM (<i>query</i>) eodsql_count
+     * </pre><p>
+     * but a different query can be given with {@link Select#countQuery()},
+     * and must be for a query that ends in an {@code ORDER BY}.
+     * Checking whether the {@code DataSet} is empty and iterating over it
+     * don't need the count, and never run the count query.
+     * </p>
+     */
+    COUNT,
+    /**
+     * <p>
+     * The size is not looked for unless it is explicitly asked for. A
+     * connected {@link DataSet} checks whether it is empty and iterates by
+     * looking for each row in turn, and learns it's size once it reaches the
+     * end. Calling {@code size()} before then will still scroll to the last
+     * row.
+     * </p><p>
+     * Arrays are always read forwards, rather than being pre-sized from the
+     * last row.
+     * </p>
+     */
+    UNKNOWN
+
+}
@@ -0,0 +1,197 @@
+package net.lemnik.eodsql;
+
+import java.lang.reflect.Method;
+
+import net.lemnik.eodsql.spi.Execution;
+import net.lemnik.eodsql.spi.Execution.Phase;
+
+/**
+ * <p>
+ * A single entry of the {@link SlowQueryLog}: a call to a query method that
+ * took longer than the log's threshold. The entry is captured on the thread
+ * that called the method, and holds the parameters of the call as text so
+ * that it keeps no references to the objects the method was called with.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public final class SlowQuery {
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long timestamp;
+
+    private final Method method;
+
+    private final String name;
+
+    private final String thread;
+
+    private final String sql;
+
+    private final String[] parameters;
+
+    private final long[] times = new long[PHASES.length];
+
+    private final long totalTime;
+
+    private final long rowsReturned;
+
+    private final long rowsAffected;
+
+    private final boolean failed;
+
+    SlowQuery(
+            final Method method,
+            final Execution execution,
+            final String[] parameters,
+            final boolean failed) {
+
+        this.timestamp = System.currentTimeMillis();
+        this.method = method;
+        this.name = MethodMetrics.getName(method);
+        this.thread = Thread.currentThread().getName();
+        this.sql = execution.getSql();
+        this.parameters = parameters;
+        this.totalTime = execution.getTotalTime();
+        this.rowsReturned = execution.getRowsReturned();
+        this.rowsAffected = execution.getRowsAffected();
+        this.failed = failed;
+
+        for(int i = 0; i < PHASES.length; i++) {
+            times[i] = execution.getTime(PHASES[i]);
+        }
+    }
+
+    /**
+     * Returns the time the call finished, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the query method that was called.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the name of the query method, as given by
+     * {@link MethodMetrics#getName()}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the thread that called the method.
+     */
+    public String getThreadName() {
+        return thread;
+    }
+
+    /**
+     * Returns the JDBC SQL that was last prepared by the call, or
+     * {@literal null} if it failed before preparing a statement.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the parameters of the call as text, after they have been
+     * through the {@link SlowQueryLog.Redactor} of the log.
+     */
+    public String[] getParameters() {
+        return parameters.clone();
+    }
+
+    /**
+     * Returns the time the call took, in nanoseconds.
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Returns the time a single phase of the call took, in nanoseconds.
+     *
+     * @param phase the phase to return the time of
+     * @return the time the phase took
+     */
+    public long getTime(final Phase phase) {
+        return times[phase.ordinal()];
+    }
+
+    /**
+     * Returns the number of rows the call returned, where they were known
+     * when it returned.
+     */
+    public long getRowsReturned() {
+        return rowsReturned;
+    }
+
+    /**
+     * Returns the number of rows the call affected.
+     */
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    /**
+     * Returns whether the call threw an exception.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    private static void appendMillis(final StringBuilder builder, final long nanos) {
+        builder.append(nanos / 1000000).append('.');
+
+        final long fraction = nanos / 1000 % 1000;
+
+        if(fraction < 100) {
+            builder.append(fraction < 10 ? "00" : "0");
+        }
+
+        builder.append(fraction).append("ms");
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(name);
+        builder.append(failed ? " failed after " : " took ");
+        appendMillis(builder, totalTime);
+
+        builder.append(" (");
+
+        for(int i = 0; i < PHASES.length; i++) {
+            if(i > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(PHASES[i].name().toLowerCase()).append('=');
+            appendMillis(builder, times[i]);
+        }
+
+        builder.append(") rowsReturned=").append(rowsReturned);
+        builder.append(" rowsAffected=").append(rowsAffected);
+        builder.append(" thread=").append(thread);
+        builder.append(" sql=").append(sql);
+        builder.append(" parameters=[");
+
+        for(int i = 0; i < parameters.length; i++) {
+            if(i > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(parameters[i]);
+        }
+
+        return builder.append(']').toString();
+    }
+
+}
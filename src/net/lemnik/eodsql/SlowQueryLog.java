@@ -0,0 +1,423 @@
+package net.lemnik.eodsql;
+
+import java.io.PrintStream;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Collection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Execution;
+
+/**
+ * <p>
+ * Logs the calls to query methods that take longer than a threshold. Each
+ * slow call is captured as a {@link SlowQuery}, holding the method, the SQL
+ * it prepared, it's parameters, the rows it returned or affected and the
+ * time taken by each {@link Execution.Phase phase}, and passed to a
+ * {@link Handler}. The log is disabled until both a threshold and a
+ * {@code Handler} have been set:
+ * </p>
+ * <pre>
+ * SlowQueryLog.setHandler(new SlowQueryLog.PrintHandler(System.err));
+ * SlowQueryLog.setThreshold(250, TimeUnit.MILLISECONDS);
+ * </pre>
+ * <p>
+ * Logging never blocks the thread calling the query method: entries are put
+ * into a lock-free ring buffer of {@link #CAPACITY} entries, and passed to
+ * the {@code Handler} by a single background thread. If the buffer is full
+ * (because the {@code Handler} cannot keep up) new entries are dropped and
+ * {@link #getDroppedCount() counted}.
+ * </p><p>
+ * Parameters are logged as text, and may hold passwords or personal data. A
+ * {@link Redactor} can be set to mask or replace the value of any parameter
+ * before it is turned into text.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public final class SlowQueryLog {
+
+    /**
+     * The number of entries the ring buffer holds.
+     */
+    public static final int CAPACITY = 1024;
+
+    /**
+     * The longest text logged for a single parameter, longer text is
+     * truncated. An array or {@code Collection} parameter is only turned into
+     * text up to this length, however many elements it holds.
+     */
+    public static final int MAX_PARAMETER_LENGTH = 256;
+
+    /**
+     * How long the writer thread sleeps when it finds the buffer empty, if it
+     * is not woken by a new entry first.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final AtomicReferenceArray<SlowQuery> RING =
+            new AtomicReferenceArray<SlowQuery>(CAPACITY);
+
+    /**
+     * The sequence number of the next entry to be added to the ring.
+     */
+    private static final AtomicLong TAIL = new AtomicLong();
+
+    /**
+     * The sequence number of the next entry to be written, only advanced by
+     * the writer thread once the entry has been handled.
+     */
+    private static final AtomicLong HEAD = new AtomicLong();
+
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private static final Redactor NO_REDACTION = new Redactor() {
+
+        public Object redact(
+                final Method method,
+                final int index,
+                final Object value) {
+
+            return value;
+        }
+
+    };
+
+    private static volatile long threshold = -1;
+
+    private static volatile Handler handler = null;
+
+    private static volatile Redactor redactor = NO_REDACTION;
+
+    private static Thread writer = null;
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * Sets how long a call must take to be logged. A negative time disables
+     * the log, which is the default.
+     *
+     * @param time the shortest time logged
+     * @param unit the unit of {@code time}
+     */
+    public static void setThreshold(final long time, final TimeUnit unit) {
+        threshold = time < 0 ? -1 : unit.toNanos(time);
+    }
+
+    /**
+     * Returns how long a call must take to be logged, or {@literal -1} if the
+     * log is disabled.
+     *
+     * @param unit the unit to return the time in
+     * @return the shortest time logged
+     */
+    public static long getThreshold(final TimeUnit unit) {
+        final long nanos = threshold;
+        return nanos < 0 ? -1 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the {@code Handler} the entries of the log are written to, or
+     * {@literal null} to disable the log.
+     */
+    public static void setHandler(final Handler handler) {
+        SlowQueryLog.handler = handler;
+    }
+
+    /**
+     * Returns the {@code Handler} the entries of the log are written to.
+     */
+    public static Handler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Sets the {@code Redactor} applied to each parameter before it is
+     * logged, or {@literal null} to log every parameter as it is.
+     */
+    public static void setRedactor(final Redactor redactor) {
+        SlowQueryLog.redactor = redactor != null ? redactor : NO_REDACTION;
+    }
+
+    /**
+     * Returns the number of entries that were dropped because the ring
+     * buffer was full.
+     */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    /**
+     * <p>
+     * Logs a single call to a query method if it took longer than the
+     * threshold. This is invoked by the query objects after each call to one
+     * of their methods, and will seldom need to be invoked by anything else.
+     * </p>
+     *
+     * @param method the query method that was called
+     * @param context the {@code Context} of the call
+     * @param failed whether the call threw an exception
+     */
+    public static void record(
+            final Method method,
+            final Context<?> context,
+            final boolean failed) {
+
+        final long limit = threshold;
+
+        if(limit < 0 || handler == null) {
+            return;
+        }
+
+        final Execution execution = context.getExecution();
+
+        if(execution.getTotalTime() >= limit) {
+            offer(new SlowQuery(
+                    method,
+                    execution,
+                    describe(method, context.getParameters()),
+                    failed));
+        }
+    }
+
+    /**
+     * Waits until every entry logged so far has been passed to the
+     * {@code Handler}.
+     *
+     * @param timeout the longest time to wait
+     * @param unit the unit of {@code timeout}
+     * @return {@literal false} if the timeout passed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public static boolean flush(final long timeout, final TimeUnit unit)
+            throws InterruptedException {
+
+        final long target = TAIL.get();
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while(HEAD.get() < target) {
+            if(System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+
+            LockSupport.unpark(getWriter());
+            Thread.sleep(1);
+        }
+
+        return true;
+    }
+
+    private static String[] describe(
+            final Method method,
+            final Object[] parameters) {
+
+        final Redactor current = redactor;
+        final String[] text = new String[parameters.length];
+
+        for(int i = 0; i < parameters.length; i++) {
+            text[i] = toText(current.redact(method, i, parameters[i]));
+        }
+
+        return text;
+    }
+
+    private static String toText(final Object value) {
+        final StringBuilder text = new StringBuilder();
+        append(text, value);
+
+        if(text.length() > MAX_PARAMETER_LENGTH) {
+            text.setLength(MAX_PARAMETER_LENGTH);
+            text.append("...");
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Appends the text of a value, stopping as soon as the text is longer
+     * than {@link #MAX_PARAMETER_LENGTH} so that the elements of a large
+     * batch are never all turned into text on the calling thread.
+     */
+    private static void append(final StringBuilder text, final Object value) {
+        if(text.length() > MAX_PARAMETER_LENGTH) {
+            return;
+        }
+
+        if(value == null) {
+            text.append("null");
+        } else if(value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            text.append('[');
+
+            for(int i = 0; i < length && text.length() <= MAX_PARAMETER_LENGTH; i++) {
+                if(i > 0) {
+                    text.append(", ");
+                }
+
+                append(text, Array.get(value, i));
+            }
+
+            text.append(']');
+        } else if(value instanceof Collection) {
+            final Iterator<?> iterator = ((Collection<?>)value).iterator();
+            text.append('[');
+
+            while(iterator.hasNext() && text.length() <= MAX_PARAMETER_LENGTH) {
+                append(text, iterator.next());
+
+                if(iterator.hasNext()) {
+                    text.append(", ");
+                }
+            }
+
+            text.append(']');
+        } else if(value instanceof CharSequence) {
+            final CharSequence chars = (CharSequence)value;
+
+            text.append(chars, 0, Math.min(
+                    chars.length(),
+                    MAX_PARAMETER_LENGTH + 1 - text.length()));
+        } else {
+            append(text, String.valueOf(value));
+        }
+    }
+
+    private static void offer(final SlowQuery entry) {
+        long sequence;
+
+        do {
+            sequence = TAIL.get();
+
+            if(sequence - HEAD.get() >= CAPACITY) {
+                DROPPED.incrementAndGet();
+                return;
+            }
+        } while(!TAIL.compareAndSet(sequence, sequence + 1));
+
+        RING.set((int)sequence & (CAPACITY - 1), entry);
+        LockSupport.unpark(getWriter());
+    }
+
+    private static synchronized Thread getWriter() {
+        if(writer == null) {
+            writer = new Thread(new Writer(), "EoD SQL slow query log");
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        return writer;
+    }
+
+    /**
+     * Takes the entries from the ring in order, and passes them to the
+     * {@code Handler}. An entry's slot is only released once it has been
+     * handled.
+     */
+    private static class Writer implements Runnable {
+
+        public void run() {
+            while(true) {
+                final long sequence = HEAD.get();
+                final int index = (int)sequence & (CAPACITY - 1);
+                final SlowQuery entry = RING.get(index);
+
+                // either the ring is empty, or the entry has been claimed
+                // but not yet set
+                if(entry == null) {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+
+                RING.set(index, null);
+
+                try {
+                    final Handler current = handler;
+
+                    if(current != null) {
+                        current.log(entry);
+                    }
+                } catch(final RuntimeException re) {
+                    // a broken Handler loses it's entry, but not the log
+                } finally {
+                    HEAD.set(sequence + 1);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Writes the entries of the log. A {@code Handler} is only ever invoked
+     * by the single writer thread of the log, and may take as long as it
+     * needs without holding up any query.
+     */
+    public static interface Handler {
+
+        /**
+         * Writes a single entry of the log.
+         *
+         * @param query the slow call to log
+         */
+        public void log(SlowQuery query);
+
+    }
+
+    /**
+     * Replaces the values of sensitive parameters before they are logged.
+     */
+    public static interface Redactor {
+
+        /**
+         * Returns the value to log for a parameter, such as {@code "****"}
+         * for a password.
+         *
+         * @param method the query method that was called
+         * @param index the index of the parameter, from {@literal 0}
+         * @param value the value the method was called with
+         * @return the value to log in it's place
+         */
+        public Object redact(Method method, int index, Object value);
+
+    }
+
+    /**
+     * A {@code Handler} that prints each entry as a single line, prefixed with
+     * the time it was logged.
+     */
+    public static class PrintHandler implements Handler {
+
+        private final PrintStream out;
+
+        private final DateFormat format =
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+        /**
+         * Creates a {@code Handler} printing to the given stream.
+         */
+        public PrintHandler(final PrintStream out) {
+            this.out = out;
+        }
+
+        public void log(final SlowQuery query) {
+            out.println(format.format(new Date(query.getTimestamp())) +
+                    " SLOW " + query);
+            out.flush();
+        }
+
+    }
+
+}
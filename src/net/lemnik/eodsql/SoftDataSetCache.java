@@ -0,0 +1,138 @@
+package net.lemnik.eodsql;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * <p>
+ * A {@link DataSetCache} that holds it's rows with
+ * {@link SoftReference}s, so that they are only reclaimed when the virtual
+ * machine runs short of memory (rather than at every garbage collection, as
+ * with the weakly referenced {@link ArrayDataSetCache}). The number of rows
+ * held is also capped, with the least recently used row evicted to make room
+ * for a new one, so that a large {@code DataSet} cannot fill the heap with
+ * soft references that must all be cleared before an
+ * {@code OutOfMemoryError}.
+ * </p><p>
+ * Rows reclaimed by the garbage collector are counted as evictions.
+ * </p>
+ *
+ * @param <T> the row data-type to cache
+ * @since 2.2
+ * @author Jason Morris
+ * @see BoundedDataSetCache
+ */
+public class SoftDataSetCache<T> extends BoundedDataSetCache<T> {
+
+    /**
+     * Counts the hits, misses and evictions of all the
+     * {@code SoftDataSetCache} objects created with the default constructor.
+     */
+    public static final DataSetCacheStatistics STATISTICS =
+            new DataSetCacheStatistics();
+
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+    private final Map<Integer, IndexedSoftReference<T>> rows;
+
+    /**
+     * Creates a new {@code SoftDataSetCache} holding up to
+     * {@link #DEFAULT_CAPACITY} rows, counted in {@link #STATISTICS}.
+     */
+    public SoftDataSetCache() {
+        this(DEFAULT_CAPACITY, STATISTICS);
+    }
+
+    /**
+     * Creates a new {@code SoftDataSetCache}.
+     *
+     * @param capacity the largest number of rows to hold
+     * @param statistics where to count the hits, misses and evictions
+     */
+    public SoftDataSetCache(
+            final int capacity,
+            final DataSetCacheStatistics statistics) {
+
+        super(capacity, statistics);
+
+        rows = new LinkedHashMap<Integer, IndexedSoftReference<T>>(
+                Math.min(capacity, 64) * 4 / 3 + 1,
+                0.75f,
+                true) {
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<Integer, IndexedSoftReference<T>> e) {
+
+                if(size() > getCapacity()) {
+                    evicted();
+                    return true;
+                }
+
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Removes the entries whose rows have been reclaimed by the
+     * garbage collector.
+     */
+    @SuppressWarnings("unchecked")
+    private void removeOldEntries() {
+        IndexedSoftReference<T> ref = null;
+
+        while((ref = (IndexedSoftReference<T>)queue.poll()) != null) {
+            // the row may have been cached again since
+            if(rows.get(ref.index) == ref) {
+                rows.remove(ref.index);
+                evicted();
+            }
+        }
+    }
+
+    @Override
+    protected boolean contains(final int row) {
+        final IndexedSoftReference<T> ref = rows.get(row);
+        return ref != null && ref.get() != null;
+    }
+
+    @Override
+    protected T get(final int row) {
+        removeOldEntries();
+
+        final IndexedSoftReference<T> ref = rows.get(row);
+        return ref != null ? ref.get() : null;
+    }
+
+    @Override
+    protected void put(final int row, final T object) {
+        removeOldEntries();
+        rows.put(row, new IndexedSoftReference<T>(row, object, queue));
+    }
+
+    @Override
+    protected void clear() {
+        rows.clear();
+    }
+
+    private static class IndexedSoftReference<T> extends SoftReference<T> {
+
+        private final Integer index;
+
+        IndexedSoftReference(
+                final int index,
+                final T obj,
+                final ReferenceQueue<T> queue) {
+
+            super(obj, queue);
+            this.index = index;
+        }
+
+    }
+
+}
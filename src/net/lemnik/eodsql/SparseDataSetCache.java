@@ -0,0 +1,239 @@
+package net.lemnik.eodsql;
+
+import java.lang.ref.WeakReference;
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * <p>
+ * An implementation of {@link DataSetCache} that holds it's rows with
+ * {@link WeakReference}s (like the {@link ArrayDataSetCache}), but stores
+ * them in an open-addressing hash table keyed on the row number rather than
+ * in an array indexed by it. The memory used is thus proportional to the
+ * number of rows cached, rather than to the highest row number ever read:
+ * reading row 5,000,000 of a {@code DataSet} costs a single entry.
+ * </p><p>
+ * The table is probed linearly, and keyed directly on the primitive row
+ * number, so no objects other than the {@code WeakReference}s are allocated
+ * for each row. Rows reclaimed by the garbage collector are removed from the
+ * table the next time a row is fetched or added, but the table never shrinks
+ * once it has grown.
+ * </p><p>
+ * For a {@code DataSet} that is mostly read from start to end, the
+ * {@code ArrayDataSetCache} is a little faster.
+ * </p>
+ *
+ * @param <T> the row data-type to cache
+ * @since 2.2
+ * @author Jason Morris
+ * @see ArrayDataSetCache
+ */
+public class SparseDataSetCache<T> implements DataSetCache<T> {
+
+    /**
+     * The number of slots in a new table, which must be a power of two.
+     */
+    private static final int DEFAULT_SIZE = 16;
+
+    /**
+     * Marks an empty slot, row numbers are never negative.
+     */
+    private static final int EMPTY = -1;
+
+    private ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+    private int[] keys;
+
+    private IndexedWeakReference<?>[] values;
+
+    private int size = 0;
+
+    /**
+     * Default constructor for {@code SparseDataSetCache}.
+     */
+    public SparseDataSetCache() {
+        allocate(DEFAULT_SIZE);
+    }
+
+    private void allocate(final int length) {
+        keys = new int[length];
+        values = new IndexedWeakReference<?>[length];
+
+        for(int i = 0; i < length; i++) {
+            keys[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Spreads the bits of a row number, so that runs of consecutive rows
+     * don't end up in long runs of consecutive slots.
+     */
+    private static int hash(final int row) {
+        final int h = row * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int slotOf(final int row) {
+        final int mask = keys.length - 1;
+
+        for(int i = hash(row) & mask;; i = (i + 1) & mask) {
+            if(keys[i] == row) {
+                return i;
+            } else if(keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void insert(final int row, final IndexedWeakReference<?> value) {
+        final int mask = keys.length - 1;
+        int i = hash(row) & mask;
+
+        while(keys[i] != EMPTY && keys[i] != row) {
+            i = (i + 1) & mask;
+        }
+
+        if(keys[i] == EMPTY) {
+            keys[i] = row;
+            size++;
+        }
+
+        values[i] = value;
+    }
+
+    private void grow() {
+        final int[] oldKeys = keys;
+        final IndexedWeakReference<?>[] oldValues = values;
+
+        allocate(oldKeys.length * 2);
+        size = 0;
+
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry in the given slot, moving any entries after it
+     * back into the gap so that they can still be found.
+     */
+    private void removeSlot(final int slot) {
+        final int mask = keys.length - 1;
+        int i = slot;
+        int j = slot;
+
+        size--;
+
+        while(true) {
+            keys[i] = EMPTY;
+            values[i] = null;
+
+            int home;
+
+            do {
+                j = (j + 1) & mask;
+
+                if(keys[j] == EMPTY) {
+                    return;
+                }
+
+                home = hash(keys[j]) & mask;
+
+                // the entry at j may stay where it is if it's home slot is
+                // (cyclically) after the gap and no later than j
+            } while(i <= j
+                    ? (i < home && home <= j)
+                    : (i < home || home <= j));
+
+            keys[i] = keys[j];
+            values[i] = values[j];
+            i = j;
+        }
+    }
+
+    /**
+     * Remove any entries whose rows have been reclaimed by the garbage
+     * collector.
+     */
+    @SuppressWarnings("unchecked")
+    private void removeOldEntries() {
+        IndexedWeakReference<T> ref = null;
+
+        while((ref = (IndexedWeakReference<T>)queue.poll()) != null) {
+            final int slot = slotOf(ref.getIndex());
+
+            // the row may have been cached again since
+            if(slot != -1 && values[slot] == ref) {
+                removeSlot(slot);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of slots in the table, used by the tests to check
+     * that the memory used follows the number of rows cached.
+     */
+    int getCapacity() {
+        return keys.length;
+    }
+
+    public void init(final DataSet<T> dataSet) {
+    }
+
+    public boolean isCached(final int row) {
+        final int slot = slotOf(row);
+        return slot != -1 && values[slot].get() != null;
+    }
+
+    public T getObject(final int row) {
+        removeOldEntries();
+
+        final int slot = slotOf(row);
+
+        if(slot != -1) {
+            @SuppressWarnings("unchecked")
+            final T value = (T)values[slot].get();
+            return value;
+        }
+
+        return null;
+    }
+
+    public void setObject(final int row, final T object) {
+        removeOldEntries();
+
+        // keep the table no more than three quarters full
+        if((size + 1) * 4 > keys.length * 3) {
+            grow();
+        }
+
+        insert(row, new IndexedWeakReference<T>(row, object, queue));
+    }
+
+    public void destroy() {
+        keys = null;
+        values = null;
+        queue = null;
+    }
+
+    private static class IndexedWeakReference<T> extends WeakReference<T> {
+
+        private final int index;
+
+        IndexedWeakReference(
+                final int index,
+                final T obj,
+                final ReferenceQueue<T> queue) {
+
+            super(obj, queue);
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+    }
+
+}
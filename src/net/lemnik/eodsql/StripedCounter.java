@@ -0,0 +1,72 @@
+package net.lemnik.eodsql;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A counter that can be added to by many threads at once without them
+ * contending for a single value. The count is split over several stripes,
+ * each on it's own cache line, and each thread adds to the stripe chosen by
+ * it's id. Reading the count adds all of the stripes together, so a
+ * {@code StripedCounter} is cheap to update, but relatively expensive to read.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+final class StripedCounter {
+
+    /**
+     * The number of longs in a 64 byte cache line, each stripe is padded
+     * out to this size.
+     */
+    private static final int PADDING = 8;
+
+    private static final int MAX_STRIPES = 16;
+
+    private static final int STRIPES = getStripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    private static int getStripeCount() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+
+        while(stripes < processors && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+
+    private static int getCell() {
+        // spread sequential thread ids over the stripes
+        final long id = Thread.currentThread().getId() * 0x9e3779b97f4a7c15L;
+        return ((int)(id >>> 32) & (STRIPES - 1)) * PADDING;
+    }
+
+    void add(final long value) {
+        cells.addAndGet(getCell(), value);
+    }
+
+    void increment() {
+        add(1);
+    }
+
+    long sum() {
+        long sum = 0;
+
+        for(int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+
+        return sum;
+    }
+
+    void reset() {
+        for(int i = 0; i < cells.length(); i += PADDING) {
+            cells.set(i, 0);
+        }
+    }
+
+}
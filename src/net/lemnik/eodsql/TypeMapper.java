@@ -25,8 +25,19 @@ import java.sql.PreparedStatement;
  * <li>Boolean / boolean</li>
  * <li>Data</li>
  * <li>UUID - Mapped to any String SQL type</li>
+ * <li>InputStream / ReadableByteChannel - Streamed to and from any binary SQL
+ * type</li>
+ * <li>Reader - Streamed to and from any character SQL type</li>
+ * <li>Blob / Clob</li>
  * <li>
  * </ul>
+ * <p>
+ * Streams returned from a <code>ResultSet</code> are only valid while the row
+ * they were read from is current, so they should be returned by a
+ * {@link net.lemnik.eodsql.DataIterator DataIterator} or connected
+ * {@link net.lemnik.eodsql.DataSet DataSet} and read before it moves to
+ * another row.
+ * </p>
  *
  * @author jason
  */
@@ -100,13 +100,154 @@ public @interface Update {
   String sql() default "";
 
   /**
+   * <p>
    * If <code>true</code>, the update will be performed as a batch update. All
    * parameters of the method need to be either arrays or lists of the same
    * length in that case. The <code>sql</code> query applies to each element in
    * the array / list individually.
+   * </p><p>
+   * A batch update method may return <code>void</code>; <code>int</code> or
+   * <code>long</code> for the total number of rows affected; <code>int[]</code>
+   * for the update count of each row; or <code>long[]</code> for the update
+   * count of each row as returned by <code>Statement.executeLargeBatch()</code>
+   * (falling back on <code>executeBatch()</code> where the driver doesn't
+   * support it). If the {@link #keys() keys} attribute is set, the method
+   * returns the generated keys of every row as an array or
+   * <code>Collection</code> instead.
+   * </p>
    */
   public boolean batchUpdate() default false;
 
+  /**
+   * <p>
+   * The maximum number of rows of a batch update that will be sent to the
+   * database in a single <code>executeBatch()</code>. A value of
+   * <code>0</code> (the default) sends a batch made up of arrays or
+   * <code>Collection</code>s in one go.
+   * </p><p>
+   * Batch parameters may also be an <code>Iterator</code>,
+   * <code>Iterable</code>, <code>java.util.stream.Stream</code> or
+   * {@link DataIterator}. These are consumed lazily and executed in chunks of
+   * <code>batchSize</code> rows (1000 if no batch size is specified), so a
+   * batch copied from a <code>DataIterator</code> never needs to fit into
+   * memory.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int batchSize() default 0;
+
+  /**
+   * <p>
+   * The number of partitions a batch update is split into. Each partition is
+   * executed on it's own pooled <code>Connection</code> and thread, and the
+   * update counts of the partitions are combined when they have all completed.
+   * If any partition fails a {@link ParallelBatchException} is thrown.
+   * </p><p>
+   * Parallel batches are only executed in parallel by query objects created
+   * from a <code>DataSource</code> that are not a {@link TransactionQuery}
+   * (since each partition commits independently). Otherwise the batch is
+   * executed on a single <code>Connection</code> as normal. Parallel batch
+   * updates cannot return generated keys.
+   * </p><p>
+   * The invocation gives back it's own <code>Connection</code> before the
+   * partitions start, so a parallel batch takes <code>parallelism</code>
+   * <code>Connection</code>s from the <code>DataSource</code> at once. The
+   * pool must be able to hand out that many (plus any the invoking thread
+   * is still holding, such as the <code>Connection</code> of an open
+   * <code>DataIterator</code> from the same query object), or the partitions
+   * will wait on the pool.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int parallelism() default 1;
+
+  /**
+   * <p>
+   * The {@link BatchPartitioner} that assigns the rows of a
+   * {@link #parallelism() parallel} batch to it's partitions. The default
+   * value of <code>BatchPartitioner</code> itself assigns the rows in
+   * round-robin order.
+   * </p>
+   *
+   * @since 2.2
+   */
+  Class<? extends BatchPartitioner> partitioner() default BatchPartitioner.class;
+
+  /**
+   * <p>
+   * Rewrites a batch of a simple <code>INSERT INTO ... VALUES (...)</code>
+   * into multi-row inserts of the form
+   * <code>INSERT INTO ... VALUES (...), (...), ...</code>, which many databases
+   * execute far faster than a JDBC batch. Each statement binds as many rows
+   * as will fit into {@link #maxBindParameters()}; the statement for a full
+   * set of rows is prepared once and reused, while any remaining rows are
+   * inserted by a single shorter statement.
+   * </p><p>
+   * Where the database reports a single update count for each statement, the
+   * count for each row is <code>1</code> if every row was inserted, otherwise
+   * <code>Statement.SUCCESS_NO_INFO</code>. Generated keys may only be
+   * returned in an array or <code>Collection</code>.
+   * </p>
+   *
+   * @since 2.2
+   */
+  boolean rewriteInserts() default false;
+
+  /**
+   * <p>
+   * The largest number of parameters that may be bound to a single rewritten
+   * insert (see {@link #rewriteInserts()}). The default of <code>999</code>
+   * is safe for all common databases, but may be raised for those that
+   * allow more (PostgreSQL and MySQL allow 32767 and 65535).
+   * </p>
+   *
+   * @since 2.2
+   */
+  int maxBindParameters() default 999;
+
+  /**
+   * <p>
+   * The largest list that will be bound to a single statement for a list
+   * parameter (written as <code>?{1[]}</code> in the query). List parameters
+   * are expanded into a placeholder for each of their values, for example
+   * <code>WHERE id IN (?{1[]})</code>, and padded to the next power of two
+   * (by repeating the last value) so that only a few distinct statements
+   * are ever prepared.
+   * </p><p>
+   * A <code>null</code> or empty list is rejected with an
+   * <code>IllegalArgumentException</code>, since there is no portable SQL
+   * for an empty <code>IN</code> list (and binding a <code>NULL</code>
+   * instead would have <code>NOT IN</code> match no rows). A method that may
+   * be given an empty list should check for it before invoking the query.
+   * </p><p>
+   * If a query has a single list parameter which has more values than
+   * this, and the results of the method can be combined (an update count, or generated keys returned in an
+   * array or <code>Collection</code>), the list is
+   * split and the query executed once for each part.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int maxListSize() default 512;
+
+  /**
+   * <p>
+   * The longest time (in seconds) the database may spend executing the update,
+   * set on each of it's statements through
+   * {@link java.sql.Statement#setQueryTimeout(int)}. If the calling thread
+   * has a {@link QueryDeadline} which leaves less time than this, the deadline
+   * is used instead. A query that takes too long is cancelled, and the method
+   * throws a {@link QueryCancelledException}.
+   * </p><p>
+   * {@literal 0} (the default) sets no timeout.
+   * </p>
+   *
+   * @since 2.2
+   */
+  int timeout() default 0;
+
   /**
    * <p>
    * The specification of how auto-generated keys are to be returned for this
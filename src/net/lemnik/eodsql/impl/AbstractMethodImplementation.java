@@ -1,20 +1,28 @@
 package net.lemnik.eodsql.impl;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
 import java.sql.Connection;
+import java.sql.Statement;
 import java.sql.SQLException;
 import java.sql.PreparedStatement;
 
 import java.util.Map;
+import java.util.List;
+import java.util.Collection;
 
+import net.lemnik.eodsql.DataSet;
+import net.lemnik.eodsql.DataIterator;
 import net.lemnik.eodsql.QueryTool;
+import net.lemnik.eodsql.EoDException;
 import net.lemnik.eodsql.TypeMapper;
 import net.lemnik.eodsql.InvalidQueryException;
 
 import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Resource;
 import net.lemnik.eodsql.spi.StatementResource;
 import net.lemnik.eodsql.spi.MethodImplementation;
 
@@ -34,37 +42,285 @@ abstract class AbstractMethodImplementation<A extends Annotation>
 
     private TypeMapper<?>[] parameterMappers = null;
 
+    /**
+     * The largest list that will be bound to a single statement for a
+     * list parameter. Larger lists are split over several executions if
+     * {@link #mergeableResults} is set.
+     */
+    protected int maxListSize = Integer.MAX_VALUE;
+
+    /**
+     * Whether the results of several executions of this method can be
+     * merged by {@link #mergeResults(Object, Object)}.
+     */
+    protected boolean mergeableResults = false;
+
+    /**
+     * The query timeout of this method in seconds, or {@literal 0} for none.
+     */
+    protected int timeout = 0;
+
     protected PreparedStatement createPreparedStatement(
             final Context<A> context)
             throws SQLException {
         
         final Connection connection = context.getResource(Connection.class).get();
         final PreparedStatement statement = connection.prepareStatement(
-                query.toString(),
+                getSql(context),
                 wrapper.getPreferredResultSetType(),
                 wrapper.getPreferredResultSetConcurrency());
 
         context.setResource(new StatementResource(statement));
+        applyTimeout(statement);
 
         return statement;
     }
 
+    /**
+     * Applies the {@link #timeout} of this method and the
+     * {@link net.lemnik.eodsql.QueryDeadline} of the current thread to a new
+     * statement, closing the statement if it should not be executed.
+     *
+     * @param statement the statement that is about to be executed
+     * @throws SQLException if the statement should not be executed
+     * @see StatementWatchdog#apply(Statement, int)
+     */
+    protected void applyTimeout(final Statement statement) throws SQLException {
+        try {
+            StatementWatchdog.apply(statement, timeout);
+        } catch(final SQLException sqle) {
+            statement.close();
+            throw sqle;
+        }
+    }
+
     protected void fillPreparedStatementParameters(
             final Context<?> context,
             final PreparedStatement statement)
             throws SQLException {
 
-        final TypeMapper<?>[] mappers = getParameterMappers();
+        fillPreparedStatementParameters(context, statement, 0);
+    }
+
+    /**
+     * Binds the parameters of the query starting after the given offset,
+     * so that the first parameter is bound at index {@code offset + 1}.
+     *
+     * @return the index of the first column after those that were bound
+     */
+    protected int fillPreparedStatementParameters(
+            final Context<?> context,
+            final PreparedStatement statement,
+            final int offset)
+            throws SQLException {
+
+        return fillPreparedStatementParameters(
+                query,
+                getParameterMappers(),
+                context,
+                statement,
+                offset);
+    }
+
+    /**
+     * Binds the parameters of another {@code Query} that takes the same
+     * method parameters as this one, using the given {@code TypeMapper}s.
+     *
+     * @return the index of the first column after those that were bound
+     */
+    protected int fillPreparedStatementParameters(
+            final Query query,
+            final TypeMapper<?>[] mappers,
+            final Context<?> context,
+            final PreparedStatement statement,
+            final int offset)
+            throws SQLException {
+
+        int column = offset + 1;
 
         for(int i = 0; i < mappers.length; i++) {
-            final Object parameter = query.getParameter(context, i);
-            
             @SuppressWarnings("unchecked")
             final TypeMapper<Object> parameterMapper =
                     (TypeMapper<Object>)mappers[i];
 
-            parameterMapper.set(statement, i + 1, parameter);
+            if(query.isListParameter(i)) {
+                column = fillListParameter(
+                        query.getListParameter(context, i),
+                        parameterMapper,
+                        statement,
+                        column);
+            } else {
+                final Object parameter = query.getParameter(context, i);
+                parameterMapper.set(statement, column++, parameter);
+            }
         }
+
+        return column;
+    }
+
+    private int fillListParameter(
+            final List<?> values,
+            final TypeMapper<Object> mapper,
+            final PreparedStatement statement,
+            final int column)
+            throws SQLException {
+
+        final int size = values.size();
+        final int expanded = Query.getExpandedSize(size, maxListSize);
+
+        for(int i = 0; i < expanded; i++) {
+            mapper.set(statement, column + i, values.get(Math.min(i, size - 1)));
+        }
+
+        return column + expanded;
+    }
+
+    /**
+     * Returns the SQL to prepare for the given invocation, with each list
+     * parameter expanded to fit it's values.
+     */
+    protected String getSql(final Context<?> context) {
+        final String sql = query.toString(context, maxListSize);
+        context.getExecution().setSql(sql);
+        return sql;
+    }
+
+    /**
+     * Returns the number of rows held by a value returned from a query, or
+     * {@literal 0} if they will only be read after the method returns, as
+     * with a {@code DataIterator} or connected {@code DataSet}.
+     */
+    protected static long countRows(final Object value) {
+        if(value == null) {
+            return 0;
+        } else if(value instanceof DataSet) {
+            final DataSet<?> dataSet = (DataSet<?>)value;
+            return dataSet.isConnected() ? 0 : dataSet.size();
+        } else if(value instanceof Collection) {
+            return ((Collection<?>)value).size();
+        } else if(value instanceof DataIterator) {
+            return 0;
+        } else if(value.getClass().isArray()) {
+            return Array.getLength(value);
+        } else {
+            return 1;
+        }
+    }
+
+    /**
+     * <p>
+     * Splits an invocation whose list parameter has more than
+     * {@link #maxListSize} values into several invocations of at most
+     * {@code maxListSize} values each, merging their results. Only a query
+     * with a single list parameter that is a method parameter in it's own
+     * right (ie: {@code ?{1[]}}) can be split.
+     * </p><p>
+     * Each of the split invocations is run in it's own {@code Context}
+     * sharing the {@code Connection} of the given context.
+     * </p>
+     *
+     * @param context the {@code Context} of the method invocation
+     * @return {@literal true} if the invocation was split and the return
+     *      value has been set, {@literal false} if it should be executed
+     *      normally
+     * @throws Throwable if any of the split invocations fails
+     */
+    protected boolean invokeSplit(final Context<A> context) throws Throwable {
+        if(!mergeableResults || query.getListParameterCount() != 1) {
+            return false;
+        }
+
+        int listIndex = 0;
+
+        while(!query.isListParameter(listIndex)) {
+            listIndex++;
+        }
+
+        final int parameterIndex = query.getListParameterSource(listIndex);
+        final List<?> values = query.getListParameter(context, listIndex);
+        final int size = values.size();
+
+        if(parameterIndex == -1 || size <= maxListSize) {
+            return false;
+        }
+
+        final Resource<Connection> connection =
+                context.getResource(Connection.class);
+
+        Object result = null;
+
+        for(int start = 0; start < size; start += maxListSize) {
+            final Object[] parameters = context.getParameters().clone();
+            parameters[parameterIndex] = values.subList(
+                    start,
+                    Math.min(size, start + maxListSize));
+
+            final Context<A> split = new Context<A>(
+                    context.getAnnotation(),
+                    parameters,
+                    context.getExecution());
+
+            split.setResource(connection);
+            split.setDontCloseConnection(true);
+
+            try {
+                invoke(split);
+
+                result = start == 0
+                        ? split.getReturnValue()
+                        : mergeResults(result, split.getReturnValue());
+            } finally {
+                split.close();
+            }
+        }
+
+        context.setReturnValue(result);
+        return true;
+    }
+
+    /**
+     * Returns whether the results of several executions can be merged
+     * into a single instance of the given type.
+     */
+    protected static boolean isMergeable(final Class<?> type) {
+        return type.isArray() ||
+                (Collection.class.isAssignableFrom(type) &&
+                !DataSet.class.isAssignableFrom(type));
+    }
+
+    /**
+     * Merges two results by concatenating arrays and {@code Collection}s, or
+     * adding update counts.
+     */
+    @SuppressWarnings("unchecked")
+    protected static Object mergeResults(final Object first, final Object second) {
+        if(first == null) {
+            return second;
+        } else if(second == null) {
+            return first;
+        } else if(first.getClass().isArray()) {
+            final int length = Array.getLength(first);
+            final int secondLength = Array.getLength(second);
+            final Object merged = Array.newInstance(
+                    first.getClass().getComponentType(),
+                    length + secondLength);
+
+            System.arraycopy(first, 0, merged, 0, length);
+            System.arraycopy(second, 0, merged, length, secondLength);
+            return merged;
+        } else if(first instanceof Collection) {
+            ((Collection<Object>)first).addAll((Collection<Object>)second);
+            return first;
+        } else if(first instanceof Integer) {
+            return Integer.valueOf(((Integer)first).intValue() +
+                    ((Number)second).intValue());
+        } else if(first instanceof Long) {
+            return Long.valueOf(((Long)first).longValue() +
+                    ((Number)second).longValue());
+        }
+
+        throw new EoDException("Cannot merge results of type " +
+                first.getClass().getName());
     }
 
     protected TypeMapper<?>[] getParameterMappers() {
@@ -103,6 +359,11 @@ abstract class AbstractMethodImplementation<A extends Annotation>
 
             if(mapper != null) {
                 mappers[i] = mapper;
+            } else if(query.isListParameter(i) &&
+                    query.getParameterType(i) == Object.class) {
+
+                // the elements of a Collection can only be mapped at runtime
+                mappers[i] = DefaultTypeMappers.RuntimeTypeMapper.INSTANCE;
             } else {
         	    throw new InvalidQueryException("Unknown primitive type: " +
                         query.getParameterType(i).getName());
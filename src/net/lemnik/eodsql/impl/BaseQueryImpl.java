@@ -21,14 +21,19 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.sql.DataSource;
 
 import net.lemnik.eodsql.BaseQuery;
+import net.lemnik.eodsql.Coalesce;
 import net.lemnik.eodsql.EoDException;
 import net.lemnik.eodsql.QueryTool;
+import net.lemnik.eodsql.QueryMetrics;
+import net.lemnik.eodsql.SlowQueryLog;
+import net.lemnik.eodsql.QueryCancelledException;
 import net.lemnik.eodsql.InvalidQueryException;
 
 import net.lemnik.eodsql.spi.MethodImplementation;
 import net.lemnik.eodsql.spi.MethodImplementationFactory;
 
 import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Execution;
 import net.lemnik.eodsql.spi.Resource;
 
 /**
@@ -130,6 +135,10 @@ class BaseQueryImpl implements InvocationHandler {
             methods.put(method, getMethodImpl(method));
         }
 
+        if(isCoalescingSupported()) {
+            createCoalescers(clazz, parents);
+        }
+
         try {
             final Class<BaseQuery> baseQuery = BaseQuery.class;
             methods.put(baseQuery.getMethod("close"), new InvokeClose());
@@ -139,6 +148,45 @@ class BaseQueryImpl implements InvocationHandler {
         }
     }
 
+    /**
+     * Wraps each method annotated with {@code @Coalesce} so that it's
+     * invocations are coalesced into invocations of it's companion method.
+     */
+    private void createCoalescers(
+            final Class<? extends BaseQuery> clazz,
+            final Set<Class> parents) {
+
+        for(final Method method : clazz.getMethods()) {
+            if(parents.contains(method.getDeclaringClass()) ||
+                    !method.isAnnotationPresent(Coalesce.class)) {
+
+                continue;
+            }
+
+            final Method companion = RequestCoalescer.findCompanion(
+                    clazz,
+                    method);
+
+            RequestCoalescer.validate(method, companion);
+
+            methods.put(method, new RequestCoalescer(
+                    method,
+                    methods.get(method),
+                    companion,
+                    methods.get(companion)));
+        }
+    }
+
+    /**
+     * Returns whether invocations of {@code @Coalesce} methods may be
+     * combined. Query objects whose invocations must each see their own
+     * {@code Connection} (such as a transaction) should return
+     * {@literal false}.
+     */
+    protected boolean isCoalescingSupported() {
+        return true;
+    }
+
     public Object invoke(
             final Object proxy,
             final Method method,
@@ -211,18 +259,73 @@ class BaseQueryImpl implements InvocationHandler {
                 throws Throwable {
 
             final Context<Annotation> context = createContext(annotation, args);
+            final Execution execution = context.getExecution();
+            final FlightRecorderEvents.Recorder recorder =
+                    FlightRecorderEvents.start(method, execution);
+            final StatementWatchdog.Watch watch = StatementWatchdog.begin();
 
-            final Resource<Connection> connection =
-                    new ConnectionSourceConnectionResource(connectionSource);
-
-            context.setResource(connection);
+            boolean failed = true;
 
             try {
+                final Resource<Connection> connection =
+                        new ConnectionSourceConnectionResource(connectionSource);
+
+                context.setResource(connection);
+                context.setConnectionReclaimable(
+                        connectionSource.isReleasableByAnyThread());
+                execution.mark(Execution.Phase.CONNECTION);
+
                 implementation.invoke(context);
+                failed = false;
+
                 return context.getReturnValue();
+            } catch(final SQLException sqle) {
+                throw watch.translate(sqle);
             } finally {
-                if(context.isAutoclose()) {
-                    context.close();
+                watch.end();
+
+                try {
+                    if(context.isAutoclose()) {
+                        context.close();
+                    }
+                } finally {
+                    execution.mark(Execution.Phase.CLOSE);
+                    observe(method, context, recorder, failed);
+                }
+            }
+        }
+
+        /**
+         * Passes a finished call to the metrics, the slow query log and the
+         * flight recorder. This runs in the {@code finally} of the call, so
+         * anything they throw is dropped rather than allowed to replace the
+         * return value or exception of the call.
+         */
+        private void observe(
+                final Method method,
+                final Context<Annotation> context,
+                final FlightRecorderEvents.Recorder recorder,
+                final boolean failed) {
+
+            final Execution execution = context.getExecution();
+
+            try {
+                QueryMetrics.record(method, execution, failed);
+            } catch(final RuntimeException re) {
+                // counting the call must not fail it
+            }
+
+            try {
+                SlowQueryLog.record(method, context, failed);
+            } catch(final RuntimeException re) {
+                // most likely a Redactor or the toString() of a parameter
+            }
+
+            if(recorder != null) {
+                try {
+                    recorder.finish(execution, failed);
+                } catch(final RuntimeException re) {
+                    // tracing must never break a query
                 }
             }
         }
@@ -241,6 +344,12 @@ class BaseQueryImpl implements InvocationHandler {
         public void close() throws SQLException;
 
         public boolean isClosed() throws SQLException;
+
+        /**
+         * Returns whether a {@code Connection} taken from this source may be
+         * released by a thread other than the one that took it.
+         */
+        public boolean isReleasableByAnyThread();
     }
 
     static class SingleConnectionSource implements ConnectionSource {
@@ -257,8 +366,12 @@ class BaseQueryImpl implements InvocationHandler {
             try {
                 lock.lockInterruptibly();
             } catch(InterruptedException interruptedException) {
-                throw (SQLException)(new SQLException().initCause(
-                        interruptedException));
+                // keep the interrupt for the caller, it was not meant for us
+                Thread.currentThread().interrupt();
+
+                throw (SQLException)StatementWatchdog.createCancellation(
+                        QueryCancelledException.CANCELLED_STATE).initCause(
+                        interruptedException);
             }
 
             return connection;
@@ -280,6 +393,11 @@ class BaseQueryImpl implements InvocationHandler {
         public boolean isClosed() throws SQLException {
             return connection.isClosed();
         }
+
+        public boolean isReleasableByAnyThread() {
+            // the lock can only be released by the thread that holds it
+            return false;
+        }
     }
 
     static class DataSourceConnectionSource implements ConnectionSource {
@@ -291,11 +409,8 @@ class BaseQueryImpl implements InvocationHandler {
 
         private final boolean autoCommit;
 
-        // Dummy value to associate with an Object in the backing Map
-        private static final Object PRESENT = new Object();
-
-        private final Map<Connection, Object> connections = Collections.synchronizedMap(
-                new IdentityHashMap<Connection, Object>());
+        private final Map<Connection, ConnectionUtil> connections = Collections.synchronizedMap(
+                new IdentityHashMap<Connection, ConnectionUtil>());
 
         DataSourceConnectionSource(final DataSource datasource, final boolean autoCommit) {
             this.datasource = datasource;
@@ -324,10 +439,14 @@ class BaseQueryImpl implements InvocationHandler {
             return connections.isEmpty();
         }
 
+        public boolean isReleasableByAnyThread() {
+            return true;
+        }
+
         public Connection getConnection() throws SQLException {
             ConnectionUtil util = CONNECTION_UTILS.get();
 
-            if(util == null || util.connection.isClosed()) {
+            if(util == null || !util.acquire()) {
                 final Connection tmp = datasource.getConnection();
                 try {
                     tmp.setAutoCommit(autoCommit);
@@ -335,13 +454,10 @@ class BaseQueryImpl implements InvocationHandler {
                     throw ExceptionTranslationUtils.translateException(tmp, "setAutoCommit", "-", ex);
                 }
 
-                connections.put(tmp, PRESENT);
-
                 util = new ConnectionUtil(tmp);
-                util.count++;
+                util.acquire();
+                connections.put(tmp, util);
                 CONNECTION_UTILS.set(util);
-            } else {
-                util.count++;
             }
 
             return util.connection;
@@ -350,14 +466,18 @@ class BaseQueryImpl implements InvocationHandler {
         public void releaseConnection(final Connection connection)
                 throws SQLException {
 
-            if(connections.containsKey(connection)) {
-                final ConnectionUtil util = CONNECTION_UTILS.get();
+            // the count is kept with the Connection rather than the thread,
+            // since a leaked Connection is released by the LeakDetector
+            final ConnectionUtil util = connections.get(connection);
 
-                if(--util.count <= 0) {
-                    connections.remove(connection);
-                    connection.close();
+            if(util != null && util.release()) {
+                connections.remove(connection);
+
+                if(CONNECTION_UTILS.get() == util) {
                     CONNECTION_UTILS.remove();
                 }
+
+                connection.close();
             }
         }
 
@@ -365,6 +485,10 @@ class BaseQueryImpl implements InvocationHandler {
             return datasource;
         }
 
+        boolean isAutoCommit() {
+            return autoCommit;
+        }
+
         private static class ConnectionUtil {
 
             private final Connection connection;
@@ -375,10 +499,36 @@ class BaseQueryImpl implements InvocationHandler {
                 this.connection = connection;
                 this.count = 0;
             }
+
+            /**
+             * Counts another use of the {@code Connection}, unless it has
+             * already been released for the last time.
+             */
+            synchronized boolean acquire() throws SQLException {
+                if(count < 0 || connection.isClosed()) {
+                    return false;
+                }
+
+                count++;
+                return true;
+            }
+
+            /**
+             * Counts the end of a use of the {@code Connection}, returning
+             * whether it was the last one.
+             */
+            synchronized boolean release() {
+                if(count > 0 && --count == 0) {
+                    count = -1;
+                    return true;
+                }
+
+                return false;
+            }
         }
     }
 
-    private static class ConnectionSourceConnectionResource implements Resource<Connection> {
+    static class ConnectionSourceConnectionResource implements Resource<Connection> {
 
         private final ConnectionSource connectionSource;
 
@@ -396,6 +546,10 @@ class BaseQueryImpl implements InvocationHandler {
             return connection;
         }
 
+        ConnectionSource getConnectionSource() {
+            return connectionSource;
+        }
+
         public boolean isClosed() {
             return connection == null;
         }
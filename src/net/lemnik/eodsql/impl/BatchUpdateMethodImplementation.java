@@ -5,37 +5,127 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.InvocationTargetException;
 
+import java.sql.Statement;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.PreparedStatement;
 
 import java.text.ParseException;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.AbstractCollection;
 import java.util.NoSuchElementException;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import net.lemnik.eodsql.Update;
 import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.GeneratedKeys;
+import net.lemnik.eodsql.BatchPartitioner;
 import net.lemnik.eodsql.InvalidQueryException;
 
 import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Execution;
+import net.lemnik.eodsql.spi.ResultSetResource;
+import net.lemnik.eodsql.spi.StatementResource;
+
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSource;
+import net.lemnik.eodsql.impl.BaseQueryImpl.DataSourceConnectionSource;
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSourceConnectionResource;
 
 /**
+ * <p>
  * Implementation of {@link Update} for batch updates.
+ * </p><p>
+ * Depending on the return type of the method, a batch update returns
+ * nothing, the total number of rows affected ({@code int} or {@code long}),
+ * the per-row update counts ({@code int[]}, or {@code long[]} through
+ * {@code Statement.executeLargeBatch()} where the driver supports it),
+ * or the generated keys of every row when a {@link GeneratedKeys} mode
+ * other than {@code NO_KEYS_RETURNED} is selected.
+ * </p>
  *
  * @author Bernd Rinn
  */
 class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
 
+    /**
+     * {@code Statement.executeLargeBatch()} was only introduced in Java 8,
+     * so we look it up reflectively.
+     */
+    private static final Method EXECUTE_LARGE_BATCH = findExecuteLargeBatch();
+
+    /**
+     * The number of rows executed together when the batch is read from a
+     * streaming parameter and no {@code batchSize} has been specified.
+     */
+    static final int DEFAULT_STREAMING_BATCH_SIZE = 1000;
+
+    /**
+     * {@code java.util.stream.BaseStream} and it's {@code iterator()} method,
+     * or {@literal null} if we are not running on Java 8 or higher.
+     */
+    private static final Class<?> STREAM_TYPE;
+
+    private static final Method STREAM_ITERATOR;
+
+    static {
+        Class<?> streamType = null;
+        Method streamIterator = null;
+
+        try {
+            streamType = Class.forName("java.util.stream.BaseStream");
+            streamIterator = streamType.getMethod("iterator");
+        } catch(final ClassNotFoundException e) {
+            // ignore this... we are simply not running 1.8 or higher
+        } catch(final NoSuchMethodException e) {
+            // ignore this... we are simply not running 1.8 or higher
+        } catch(final SecurityException e) {
+            // ignore this... we are simply not running 1.8 or higher
+        }
+
+        STREAM_TYPE = streamType;
+        STREAM_ITERATOR = streamIterator;
+    }
+
     private final ParameterViewFactory[] viewFactories;
 
     private final int firstIndexOfFiniteCollection;
 
+    private final CountType countType;
+
+    private final int batchSize;
+
+    private final int parallelism;
+
+    /**
+     * The partitioner for parallel batches, {@literal null} for the default
+     * round-robin partitioning.
+     */
+    private final BatchPartitioner partitioner;
+
+    /**
+     * The multi-row form of the query, or {@literal null} if the rows of
+     * the batch are sent to the database with {@code addBatch()}.
+     */
+    private final InsertRewrite rewrite;
+
+    /**
+     * Set to {@literal false} the first time the driver refuses
+     * {@code executeLargeBatch()}, after which we fall back on widening the
+     * results of {@code executeBatch()}.
+     */
+    private volatile boolean largeBatchSupported = EXECUTE_LARGE_BATCH != null;
+
     BatchUpdateMethodImplementation(final Method method) throws ParseException {
         super(method);
+        countType = validateReturnType(method);
         viewFactories = createParameterViewFactories(method);
         firstIndexOfFiniteCollection = findFirstIndexOfFiniteCollection(viewFactories);
         if (firstIndexOfFiniteCollection == -1) {
@@ -43,6 +133,96 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
                     + "." + method.getName()
                     + "' supposed to do batch update, but has no batch parameter.");
         }
+
+        if(query.getListParameterCount() != 0) {
+            throw new InvalidQueryException("A batch Update cannot " +
+                    "expand list parameters.", method);
+        }
+
+        final Update update = method.getAnnotation(Update.class);
+
+        batchSize = getBatchSize(update, viewFactories);
+        parallelism = update.parallelism();
+
+        if(parallelism > 1 && keys != GeneratedKeys.NO_KEYS_RETURNED) {
+            throw new InvalidQueryException("A parallel batch Update " +
+                    "cannot return generated keys.", method);
+        }
+
+        partitioner = createPartitioner(update, method);
+        rewrite = createInsertRewrite(update, method);
+    }
+
+    private InsertRewrite createInsertRewrite(
+            final Update update,
+            final Method method) {
+
+        if(!update.rewriteInserts()) {
+            return null;
+        }
+
+        final InsertRewrite insert = InsertRewrite.parse(
+                query.toString(),
+                query.getParameterCount(),
+                update.maxBindParameters());
+
+        if(insert == null) {
+            throw new InvalidQueryException("Only a simple " +
+                    "\"INSERT INTO ... VALUES (...)\" can be rewritten " +
+                    "as a multi-row insert.", method);
+        }
+
+        if(keys != GeneratedKeys.NO_KEYS_RETURNED) {
+            final Class<?> type = method.getReturnType();
+
+            if(!type.isArray() && !Collection.class.isAssignableFrom(type)) {
+                throw new InvalidQueryException("A rewritten batch insert " +
+                        "can only return it's generated keys in an array " +
+                        "or Collection.", method);
+            }
+        }
+
+        return insert;
+    }
+
+    private static BatchPartitioner createPartitioner(
+            final Update update,
+            final Method method) {
+
+        final Class<? extends BatchPartitioner> type = update.partitioner();
+
+        if(type == BatchPartitioner.class) {
+            return null;
+        }
+
+        try {
+            return type.newInstance();
+        } catch(final InstantiationException ie) {
+            throw new InvalidQueryException("Cannot instantiate " +
+                    "BatchPartitioner: " + type.getName() + ". Make sure " +
+                    "it has a public default constructor.", method);
+        } catch(final IllegalAccessException iae) {
+            throw new InvalidQueryException("Cannot instantiate " +
+                    "BatchPartitioner: " + type.getName() + ". Make sure " +
+                    "it has a public default constructor.", method);
+        }
+    }
+
+    private static int getBatchSize(
+            final Update update,
+            final ParameterViewFactory[] viewFactories) {
+
+        if(update.batchSize() > 0) {
+            return update.batchSize();
+        }
+
+        for(final ParameterViewFactory factory : viewFactories) {
+            if(factory.isStreaming()) {
+                return DEFAULT_STREAMING_BATCH_SIZE;
+            }
+        }
+
+        return Integer.MAX_VALUE;
     }
 
     private Iterator<?>[] createParameterViews(final Object[] parameters) {
@@ -91,11 +271,31 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
                         ctx, parameters);
 
                 public boolean hasNext() {
-                    return views[firstIndexOfFiniteCollection].hasNext();
+                    if(views[firstIndexOfFiniteCollection].hasNext()) {
+                        return true;
+                    }
+
+                    // streamed parameters cannot be checked for size
+                    // up-front, so we check that they have all run out
+                    for(int i = 0; i < paramCount; i++) {
+                        if(viewFactories[i].isFiniteCollection() &&
+                                views[i].hasNext()) {
+
+                            throw new EoDException("Batch parameter is " +
+                                    "mismatched in size: " + i);
+                        }
+                    }
+
+                    return false;
                 }
 
                 public Context<Update> next() {
                     for(int i = 0; i < paramCount; i++) {
+                        if(!views[i].hasNext()) {
+                            throw new EoDException("Batch parameter is " +
+                                    "mismatched in size: " + i);
+                        }
+
                         parameters[i] = views[i].next();
                     }
 
@@ -117,6 +317,12 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
             return new ArrayViewFactory();
         } else if(Collection.class.isAssignableFrom(type)) {
             return new CollectionViewFactory();
+        } else if(Iterator.class.isAssignableFrom(type)) {
+            return new IteratorViewFactory();
+        } else if(Iterable.class.isAssignableFrom(type)) {
+            return new IterableViewFactory();
+        } else if(isStream(type)) {
+            return new StreamViewFactory();
         } else {
             return new SimpleParameterIteratorFactory();
         }
@@ -137,6 +343,10 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
         return factories;
     }
 
+    private static boolean isStream(final Class<?> type) {
+        return STREAM_TYPE != null && STREAM_TYPE.isAssignableFrom(type);
+    }
+
     private static int findFirstIndexOfFiniteCollection(ParameterViewFactory[] viewFactories) {
         for (int i = 0; i < viewFactories.length; ++i)
         {
@@ -148,6 +358,58 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
         return -1;
     }
 
+    private static Method findExecuteLargeBatch() {
+        try {
+            return Statement.class.getMethod("executeLargeBatch");
+        } catch(final NoSuchMethodException e) {
+            // ignore this... we are simply not running 1.8 or higher
+            return null;
+        } catch(final SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks that the return type of a batch update method is one that we
+     * know how to produce, and works out which form of update counts it
+     * requires.
+     *
+     * @param method the batch update method
+     * @return the form of update counts the method returns
+     * @throws InvalidQueryException if the return type is not supported
+     */
+    static CountType validateReturnType(final Method method)
+            throws InvalidQueryException {
+
+        final Update update = method.getAnnotation(Update.class);
+        final Class<?> returnType = method.getReturnType();
+
+        if(update.keys() != GeneratedKeys.NO_KEYS_RETURNED) {
+            if(returnType == Void.TYPE) {
+                throw new InvalidQueryException("A batch Update method " +
+                        "returning generated keys may not return void.",
+                        method);
+            }
+
+            return CountType.NONE;
+        } else if(returnType == Void.TYPE) {
+            return CountType.NONE;
+        } else if(returnType == Integer.TYPE || returnType == Integer.class) {
+            return CountType.INT_TOTAL;
+        } else if(returnType == Long.TYPE || returnType == Long.class) {
+            return CountType.LONG_TOTAL;
+        } else if(returnType == int[].class) {
+            return CountType.INT_COUNTS;
+        } else if(returnType == long[].class) {
+            return CountType.LONG_COUNTS;
+        } else {
+            throw new InvalidQueryException("A batch Update method " +
+                    "returning GeneratedKeys.NO_KEYS_RETURNED must " +
+                    "have a return type of void, int, long, int[] " +
+                    "or long[].", method);
+        }
+    }
+
     @Override
     protected Class<?>[] getParameterTypes(final Method method) {
         final Type[] genericTypes = method.getGenericParameterTypes();
@@ -170,19 +432,22 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
                 if(ptype.getRawType() instanceof Class) {
                     final Class<?> raw = (Class<?>)ptype.getRawType();
 
-                    if(Iterable.class.isAssignableFrom(raw)) {
+                    if(Iterable.class.isAssignableFrom(raw) ||
+                            Iterator.class.isAssignableFrom(raw) ||
+                            isStream(raw)) {
+
                         final Type[] args = ptype.getActualTypeArguments();
 
                         if(args.length != 1) {
                             throw new InvalidQueryException(
-                                    "A generic Iterable may only have " +
-                                    "one type argument: " + ptype,
+                                    "A generic batch parameter may only " +
+                                    "have one type argument: " + ptype,
                                     method);
                         } else if(args[0] instanceof Class) {
                             clazz = (Class<?>)args[0];
                         } else {
                             throw new InvalidQueryException(
-                                    "A generic Iterable must have a " +
+                                    "A generic batch parameter must have a " +
                                     "concrete parameter type: " + ptype,
                                     method);
                         }
@@ -224,21 +489,726 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
     }
 
     @Override
-    protected void update(
+    public void invoke(final Context<Update> context) throws Throwable {
+        final ConnectionSource parallelSource = getParallelConnectionSource(
+                context);
+
+        if(parallelSource != null) {
+            invokeParallel(context, parallelSource);
+            return;
+        }
+
+        final Connection connection = context.
+                getResource(Connection.class).get();
+
+        final BatchResult result = new BatchResult();
+        final RowWriter writer = createRowWriter(
+                connection,
+                context,
+                result,
+                batchSize,
+                true);
+
+        try {
+            final Iterator<Context<Update>> iterator = iterate(context);
+
+            while(iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        context.setReturnValue(result.toReturnValue());
+    }
+
+    /**
+     * Creates the {@code RowWriter} that will write the rows of a batch to the
+     * given {@code Connection}.
+     *
+     * @param connection the {@code Connection} to execute the rows on
+     * @param context the {@code Context} of the method invocation
+     * @param listener the listener for the results of each executed chunk
+     * @param chunkSize the number of rows to send to the database at a time
+     * @param registerStatement whether the {@code PreparedStatement} should be
+     *      registered as a resource of the {@code context} rather than being
+     *      closed by the {@code RowWriter}
+     * @return a new {@code RowWriter}
+     * @throws SQLException if the statement could not be prepared
+     */
+    RowWriter createRowWriter(
+            final Connection connection,
+            final Context<Update> context,
+            final ChunkListener listener,
+            final int chunkSize,
+            final boolean registerStatement)
+            throws SQLException {
+
+        context.getExecution().setSql(query.toString());
+
+        if(rewrite != null) {
+            return new InsertRowWriter(connection, context, listener);
+        }
+
+        final PreparedStatement statement = prepareStatement(
+                connection,
+                query.toString());
+
+        if(registerStatement) {
+            context.setResource(new StatementResource(statement));
+        }
+
+        return new BatchedRowWriter(
+                statement,
+                context,
+                listener,
+                chunkSize,
+                !registerStatement);
+    }
+
+    /**
+     * Returns the {@code ConnectionSource} that the partitions of a parallel
+     * batch can take their own connections from, or {@literal null} if this
+     * batch should not be run in parallel. Only non-transactional query
+     * objects created from a {@code DataSource} can run parallel batches.
+     */
+    private ConnectionSource getParallelConnectionSource(
+            final Context<Update> context) {
+
+        if(parallelism <= 1) {
+            return null;
+        }
+
+        final Object resource = context.getResource(Connection.class);
+
+        if(resource instanceof ConnectionSourceConnectionResource) {
+            final ConnectionSource source =
+                    ((ConnectionSourceConnectionResource)resource).
+                    getConnectionSource();
+
+            if(source instanceof DataSourceConnectionSource &&
+                    ((DataSourceConnectionSource)source).isAutoCommit()) {
+
+                return source;
+            }
+        }
+
+        return null;
+    }
+
+    private void invokeParallel(
+            final Context<Update> context,
+            final ConnectionSource source)
+            throws SQLException {
+
+        // each partition takes it's own Connection, so the one taken for
+        // this invocation is given back first: holding it would need one
+        // more Connection than there are partitions, and a pool of exactly
+        // parallelism() Connections would deadlock
+        context.getResource(Connection.class).close();
+
+        final boolean recordCounts = countType == CountType.INT_COUNTS ||
+                countType == CountType.LONG_COUNTS;
+
+        final PartitionedBatch batch = new PartitionedBatch(
+                this,
+                source,
+                context,
+                partitioner,
+                parallelism,
+                batchSize == Integer.MAX_VALUE
+                        ? DEFAULT_STREAMING_BATCH_SIZE
+                        : batchSize,
+                recordCounts);
+
+        final long[] counts = batch.execute(iterate(context));
+        final BatchResult result = new BatchResult();
+        final Execution execution = context.getExecution();
+
+        // the partitions are measured as a whole, since they run in parallel
+        execution.mark(Execution.Phase.EXECUTE);
+
+        if(recordCounts) {
+            result.addCounts(counts, batch.getTotal());
+        } else {
+            result.addCount(counts[0]);
+        }
+
+        execution.addRowsAffected(batch.getTotal());
+
+        context.setReturnValue(result.toReturnValue());
+    }
+
+    /**
+     * Wraps the keys generated by the last executed chunk in the return
+     * type of the method. The keys are read in their own {@code Context} so
+     * that the {@code ResultSet} of each chunk is released as soon as it
+     * has been read.
+     */
+    private Object wrapGeneratedKeys(
             final PreparedStatement statement,
             final Context<Update> context)
             throws SQLException {
 
-        final Iterator<Context<Update>> iterator = iterate(context);
+        final Context<Update> keysContext = new Context<Update>(
+                context.getAnnotation(),
+                context.getParameters());
+
+        keysContext.setResource(new ResultSetResource(
+                statement.getGeneratedKeys()));
+
+        try {
+            return wrapper.wrap(keysContext);
+        } finally {
+            if(keysContext.isAutoclose()) {
+                keysContext.close();
+            }
+        }
+    }
+
+    /**
+     * Executes the rows currently batched on the {@code statement} and
+     * returns their update counts, using {@code executeLargeBatch()} if the
+     * method returns {@code long[]}.
+     */
+    long[] executeCounts(final PreparedStatement statement)
+            throws SQLException {
+
+        if(countType == CountType.LONG_COUNTS) {
+            return executeLargeBatch(statement);
+        } else {
+            return widen(statement.executeBatch());
+        }
+    }
+
+    private static long[] widen(final int[] counts) {
+        final long[] large = new long[counts.length];
+
+        for(int i = 0; i < counts.length; i++) {
+            large[i] = counts[i];
+        }
+
+        return large;
+    }
+
+    private long[] executeLargeBatch(final PreparedStatement statement)
+            throws SQLException {
+
+        if(largeBatchSupported) {
+            try {
+                return (long[])EXECUTE_LARGE_BATCH.invoke(statement);
+            } catch(final InvocationTargetException ite) {
+                final Throwable cause = ite.getCause();
+
+                if(cause instanceof SQLException) {
+                    final String state = ((SQLException)cause).getSQLState();
+
+                    // SQLSTATE class 0A is "feature not supported"
+                    if(state == null || !state.startsWith("0A")) {
+                        throw (SQLException)cause;
+                    }
+                } else if(cause instanceof RuntimeException &&
+                        !(cause instanceof UnsupportedOperationException)) {
+
+                    throw (RuntimeException)cause;
+                } else if(cause instanceof Error &&
+                        !(cause instanceof AbstractMethodError)) {
+
+                    throw (Error)cause;
+                }
+
+                largeBatchSupported = false;
+            } catch(final IllegalAccessException iae) {
+                largeBatchSupported = false;
+            }
+        }
 
-        while(iterator.hasNext()) {
-            final Context<Update> ctx = iterator.next();
+        return widen(statement.executeBatch());
+    }
+
+    /**
+     * Receives the results of each chunk of a batch as it is executed.
+     */
+    interface ChunkListener {
+
+        /**
+         * Called with the update counts of the rows of an executed chunk, in
+         * the order the rows were written, and the number of rows the chunk
+         * affected in all. The total may be known when the count of each row
+         * is not (and is given as {@code Statement.SUCCESS_NO_INFO}).
+         */
+        void addCounts(long[] counts, long total);
+
+        /**
+         * Called with the generated keys of an executed chunk, wrapped in the
+         * return type of the method.
+         */
+        void addKeys(Object keys);
+
+    }
+
+    /**
+     * Writes the rows of a batch to the database over a single
+     * {@code Connection}, reporting the results of each chunk it executes
+     * to a {@link ChunkListener}.
+     */
+    abstract class RowWriter {
+
+        protected final Context<Update> context;
+
+        protected final ChunkListener listener;
+
+        RowWriter(
+                final Context<Update> context,
+                final ChunkListener listener) {
+
+            this.context = context;
+            this.listener = listener;
+        }
 
-            fillPreparedStatementParameters(ctx, statement);
+        /**
+         * Writes a single row of the batch, whose parameters are
+         * held in the given {@code Context}.
+         */
+        abstract void write(Context<Update> row) throws SQLException;
+
+        /**
+         * Executes any rows that have been written, but not yet executed.
+         */
+        abstract void finish() throws SQLException;
+
+        /**
+         * Releases the statements used by this {@code RowWriter}.
+         */
+        abstract void close() throws SQLException;
+
+        protected void executed(
+                final PreparedStatement statement,
+                final long[] counts)
+                throws SQLException {
+
+            long total = 0;
+
+            for(final long count : counts) {
+                if(count > 0) {
+                    total += count;
+                }
+            }
+
+            executed(statement, counts, total);
+        }
+
+        protected void executed(
+                final PreparedStatement statement,
+                final long[] counts,
+                final long total)
+                throws SQLException {
+
+            final Execution execution = context.getExecution();
+            execution.mark(Execution.Phase.EXECUTE);
+            execution.addRowsAffected(total);
+
+            listener.addCounts(counts, total);
+
+            if(keys != GeneratedKeys.NO_KEYS_RETURNED) {
+                listener.addKeys(wrapGeneratedKeys(statement, context));
+                execution.mark(Execution.Phase.FETCH);
+            }
+        }
+
+    }
+
+    /**
+     * Sends the rows of the batch with {@code addBatch()}, executing them
+     * every {@code chunkSize} rows.
+     */
+    private class BatchedRowWriter extends RowWriter {
+
+        private final PreparedStatement statement;
+
+        private final int chunkSize;
+
+        private final boolean closeStatement;
+
+        private int rows = 0;
+
+        private boolean executed = false;
+
+        BatchedRowWriter(
+                final PreparedStatement statement,
+                final Context<Update> context,
+                final ChunkListener listener,
+                final int chunkSize,
+                final boolean closeStatement) {
+
+            super(context, listener);
+
+            this.statement = statement;
+            this.chunkSize = chunkSize;
+            this.closeStatement = closeStatement;
+        }
+
+        private void execute() throws SQLException {
+            context.getExecution().mark(Execution.Phase.PREPARE);
+            executed(statement, executeCounts(statement));
+            executed = true;
+            rows = 0;
+        }
+
+        void write(final Context<Update> row) throws SQLException {
+            fillPreparedStatementParameters(row, statement);
             statement.addBatch();
+
+            if(++rows == chunkSize) {
+                execute();
+            }
+        }
+
+        void finish() throws SQLException {
+            // an empty batch is still executed once, so that the return
+            // value is created by the driver and the ResultSetWrapper
+            if(rows > 0 || !executed) {
+                execute();
+            }
+        }
+
+        void close() throws SQLException {
+            if(closeStatement) {
+                statement.close();
+            }
+        }
+
+    }
+
+    /**
+     * Rewrites the rows of the batch into multi-row {@code INSERT} statements.
+     * Rows are buffered until there are enough to fill a statement of
+     * {@code rowsPerStatement} rows, which is prepared once and reused. The
+     * remaining rows are executed with a separate statement when the
+     * batch is finished.
+     */
+    private class InsertRowWriter extends RowWriter {
+
+        private final Connection connection;
+
+        private final int parametersPerRow = query.getParameterCount();
+
+        private final int rowsPerStatement = rewrite.getRowsPerStatement();
+
+        private final Object[][] buffer = new Object[rowsPerStatement][];
+
+        private final Object[] parameters;
+
+        private final Context<Update> bindContext;
+
+        private int buffered = 0;
+
+        private PreparedStatement full = null;
+
+        private PreparedStatement tail = null;
+
+        InsertRowWriter(
+                final Connection connection,
+                final Context<Update> context,
+                final ChunkListener listener) {
+
+            super(context, listener);
+
+            this.connection = connection;
+            this.parameters = new Object[context.getParameters().length];
+            this.bindContext = new Context<Update>(
+                    context.getAnnotation(),
+                    parameters);
+        }
+
+        private void execute(final PreparedStatement statement, final int rows)
+                throws SQLException {
+
+            for(int i = 0; i < rows; i++) {
+                System.arraycopy(buffer[i], 0, parameters, 0, parameters.length);
+                buffer[i] = null;
+
+                fillPreparedStatementParameters(
+                        bindContext,
+                        statement,
+                        i * parametersPerRow);
+            }
+
+            context.getExecution().mark(Execution.Phase.PREPARE);
+
+            final int count = statement.executeUpdate();
+            final long[] counts = new long[rows];
+
+            // when every row inserted exactly one row we know the count of
+            // each row, otherwise we only know the count of the statement
+            Arrays.fill(counts, count == rows ? 1 : Statement.SUCCESS_NO_INFO);
+
+            executed(statement, counts, Math.max(count, 0));
+            buffered = 0;
+        }
+
+        void write(final Context<Update> row) throws SQLException {
+            buffer[buffered++] = row.getParameters().clone();
+
+            if(buffered == rowsPerStatement) {
+                if(full == null) {
+                    full = prepareStatement(
+                            connection,
+                            rewrite.getSql(rowsPerStatement));
+                }
+
+                execute(full, buffered);
+            }
+        }
+
+        void finish() throws SQLException {
+            if(buffered > 0) {
+                tail = prepareStatement(connection, rewrite.getSql(buffered));
+                execute(tail, buffered);
+            }
+        }
+
+        void close() throws SQLException {
+            try {
+                if(full != null) {
+                    full.close();
+                }
+            } finally {
+                if(tail != null) {
+                    tail.close();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The parsed form of a simple {@code INSERT INTO ... VALUES (...)} statement
+     * that can be expanded to insert several rows at once.
+     */
+    static final class InsertRewrite {
+
+        private static final Pattern INSERT = Pattern.compile(
+                "^\\s*(INSERT\\s+INTO\\s+.+?\\s+VALUES)\\s*(\\(.*\\))\\s*;?\\s*$",
+                Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+        private final String prefix;
+
+        private final String row;
+
+        private final int rowsPerStatement;
+
+        private final String fullSql;
+
+        private InsertRewrite(
+                final String prefix,
+                final String row,
+                final int rowsPerStatement) {
+
+            this.prefix = prefix;
+            this.row = row;
+            this.rowsPerStatement = rowsPerStatement;
+            this.fullSql = getSql(rowsPerStatement);
+        }
+
+        /**
+         * Attempts to parse the given JDBC SQL as a simple single-row
+         * {@code INSERT} statement.
+         *
+         * @param sql the SQL to parse
+         * @param parametersPerRow the number of parameters bound for each row
+         * @param maxBindParameters the most parameters that may be bound
+         *      to a single statement
+         * @return the parsed statement, or {@literal null} if the SQL
+         *      cannot be rewritten
+         */
+        static InsertRewrite parse(
+                final String sql,
+                final int parametersPerRow,
+                final int maxBindParameters) {
+
+            final Matcher matcher = INSERT.matcher(sql);
+
+            if(!matcher.matches()) {
+                return null;
+            }
+
+            final String values = matcher.group(2);
+
+            if(!isSingleGroup(values)) {
+                return null;
+            }
+
+            return new InsertRewrite(
+                    matcher.group(1),
+                    values,
+                    Math.max(1, maxBindParameters / Math.max(1, parametersPerRow)));
+        }
+
+        /**
+         * Checks that the opening bracket of the values list is only closed
+         * by it's last character, ignoring any brackets in string literals.
+         */
+        private static boolean isSingleGroup(final String values) {
+            final int length = values.length();
+            boolean quoted = false;
+            int depth = 0;
+
+            for(int i = 0; i < length; i++) {
+                final char ch = values.charAt(i);
+
+                if(ch == '\'') {
+                    quoted = !quoted;
+                } else if(!quoted && ch == '(') {
+                    depth++;
+                } else if(!quoted && ch == ')') {
+                    if(--depth == 0 && i != length - 1) {
+                        return false;
+                    }
+                }
+            }
+
+            return depth == 0 && !quoted;
+        }
+
+        /**
+         * Returns the number of rows inserted by each full statement.
+         */
+        int getRowsPerStatement() {
+            return rowsPerStatement;
+        }
+
+        /**
+         * Returns the SQL to insert the given number of rows.
+         */
+        String getSql(final int rows) {
+            if(rows == rowsPerStatement && fullSql != null) {
+                return fullSql;
+            }
+
+            final StringBuilder sql = new StringBuilder(
+                    prefix.length() + (row.length() + 2) * rows);
+
+            sql.append(prefix).append(' ').append(row);
+
+            for(int i = 1; i < rows; i++) {
+                sql.append(", ").append(row);
+            }
+
+            return sql.toString();
+        }
+
+    }
+
+    /**
+     * The different forms of update count a batch method may return when
+     * it does not return generated keys.
+     */
+    enum CountType {
+        NONE,
+        INT_TOTAL,
+        LONG_TOTAL,
+        INT_COUNTS,
+        LONG_COUNTS
+    }
+
+    /**
+     * Accumulates the update counts and generated keys of each executed
+     * chunk of a batch, and converts them to the return value of the method.
+     */
+    private class BatchResult implements ChunkListener {
+
+        private long[] counts = new long[16];
+
+        private int size = 0;
+
+        private long total = 0;
+
+        private Object keys = null;
+
+        private int keyChunks = 0;
+
+        void addCount(final long count) {
+            if(count > 0) {
+                total += count;
+            }
+
+            recordCount(count);
+        }
+
+        private void recordCount(final long count) {
+            if(countType == CountType.INT_COUNTS ||
+                    countType == CountType.LONG_COUNTS) {
+
+                if(size == counts.length) {
+                    final long[] tmp = new long[size * 2];
+                    System.arraycopy(counts, 0, tmp, 0, size);
+                    counts = tmp;
+                }
+
+                counts[size++] = count;
+            }
+        }
+
+        public void addCounts(final long[] chunk, final long chunkTotal) {
+            total += chunkTotal;
+
+            for(int i = 0; i < chunk.length; i++) {
+                recordCount(chunk[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public void addKeys(final Object chunk) {
+            keyChunks++;
+
+            if(keys == null) {
+                keys = chunk;
+            } else if(keys.getClass().isArray()) {
+                final int length = Array.getLength(keys);
+                final int chunkLength = Array.getLength(chunk);
+                final Object tmp = Array.newInstance(
+                        keys.getClass().getComponentType(),
+                        length + chunkLength);
+
+                System.arraycopy(keys, 0, tmp, 0, length);
+                System.arraycopy(chunk, 0, tmp, length, chunkLength);
+                keys = tmp;
+            } else if(keys instanceof Collection) {
+                ((Collection<Object>)keys).addAll((Collection<Object>)chunk);
+            } else {
+                throw new EoDException("Generated keys of a batch " +
+                        "executed in " + keyChunks + " chunks can only be " +
+                        "returned as an array or Collection.");
+            }
+        }
+
+        Object toReturnValue() {
+            switch(countType) {
+                case INT_TOTAL:
+                    return Integer.valueOf((int)total);
+                case LONG_TOTAL:
+                    return Long.valueOf(total);
+                case INT_COUNTS:
+                    final int[] ints = new int[size];
+
+                    for(int i = 0; i < size; i++) {
+                        ints[i] = (int)counts[i];
+                    }
+
+                    return ints;
+                case LONG_COUNTS:
+                    final long[] longs = new long[size];
+                    System.arraycopy(counts, 0, longs, 0, size);
+                    return longs;
+                case NONE:
+                default:
+                    return keys;
+            }
         }
 
-        statement.executeBatch();
     }
 
     /**
@@ -266,6 +1236,12 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
          */
         boolean isFiniteCollection();
 
+        /**
+         * Returns <code>true</code> if this view is consumed lazily, and so has an
+         * {@link #UNKNOWN_SIZE unknown size}.
+         */
+        boolean isStreaming();
+
     }
 
     static abstract class IteratingCollection<T>
@@ -317,6 +1293,10 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
             return true;
         }
 
+        public boolean isStreaming() {
+            return false;
+        }
+
     }
 
     private static class CollectionViewFactory implements ParameterViewFactory {
@@ -330,6 +1310,93 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
             return true;
         }
 
+        public boolean isStreaming() {
+            return false;
+        }
+
+    }
+
+    /**
+     * Base class for parameters that are read lazily through an
+     * {@code Iterator}, and so cannot report their size.
+     */
+    private static abstract class StreamingViewFactory
+            implements ParameterViewFactory {
+
+        protected abstract Iterator<?> iterator(Object parameter);
+
+        public Collection<?> createView(final Object parameter) {
+            final Iterator<?> iterator = iterator(parameter);
+
+            return new IteratingCollection<Object>() {
+
+                /**
+                 * A DataIterator closes itself once it has been read, and
+                 * may not be asked again, so we remember that it's done.
+                 */
+                private boolean exhausted = false;
+
+                public boolean hasNext() {
+                    if(!exhausted && !iterator.hasNext()) {
+                        exhausted = true;
+                    }
+
+                    return !exhausted;
+                }
+
+                public Object next() {
+                    return iterator.next();
+                }
+
+                @Override
+                public int size() {
+                    return UNKNOWN_SIZE;
+                }
+
+            };
+        }
+
+        public boolean isFiniteCollection() {
+            return true;
+        }
+
+        public boolean isStreaming() {
+            return true;
+        }
+
+    }
+
+    private static class IteratorViewFactory extends StreamingViewFactory {
+
+        @Override
+        protected Iterator<?> iterator(final Object parameter) {
+            return (Iterator<?>)parameter;
+        }
+
+    }
+
+    private static class IterableViewFactory extends StreamingViewFactory {
+
+        @Override
+        protected Iterator<?> iterator(final Object parameter) {
+            return ((Iterable<?>)parameter).iterator();
+        }
+
+    }
+
+    private static class StreamViewFactory extends StreamingViewFactory {
+
+        @Override
+        protected Iterator<?> iterator(final Object parameter) {
+            try {
+                return (Iterator<?>)STREAM_ITERATOR.invoke(parameter);
+            } catch(final IllegalAccessException iae) {
+                throw new EoDException(iae);
+            } catch(final InvocationTargetException ite) {
+                throw new EoDException(ite.getCause());
+            }
+        }
+
     }
 
     private static class SimpleParameterIteratorFactory
@@ -359,5 +1426,9 @@ class BatchUpdateMethodImplementation extends UpdateMethodImplementation {
             return false;
         }
 
+        public boolean isStreaming() {
+            return false;
+        }
+
     }
 }
@@ -17,6 +17,7 @@ import net.lemnik.eodsql.EoDException;
 import net.lemnik.eodsql.InvalidQueryException;
 
 import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Execution;
 import net.lemnik.eodsql.spi.ResultSetResource;
 import net.lemnik.eodsql.spi.StatementResource;
 import net.lemnik.eodsql.spi.MethodImplementation;
@@ -47,6 +48,7 @@ class CallMethodImplementation extends AbstractMethodImplementation<Call> {
         query = Query.getQuery(queryString, method.getParameterTypes());
         
         setParameterMappers(call.parameterBindings());
+        timeout = call.timeout();
         
         returnVoid = method.getReturnType() == Void.TYPE;
 
@@ -89,6 +91,7 @@ class CallMethodImplementation extends AbstractMethodImplementation<Call> {
         }
         
         parameters.put(DataSetWrapper.PARAMETER_CACHE_CLASS, call.cache());
+        parameters.put(DataSetWrapper.PARAMETER_PREFETCH, call.prefetch());
 
         return parameters;
     }
@@ -99,23 +102,35 @@ class CallMethodImplementation extends AbstractMethodImplementation<Call> {
         // if we return void, we don't have a wrapper and so can't get result set
         // type or concurrency from the wrapper object.
         final CallableStatement statement = returnVoid ? 
-                connection.prepareCall(query.toString()) :
-                    connection.prepareCall(query.toString(),
+                connection.prepareCall(getSql(context)) :
+                    connection.prepareCall(getSql(context),
                     wrapper.getPreferredResultSetType(),
                     wrapper.getPreferredResultSetConcurrency());
 
+        context.setResource(new StatementResource(statement));
+        applyTimeout(statement);
+
         fillPreparedStatementParameters(context, statement);
 
-        context.setResource(new StatementResource(statement));
+        final Execution execution = context.getExecution();
+        execution.mark(Execution.Phase.PREPARE);
 
         if(statement.execute()) {
+            execution.mark(Execution.Phase.EXECUTE);
+
             // if we do return void, we still want to close the ResultSet
             final ResultSet results = statement.getResultSet();
             context.setResource(new ResultSetResource(results));
 
             if(!returnVoid) {
                 context.setReturnValue(wrapper.wrap(context));
+                execution.addRowsReturned(countRows(context.getReturnValue()));
             }
+
+            execution.mark(Execution.Phase.FETCH);
+        } else {
+            execution.mark(Execution.Phase.EXECUTE);
+            execution.addRowsAffected(statement.getUpdateCount());
         }
     }
 
@@ -0,0 +1,34 @@
+package net.lemnik.eodsql.impl;
+
+import java.sql.SQLException;
+
+/**
+ * An {@link ExceptionTranslator} that also translates the exceptions thrown
+ * when a query is cancelled, whether EoD SQL cancelled it or the database
+ * reports a cancellation or timeout of it's own. An
+ * {@code ExceptionTranslator} that does not implement this interface has the
+ * queries EoD SQL cancelled reported as a
+ * {@link net.lemnik.eodsql.QueryCancelledException}, and is passed any
+ * cancellation reported by the database as an ordinary
+ * {@code SQLException}.
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see ExceptionTranslationUtils#isCancellation(SQLException)
+ */
+public interface CancellationExceptionTranslator extends ExceptionTranslator {
+
+    /**
+     * Translates the exception <var>ex</var> thrown when a query was cancelled,
+     * because it took too long or it's thread was interrupted.
+     * 
+     * @param task
+     *            the task when the exception occurred.
+     * @param sql
+     *            the sql command when the exception occurred.
+     * @param ex
+     *            the original exception.
+     */
+    public RuntimeException queryCancelled(String task, String sql,
+            SQLException ex);
+}
@@ -1,8 +1,23 @@
 package net.lemnik.eodsql.impl;
 
+import java.io.Reader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationTargetException;
+
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import java.sql.Blob;
+import java.sql.Clob;
 import java.sql.Types;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -45,6 +60,11 @@ class DefaultTypeMappers {
         typeMap.put(BigDecimal.class, new BigDecimalMapper());
         typeMap.put(BigInteger.class, new BigIntegerMapper());
         typeMap.put(byte[].class, new ByteArrayMapper());
+        typeMap.put(InputStream.class, new InputStreamMapper());
+        typeMap.put(Reader.class, new ReaderMapper());
+        typeMap.put(ReadableByteChannel.class, new ChannelMapper());
+        typeMap.put(Blob.class, new BlobMapper());
+        typeMap.put(Clob.class, new ClobMapper());
     }
 
     private DefaultTypeMappers() {
@@ -558,4 +578,461 @@ class DefaultTypeMappers {
         }
 
     }
+
+    /**
+     * <p>
+     * Binds streams to statements and updatable {@code ResultSet}s. The JDBC 4
+     * methods that take a stream of unknown length are used when both the
+     * JVM and the driver have them, otherwise the stream is read into memory
+     * and bound as a {@code byte[]} or {@code String}.
+     * </p><p>
+     * Streams read from a {@code ResultSet} are only valid while the row
+     * they were read from is current, so they should be read from a
+     * {@code DataIterator} or connected {@code DataSet} before it is moved
+     * to another row. A {@code @Select} returning them in any other type
+     * fails when it's query object is created.
+     * </p>
+     */
+    static class Streams {
+
+        private static final Method SET_BINARY_STREAM = getMethod(
+                PreparedStatement.class,
+                "setBinaryStream",
+                InputStream.class);
+
+        private static final Method SET_CHARACTER_STREAM = getMethod(
+                PreparedStatement.class,
+                "setCharacterStream",
+                Reader.class);
+
+        private static final Method UPDATE_BINARY_STREAM = getMethod(
+                ResultSet.class,
+                "updateBinaryStream",
+                InputStream.class);
+
+        private static final Method UPDATE_CHARACTER_STREAM = getMethod(
+                ResultSet.class,
+                "updateCharacterStream",
+                Reader.class);
+
+        private static final Class<?> FEATURE_NOT_SUPPORTED = getClass(
+                "java.sql.SQLFeatureNotSupportedException");
+
+        private Streams() {
+        }
+
+        /**
+         * Returns whether values of the given type are read from a
+         * {@code ResultSet} as streams, which are only valid while their
+         * row is current.
+         */
+        static boolean isStream(final Class<?> type) {
+            return type == InputStream.class ||
+                    type == Reader.class ||
+                    type == ReadableByteChannel.class;
+        }
+
+        private static Class<?> getClass(final String name) {
+            try {
+                return Class.forName(name);
+            } catch(final ClassNotFoundException cnfe) {
+                // we are simply not running 1.6 or higher
+                return null;
+            }
+        }
+
+        private static Method getMethod(
+                final Class<?> type,
+                final String name,
+                final Class<?> streamType) {
+
+            try {
+                return type.getMethod(name, Integer.TYPE, streamType);
+            } catch(final NoSuchMethodException nsme) {
+                // we are simply not running 1.6 or higher
+                return null;
+            }
+        }
+
+        /**
+         * Invokes one of the JDBC 4 stream methods.
+         *
+         * @return {@literal false} if the method is not supported by the
+         *      JVM or the driver
+         */
+        private static boolean invoke(
+                final Method method,
+                final Object target,
+                final int column,
+                final Object stream)
+                throws SQLException {
+
+            if(method == null) {
+                return false;
+            }
+
+            try {
+                method.invoke(target, Integer.valueOf(column), stream);
+                return true;
+            } catch(final IllegalAccessException iae) {
+                return false;
+            } catch(final InvocationTargetException ite) {
+                final Throwable cause = ite.getTargetException();
+
+                if(cause instanceof AbstractMethodError ||
+                        cause instanceof UnsupportedOperationException ||
+                        (FEATURE_NOT_SUPPORTED != null &&
+                        FEATURE_NOT_SUPPORTED.isInstance(cause))) {
+
+                    // a JDBC 3 driver, or one without unknown length streams
+                    return false;
+                } else if(cause instanceof SQLException) {
+                    throw (SQLException)cause;
+                } else if(cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if(cause instanceof Error) {
+                    throw (Error)cause;
+                }
+
+                throw (SQLException)new SQLException(
+                        cause.toString()).initCause(cause);
+            }
+        }
+
+        private static byte[] readBytes(final InputStream in)
+                throws SQLException {
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+
+            try {
+                for(int r = in.read(buffer); r != -1; r = in.read(buffer)) {
+                    out.write(buffer, 0, r);
+                }
+            } catch(final IOException ioe) {
+                throw (SQLException)new SQLException(
+                        "Could not read the stream parameter").initCause(ioe);
+            }
+
+            return out.toByteArray();
+        }
+
+        private static String readChars(final Reader in) throws SQLException {
+            final StringBuilder out = new StringBuilder();
+            final char[] buffer = new char[8192];
+
+            try {
+                for(int r = in.read(buffer); r != -1; r = in.read(buffer)) {
+                    out.append(buffer, 0, r);
+                }
+            } catch(final IOException ioe) {
+                throw (SQLException)new SQLException(
+                        "Could not read the stream parameter").initCause(ioe);
+            }
+
+            return out.toString();
+        }
+
+        static void set(
+                final PreparedStatement statement,
+                final int column,
+                final InputStream in)
+                throws SQLException {
+
+            if(in == null) {
+                statement.setNull(column, Types.LONGVARBINARY);
+            } else if(!invoke(SET_BINARY_STREAM, statement, column, in)) {
+                final byte[] bytes = readBytes(in);
+
+                statement.setBinaryStream(
+                        column,
+                        new ByteArrayInputStream(bytes),
+                        bytes.length);
+            }
+        }
+
+        static void set(
+                final PreparedStatement statement,
+                final int column,
+                final Reader in)
+                throws SQLException {
+
+            if(in == null) {
+                statement.setNull(column, Types.LONGVARCHAR);
+            } else if(!invoke(SET_CHARACTER_STREAM, statement, column, in)) {
+                final String chars = readChars(in);
+
+                statement.setCharacterStream(
+                        column,
+                        new StringReader(chars),
+                        chars.length());
+            }
+        }
+
+        static void update(
+                final ResultSet results,
+                final int column,
+                final InputStream in)
+                throws SQLException {
+
+            if(in == null) {
+                results.updateNull(column);
+            } else if(!invoke(UPDATE_BINARY_STREAM, results, column, in)) {
+                results.updateBytes(column, readBytes(in));
+            }
+        }
+
+        static void update(
+                final ResultSet results,
+                final int column,
+                final Reader in)
+                throws SQLException {
+
+            if(in == null) {
+                results.updateNull(column);
+            } else if(!invoke(UPDATE_CHARACTER_STREAM, results, column, in)) {
+                results.updateString(column, readChars(in));
+            }
+        }
+
+    }
+
+    static class InputStreamMapper implements TypeMapper<InputStream> {
+
+        public InputStream get(
+                final ResultSet results,
+                final int column)
+                throws SQLException {
+
+            return results.getBinaryStream(column);
+        }
+
+        public void set(
+                final ResultSet results,
+                final int column,
+                final InputStream obj)
+                throws SQLException {
+
+            Streams.update(results, column, obj);
+        }
+
+        public void set(
+                final PreparedStatement statement,
+                final int column,
+                final InputStream obj)
+                throws SQLException {
+
+            Streams.set(statement, column, obj);
+        }
+
+    }
+
+    static class ReaderMapper implements TypeMapper<Reader> {
+
+        public Reader get(
+                final ResultSet results,
+                final int column)
+                throws SQLException {
+
+            return results.getCharacterStream(column);
+        }
+
+        public void set(
+                final ResultSet results,
+                final int column,
+                final Reader obj)
+                throws SQLException {
+
+            Streams.update(results, column, obj);
+        }
+
+        public void set(
+                final PreparedStatement statement,
+                final int column,
+                final Reader obj)
+                throws SQLException {
+
+            Streams.set(statement, column, obj);
+        }
+
+    }
+
+    static class ChannelMapper implements TypeMapper<ReadableByteChannel> {
+
+        public ReadableByteChannel get(
+                final ResultSet results,
+                final int column)
+                throws SQLException {
+
+            final InputStream in = results.getBinaryStream(column);
+            return in != null ? Channels.newChannel(in) : null;
+        }
+
+        public void set(
+                final ResultSet results,
+                final int column,
+                final ReadableByteChannel obj)
+                throws SQLException {
+
+            Streams.update(
+                    results,
+                    column,
+                    obj != null ? Channels.newInputStream(obj) : null);
+        }
+
+        public void set(
+                final PreparedStatement statement,
+                final int column,
+                final ReadableByteChannel obj)
+                throws SQLException {
+
+            Streams.set(
+                    statement,
+                    column,
+                    obj != null ? Channels.newInputStream(obj) : null);
+        }
+
+    }
+
+    static class BlobMapper implements TypeMapper<Blob> {
+
+        public Blob get(
+                final ResultSet results,
+                final int column)
+                throws SQLException {
+
+            return results.getBlob(column);
+        }
+
+        public void set(
+                final ResultSet results,
+                final int column,
+                final Blob obj)
+                throws SQLException {
+
+            if(obj != null) {
+                results.updateBlob(column, obj);
+            } else {
+                results.updateNull(column);
+            }
+        }
+
+        public void set(
+                final PreparedStatement statement,
+                final int column,
+                final Blob obj)
+                throws SQLException {
+
+            if(obj != null) {
+                statement.setBlob(column, obj);
+            } else {
+                statement.setNull(column, Types.BLOB);
+            }
+        }
+
+    }
+
+    static class ClobMapper implements TypeMapper<Clob> {
+
+        public Clob get(
+                final ResultSet results,
+                final int column)
+                throws SQLException {
+
+            return results.getClob(column);
+        }
+
+        public void set(
+                final ResultSet results,
+                final int column,
+                final Clob obj)
+                throws SQLException {
+
+            if(obj != null) {
+                results.updateClob(column, obj);
+            } else {
+                results.updateNull(column);
+            }
+        }
+
+        public void set(
+                final PreparedStatement statement,
+                final int column,
+                final Clob obj)
+                throws SQLException {
+
+            if(obj != null) {
+                statement.setClob(column, obj);
+            } else {
+                statement.setNull(column, Types.CLOB);
+            }
+        }
+
+    }
+
+    /**
+     * Maps values by looking up the {@code TypeMapper} for their runtime type,
+     * used for the elements of a {@code Collection} list parameter. This
+     * mapper is never registered in the type-map.
+     */
+    static class RuntimeTypeMapper implements TypeMapper<Object> {
+
+        static final RuntimeTypeMapper INSTANCE = new RuntimeTypeMapper();
+
+        @SuppressWarnings("unchecked")
+        private static TypeMapper<Object> getMapper(final Object obj) {
+            final Map<Class, TypeMapper> typeMap = QueryTool.getTypeMap();
+
+            for(Class<?> type = obj.getClass(); type != null; type = type.getSuperclass()) {
+                final TypeMapper<Object> mapper = typeMap.get(type);
+
+                if(mapper != null) {
+                    return mapper;
+                }
+            }
+
+            return null;
+        }
+
+        public Object get(
+                final ResultSet results,
+                final int column)
+                throws SQLException {
+
+            return results.getObject(column);
+        }
+
+        public void set(
+                final ResultSet results,
+                final int column,
+                final Object obj)
+                throws SQLException {
+
+            final TypeMapper<Object> mapper = obj != null ? getMapper(obj) : null;
+
+            if(mapper != null) {
+                mapper.set(results, column, obj);
+            } else {
+                results.updateObject(column, obj);
+            }
+        }
+
+        public void set(
+                final PreparedStatement statement,
+                final int column,
+                final Object obj)
+                throws SQLException {
+
+            final TypeMapper<Object> mapper = obj != null ? getMapper(obj) : null;
+
+            if(mapper != null) {
+                mapper.set(statement, column, obj);
+            } else if(obj != null) {
+                statement.setObject(column, obj);
+            } else {
+                statement.setNull(column, Types.NULL);
+            }
+        }
+
+    }
 }
@@ -8,6 +8,7 @@ import java.sql.SQLException;
 import javax.sql.DataSource;
 
 import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.QueryCancelledException;
 import net.lemnik.eodsql.impl.BaseQueryImpl.Callable;
 import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSource;
 import net.lemnik.eodsql.impl.BaseQueryImpl.DataSourceConnectionSource;
@@ -24,7 +25,7 @@ public class ExceptionTranslationUtils {
     private static ExceptionTranslator exceptionTranslator = new DefaultExceptionTranslator();
 
     private static class DefaultExceptionTranslator implements
-            ExceptionTranslator {
+            CancellationExceptionTranslator {
 
         public RuntimeException translateException(DataSource dataSource,
                 String task, String sql, SQLException ex) {
@@ -42,8 +43,26 @@ public class ExceptionTranslationUtils {
             return new EoDException(
                     "A unique result was expected but the database returned multiple rows.");
         }
+
+        public RuntimeException queryCancelled(String task, String sql,
+                SQLException ex) {
+            return new QueryCancelledException("'" + task + "' [SQL: '" + sql
+                    + "']", ex);
+        }
     }
 
+    /**
+     * SQLStates used for cancelled statements: the standard ones for a
+     * timeout and a cancellation, and the "query canceled" states of
+     * PostgreSQL / DB2 and MySQL.
+     */
+    private static final String[] CANCELLED_STATES = {
+        QueryCancelledException.TIMEOUT_STATE,
+        QueryCancelledException.CANCELLED_STATE,
+        "57014",
+        "70100"
+    };
+
     /**
      * Sets the {@link ExceptionTranslator} for EoDSQL. Call once before EoDSQL
      * is used.
@@ -52,6 +71,15 @@ public class ExceptionTranslationUtils {
         exceptionTranslator = factory;
     }
 
+    /**
+     * Returns the {@link ExceptionTranslator} currently used by EoDSQL.
+     *
+     * @since 2.2
+     */
+    public static ExceptionTranslator getExceptionTranslator() {
+        return exceptionTranslator;
+    }
+
     /**
      * Translates the exception <var>ex</var> to a RuntimeException.
      */
@@ -68,7 +96,10 @@ public class ExceptionTranslationUtils {
     public static RuntimeException translateException(
             ConnectionSource connectionSource, final String task,
             final String sql, final Exception ex) {
-        if(connectionSource instanceof DataSourceConnectionSource) {
+        if(isQueryCancelled(ex)) {
+            // no need to take a Connection (the thread may be interrupted)
+            return queryCancelled(task, sql, (SQLException)ex);
+        } else if(connectionSource instanceof DataSourceConnectionSource) {
             final DataSource source = ((DataSourceConnectionSource)connectionSource).getDataSource();
             return translateException(source, task, sql, ex);
         } else {
@@ -104,7 +135,9 @@ public class ExceptionTranslationUtils {
      */
     public static RuntimeException translateException(DataSource dataSource,
             final String task, final String sql, final Exception ex) {
-        if(ex instanceof SQLException) {
+        if(isQueryCancelled(ex)) {
+            return queryCancelled(task, sql, (SQLException)ex);
+        } else if(ex instanceof SQLException) {
             return exceptionTranslator.translateException(dataSource, task,
                     sql, (SQLException)ex);
         } else {
@@ -126,7 +159,9 @@ public class ExceptionTranslationUtils {
      */
     public static RuntimeException translateException(Connection connection,
             final String task, final String sql, final Exception ex) {
-        if(ex instanceof SQLException) {
+        if(isQueryCancelled(ex)) {
+            return queryCancelled(task, sql, (SQLException)ex);
+        } else if(ex instanceof SQLException) {
             return exceptionTranslator.translateException(connection, task,
                     sql, (SQLException)ex);
         } else {
@@ -142,6 +177,64 @@ public class ExceptionTranslationUtils {
         return exceptionTranslator.uniqueResultExpected();
     }
 
+    /**
+     * Returns whether the exception <var>ex</var> is translated as a cancelled
+     * query: either EoD SQL cancelled the query itself, or the database
+     * reports a cancellation (such as a server-side statement timeout) and
+     * the {@link ExceptionTranslator} is a
+     * {@link CancellationExceptionTranslator}. Any other cancellation is
+     * translated like any other {@code SQLException}.
+     */
+    private static boolean isQueryCancelled(final Exception ex) {
+        if(!(ex instanceof SQLException)) {
+            return false;
+        }
+
+        final SQLException sqle = (SQLException)ex;
+
+        return StatementWatchdog.isWatchdogCancellation(sqle) ||
+                (exceptionTranslator instanceof CancellationExceptionTranslator &&
+                isCancellation(sqle));
+    }
+
+    /**
+     * Translates the exception <var>ex</var> thrown by a cancelled query,
+     * through the {@link ExceptionTranslator} if it is a
+     * {@link CancellationExceptionTranslator}.
+     */
+    private static RuntimeException queryCancelled(final String task,
+            final String sql, final SQLException ex) {
+        if(exceptionTranslator instanceof CancellationExceptionTranslator) {
+            return ((CancellationExceptionTranslator)exceptionTranslator)
+                    .queryCancelled(task, sql, ex);
+        } else {
+            return new QueryCancelledException("'" + task + "' [SQL: '" + sql
+                    + "']", ex);
+        }
+    }
+
+    /**
+     * Returns whether the exception <var>ex</var> (or one of it's causes)
+     * reports a statement that was cancelled or timed out.
+     */
+    public static boolean isCancellation(final SQLException ex) {
+        for(Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if(cause.getClass().getName().equals("java.sql.SQLTimeoutException")) {
+                return true;
+            } else if(cause instanceof SQLException) {
+                final String state = ((SQLException)cause).getSQLState();
+
+                for(final String cancelled : CANCELLED_STATES) {
+                    if(cancelled.equals(state)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
     private static String toMessage(final String task, final String sql) {
         return task + "[SQL: '" + sql + "'].";
     }
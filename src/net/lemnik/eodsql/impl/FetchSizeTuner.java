@@ -0,0 +1,134 @@
+package net.lemnik.eodsql.impl;
+
+/**
+ * <p>
+ * Chooses the fetch size of a single query method from the number of rows
+ * it's recent invocations returned. The row counts are kept in a histogram
+ * of power-of-two buckets, which is halved every {@link #WINDOW} invocations
+ * so that old invocations fade out. The fetch size is the smallest power of
+ * two above {@link #PERCENTILE 90%} of the row counts, so that most
+ * invocations read all of their rows in a single round trip, and is kept
+ * between {@link #MINIMUM} and the maximum to bound the memory held by the
+ * driver.
+ * </p><p>
+ * Until {@link #WARMUP} invocations have been recorded the fetch size is
+ * left to the driver.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see net.lemnik.eodsql.Select#adaptiveFetchSize()
+ */
+class FetchSizeTuner {
+
+    /**
+     * The smallest fetch size chosen, unless the maximum is smaller.
+     */
+    static final int MINIMUM = 16;
+
+    /**
+     * The largest fetch size chosen when the method does not specify one.
+     */
+    static final int DEFAULT_MAXIMUM = 1024;
+
+    /**
+     * The number of invocations recorded before a fetch size is chosen.
+     */
+    static final int WARMUP = 8;
+
+    /**
+     * The number of invocations after which the histogram is halved.
+     */
+    static final int WINDOW = 64;
+
+    /**
+     * The proportion of invocations that should fit in a single fetch.
+     */
+    static final double PERCENTILE = 0.9;
+
+    private final int minimum;
+
+    private final int maximum;
+
+    /**
+     * Bucket {@literal 0} counts the invocations that returned no rows, and
+     * each bucket {@code b} after it those that returned from
+     * {@code 2^(b-1)} to {@code 2^b - 1} rows.
+     */
+    private final long[] buckets = new long[64];
+
+    private long count = 0;
+
+    private long samples = 0;
+
+    private volatile int fetchSize = 0;
+
+    /**
+     * Creates a {@code FetchSizeTuner} that chooses no more than the given
+     * fetch size.
+     *
+     * @param maximum the largest fetch size to choose, or {@literal 0} for
+     *      the {@link #DEFAULT_MAXIMUM}
+     */
+    FetchSizeTuner(final int maximum) {
+        this.maximum = maximum > 0 ? maximum : DEFAULT_MAXIMUM;
+        this.minimum = Math.min(MINIMUM, this.maximum);
+    }
+
+    /**
+     * Returns the fetch size to set on the next statement, or {@literal 0}
+     * to leave it to the driver.
+     */
+    int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Records the number of rows returned by a single invocation.
+     *
+     * @param rows the number of rows the invocation returned
+     */
+    synchronized void record(final long rows) {
+        final int bucket = rows > 0 ? 64 - Long.numberOfLeadingZeros(rows) : 0;
+
+        buckets[Math.min(bucket, buckets.length - 1)]++;
+        count++;
+        samples++;
+
+        if(samples % WINDOW == 0) {
+            count = 0;
+
+            for(int i = 0; i < buckets.length; i++) {
+                buckets[i] >>= 1;
+                count += buckets[i];
+            }
+        }
+
+        if(samples >= WARMUP && count > 0) {
+            fetchSize = choose();
+        }
+    }
+
+    private int choose() {
+        final long target = (long)Math.ceil(count * PERCENTILE);
+        long seen = 0;
+        int bucket = 0;
+
+        while(bucket < buckets.length - 1) {
+            seen += buckets[bucket];
+
+            if(seen >= target) {
+                break;
+            }
+
+            bucket++;
+        }
+
+        // every count in the bucket is below 2^bucket, so a fetch of that
+        // size also finds the end of the results
+        final long rows = bucket < 31 ? 1L << bucket : Integer.MAX_VALUE;
+
+        return (int)Math.max(minimum, Math.min(maximum, rows));
+    }
+
+}
@@ -0,0 +1,552 @@
+package net.lemnik.eodsql.impl;
+
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Method;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+
+import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import java.util.regex.Pattern;
+
+import net.lemnik.eodsql.spi.Execution;
+import net.lemnik.eodsql.spi.Execution.Phase;
+
+/**
+ * <p>
+ * Emits JDK Flight Recorder events for the calls to query methods, so that the
+ * time spent in the database shows on the same timeline as GC, locks and
+ * I/O. An {@code Invocation} event covers each whole call, and a
+ * {@code ConnectionAcquire}, {@code Prepare}, {@code Execute} and {@code Fetch}
+ * event covers each of it's {@link Phase phases}. Every event carries the
+ * interface and method called, a fingerprint of the SQL (with literals and
+ * expanded lists replaced) and it's row count. The events are in the
+ * {@literal "EoD SQL"} category, and named {@code net.lemnik.eodsql.*} so
+ * that they can be switched on and off in the JFR settings like any other
+ * event.
+ * </p><p>
+ * The phase events are only committed once the call has returned, from the
+ * times measured by it's {@link Execution}, so each carries the time the
+ * phase first started ({@code phaseStart}) and the time spent in it
+ * ({@code phaseTime}) as fields of it's own. The JFR duration of a phase
+ * event is meaningless, so thresholds should be given to the
+ * {@code Invocation} event.
+ * </p><p>
+ * EoD SQL is built for Java 5, long before JFR, so the event types cannot be
+ * declared as subclasses of {@code jdk.jfr.Event}. Instead they are created
+ * through {@code jdk.jfr.EventFactory} using reflection, when this class is
+ * first used on a JVM that has Flight Recorder. On any other JVM this class
+ * does nothing.
+ * </p><p>
+ * A {@code FlightRecorderListener} follows the recordings that are running,
+ * and while there are none a call costs a single volatile read. While a
+ * recording is running, each call creates it's events through reflection
+ * when it starts and when it returns, never as it's phases are marked.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+final class FlightRecorderEvents implements InvocationHandler {
+
+    static final String CATEGORY = "EoD SQL";
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final Pattern STRINGS = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMBERS = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern LISTS = Pattern.compile(
+            "\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private static final FlightRecorderEvents INSTANCE = create();
+
+    private final Constructor<?> annotationConstructor;
+
+    private final Constructor<?> valueConstructor;
+
+    private final Class<?> labelType;
+
+    private final Class<?> timestampType;
+
+    private final Class<?> timespanType;
+
+    private final Method newEvent;
+
+    private final Method begin;
+
+    private final Method end;
+
+    private final Method commit;
+
+    private final Method isEnabled;
+
+    private final Method set;
+
+    private final Method getState;
+
+    private final Object invocationFactory;
+
+    private final Object invocationProbe;
+
+    /**
+     * The factory of the event of each phase, or {@literal null} for a
+     * phase that has no event.
+     */
+    private final Object[] phaseFactories = new Object[PHASES.length];
+
+    private final Object[] phaseProbes = new Object[PHASES.length];
+
+    /**
+     * The recordings that are currently running.
+     */
+    private final Map<Object, Object> running =
+            new IdentityHashMap<Object, Object>();
+
+    private volatile boolean recording = false;
+
+    private volatile boolean broken = false;
+
+    private FlightRecorderEvents() throws Exception {
+        final Class<?> eventType = Class.forName("jdk.jfr.Event");
+        final Class<?> factoryType = Class.forName("jdk.jfr.EventFactory");
+
+        annotationConstructor = Class.forName("jdk.jfr.AnnotationElement").
+                getConstructor(Class.class, Object.class);
+        valueConstructor = Class.forName("jdk.jfr.ValueDescriptor").
+                getConstructor(Class.class, String.class, List.class);
+        labelType = Class.forName("jdk.jfr.Label");
+        timestampType = Class.forName("jdk.jfr.Timestamp");
+        timespanType = Class.forName("jdk.jfr.Timespan");
+
+        newEvent = factoryType.getMethod("newEvent");
+        begin = eventType.getMethod("begin");
+        end = eventType.getMethod("end");
+        commit = eventType.getMethod("commit");
+        isEnabled = eventType.getMethod("isEnabled");
+        set = eventType.getMethod("set", int.class, Object.class);
+        getState = Class.forName("jdk.jfr.Recording").getMethod("getState");
+
+        final Method create = factoryType.getMethod(
+                "create",
+                List.class,
+                List.class);
+
+        invocationFactory = create.invoke(null,
+                createAnnotations(
+                "Invocation",
+                "Query Method Invocation",
+                "A call to an EoD SQL query method"),
+                createFields(
+                "rowsReturned", "Rows Returned",
+                "rowsAffected", "Rows Affected"));
+
+        invocationProbe = newEvent.invoke(invocationFactory);
+
+        createPhase(create, Phase.CONNECTION, "ConnectionAcquire",
+                "Connection Acquisition",
+                "Taking the Connection for a query method call");
+        createPhase(create, Phase.PREPARE, "Prepare", "Statement Prepare",
+                "Preparing the statement of a query method call, and " +
+                "binding it's parameters");
+        createPhase(create, Phase.EXECUTE, "Execute", "Statement Execute",
+                "Executing the statement of a query method call");
+        createPhase(create, Phase.FETCH, "Fetch", "Result Fetch",
+                "Reading the results of a query method call");
+    }
+
+    private static FlightRecorderEvents create() {
+        try {
+            final Class<?> recorderType = Class.forName("jdk.jfr.FlightRecorder");
+
+            if(!Boolean.TRUE.equals(recorderType.getMethod("isAvailable").
+                    invoke(null))) {
+
+                return null;
+            }
+
+            final FlightRecorderEvents events = new FlightRecorderEvents();
+            final Class<?> listenerType =
+                    Class.forName("jdk.jfr.FlightRecorderListener");
+
+            final Object listener = Proxy.newProxyInstance(
+                    FlightRecorderEvents.class.getClassLoader(),
+                    new Class<?>[] { listenerType },
+                    events);
+
+            recorderType.getMethod("addListener", listenerType).
+                    invoke(null, listener);
+
+            return events;
+        } catch(final ClassNotFoundException cnfe) {
+            // this JVM has no Flight Recorder
+            return null;
+        } catch(final Exception e) {
+            // Flight Recorder is here, but not in a form we can use
+            return null;
+        }
+    }
+
+    private List<Object> createAnnotations(
+            final String name,
+            final String label,
+            final String description)
+            throws Exception {
+
+        final List<Object> annotations = new ArrayList<Object>();
+        annotations.add(createAnnotation("jdk.jfr.Name", "net.lemnik.eodsql." + name));
+        annotations.add(createAnnotation("jdk.jfr.Label", label));
+        annotations.add(createAnnotation("jdk.jfr.Description", description));
+        annotations.add(createAnnotation("jdk.jfr.Category", new String[] { CATEGORY }));
+
+        return annotations;
+    }
+
+    private Object createAnnotation(final String type, final Object value)
+            throws Exception {
+
+        return annotationConstructor.newInstance(Class.forName(type), value);
+    }
+
+    /**
+     * Creates the fields common to every event, followed by the given
+     * {@code long} fields, each given as a name and a label.
+     */
+    private List<Object> createFields(final String... extra) throws Exception {
+        final List<Object> fields = new ArrayList<Object>();
+        fields.add(createField(String.class, "interfaceName", "Interface"));
+        fields.add(createField(String.class, "method", "Method"));
+        fields.add(createField(String.class, "sql", "SQL Fingerprint"));
+
+        for(int i = 0; i < extra.length; i += 2) {
+            fields.add(createField(long.class, extra[i], extra[i + 1]));
+        }
+
+        fields.add(createField(boolean.class, "failed", "Failed"));
+
+        return fields;
+    }
+
+    private Object createField(
+            final Class<?> type,
+            final String name,
+            final String label)
+            throws Exception {
+
+        return createField(type, name, label, null, null);
+    }
+
+    /**
+     * Creates a field with a label, and another annotation if
+     * {@code annotationType} is not {@literal null}.
+     */
+    private Object createField(
+            final Class<?> type,
+            final String name,
+            final String label,
+            final Class<?> annotationType,
+            final Object value)
+            throws Exception {
+
+        final List<Object> annotations = new ArrayList<Object>();
+        annotations.add(annotationConstructor.newInstance(labelType, label));
+
+        if(annotationType != null) {
+            annotations.add(annotationConstructor.newInstance(annotationType, value));
+        }
+
+        return valueConstructor.newInstance(type, name, annotations);
+    }
+
+    private void createPhase(
+            final Method create,
+            final Phase phase,
+            final String name,
+            final String label,
+            final String description)
+            throws Exception {
+
+        // the phase fields follow "failed", see Recorder.commitPhase
+        final List<Object> fields = createFields("rows", "Rows");
+        fields.add(createField(long.class, "phaseStart", "Phase Start",
+                timestampType, "MILLISECONDS_SINCE_EPOCH"));
+        fields.add(createField(long.class, "phaseTime", "Phase Time",
+                timespanType, "NANOSECONDS"));
+
+        final Object factory = create.invoke(null,
+                createAnnotations(name, label, description),
+                fields);
+
+        phaseFactories[phase.ordinal()] = factory;
+        phaseProbes[phase.ordinal()] = newEvent.invoke(factory);
+    }
+
+    /**
+     * Starts the events of a call to a query method, if a recording is
+     * running.
+     *
+     * @param method the query method being called
+     * @param execution the {@code Execution} measuring the call
+     * @return the {@code Recorder} of the call's events, or {@literal null}
+     *      if none are being recorded
+     */
+    static Recorder start(final Method method, final Execution execution) {
+        final FlightRecorderEvents events = INSTANCE;
+
+        if(events == null || !events.recording) {
+            return null;
+        }
+
+        final Recorder recorder = events.new Recorder(method);
+        execution.setListener(recorder);
+
+        return recorder;
+    }
+
+    /**
+     * Returns the SQL with it's literals replaced by {@code ?}, and each
+     * expanded {@code IN} list collapsed into {@code IN (?...)}, so that
+     * the calls to a method share a single fingerprint.
+     */
+    static String fingerprint(final String sql) {
+        if(sql == null) {
+            return null;
+        }
+
+        String fingerprint = STRINGS.matcher(sql).replaceAll("?");
+        fingerprint = NUMBERS.matcher(fingerprint).replaceAll("?");
+        fingerprint = LISTS.matcher(fingerprint).replaceAll("IN (?...)");
+        fingerprint = SPACES.matcher(fingerprint).replaceAll(" ");
+
+        return fingerprint.trim();
+    }
+
+    private void fail() {
+        // tracing must never break a query, so give up on it entirely
+        broken = true;
+        recording = false;
+    }
+
+    public Object invoke(
+            final Object proxy,
+            final Method method,
+            final Object[] args)
+            throws Throwable {
+
+        final String name = method.getName();
+
+        if(name.equals("recordingStateChanged")) {
+            recordingStateChanged(args[0]);
+        } else if(name.equals("recorderInitialized")) {
+            final Method getRecordings = args[0].getClass().
+                    getMethod("getRecordings");
+
+            for(final Object recording : (List<?>)getRecordings.invoke(args[0])) {
+                recordingStateChanged(recording);
+            }
+        } else if(name.equals("equals")) {
+            return Boolean.valueOf(proxy == args[0]);
+        } else if(name.equals("hashCode")) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+        } else if(name.equals("toString")) {
+            return "EoD SQL FlightRecorderListener";
+        }
+
+        return null;
+    }
+
+    private void recordingStateChanged(final Object recording)
+            throws Exception {
+
+        final boolean isRunning =
+                "RUNNING".equals(String.valueOf(getState.invoke(recording)));
+
+        synchronized(running) {
+            if(isRunning) {
+                running.put(recording, recording);
+            } else {
+                running.remove(recording);
+            }
+
+            this.recording = !broken && !running.isEmpty();
+        }
+    }
+
+    /**
+     * Records the events of a single call. The {@code Invocation} event is
+     * begun with the call, and while it runs the recorder only notes when
+     * each phase first started. The event of each phase is created and
+     * committed once the call has {@link #finish(Execution, boolean)
+     * returned}.
+     */
+    final class Recorder implements Execution.Listener {
+
+        private final Method method;
+
+        private final Object invocation;
+
+        /**
+         * The {@code System.nanoTime()} each marked phase first started.
+         */
+        private final long[] started = new long[PHASES.length];
+
+        private final boolean[] marked = new boolean[PHASES.length];
+
+        private long previous = 0;
+
+        private String sql = null;
+
+        private String fingerprint = null;
+
+        Recorder(final Method method) {
+            this.method = method;
+
+            Object event = null;
+
+            try {
+                event = begin(invocationFactory, invocationProbe);
+            } catch(final Exception e) {
+                fail();
+            }
+
+            this.invocation = event;
+        }
+
+        private Object begin(final Object factory, final Object probe)
+                throws Exception {
+
+            if(factory == null ||
+                    !Boolean.TRUE.equals(isEnabled.invoke(probe))) {
+
+                return null;
+            }
+
+            final Object event = newEvent.invoke(factory);
+            begin.invoke(event);
+
+            return event;
+        }
+
+        private String getFingerprint(final Execution execution) {
+            final String current = execution.getSql();
+
+            if(current != sql) {
+                sql = current;
+                fingerprint = fingerprint(current);
+            }
+
+            return fingerprint;
+        }
+
+        private void commit(
+                final Object event,
+                final Execution execution,
+                final boolean failed,
+                final long... rows)
+                throws Exception {
+
+            end.invoke(event);
+
+            set.invoke(event, 0, method.getDeclaringClass().getName());
+            set.invoke(event, 1, method.getName());
+            set.invoke(event, 2, getFingerprint(execution));
+
+            for(int i = 0; i < rows.length; i++) {
+                set.invoke(event, 3 + i, Long.valueOf(rows[i]));
+            }
+
+            set.invoke(event, 3 + rows.length, Boolean.valueOf(failed));
+
+            commit.invoke(event);
+        }
+
+        private void commitPhase(
+                final Phase phase,
+                final Execution execution,
+                final boolean failed,
+                final long epoch)
+                throws Exception {
+
+            final int index = phase.ordinal();
+            final Object event = begin(phaseFactories[index], phaseProbes[index]);
+
+            if(event == null) {
+                return;
+            }
+
+            final long rows;
+
+            if(phase == Phase.EXECUTE) {
+                rows = execution.getRowsAffected();
+            } else if(phase == Phase.FETCH) {
+                rows = execution.getRowsReturned();
+            } else {
+                rows = 0;
+            }
+
+            // "rows" and "failed" are fields 3 and 4
+            set.invoke(event, 5, Long.valueOf(
+                    epoch + (started[index] - execution.getStartTime()) / 1000000));
+            set.invoke(event, 6, Long.valueOf(execution.getTime(phase)));
+
+            commit(event, execution, failed, rows);
+        }
+
+        public void marked(final Execution execution, final Phase phase) {
+            final int index = phase.ordinal();
+
+            if(!marked[index]) {
+                marked[index] = true;
+                started[index] = previous == 0
+                        ? execution.getStartTime()
+                        : previous;
+            }
+
+            previous = execution.getStartTime() + execution.getTotalTime();
+        }
+
+        /**
+         * Commits the events of the call and each of it's phases, once it
+         * has returned.
+         *
+         * @param execution the {@code Execution} measuring the call
+         * @param failed whether the call threw an exception
+         */
+        void finish(final Execution execution, final boolean failed) {
+            execution.setListener(null);
+
+            if(broken) {
+                return;
+            }
+
+            try {
+                // the wall clock time at which the call started
+                final long epoch = System.currentTimeMillis() -
+                        (System.nanoTime() - execution.getStartTime()) / 1000000;
+
+                for(final Phase phase : PHASES) {
+                    if(marked[phase.ordinal()]) {
+                        commitPhase(phase, execution, failed, epoch);
+                    }
+                }
+
+                if(invocation != null) {
+                    commit(invocation, execution, failed,
+                            execution.getRowsReturned(),
+                            execution.getRowsAffected());
+                }
+            } catch(final Exception e) {
+                fail();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,409 @@
+package net.lemnik.eodsql.impl;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+
+import java.sql.ResultSet;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.PreparedStatement;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import net.lemnik.eodsql.Lazy;
+import net.lemnik.eodsql.Select;
+import net.lemnik.eodsql.DataSet;
+import net.lemnik.eodsql.QueryTool;
+import net.lemnik.eodsql.TypeMapper;
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.DataIterator;
+import net.lemnik.eodsql.InvalidQueryException;
+import net.lemnik.eodsql.InvalidDataTypeException;
+
+import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Resource;
+
+import net.lemnik.eodsql.spi.util.Query;
+import net.lemnik.eodsql.spi.util.KeyIndex;
+import net.lemnik.eodsql.spi.util.LazyBinding;
+
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSource;
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSourceConnectionResource;
+
+/**
+ * <p>
+ * Implements {@link net.lemnik.eodsql.ResultColumn#lazy() lazy} columns for
+ * a single {@code @Select} method. Once the method has a return value, each
+ * lazy field of it's data-objects is given a {@link Lazy} belonging to a
+ * {@code Batch} of all the data-objects returned by the invocation.
+ * </p><p>
+ * Touching a {@code Lazy} loads it's own row, and the following rows of the
+ * batch that are not yet loaded, with a single {@code IN} query on a
+ * {@code Connection} taken from the query's {@code ConnectionSource}. The
+ * first load reads a single row, and each load after that reads twice as
+ * many rows as the last (up to {@link #MAX_BATCH_SIZE}), so that touching a
+ * single object is cheap, and touching every object takes few queries.
+ * </p><p>
+ * The {@code IN} list is padded to the same sizes as a list parameter (see
+ * {@link Query#getExpandedSize(int, int)}), so that only a few distinct
+ * statements are prepared. Each statement is given the {@code timeout} of
+ * the {@code @Select} method and the {@link net.lemnik.eodsql.QueryDeadline}
+ * of the thread that touched the {@code Lazy}, and is cancelled if that
+ * thread is interrupted.
+ * </p>
+ *
+ * @author Jason Morris
+ */
+class LazyLoader {
+
+    /**
+     * The largest number of rows loaded by a single query.
+     */
+    static final int MAX_BATCH_SIZE = 256;
+
+    private final LazyBinding[] bindings;
+
+    private final TypeMapper<?>[] mappers;
+
+    private final int timeout;
+
+    private LazyLoader(final Method method, final List<LazyBinding> lazy)
+            throws InvalidQueryException {
+
+        final Map<Class, TypeMapper> typemap = QueryTool.getTypeMap();
+
+        timeout = method.getAnnotation(Select.class).timeout();
+
+        bindings = lazy.toArray(new LazyBinding[lazy.size()]);
+        mappers = new TypeMapper<?>[bindings.length];
+
+        for(int i = 0; i < bindings.length; i++) {
+            mappers[i] = typemap.get(bindings[i].getValueType());
+
+            if(mappers[i] == null) {
+                throw new InvalidQueryException("No TypeMapper found for " +
+                        "the lazy column " + bindings[i].getColumnName() +
+                        " of type " + bindings[i].getValueType().getName(),
+                        method);
+            }
+        }
+    }
+
+    /**
+     * Creates the {@code LazyLoader} for a {@code @Select} method, if it
+     * returns data-objects with lazy columns.
+     *
+     * @param method the {@code @Select} method
+     * @return the {@code LazyLoader} for the method, or {@literal null} if
+     *      it's data-objects have no lazy columns
+     * @throws InvalidQueryException if the lazy columns cannot be loaded,
+     *      or the method does not read all of it's rows
+     */
+    static LazyLoader create(final Method method) throws InvalidQueryException {
+        final Class<?> returnType = method.getReturnType();
+        final Class<?> type;
+
+        if(returnType.isArray()) {
+            type = returnType.getComponentType();
+        } else if(Collection.class.isAssignableFrom(returnType) ||
+                DataIterator.class.isAssignableFrom(returnType)) {
+
+            type = getElementType(method.getGenericReturnType());
+        } else {
+            type = returnType;
+        }
+
+        if(type == null || type.isPrimitive()) {
+            return null;
+        }
+
+        final List<LazyBinding> lazy;
+
+        try {
+            lazy = LazyBinding.getLazyBindings(type);
+        } catch(final InvalidDataTypeException idte) {
+            throw new InvalidQueryException(idte.getMessage(), method);
+        }
+
+        if(lazy.isEmpty()) {
+            return null;
+        }
+
+        if(DataIterator.class.isAssignableFrom(returnType) ||
+                (DataSet.class.isAssignableFrom(returnType) &&
+                !Prefetcher.isHeldOnHeap(method.getAnnotation(Select.class)))) {
+
+            throw new InvalidQueryException("Lazy columns may only be " +
+                    "returned by a Select that reads all of it's rows.",
+                    method);
+        }
+
+        return new LazyLoader(method, lazy);
+    }
+
+    private static Class<?> getElementType(final Type type) {
+        if(type instanceof ParameterizedType) {
+            final Type element = ((ParameterizedType)type).
+                    getActualTypeArguments()[0];
+
+            if(element instanceof Class) {
+                return (Class<?>)element;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Assigns a {@code Lazy} to each lazy column of the return value of the
+     * given {@code Context}.
+     *
+     * @param context the context of a completed invocation of the
+     *      {@code @Select} method
+     */
+    void attach(final Context<Select> context) {
+        final Object value = context.getReturnValue();
+
+        if(value == null) {
+            return;
+        }
+
+        final Collection<?> objects = Prefetcher.toCollection(value);
+
+        if(objects.isEmpty()) {
+            return;
+        }
+
+        final Resource<Connection> connection =
+                context.getResource(Connection.class);
+
+        if(!(connection instanceof ConnectionSourceConnectionResource)) {
+            throw new EoDException("Lazy columns can only be returned by a " +
+                    "query object created by the QueryTool.");
+        }
+
+        final ConnectionSource source =
+                ((ConnectionSourceConnectionResource)connection).
+                getConnectionSource();
+
+        for(int i = 0; i < bindings.length; i++) {
+            new Batch(bindings[i], mappers[i], source, timeout, objects);
+        }
+    }
+
+    /**
+     * The values of a single lazy column, for all of the data-objects
+     * returned by a single invocation.
+     */
+    private static class Batch {
+
+        private final LazyBinding binding;
+
+        private final TypeMapper<?> mapper;
+
+        private final ConnectionSource source;
+
+        private final int timeout;
+
+        private final Object[] keys;
+
+        private final Value[] values;
+
+        /**
+         * The number of rows the next load will read.
+         */
+        private int batchSize = 1;
+
+        Batch(
+                final LazyBinding binding,
+                final TypeMapper<?> mapper,
+                final ConnectionSource source,
+                final int timeout,
+                final Collection<?> objects) {
+
+            this.binding = binding;
+            this.mapper = mapper;
+            this.source = source;
+            this.timeout = timeout;
+
+            keys = new Object[objects.size()];
+            values = new Value[keys.length];
+
+            int index = 0;
+
+            for(final Object object : objects) {
+                values[index] = new Value(this, index);
+
+                if(object != null) {
+                    keys[index] = binding.getKey(object);
+                    binding.set(object, values[index]);
+                }
+
+                index++;
+            }
+        }
+
+        private String getSql(final int placeholders) {
+            final StringBuilder sql = new StringBuilder("SELECT ");
+            sql.append(binding.getKeyColumnName()).append(", ");
+            sql.append(binding.getColumnName());
+            sql.append(" FROM ").append(binding.getTable());
+            sql.append(" WHERE ").append(binding.getKeyColumnName());
+            sql.append(" IN (?");
+
+            for(int i = 1; i < placeholders; i++) {
+                sql.append(", ?");
+            }
+
+            return sql.append(')').toString();
+        }
+
+        synchronized void load(final int index) throws EoDException {
+            if(values[index].isLoaded()) {
+                return;
+            }
+
+            final List<Integer> rows = new ArrayList<Integer>(batchSize);
+
+            for(int i = index; i < values.length && rows.size() < batchSize; i++) {
+                if(values[i].isLoaded()) {
+                    continue;
+                } else if(keys[i] == null) {
+                    values[i].loaded(null);
+                } else {
+                    rows.add(i);
+                }
+            }
+
+            batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+
+            if(rows.isEmpty()) {
+                return;
+            }
+
+            final int placeholders =
+                    Query.getExpandedSize(rows.size(), MAX_BATCH_SIZE);
+            final String sql = getSql(placeholders);
+            final Map<Object, Object> loaded;
+
+            try {
+                loaded = read(sql, placeholders, rows);
+            } catch(final SQLException sqle) {
+                if(ExceptionTranslationUtils.isCancellation(sqle)) {
+                    throw ExceptionTranslationUtils.translateException(
+                            source,
+                            binding.getColumnName(),
+                            sql,
+                            sqle);
+                }
+
+                throw new EoDException("Could not load the lazy column " +
+                        binding.getColumnName(), sqle);
+            }
+
+            for(final Integer row : rows) {
+                values[row].loaded(loaded.get(KeyIndex.normalize(keys[row])));
+            }
+        }
+
+        private Map<Object, Object> read(
+                final String sql,
+                final int placeholders,
+                final List<Integer> rows)
+                throws SQLException {
+
+            final Map<Object, Object> loaded = new HashMap<Object, Object>();
+            final StatementWatchdog.Watch watch = StatementWatchdog.begin();
+
+            try {
+                read(sql, placeholders, rows, loaded);
+            } catch(final SQLException sqle) {
+                throw watch.translate(sqle);
+            } finally {
+                watch.end();
+            }
+
+            return loaded;
+        }
+
+        private void read(
+                final String sql,
+                final int placeholders,
+                final List<Integer> rows,
+                final Map<Object, Object> loaded)
+                throws SQLException {
+
+            final Connection connection = source.getConnection();
+
+            try {
+                final PreparedStatement statement = connection.prepareStatement(
+                        sql,
+                        ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+
+                try {
+                    StatementWatchdog.apply(statement, timeout);
+
+                    // padded with the last key, like a list parameter
+                    for(int i = 0; i < placeholders; i++) {
+                        DefaultTypeMappers.RuntimeTypeMapper.INSTANCE.set(
+                                statement,
+                                i + 1,
+                                keys[rows.get(Math.min(i, rows.size() - 1))]);
+                    }
+
+                    final ResultSet results = statement.executeQuery();
+
+                    try {
+                        while(results.next()) {
+                            final Object key = results.getObject(1);
+                            Object value = mapper.get(results, 2);
+
+                            if(results.wasNull()) {
+                                value = null;
+                            }
+
+                            loaded.put(KeyIndex.normalize(key), value);
+                        }
+                    } finally {
+                        results.close();
+                    }
+                } finally {
+                    statement.close();
+                }
+            } finally {
+                source.releaseConnection(connection);
+            }
+        }
+
+    }
+
+    private static class Value extends Lazy<Object> {
+
+        private final Batch batch;
+
+        private final int index;
+
+        Value(final Batch batch, final int index) {
+            this.batch = batch;
+            this.index = index;
+        }
+
+        void loaded(final Object value) {
+            setValue(value);
+        }
+
+        @Override
+        protected Object load() throws EoDException {
+            batch.load(index);
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+package net.lemnik.eodsql.impl;
+
+import java.sql.SQLException;
+
+import java.util.List;
+import java.util.Iterator;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+import net.lemnik.eodsql.Select;
+import net.lemnik.eodsql.DataIterator;
+import net.lemnik.eodsql.EoDException;
+
+import net.lemnik.eodsql.spi.Context;
+
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSource;
+
+/**
+ * <p>
+ * A keyset-paginated {@code DataIterator}. Each page is read in full by the
+ * {@link SelectMethodImplementation} on a {@code Connection} taken from the
+ * query's {@code ConnectionSource} and released before the page is returned,
+ * so this iterator holds no database resources between pages.
+ * </p><p>
+ * The next page is read once the current page has been consumed, starting
+ * after the key of the last row of the current page. A page shorter than the
+ * page size is the last page.
+ * </p>
+ *
+ * @author Jason Morris
+ */
+class PagedDataIterator<T> implements DataIterator<T> {
+
+    private final SelectMethodImplementation implementation;
+
+    private final ConnectionSource connectionSource;
+
+    private final Context<Select> context;
+
+    private final int pageSize;
+
+    private List<T> page = Collections.emptyList();
+
+    private int index = 0;
+
+    private Object lastKey;
+
+    private boolean lastPage = false;
+
+    private boolean closed = false;
+
+    PagedDataIterator(
+            final SelectMethodImplementation implementation,
+            final ConnectionSource connectionSource,
+            final Context<Select> context,
+            final int pageSize,
+            final Object startAfter)
+            throws SQLException {
+
+        this.implementation = implementation;
+        this.connectionSource = connectionSource;
+        this.context = context;
+        this.pageSize = pageSize;
+        this.lastKey = startAfter;
+
+        // the first page is read immediately, so that a broken query fails
+        // when the method is invoked rather than on the first hasNext()
+        readPage();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readPage() throws SQLException {
+        page = (List<T>)implementation.readPage(
+                connectionSource,
+                context,
+                lastKey);
+
+        index = 0;
+
+        if(page.size() < pageSize) {
+            lastPage = true;
+        } else {
+            lastKey = implementation.getPageKey(page.get(page.size() - 1));
+        }
+    }
+
+    private void ensureOpen() {
+        if(closed) {
+            throw new EoDException("A DataIterator's methods may not " +
+                    "be invoked if it is closed.");
+        }
+    }
+
+    public void close() {
+        closed = true;
+        page = Collections.emptyList();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean hasNext() {
+        ensureOpen();
+
+        if(index < page.size()) {
+            return true;
+        } else if(!lastPage) {
+            try {
+                readPage();
+            } catch(final SQLException sqle) {
+                throw new EoDException(sqle);
+            }
+
+            if(index < page.size()) {
+                return true;
+            }
+        }
+
+        close();
+        return false;
+    }
+
+    public T next() {
+        if(hasNext()) {
+            return page.get(index++);
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException("Not supported " +
+                "in a DataIterator.");
+    }
+
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+}
@@ -0,0 +1,451 @@
+package net.lemnik.eodsql.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import java.util.Iterator;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.lemnik.eodsql.Update;
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.QueryDeadline;
+import net.lemnik.eodsql.BatchPartitioner;
+import net.lemnik.eodsql.ParallelBatchException;
+
+import net.lemnik.eodsql.spi.Context;
+
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSource;
+import net.lemnik.eodsql.impl.BatchUpdateMethodImplementation.RowWriter;
+import net.lemnik.eodsql.impl.BatchUpdateMethodImplementation.ChunkListener;
+
+/**
+ * <p>
+ * Executes a single invocation of a parallel batch update. The rows of the
+ * batch are read by the invoking thread and handed to a number of partitions,
+ * each of which executes it's rows in chunks on it's own {@code Connection}
+ * in a worker thread. Rows are copied into a bounded queue for each partition,
+ * so a streamed batch is never held in memory.
+ * </p><p>
+ * A partition that fails carries on draining it's queue (discarding the rows)
+ * so that the reading thread can never block on it, and no further rows are
+ * read once any partition has failed.
+ * </p><p>
+ * The workers run their statements under the {@link QueryDeadline} of the
+ * invoking thread, and join it's {@link StatementWatchdog.Watch} so that
+ * their statements are cancelled along with the invocation.
+ * </p>
+ *
+ * @author Jason Morris
+ */
+class PartitionedBatch {
+
+    private static final Row END = new Row(-1, null);
+
+    private static final ExecutorService WORKERS =
+            Executors.newCachedThreadPool(new ThreadFactory() {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable,
+                    "EoD SQL batch worker " + counter.incrementAndGet());
+
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    });
+
+    private final BatchUpdateMethodImplementation implementation;
+
+    private final ConnectionSource connectionSource;
+
+    private final Context<Update> context;
+
+    private final BatchPartitioner partitioner;
+
+    private final Partition[] partitions;
+
+    private final int chunkSize;
+
+    private final boolean recordCounts;
+
+    private volatile boolean failed = false;
+
+    private long total = 0;
+
+    /**
+     * The {@code Watch} of the invoking thread, joined by each worker.
+     */
+    private StatementWatchdog.Watch watch = null;
+
+    private boolean hasDeadline = false;
+
+    /**
+     * The deadline of the invoking thread, in {@code System.nanoTime()}.
+     */
+    private long deadline = 0;
+
+    PartitionedBatch(
+            final BatchUpdateMethodImplementation implementation,
+            final ConnectionSource connectionSource,
+            final Context<Update> context,
+            final BatchPartitioner partitioner,
+            final int partitionCount,
+            final int chunkSize,
+            final boolean recordCounts) {
+
+        this.implementation = implementation;
+        this.connectionSource = connectionSource;
+        this.context = context;
+        this.partitioner = partitioner;
+        this.chunkSize = chunkSize;
+        this.recordCounts = recordCounts;
+
+        partitions = new Partition[partitionCount];
+
+        for(int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(Math.min(chunkSize * 2, 10000));
+        }
+    }
+
+    private int getPartition(final long row, final Object[] parameters) {
+        final int count = partitions.length;
+
+        if(partitioner == null) {
+            return (int)(row % count);
+        }
+
+        final int partition = partitioner.getPartition(parameters, count);
+
+        if(partition < 0 || partition >= count) {
+            throw new EoDException("BatchPartitioner " +
+                    partitioner.getClass().getName() +
+                    " returned partition " + partition +
+                    " of " + count);
+        }
+
+        return partition;
+    }
+
+    /**
+     * Returns the number of rows affected by the batch, once it has been
+     * {@link #execute(Iterator) executed}.
+     */
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * Executes the batch, returning the update count of each row in the order
+     * they were read (if {@code recordCounts} was set), or the total of the
+     * update counts as a single element.
+     *
+     * @param rows the rows of the batch
+     * @return the combined update counts
+     * @throws ParallelBatchException if any of the partitions failed
+     */
+    long[] execute(final Iterator<Context<Update>> rows) {
+        final Future<?>[] futures = new Future<?>[partitions.length];
+
+        // read before the workers are started, so they can all see them
+        final long remaining = QueryDeadline.getRemaining(TimeUnit.NANOSECONDS);
+
+        watch = StatementWatchdog.current();
+        hasDeadline = remaining >= 0;
+        deadline = System.nanoTime() + remaining;
+
+        for(int i = 0; i < partitions.length; i++) {
+            futures[i] = WORKERS.submit(partitions[i]);
+        }
+
+        long count = 0;
+        Throwable producerFailure = null;
+
+        try {
+            while(!failed && rows.hasNext()) {
+                final Object[] parameters = rows.next().getParameters().clone();
+
+                partitions[getPartition(count, parameters)].queue.put(
+                        new Row(count, parameters));
+
+                count++;
+            }
+        } catch(final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            producerFailure = ie;
+        } catch(final RuntimeException re) {
+            producerFailure = re;
+        } catch(final Error error) {
+            producerFailure = error;
+        } finally {
+            for(final Partition partition : partitions) {
+                partition.end();
+            }
+        }
+
+        final Throwable[] failures = new Throwable[partitions.length];
+        boolean anyFailed = false;
+        total = 0;
+
+        for(int i = 0; i < partitions.length; i++) {
+            try {
+                futures[i].get();
+            } catch(final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                partitions[i].failure = ie;
+            } catch(final ExecutionException ee) {
+                partitions[i].failure = ee.getCause();
+            }
+
+            failures[i] = partitions[i].failure;
+            anyFailed |= failures[i] != null;
+            total += partitions[i].total;
+        }
+
+        if(producerFailure != null) {
+            throw new ParallelBatchException("Reading the parallel batch failed.",
+                    new Throwable[] { producerFailure },
+                    total);
+        } else if(anyFailed) {
+            throw new ParallelBatchException("One or more partitions " +
+                    "of the parallel batch failed.",
+                    failures,
+                    total);
+        }
+
+        if(!recordCounts) {
+            return new long[] { total };
+        }
+
+        final long[] counts = new long[(int)count];
+
+        for(final Partition partition : partitions) {
+            for(int i = 0; i < partition.recorded; i++) {
+                counts[(int)partition.rows[i]] = partition.counts[i];
+            }
+        }
+
+        return counts;
+    }
+
+    private static class Row {
+
+        private final long index;
+
+        private final Object[] parameters;
+
+        Row(final long index, final Object[] parameters) {
+            this.index = index;
+            this.parameters = parameters;
+        }
+
+    }
+
+    private class Partition implements Callable<Object>, ChunkListener {
+
+        private final BlockingQueue<Row> queue;
+
+        /**
+         * The row number of each row executed by this partition,
+         * in the order they were executed.
+         */
+        private long[] rows = new long[16];
+
+        private long[] counts = new long[16];
+
+        private int recorded = 0;
+
+        private int pending = 0;
+
+        private long total = 0;
+
+        private volatile Throwable failure = null;
+
+        private boolean interrupted = false;
+
+        Partition(final int capacity) {
+            queue = new ArrayBlockingQueue<Row>(capacity);
+        }
+
+        void end() {
+            boolean interrupted = false;
+
+            while(true) {
+                try {
+                    queue.put(END);
+                    break;
+                } catch(final InterruptedException ie) {
+                    // the worker is always draining the queue,
+                    // so we will get our END in eventually
+                    interrupted = true;
+                }
+            }
+
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void fail(final Throwable cause) {
+            if(failure == null) {
+                failure = watch != null && cause instanceof SQLException
+                        ? watch.translate((SQLException)cause)
+                        : cause;
+            }
+
+            failed = true;
+        }
+
+        private void record(final long row) {
+            if(!recordCounts) {
+                return;
+            }
+
+            if(pending == rows.length) {
+                final long[] tmp = new long[rows.length * 2];
+                System.arraycopy(rows, 0, tmp, 0, pending);
+                rows = tmp;
+            }
+
+            rows[pending++] = row;
+        }
+
+        public void addCounts(final long[] chunk, final long chunkTotal) {
+            total += chunkTotal;
+
+            if(recordCounts) {
+                if(counts.length < rows.length) {
+                    final long[] tmp = new long[rows.length];
+                    System.arraycopy(counts, 0, tmp, 0, recorded);
+                    counts = tmp;
+                }
+
+                System.arraycopy(chunk, 0, counts, recorded,
+                        Math.min(chunk.length, pending - recorded));
+
+                recorded = pending;
+            }
+        }
+
+        public void addKeys(final Object keys) {
+            // parallel batches never return generated keys
+        }
+
+        /**
+         * Takes the next row from the queue. The reading thread may be
+         * blocked putting a row on the queue, so an interrupt fails the
+         * partition rather than stopping it from draining the queue.
+         */
+        private Row take() {
+            while(true) {
+                try {
+                    return queue.take();
+                } catch(final InterruptedException ie) {
+                    interrupted = true;
+                    fail(ie);
+                }
+            }
+        }
+
+        public Object call() throws Exception {
+            final StatementWatchdog.Watch previous = StatementWatchdog.join(watch);
+
+            if(hasDeadline) {
+                QueryDeadline.set(
+                        deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+            }
+
+            try {
+                return write();
+            } finally {
+                QueryDeadline.clear();
+                StatementWatchdog.leave(previous);
+
+                if(interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private Object write() throws Exception {
+            Connection connection = null;
+            RowWriter writer = null;
+
+            final Object[] parameters = new Object[
+                    context.getParameters().length];
+
+            final Context<Update> rowContext = new Context<Update>(
+                    context.getAnnotation(),
+                    parameters);
+
+            try {
+                connection = connectionSource.getConnection();
+                // each partition writes with it's own Context, so that the
+                // Execution of the invoking thread is only used by that thread
+                writer = implementation.createRowWriter(
+                        connection,
+                        rowContext,
+                        this,
+                        chunkSize,
+                        false);
+            } catch(final Throwable t) {
+                fail(t);
+            }
+
+            boolean written = false;
+
+            for(Row row = take(); row != END; row = take()) {
+                if(failure != null) {
+                    continue;
+                }
+
+                try {
+                    System.arraycopy(row.parameters, 0, parameters, 0,
+                            parameters.length);
+
+                    // the row must be recorded before it's written, since
+                    // writing it may execute the chunk it belongs to
+                    record(row.index);
+                    writer.write(rowContext);
+                    written = true;
+                } catch(final Throwable t) {
+                    fail(t);
+                }
+            }
+
+            try {
+                if(failure == null && written) {
+                    writer.finish();
+                }
+            } catch(final Throwable t) {
+                fail(t);
+            } finally {
+                try {
+                    if(writer != null) {
+                        writer.close();
+                    }
+                } finally {
+                    if(connection != null) {
+                        connectionSource.releaseConnection(connection);
+                    }
+                }
+            }
+
+            return null;
+        }
+
+    }
+
+}
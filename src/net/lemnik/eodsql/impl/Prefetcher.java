@@ -0,0 +1,281 @@
+package net.lemnik.eodsql.impl;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+
+import java.sql.Connection;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.lemnik.eodsql.Select;
+import net.lemnik.eodsql.DataSet;
+import net.lemnik.eodsql.Prefetch;
+import net.lemnik.eodsql.QueryTool;
+import net.lemnik.eodsql.DataIterator;
+import net.lemnik.eodsql.InvalidQueryException;
+import net.lemnik.eodsql.InvalidDataTypeException;
+
+import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Resource;
+import net.lemnik.eodsql.spi.MethodImplementation;
+import net.lemnik.eodsql.spi.MethodImplementationFactory;
+
+import net.lemnik.eodsql.spi.util.PrefetchBinding;
+
+/**
+ * <p>
+ * Implements the {@link Prefetch @Prefetch} annotation for a single
+ * {@code @Select} method. Once the method has a return value, each
+ * {@code @Prefetch} field of it's data-objects is filled in by a single
+ * invocation of the related query method, with the keys of all of the
+ * data-objects.
+ * </p><p>
+ * The related query method is invoked directly through it's
+ * {@code MethodImplementation}, on the {@code Connection} of the
+ * {@code @Select}. The implementation is only created when it is first
+ * needed, so that data-objects may prefetch each other's types.
+ * </p>
+ *
+ * @author Jason Morris
+ */
+class Prefetcher {
+
+    private final Related[] related;
+
+    private Prefetcher(final List<PrefetchBinding> bindings)
+            throws InvalidQueryException {
+
+        related = new Related[bindings.size()];
+
+        for(int i = 0; i < related.length; i++) {
+            related[i] = new Related(bindings.get(i));
+        }
+    }
+
+    /**
+     * Creates the {@code Prefetcher} for a {@code @Select} method, if it
+     * returns data-objects with {@code @Prefetch} fields.
+     *
+     * @param method the {@code @Select} method
+     * @return the {@code Prefetcher} for the method, or {@literal null} if
+     *      there is nothing to prefetch
+     * @throws InvalidQueryException if any of the {@code @Prefetch} fields
+     *      names a query method that cannot be used
+     */
+    static Prefetcher create(final Method method) throws InvalidQueryException {
+        final Class<?> type = getDataObjectType(method);
+
+        if(type == null || type.isPrimitive()) {
+            return null;
+        }
+
+        final List<PrefetchBinding> bindings;
+
+        try {
+            bindings = PrefetchBinding.getPrefetchBindings(type);
+        } catch(final InvalidDataTypeException idte) {
+            throw new InvalidQueryException(idte.getMessage(), method);
+        }
+
+        return bindings.isEmpty() ? null : new Prefetcher(bindings);
+    }
+
+    /**
+     * Returns the data-object type returned by the method, or
+     * {@literal null} if it returns a type whose rows are not all read
+     * up-front.
+     */
+    private static Class<?> getDataObjectType(final Method method) {
+        final Class<?> returnType = method.getReturnType();
+
+        if(returnType.isArray()) {
+            return returnType.getComponentType();
+        } else if(DataIterator.class.isAssignableFrom(returnType) ||
+                (DataSet.class.isAssignableFrom(returnType) &&
+                !isHeldOnHeap(method.getAnnotation(Select.class)))) {
+
+            return null;
+        } else if(Collection.class.isAssignableFrom(returnType)) {
+            final Type type = method.getGenericReturnType();
+
+            if(type instanceof ParameterizedType) {
+                final Type element = ((ParameterizedType)type).
+                        getActualTypeArguments()[0];
+
+                if(element instanceof Class) {
+                    return (Class<?>)element;
+                }
+            }
+
+            return null;
+        }
+
+        return returnType;
+    }
+
+    /**
+     * Returns whether a {@code DataSet} returned by the given {@code @Select}
+     * holds all of it's data-objects on the heap.
+     */
+    static boolean isHeldOnHeap(final Select select) {
+        return select.disconnected() && select.spillThreshold() == 0;
+    }
+
+    /**
+     * Fills in the {@code @Prefetch} fields of the return value of the
+     * given {@code Context}.
+     *
+     * @param context the context of a completed invocation of the
+     *      {@code @Select} method
+     * @throws Throwable if any of the related query methods failed
+     */
+    void prefetch(final Context<Select> context) throws Throwable {
+        final Object value = context.getReturnValue();
+
+        if(value == null) {
+            return;
+        }
+
+        final Collection<?> objects = toCollection(value);
+
+        if(objects.isEmpty()) {
+            return;
+        }
+
+        final Resource<Connection> connection =
+                context.getResource(Connection.class);
+
+        for(final Related r : related) {
+            r.prefetch(connection, objects);
+        }
+    }
+
+    /**
+     * Returns the data-objects in the return value of a {@code @Select}
+     * method that reads all of it's rows.
+     */
+    static Collection<?> toCollection(final Object value) {
+        if(value instanceof Collection) {
+            return (Collection<?>)value;
+        } else if(value instanceof Object[]) {
+            return Arrays.asList((Object[])value);
+        } else if(value.getClass().isArray()) {
+            // arrays of primitives have nothing to prefetch
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList(value);
+    }
+
+    /**
+     * A single {@code @Prefetch} field, and the query method that loads it.
+     */
+    private static class Related {
+
+        private final PrefetchBinding binding;
+
+        private final Method method;
+
+        private volatile MethodImplementation<Select> implementation = null;
+
+        Related(final PrefetchBinding binding) throws InvalidQueryException {
+            this.binding = binding;
+            this.method = findMethod(binding.getPrefetch());
+        }
+
+        private static Method findMethod(final Prefetch prefetch)
+                throws InvalidQueryException {
+
+            for(final Method candidate : prefetch.query().getMethods()) {
+                final Class<?>[] parameters = candidate.getParameterTypes();
+
+                if(candidate.getName().equals(prefetch.method()) &&
+                        parameters.length == 1 &&
+                        RequestCoalescer.isMultiple(parameters[0])) {
+
+                    if(!candidate.isAnnotationPresent(Select.class) ||
+                            !RequestCoalescer.isMultiple(
+                            candidate.getReturnType())) {
+
+                        throw new InvalidQueryException("A @Prefetch " +
+                                "method must be a @Select returning an " +
+                                "array or Collection.", candidate);
+                    }
+
+                    return candidate;
+                }
+            }
+
+            throw new InvalidQueryException("Cannot find the @Prefetch " +
+                    "method " + prefetch.method() + " in " +
+                    prefetch.query().getName() + ", it must take a single " +
+                    "array or Collection of keys.");
+        }
+
+        private MethodImplementation<Select> getImplementation() {
+            MethodImplementation<Select> local = implementation;
+
+            if(local == null) {
+                final MethodImplementationFactory<Select> factory =
+                        QueryTool.getMethodImplementationFactory(Select.class);
+
+                implementation = local = factory.createImplementation(method);
+            }
+
+            return local;
+        }
+
+        void prefetch(
+                final Resource<Connection> connection,
+                final Collection<?> objects)
+                throws Throwable {
+
+            final Collection<Object> keys = binding.getKeys(objects);
+            Collection<?> results = Collections.emptyList();
+
+            if(!keys.isEmpty()) {
+                final Context<Select> context = new Context<Select>(
+                        method.getAnnotation(Select.class),
+                        new Object[] {
+                            RequestCoalescer.createKeysParameter(method, keys)
+                        });
+
+                context.setResource(connection);
+                context.setDontCloseConnection(true);
+
+                try {
+                    getImplementation().invoke(context);
+                    results = toResults(context.getReturnValue());
+                } finally {
+                    context.close();
+                }
+            }
+
+            binding.attach(objects, results);
+        }
+
+        private static Collection<?> toResults(final Object value) {
+            if(value == null) {
+                return Collections.emptyList();
+            } else if(value instanceof Collection) {
+                return (Collection<?>)value;
+            }
+
+            final int length = Array.getLength(value);
+            final Object[] results = new Object[length];
+
+            for(int i = 0; i < length; i++) {
+                results[i] = Array.get(value, i);
+            }
+
+            return Arrays.asList(results);
+        }
+
+    }
+
+}
@@ -0,0 +1,444 @@
+package net.lemnik.eodsql.impl;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+
+import java.sql.SQLException;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+
+import net.lemnik.eodsql.Coalesce;
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.QueryDeadline;
+import net.lemnik.eodsql.InvalidQueryException;
+import net.lemnik.eodsql.QueryCancelledException;
+
+import net.lemnik.eodsql.spi.util.KeyIndex;
+import net.lemnik.eodsql.spi.util.DataObjectBinding;
+import net.lemnik.eodsql.spi.util.DataObjectBinding.BindingType;
+
+import net.lemnik.eodsql.impl.BaseQueryImpl.Callable;
+
+/**
+ * <p>
+ * Implements the {@link Coalesce @Coalesce} annotation. Invocations of the
+ * single-key method are collected into a {@code Batch}: the first invocation
+ * to arrive becomes the leader of the batch, waits for the batch window to
+ * close (or the batch to fill up), and then invokes the companion multi-key
+ * method on behalf of every invocation in the batch. Each invocation then
+ * picks it's result out of the batch by key.
+ * </p><p>
+ * Keys are compared after widening integral {@code Number}s to {@code Long},
+ * so that an {@code int} key will match a {@code Long} key column.
+ * </p><p>
+ * The companion method runs on the leader's thread, but on behalf of every
+ * invocation in the batch: so it runs under the latest {@link QueryDeadline}
+ * of the batch (or none, if any invocation has none), and an interrupt of
+ * the leader while it waits for the window to close is only restored once
+ * the batch has been executed. Every other invocation waits for the batch
+ * under it's own deadline, and stops waiting if it's own thread is
+ * interrupted.
+ * </p>
+ *
+ * @author Jason Morris
+ */
+class RequestCoalescer implements Callable {
+
+    private final Callable single;
+
+    private final Callable companion;
+
+    private final Method companionMethod;
+
+    private final DataObjectBinding<Object> binding;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+
+    /**
+     * The batch currently accepting keys, guarded by the {@link #lock}.
+     */
+    private Batch open = null;
+
+    @SuppressWarnings("unchecked")
+    RequestCoalescer(
+            final Method method,
+            final Callable single,
+            final Method companionMethod,
+            final Callable companion) {
+
+        final Coalesce coalesce = method.getAnnotation(Coalesce.class);
+
+        this.single = single;
+        this.companion = companion;
+        this.companionMethod = companionMethod;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(coalesce.window());
+        this.maxBatchSize = coalesce.maxBatchSize();
+        this.binding = (DataObjectBinding<Object>)DataObjectBinding.
+                getDataObjectBinding(
+                method.getReturnType(),
+                BindingType.NORMAL_BINDING);
+    }
+
+    /**
+     * Validates a {@code @Coalesce} method and it's companion.
+     *
+     * @param method the method annotated with {@code @Coalesce}
+     * @param companionMethod the companion method, or {@literal null}
+     *      if none could be found
+     * @throws InvalidQueryException if either method is not valid
+     */
+    static void validate(final Method method, final Method companionMethod)
+            throws InvalidQueryException {
+
+        final Coalesce coalesce = method.getAnnotation(Coalesce.class);
+
+        if(method.getParameterTypes().length != 1) {
+            throw new InvalidQueryException("A @Coalesce method must " +
+                    "take a single key parameter.", method);
+        }
+
+        if(isMultiple(method.getReturnType())) {
+            throw new InvalidQueryException("A @Coalesce method must " +
+                    "return a single object.", method);
+        }
+
+        if(coalesce.window() < 0 || coalesce.maxBatchSize() < 1) {
+            throw new InvalidQueryException("A @Coalesce window may not be " +
+                    "negative, and it's maxBatchSize must be at least 1.",
+                    method);
+        }
+
+        if(companionMethod == null) {
+            throw new InvalidQueryException("Cannot find the @Coalesce " +
+                    "companion method " + coalesce.value() + ", it must " +
+                    "take a single array or Collection of keys.", method);
+        }
+
+        if(!isMultiple(companionMethod.getReturnType())) {
+            throw new InvalidQueryException("A @Coalesce companion method " +
+                    "must return an array or Collection.", companionMethod);
+        }
+    }
+
+    /**
+     * Finds the companion method named by the {@code @Coalesce} annotation
+     * of the given method, declared by the given query interface.
+     *
+     * @return the companion method, or {@literal null} if there is no such
+     *      method taking a single array or {@code Collection}
+     */
+    static Method findCompanion(final Class<?> query, final Method method) {
+        final String name = method.getAnnotation(Coalesce.class).value();
+
+        for(final Method candidate : query.getMethods()) {
+            final Class<?>[] parameters = candidate.getParameterTypes();
+
+            if(candidate.getName().equals(name) &&
+                    parameters.length == 1 &&
+                    isMultiple(parameters[0])) {
+
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    static boolean isMultiple(final Class<?> type) {
+        return type.isArray() || Collection.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Creates the single array or {@code Collection} parameter of a multi-key
+     * method from the keys it should be invoked with.
+     *
+     * @param method the multi-key method
+     * @param values the keys
+     * @return an array or {@code Collection} of the keys, of the parameter
+     *      type of the method
+     */
+    @SuppressWarnings("unchecked")
+    static Object createKeysParameter(
+            final Method method,
+            final Collection<Object> values) {
+
+        final Class<?> type = method.getParameterTypes()[0];
+
+        if(type.isArray()) {
+            final Object array = Array.newInstance(
+                    type.getComponentType(),
+                    values.size());
+
+            int index = 0;
+
+            for(final Object value : values) {
+                Array.set(array, index++, value);
+            }
+
+            return array;
+        } else if(type.isAssignableFrom(ArrayList.class)) {
+            return new ArrayList<Object>(values);
+        } else if(type.isAssignableFrom(HashSet.class)) {
+            return new HashSet<Object>(values);
+        }
+
+        try {
+            final Collection<Object> collection =
+                    (Collection<Object>)type.newInstance();
+
+            collection.addAll(values);
+            return collection;
+        } catch(final InstantiationException ie) {
+            throw new EoDException("Cannot create a " + type.getName() +
+                    " of keys for " + method.getName(), ie);
+        } catch(final IllegalAccessException iae) {
+            throw new EoDException("Cannot create a " + type.getName() +
+                    " of keys for " + method.getName(), iae);
+        }
+    }
+
+    public Object invoke(final Method method, final Object[] args)
+            throws Throwable {
+
+        final Object key = args[0];
+
+        if(key == null) {
+            return single.invoke(method, args);
+        }
+
+        final Object normalized = KeyIndex.normalize(key);
+        final long remaining = QueryDeadline.getRemaining(TimeUnit.NANOSECONDS);
+        final Batch batch;
+        final boolean leader;
+
+        synchronized(lock) {
+            leader = open == null;
+
+            if(leader) {
+                open = new Batch();
+            }
+
+            batch = open;
+            batch.add(normalized, key, remaining);
+
+            if(batch.size() >= maxBatchSize) {
+                open = null;
+                batch.full.countDown();
+            }
+        }
+
+        if(!leader) {
+            batch.await(remaining);
+            return batch.get(normalized);
+        }
+
+        // the interrupt is ours, not that of the rest of the batch, so it
+        // must not cancel the companion method
+        boolean interrupted = Thread.interrupted();
+
+        try {
+            if(windowNanos > 0) {
+                batch.full.await(windowNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch(final InterruptedException ie) {
+            interrupted = true;
+        } finally {
+            synchronized(lock) {
+                if(open == batch) {
+                    open = null;
+                }
+            }
+        }
+
+        try {
+            batch.execute(remaining);
+            return batch.get(normalized);
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private class Batch {
+
+        /**
+         * The keys of the batch as they were passed in, by their
+         * normalized form.
+         */
+        private final Map<Object, Object> keys =
+                new LinkedHashMap<Object, Object>();
+
+        private final CountDownLatch full = new CountDownLatch(1);
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * Whether every invocation in the batch has a deadline, guarded by
+         * the {@link #lock}.
+         */
+        private boolean hasDeadline = true;
+
+        /**
+         * The latest deadline of the invocations in the batch, in
+         * {@code System.nanoTime()}, guarded by the {@link #lock}.
+         */
+        private long deadline = 0;
+
+        /**
+         * The number of invocations in the batch, guarded by the
+         * {@link #lock}.
+         */
+        private int invocations = 0;
+
+        private Map<Object, Object> results = null;
+
+        private Throwable failure = null;
+
+        void add(
+                final Object normalized,
+                final Object key,
+                final long remaining) {
+
+            final boolean first = invocations++ == 0;
+
+            if(!keys.containsKey(normalized)) {
+                keys.put(normalized, key);
+            }
+
+            if(remaining < 0) {
+                hasDeadline = false;
+            } else if(hasDeadline) {
+                final long until = System.nanoTime() + remaining;
+
+                if(first || until - deadline > 0) {
+                    deadline = until;
+                }
+            }
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+        private void dispatch(final Object result) {
+            final Map<Object, Object> map = new HashMap<Object, Object>();
+
+            if(result instanceof Collection) {
+                for(final Object o : (Collection<?>)result) {
+                    if(o != null) {
+                        map.put(KeyIndex.normalize(binding.getKey(o)), o);
+                    }
+                }
+            } else if(result != null) {
+                final int length = Array.getLength(result);
+
+                for(int i = 0; i < length; i++) {
+                    final Object o = Array.get(result, i);
+
+                    if(o != null) {
+                        map.put(KeyIndex.normalize(binding.getKey(o)), o);
+                    }
+                }
+            }
+
+            results = map;
+        }
+
+        /**
+         * Invokes the companion method on the leader's thread, under the
+         * latest deadline of the batch rather than the leader's own.
+         *
+         * @param remaining the time left before the leader's own deadline,
+         *      or {@literal -1} if it has none
+         */
+        void execute(final long remaining) {
+            final long leaderDeadline = System.nanoTime() + remaining;
+            final boolean batchHasDeadline;
+            final long batchDeadline;
+
+            synchronized(lock) {
+                batchHasDeadline = hasDeadline;
+                batchDeadline = deadline;
+            }
+
+            if(batchHasDeadline) {
+                QueryDeadline.set(
+                        batchDeadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+            } else {
+                QueryDeadline.clear();
+            }
+
+            try {
+                dispatch(companion.invoke(
+                        companionMethod,
+                        new Object[] { createKeysParameter(
+                                companionMethod,
+                                keys.values()) }));
+            } catch(final Throwable t) {
+                failure = t;
+            } finally {
+                done.countDown();
+
+                if(remaining >= 0) {
+                    QueryDeadline.set(
+                            leaderDeadline - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+                } else {
+                    QueryDeadline.clear();
+                }
+            }
+        }
+
+        /**
+         * Waits for the leader to execute the batch, giving up if the
+         * calling thread is interrupted or it's deadline passes first.
+         *
+         * @param remaining the time left before the caller's deadline, or
+         *      {@literal -1} if it has none
+         * @throws SQLException if the caller stopped waiting
+         */
+        void await(final long remaining) throws SQLException {
+            try {
+                if(remaining < 0) {
+                    done.await();
+                } else if(!done.await(remaining, TimeUnit.NANOSECONDS)) {
+                    throw StatementWatchdog.createCancellation(
+                            QueryCancelledException.TIMEOUT_STATE);
+                }
+            } catch(final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+
+                throw StatementWatchdog.createCancellation(
+                        QueryCancelledException.CANCELLED_STATE);
+            }
+        }
+
+        /**
+         * Returns the result for a single key, once the batch has been
+         * executed.
+         */
+        Object get(final Object key) throws Throwable {
+            if(failure != null) {
+                throw failure;
+            }
+
+            return results.get(key);
+        }
+
+    }
+
+}
@@ -12,6 +12,7 @@ import net.lemnik.eodsql.Select;
 import net.lemnik.eodsql.NoResultException;
 
 import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Execution;
 import net.lemnik.eodsql.spi.ResultSetResource;
 import net.lemnik.eodsql.spi.StatementResource;
 
@@ -48,6 +49,7 @@ class SelectIntoMethodImplementation extends AbstractMethodImplementation<Select
 
         query = Query.getQuery(queryString, paramTypes);
         parameterIndex = select.into() - 1;
+        timeout = select.timeout();
         
         final Class<?> parameterType = paramTypes[parameterIndex];
         binding = (DataObjectBinding<Object>)
@@ -65,22 +67,30 @@ class SelectIntoMethodImplementation extends AbstractMethodImplementation<Select
 
         final Connection connection = context.getResource(Connection.class).get();
         final PreparedStatement statement = connection.prepareStatement(
-                query.toString(),
+                getSql(context),
                 ResultSet.TYPE_FORWARD_ONLY,
                 ResultSet.CONCUR_READ_ONLY);
 
         statement.setMaxRows(1);
 
         context.setResource(new StatementResource(statement));
+        applyTimeout(statement);
 
         fillPreparedStatementParameters(context, statement);
 
+        final Execution execution = context.getExecution();
+        execution.mark(Execution.Phase.PREPARE);
+
         final ResultSet results = statement.executeQuery();
         context.setResource(new ResultSetResource(results));
+        execution.mark(Execution.Phase.EXECUTE);
 
         if(results.next()) {
             binding.unmarshall(results, into);
             context.setReturnValue(into);
+
+            execution.addRowsReturned(1);
+            execution.mark(Execution.Phase.FETCH);
         } else {
             throw new NoResultException();
         }
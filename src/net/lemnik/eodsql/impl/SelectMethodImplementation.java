@@ -2,23 +2,36 @@ package net.lemnik.eodsql.impl;
 
 import java.lang.reflect.Type;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 
 import java.sql.ResultSet;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.sql.PreparedStatement;
 
 import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
 
 import java.text.ParseException;
 
+import java.util.regex.Pattern;
+
+import net.lemnik.eodsql.DataSet;
 import net.lemnik.eodsql.DataIterator;
 import net.lemnik.eodsql.EoDException;
 import net.lemnik.eodsql.InvalidQueryException;
 import net.lemnik.eodsql.Select;
+import net.lemnik.eodsql.QueryTool;
+import net.lemnik.eodsql.TypeMapper;
+import net.lemnik.eodsql.SizeStrategy;
 
 import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Execution;
 import net.lemnik.eodsql.spi.MethodImplementation;
 import net.lemnik.eodsql.spi.MethodImplementationFactory;
+import net.lemnik.eodsql.spi.Resource;
 import net.lemnik.eodsql.spi.ResultSetResource;
 
 import net.lemnik.eodsql.spi.util.NoDataObjectBinding;
@@ -26,7 +39,13 @@ import net.lemnik.eodsql.spi.util.Query;
 import net.lemnik.eodsql.spi.util.ResultSetWrapper;
 import net.lemnik.eodsql.spi.util.DataIteratorWrapper;
 
+import net.lemnik.eodsql.spi.util.RowCounter;
 import net.lemnik.eodsql.spi.util.DataSetWrapper;
+import net.lemnik.eodsql.spi.util.DataObjectBinding;
+import net.lemnik.eodsql.spi.util.DataObjectBinding.BindingType;
+
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSource;
+import net.lemnik.eodsql.impl.BaseQueryImpl.ConnectionSourceConnectionResource;
 
 /**
  * Created on 2008/05/19
@@ -34,8 +53,48 @@ import net.lemnik.eodsql.spi.util.DataSetWrapper;
  */
 class SelectMethodImplementation extends AbstractMethodImplementation<Select> {
 
+    private static final Pattern ORDER_BY = Pattern.compile(
+            "\\bORDER\\s+BY\\b",
+            Pattern.CASE_INSENSITIVE);
+
     private final Integer fetchSize;
 
+    /**
+     * Chooses the fetch size of each invocation when the method has an
+     * adaptive fetch size, otherwise {@literal null}.
+     */
+    private final FetchSizeTuner fetchSizeTuner;
+
+    private final int pageSize;
+
+    private final int startAfter;
+
+    private final DataObjectBinding<Object> pageBinding;
+
+    private final String pageKeyColumn;
+
+    private final SizeStrategy sizeStrategy;
+
+    /**
+     * The caller's count query, or {@literal null} if the count query should
+     * be derived by wrapping the select.
+     */
+    private final Query countQuery;
+
+    private final TypeMapper<?>[] countMappers;
+
+    /**
+     * Fills in the {@code @Prefetch} fields of the returned data-objects, or
+     * {@literal null} if they have none.
+     */
+    private final Prefetcher prefetcher;
+
+    /**
+     * Assigns the lazy columns of the returned data-objects, or
+     * {@literal null} if they have none.
+     */
+    private final LazyLoader lazyLoader;
+
     SelectMethodImplementation(final Method method) throws ParseException {
         final Select select = method.getAnnotation(Select.class);
 
@@ -48,20 +107,196 @@ class SelectMethodImplementation extends AbstractMethodImplementation<Select> {
         query = Query.getQuery(queryString, method.getParameterTypes());
 
         setParameterMappers(select.parameterBindings());
+
+        maxListSize = select.maxListSize();
+        mergeableResults = isMergeable(method.getReturnType());
+        timeout = select.timeout();
         
+        if(select.countQuery().length() != 0) {
+            countQuery = Query.getQuery(
+                    select.countQuery(),
+                    method.getParameterTypes());
+
+            countMappers = getParameterTypeMappers(
+                    countQuery,
+                    select.parameterBindings());
+
+            sizeStrategy = SizeStrategy.COUNT;
+        } else {
+            countQuery = null;
+            countMappers = null;
+            sizeStrategy = select.sizeStrategy();
+
+            if(sizeStrategy == SizeStrategy.COUNT && isOrdered(queryString)) {
+                throw new InvalidQueryException("A Select with the COUNT " +
+                        "size strategy and an ORDER BY must have a " +
+                        "countQuery, an ordered query cannot be counted " +
+                        "as a sub-query.", method);
+            }
+        }
+
         final Map<String, Object> parameters =
                 extractReturnTypeMapperParameters(select);
 
+        parameters.put(ResultSetWrapper.PARAMETER_SIZE_STRATEGY, sizeStrategy);
+
         final Type returnType = method.getGenericReturnType();
         wrapper = ResultSetWrapper.get(returnType, parameters);
 
         if(returnType instanceof Class && !((Class)returnType).isArray()) {
             fetchSize = 1;
+            fetchSizeTuner = null;
         } else {
             fetchSize = select.fetchSize() != 0
                     ? select.fetchSize()
                     : null;
+
+            fetchSizeTuner = select.adaptiveFetchSize() &&
+                    isRowCountKnown(method.getReturnType(), select)
+                    ? new FetchSizeTuner(select.fetchSize())
+                    : null;
+        }
+
+        pageSize = select.pageSize();
+        startAfter = select.startAfter();
+
+        if(pageSize > 0) {
+            if(isOrdered(queryString)) {
+                throw new InvalidQueryException("A paginated Select may " +
+                        "not have an ORDER BY, it's pages are ordered by " +
+                        "their key.", method);
+            }
+
+            final Class<Object> type = getIteratorType(method);
+
+            pageBinding = DataObjectBinding.getDataObjectBinding(
+                    type,
+                    BindingType.NORMAL_BINDING);
+
+            final String[] keys = DataObjectBinding.getDataObjectBinding(
+                    type,
+                    BindingType.KEYS_BINDING).getKeyColumnNames();
+
+            if(keys.length != 1) {
+                throw new InvalidQueryException("A paginated Select " +
+                        "requires a data-object with exactly one " +
+                        "AutoGeneratedKeys column.", method);
+            }
+
+            pageKeyColumn = keys[0];
+        } else {
+            pageBinding = null;
+            pageKeyColumn = null;
         }
+
+        prefetcher = Prefetcher.create(method);
+        lazyLoader = LazyLoader.create(method);
+
+        validateStreamColumns(method, select);
+    }
+
+    /**
+     * Rejects a method whose return type reads ahead of the current row,
+     * or closes the {@code ResultSet} before it returns, if it returns any
+     * stream columns. A stream read from a {@code ResultSet} is only valid
+     * while it's row is current, so it may only be returned by a
+     * {@code DataIterator} or a connected {@code DataSet} that doesn't
+     * prefetch.
+     */
+    private static void validateStreamColumns(
+            final Method method,
+            final Select select)
+            throws InvalidQueryException {
+
+        final Class<?> returnType = method.getReturnType();
+
+        if((returnType == DataIterator.class && select.pageSize() == 0) ||
+                (DataSet.class.isAssignableFrom(returnType) &&
+                !select.disconnected() && select.prefetch() == 0)) {
+
+            return;
+        }
+
+        final Class<?> type;
+
+        if(returnType.isArray()) {
+            type = returnType.getComponentType();
+        } else if(returnType.getTypeParameters().length == 1) {
+            type = getElementType(method.getGenericReturnType());
+        } else {
+            type = returnType;
+        }
+
+        if(type == null || !hasStreamColumns(type)) {
+            return;
+        }
+
+        throw new InvalidQueryException("Stream columns may only be " +
+                "returned by a DataIterator or a connected DataSet that " +
+                "doesn't prefetch, a stream is only valid while it's row " +
+                "is current.", method);
+    }
+
+    private static Class<?> getElementType(final Type type) {
+        if(type instanceof ParameterizedType) {
+            final Type element = ((ParameterizedType)type).
+                    getActualTypeArguments()[0];
+
+            if(element instanceof Class) {
+                return (Class<?>)element;
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean hasStreamColumns(final Class<?> type) {
+        if(DefaultTypeMappers.Streams.isStream(type)) {
+            return true;
+        } else if(type.isPrimitive() ||
+                QueryTool.getTypeMap().containsKey(type)) {
+
+            return false;
+        }
+
+        final Class<?>[] columns;
+
+        try {
+            columns = DataObjectBinding.getDataObjectBinding(
+                    (Class<Object>)type,
+                    BindingType.NORMAL_BINDING).getColumnTypes();
+        } catch(final EoDException ee) {
+            // not a data-object, the wrapper has already accepted it
+            return false;
+        }
+
+        if(columns != null) {
+            for(final Class<?> column : columns) {
+                if(DefaultTypeMappers.Streams.isStream(column)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Object> getIteratorType(final Method method) {
+        final Type returnType = method.getGenericReturnType();
+
+        if(returnType instanceof ParameterizedType) {
+            final Type type = ((ParameterizedType)returnType).
+                    getActualTypeArguments()[0];
+
+            if(type instanceof Class) {
+                return (Class<Object>)type;
+            }
+        }
+
+        throw new InvalidQueryException("A paginated Select must return " +
+                "a DataIterator of a data-object class.", method);
     }
 
     private static Map<String, Object> extractReturnTypeMapperParameters(
@@ -104,23 +339,321 @@ class SelectMethodImplementation extends AbstractMethodImplementation<Select> {
         }
         
         parameters.put(DataSetWrapper.PARAMETER_CACHE_CLASS, select.cache());
+        parameters.put(DataSetWrapper.PARAMETER_PREFETCH, select.prefetch());
+        parameters.put(
+                DataSetWrapper.PARAMETER_SPILL_THRESHOLD,
+                select.spillThreshold());
+        parameters.put(DataSetWrapper.PARAMETER_KEY_COLUMNS, select.keyColumns());
 
         return parameters;
     }
 
     public void invoke(final Context<Select> context) throws Throwable {
+        if(invokeSplit(context)) {
+            return;
+        }
+
+        if(pageSize > 0) {
+            invokePaged(context);
+            return;
+        }
+
+        final Execution execution = context.getExecution();
         final PreparedStatement statement = createPreparedStatement(context);
+        final int size = getFetchSize();
 
-        if(fetchSize != null) {
-            statement.setFetchSize(fetchSize);
+        if(size != 0) {
+            statement.setFetchSize(size);
+            execution.setFetchSize(size);
         }
 
         fillPreparedStatementParameters(context, statement);
+        execution.mark(Execution.Phase.PREPARE);
 
         final ResultSet results = statement.executeQuery();
         context.setResource(new ResultSetResource(results));
+        execution.mark(Execution.Phase.EXECUTE);
+
+        if(sizeStrategy == SizeStrategy.COUNT) {
+            context.setResource(new CountResource(context));
+        }
 
         context.setReturnValue(wrapper.wrap(context));
+
+        if(lazyLoader != null) {
+            lazyLoader.attach(context);
+        }
+
+        if(prefetcher != null) {
+            prefetcher.prefetch(context);
+        }
+
+        final long rows = countRows(context.getReturnValue());
+        execution.addRowsReturned(rows);
+        execution.mark(Execution.Phase.FETCH);
+
+        if(fetchSizeTuner != null) {
+            fetchSizeTuner.record(rows);
+        }
+    }
+
+    /**
+     * Returns the fetch size to set on the statement of the next invocation,
+     * or {@literal 0} to leave it to the driver.
+     */
+    private int getFetchSize() {
+        if(fetchSizeTuner != null) {
+            return fetchSizeTuner.getFetchSize();
+        } else {
+            return fetchSize != null ? fetchSize : 0;
+        }
+    }
+
+    /**
+     * Returns whether all of the rows returned by an invocation are known
+     * when it returns, which is not the case for a {@code DataIterator} or a
+     * connected {@code DataSet}.
+     */
+    private static boolean isRowCountKnown(
+            final Class<?> returnType,
+            final Select select) {
+
+        if(DataIterator.class.isAssignableFrom(returnType)) {
+            return false;
+        } else if(DataSet.class.isAssignableFrom(returnType)) {
+            return select.disconnected();
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Counts the rows of a single invocation on the {@code Connection} it
+     * was selected on, and only when the count is first asked for. The
+     * {@code CountResource} keeps it's own copy of the invocation, since
+     * the original {@code Context} refers to the result being counted.
+     */
+    private class CountResource implements RowCounter, Resource<RowCounter> {
+
+        private final Context<Select> context;
+
+        private final Resource<Connection> connection;
+
+        private boolean closed = false;
+
+        CountResource(final Context<Select> context) {
+            this.context = new Context<Select>(
+                    context.getAnnotation(),
+                    context.getParameters(),
+                    context.getExecution());
+
+            this.connection = context.getResource(Connection.class);
+        }
+
+        public int count() throws SQLException {
+            if(connection.isClosed()) {
+                throw new IllegalStateException(
+                        "Resource " + Connection.class.getName() +
+                        " is already closed in this Context object.");
+            }
+
+            final Connection connection = this.connection.get();
+
+            final PreparedStatement statement = connection.prepareStatement(
+                    countQuery != null
+                    ? countQuery.toString(context, maxListSize)
+                    : "SELECT COUNT(*) FROM (" + getSql(context) + ") eodsql_count");
+
+            try {
+                StatementWatchdog.apply(statement, timeout);
+
+                if(countQuery != null) {
+                    fillPreparedStatementParameters(
+                            countQuery,
+                            countMappers,
+                            context,
+                            statement,
+                            0);
+                } else {
+                    fillPreparedStatementParameters(context, statement);
+                }
+
+                final ResultSet results = statement.executeQuery();
+
+                try {
+                    if(!results.next()) {
+                        throw new EoDException("The count query " +
+                                "returned no rows.");
+                    }
+
+                    return results.getInt(1);
+                } finally {
+                    results.close();
+                }
+            } finally {
+                statement.close();
+            }
+        }
+
+        public RowCounter get() {
+            return this;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        public void close() {
+            closed = true;
+        }
+
+        public Class<RowCounter> getResourceType() {
+            return RowCounter.class;
+        }
+
+    }
+
+    private void invokePaged(final Context<Select> context) throws SQLException {
+        final Resource<Connection> connection =
+                context.getResource(Connection.class);
+
+        if(!(connection instanceof ConnectionSourceConnectionResource)) {
+            throw new EoDException("A paginated DataIterator can only be " +
+                    "returned by a query object created by the QueryTool.");
+        }
+
+        final Object[] parameters = context.getParameters().clone();
+
+        context.setReturnValue(new PagedDataIterator<Object>(
+                this,
+                ((ConnectionSourceConnectionResource)connection).
+                getConnectionSource(),
+                new Context<Select>(context.getAnnotation(), parameters),
+                pageSize,
+                startAfter > 0 ? parameters[startAfter - 1] : null));
+    }
+
+    private String getPageSql(final Context<Select> context, final boolean after) {
+        final StringBuilder sql = new StringBuilder("SELECT * FROM (");
+        sql.append(getSql(context)).append(") eodsql_page");
+
+        if(after) {
+            sql.append(" WHERE ").append(pageKeyColumn).append(" > ?");
+        }
+
+        sql.append(" ORDER BY ").append(pageKeyColumn);
+        return sql.toString();
+    }
+
+    /**
+     * Reads a single page of a paginated Select. The {@code Connection} is
+     * taken from the given source and released before this method returns.
+     *
+     * @param source the source of the {@code Connection} to read on
+     * @param context the {@code Context} holding the method parameters
+     * @param afterKey the key of the last row of the previous page, or
+     *      {@literal null} to read the first page
+     * @return the rows of the page
+     * @throws SQLException if the page cannot be read
+     */
+    List<Object> readPage(
+            final ConnectionSource source,
+            final Context<Select> context,
+            final Object afterKey)
+            throws SQLException {
+
+        final Connection connection = source.getConnection();
+
+        try {
+            final PreparedStatement statement = connection.prepareStatement(
+                    getPageSql(context, afterKey != null),
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+
+            try {
+                StatementWatchdog.apply(statement, timeout);
+                statement.setMaxRows(pageSize);
+                statement.setFetchSize(fetchSize != null ? fetchSize : pageSize);
+
+                final int column = fillPreparedStatementParameters(
+                        context,
+                        statement,
+                        0);
+
+                if(afterKey != null) {
+                    DefaultTypeMappers.RuntimeTypeMapper.INSTANCE.set(
+                            statement,
+                            column,
+                            afterKey);
+                }
+
+                final ResultSet results = statement.executeQuery();
+                final List<Object> page = new ArrayList<Object>(pageSize);
+
+                try {
+                    while(results.next()) {
+                        page.add(pageBinding.unmarshall(results));
+                    }
+                } finally {
+                    results.close();
+                }
+
+                return page;
+            } finally {
+                statement.close();
+            }
+        } finally {
+            source.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Returns the key of a row read by {@link #readPage}, which the next
+     * page will start after.
+     */
+    Object getPageKey(final Object row) {
+        final Object key = pageBinding.getKey(row);
+
+        if(key == null) {
+            throw new EoDException("A paginated DataIterator cannot " +
+                    "continue after a row with a null key.");
+        }
+
+        return key;
+    }
+
+    /**
+     * Returns whether the given query is ordered by an {@code ORDER BY}
+     * outside of any brackets or quotes, which many databases will not
+     * accept in a sub-query.
+     */
+    private static boolean isOrdered(final String sql) {
+        final StringBuilder outer = new StringBuilder(sql.length());
+        char quote = 0;
+        int depth = 0;
+
+        for(int i = 0; i < sql.length(); i++) {
+            final char ch = sql.charAt(i);
+
+            if(quote != 0) {
+                if(ch == quote) {
+                    quote = 0;
+                }
+            } else if(ch == '\'' || ch == '"') {
+                quote = ch;
+            } else if(ch == '(') {
+                depth++;
+            } else if(ch == ')') {
+                depth--;
+            } else if(depth == 0) {
+                outer.append(ch);
+                continue;
+            }
+
+            outer.append(' ');
+        }
+
+        return ORDER_BY.matcher(outer).find();
     }
 
     static final class Factory implements MethodImplementationFactory<Select> {
@@ -140,18 +673,48 @@ class SelectMethodImplementation extends AbstractMethodImplementation<Select> {
 
             Query.validate(sql, method);
 
+            if(select.countQuery().length() != 0) {
+                Query.validate(select.countQuery(), method);
+            }
+
             if(select.disconnected() && !select.readOnly()) {
                 throw new InvalidQueryException(
                         "A disconnected Select may not be writable.",
                         method);
             }
 
+            if(select.spillThreshold() > 0 && !select.disconnected()) {
+                throw new InvalidQueryException(
+                        "Only a disconnected Select may have a " +
+                        "spillThreshold.", method);
+            }
+
             if(select.rubberstamp() && method.getReturnType() != DataIterator.class) {
                 throw new InvalidQueryException(
                         "A rubberstamping Select must return a " +
                         "DataIterator", method);
             }
 
+            if(select.pageSize() > 0) {
+                if(method.getReturnType() != DataIterator.class) {
+                    throw new InvalidQueryException(
+                            "A paginated Select must return a " +
+                            "DataIterator", method);
+                } else if(select.rubberstamp()) {
+                    throw new InvalidQueryException(
+                            "A paginated Select may not rubberstamp.",
+                            method);
+                }
+            }
+
+            if(select.startAfter() < 0 ||
+                    select.startAfter() > method.getParameterTypes().length) {
+
+                throw new InvalidQueryException(
+                        "The startAfter parameter index is out of bounds: " +
+                        select.startAfter(), method);
+            }
+
             ResultSetWrapper.validate(method.getGenericReturnType());
         }
 
@@ -0,0 +1,346 @@
+package net.lemnik.eodsql.impl;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+import net.lemnik.eodsql.QueryDeadline;
+import net.lemnik.eodsql.QueryCancelledException;
+
+/**
+ * <p>
+ * Applies timeouts to statements, and cancels those that are still running
+ * when their thread is interrupted or their {@link QueryDeadline} passes.
+ * Each invocation of a query method is {@link #begin() watched}, and each
+ * statement it creates is passed to {@link #apply(Statement, int)} before it
+ * is executed. A single background thread looks over the running
+ * invocations a few times a second, and invokes {@code Statement.cancel()}
+ * on the statements of any that should stop.
+ * </p><p>
+ * The JDBC driver reports a cancelled statement with an exception of it's
+ * own choosing, so {@link Watch#translate(SQLException)} replaces it with one
+ * carrying a standard SQLState, which {@link ExceptionTranslationUtils} turns
+ * into a {@link QueryCancelledException}. Only the exceptions created here
+ * (see {@link #isWatchdogCancellation(SQLException)}) are known to be
+ * cancellations that EoD SQL caused; any other is left to the
+ * {@link ExceptionTranslator}.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public final class StatementWatchdog {
+
+    /**
+     * How often the running invocations are checked.
+     */
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final ThreadLocal<Watch> CURRENT = new ThreadLocal<Watch>();
+
+    private static final ConcurrentMap<Watch, Boolean> RUNNING =
+            new ConcurrentHashMap<Watch, Boolean>();
+
+    private static Thread watchdog = null;
+
+    private StatementWatchdog() {
+    }
+
+    /**
+     * Starts watching the statements created by the current thread, until
+     * {@link Watch#end()} is invoked.
+     *
+     * @return the new {@code Watch}
+     */
+    public static Watch begin() {
+        final Watch watch = new Watch(CURRENT.get());
+        CURRENT.set(watch);
+        return watch;
+    }
+
+    /**
+     * Returns the {@code Watch} of the current thread, or {@literal null} if
+     * it's statements are not being watched.
+     */
+    static Watch current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Hands the statements created by the current thread to the
+     * {@code Watch} of another thread, which the current thread is doing
+     * part of the work of, until {@link #leave(Watch)} is invoked. The
+     * statements are cancelled when that {@code Watch} cancels it's own.
+     *
+     * @param watch the {@code Watch} to join, may be {@literal null}
+     * @return the {@code Watch} to pass to {@link #leave(Watch)}
+     */
+    static Watch join(final Watch watch) {
+        final Watch previous = CURRENT.get();
+        restore(watch);
+        return previous;
+    }
+
+    /**
+     * Stops handing the statements of the current thread to the
+     * {@code Watch} it {@link #join(Watch) joined}.
+     *
+     * @param previous the {@code Watch} returned by {@link #join(Watch)}
+     */
+    static void leave(final Watch previous) {
+        restore(previous);
+    }
+
+    private static void restore(final Watch watch) {
+        if(watch != null) {
+            CURRENT.set(watch);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * <p>
+     * Applies the timeout of a query method and the {@link QueryDeadline} of
+     * the current thread to a new statement, and hands it to the current
+     * {@code Watch} (if there is one) to be cancelled if need be.
+     * </p><p>
+     * If the current thread has already been interrupted, or it's deadline
+     * has already passed, the statement is not executed at all and an
+     * {@code SQLException} is thrown instead. The interrupt status of the
+     * thread is left as it is.
+     * </p>
+     *
+     * @param statement the statement that is about to be executed
+     * @param timeout the timeout of the query method in seconds, or
+     *      {@literal 0} for none
+     * @throws SQLException if the query should not be executed, or the
+     *      timeout could not be set
+     */
+    public static void apply(final Statement statement, final int timeout)
+            throws SQLException {
+
+        if(Thread.currentThread().isInterrupted()) {
+            throw createCancellation(QueryCancelledException.CANCELLED_STATE);
+        }
+
+        final long remaining = QueryDeadline.getRemaining(TimeUnit.NANOSECONDS);
+        int seconds = timeout;
+
+        if(remaining == 0) {
+            throw createCancellation(QueryCancelledException.TIMEOUT_STATE);
+        } else if(remaining > 0) {
+            // round up, a timeout of 0 would mean no timeout at all
+            final long left = (remaining + TimeUnit.SECONDS.toNanos(1) - 1) /
+                    TimeUnit.SECONDS.toNanos(1);
+
+            if(seconds <= 0 || left < seconds) {
+                seconds = (int)Math.min(left, Integer.MAX_VALUE);
+            }
+        }
+
+        if(seconds > 0) {
+            statement.setQueryTimeout(seconds);
+        }
+
+        final Watch watch = CURRENT.get();
+
+        if(watch != null) {
+            watch.add(statement, remaining > 0
+                    ? System.nanoTime() + remaining
+                    : 0);
+        }
+    }
+
+    /**
+     * Creates the exception that stands in for a query stopped because it's
+     * deadline passed or it's thread was interrupted.
+     *
+     * @param state {@link QueryCancelledException#TIMEOUT_STATE} or
+     *      {@link QueryCancelledException#CANCELLED_STATE}
+     */
+    static SQLException createCancellation(final String state) {
+        return new Cancellation(
+                QueryCancelledException.TIMEOUT_STATE.equals(state)
+                ? "The query deadline has passed"
+                : "The thread was interrupted",
+                state);
+    }
+
+    /**
+     * Returns whether the exception <var>ex</var> (or one of it's causes) was
+     * created by EoD SQL because the query deadline passed or the thread was
+     * interrupted, rather than reported by the database.
+     *
+     * @param ex the exception to check
+     * @return {@literal true} if EoD SQL cancelled the query itself
+     */
+    public static boolean isWatchdogCancellation(final SQLException ex) {
+        for(Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if(cause instanceof Cancellation) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static synchronized void startWatchdog() {
+        if(watchdog == null) {
+            watchdog = new Thread(new Watchdog(), "EoD SQL statement watchdog");
+            watchdog.setDaemon(true);
+            watchdog.start();
+        }
+    }
+
+    /**
+     * Marks the exceptions created for the queries that EoD SQL cancelled.
+     */
+    private static final class Cancellation extends SQLException {
+
+        Cancellation(final String reason, final String state) {
+            super(reason, state);
+        }
+
+    }
+
+    /**
+     * Checks the running invocations, and cancels those that should stop.
+     */
+    private static class Watchdog implements Runnable {
+
+        public void run() {
+            while(true) {
+                LockSupport.parkNanos(INTERVAL);
+
+                final long now = System.nanoTime();
+
+                for(final Watch watch : RUNNING.keySet()) {
+                    watch.check(now);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Watches the statements created by a single thread during a single
+     * query method invocation.
+     */
+    public static final class Watch {
+
+        private final Watch previous;
+
+        private final Thread thread = Thread.currentThread();
+
+        private final List<Statement> statements = new ArrayList<Statement>(2);
+
+        private boolean hasDeadline = false;
+
+        private long deadline = 0;
+
+        private boolean ended = false;
+
+        private volatile String cancelled = null;
+
+        Watch(final Watch previous) {
+            this.previous = previous;
+        }
+
+        synchronized void add(final Statement statement, final long deadline) {
+            if(ended) {
+                return;
+            }
+
+            statements.add(statement);
+
+            if(deadline != 0) {
+                this.hasDeadline = true;
+                this.deadline = deadline;
+            }
+
+            if(RUNNING.putIfAbsent(this, Boolean.TRUE) == null) {
+                startWatchdog();
+            }
+        }
+
+        synchronized void check(final long now) {
+            if(ended || cancelled != null) {
+                return;
+            }
+
+            if(thread.isInterrupted()) {
+                cancel(QueryCancelledException.CANCELLED_STATE);
+            } else if(hasDeadline && now - deadline >= 0) {
+                cancel(QueryCancelledException.TIMEOUT_STATE);
+            }
+        }
+
+        private void cancel(final String state) {
+            cancelled = state;
+
+            for(final Statement statement : statements) {
+                try {
+                    statement.cancel();
+                } catch(final SQLException sqle) {
+                    // the statement has finished, or can't be cancelled
+                }
+            }
+        }
+
+        /**
+         * Returns whether the statements of this {@code Watch} were
+         * cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled != null;
+        }
+
+        /**
+         * Replaces an exception thrown while this {@code Watch} was
+         * cancelling it's statements with one that says why they were
+         * cancelled. Any other exception is returned as it is.
+         *
+         * @param exception the exception thrown by the JDBC driver
+         * @return the exception to throw in it's place
+         */
+        public SQLException translate(final SQLException exception) {
+            final String state = cancelled;
+
+            if(state == null || isWatchdogCancellation(exception)) {
+                return exception;
+            }
+
+            final SQLException translated = createCancellation(state);
+
+            translated.initCause(exception);
+            return translated;
+        }
+
+        /**
+         * Stops watching the statements of this invocation. Once this
+         * method returns, none of them will be cancelled.
+         */
+        public void end() {
+            synchronized(this) {
+                ended = true;
+                statements.clear();
+            }
+
+            RUNNING.remove(this);
+
+            if(CURRENT.get() == this) {
+                restore(previous);
+            }
+        }
+
+    }
+
+}
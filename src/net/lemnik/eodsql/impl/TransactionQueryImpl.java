@@ -43,6 +43,13 @@ class TransactionQueryImpl extends BaseQueryImpl {
         addTransactionMethods();
     }
 
+    @Override
+    protected boolean isCoalescingSupported() {
+        // a transaction must see it's own changes, so may not share
+        // the queries of other threads
+        return false;
+    }
+
     @Override
     protected Context<Annotation> createContext(Annotation annotation, final Object[] args)
     {
@@ -17,6 +17,7 @@ import net.lemnik.eodsql.GeneratedKeys;
 import net.lemnik.eodsql.InvalidQueryException;
 
 import net.lemnik.eodsql.spi.Context;
+import net.lemnik.eodsql.spi.Execution;
 import net.lemnik.eodsql.spi.ResultSetResource;
 import net.lemnik.eodsql.spi.StatementResource;
 import net.lemnik.eodsql.spi.MethodImplementation;
@@ -34,7 +35,7 @@ import static net.lemnik.eodsql.spi.util.DataSetWrapper.*;
  */
 class UpdateMethodImplementation extends AbstractMethodImplementation<Update> {
 
-    private final GeneratedKeys keys;
+    protected final GeneratedKeys keys;
 
     UpdateMethodImplementation(final Method method) throws ParseException {
         final Update update = method.getAnnotation(Update.class);
@@ -50,6 +51,11 @@ class UpdateMethodImplementation extends AbstractMethodImplementation<Update> {
         query = Query.getQuery(queryString, getParameterTypes(method));
 
         setParameterMappers(update.parameterBindings());
+
+        maxListSize = update.maxListSize();
+        timeout = update.timeout();
+        mergeableResults = keys == GeneratedKeys.NO_KEYS_RETURNED ||
+                isMergeable(method.getReturnType());
         
         final Map<String, Object> parameters =
                 extractReturnTypeMapperParameters(update);
@@ -80,39 +86,75 @@ class UpdateMethodImplementation extends AbstractMethodImplementation<Update> {
     }
 
     public void invoke(final Context<Update> context) throws Throwable {
+        if(invokeSplit(context)) {
+            return;
+        }
+
         final Connection connection = context.
                 getResource(Connection.class).get();
         
-        PreparedStatement statement = null;
-
-        switch(keys) {
-            case RETURNED_KEYS_COLUMNS_SPECIFIED:
-                statement = connection.prepareStatement(
-                        query.toString(),
-                        wrapper.getKeyColumnNames());
-                break;
-            case RETURNED_KEYS_DRIVER_DEFINED:
-            // fallthrough
-            case RETURNED_KEYS_FIRST_COLUMN:
-                statement = connection.prepareStatement(
-                        query.toString(),
-                        PreparedStatement.RETURN_GENERATED_KEYS);
-                break;
-            case NO_KEYS_RETURNED:
-            default:
-                statement = connection.prepareStatement(query.toString());
-        }
+        final PreparedStatement statement = prepareStatement(
+                connection,
+                getSql(context));
 
         context.setResource(new StatementResource(statement));
 
         update(statement, context);
 
+        final int count = statement.getUpdateCount();
+        final Execution execution = context.getExecution();
+        execution.addRowsAffected(count);
+
         if(keys != GeneratedKeys.NO_KEYS_RETURNED) {
             final ResultSet results = statement.getGeneratedKeys();
             context.setResource(new ResultSetResource(results));
             context.setReturnValue(wrapper.wrap(context));
+            execution.mark(Execution.Phase.FETCH);
         } else {
-            context.setReturnValue(Integer.valueOf(statement.getUpdateCount()));
+            context.setReturnValue(Integer.valueOf(count));
+        }
+    }
+
+    /**
+     * Prepares the given SQL on the {@code Connection}, requesting the generated
+     * keys in the form specified by the {@code keys} attribute of the
+     * {@code Update} annotation, and applies the timeout of this method to it.
+     *
+     * @param connection the {@code Connection} to prepare the statement on
+     * @param sql the JDBC SQL to prepare
+     * @return the new {@code PreparedStatement}
+     * @throws SQLException if the statement could not be prepared
+     */
+    protected PreparedStatement prepareStatement(
+            final Connection connection,
+            final String sql)
+            throws SQLException {
+
+        final PreparedStatement statement = createStatement(connection, sql);
+        applyTimeout(statement);
+
+        return statement;
+    }
+
+    private PreparedStatement createStatement(
+            final Connection connection,
+            final String sql)
+            throws SQLException {
+
+        switch(keys) {
+            case RETURNED_KEYS_COLUMNS_SPECIFIED:
+                return connection.prepareStatement(
+                        sql,
+                        wrapper.getKeyColumnNames());
+            case RETURNED_KEYS_DRIVER_DEFINED:
+            // fallthrough
+            case RETURNED_KEYS_FIRST_COLUMN:
+                return connection.prepareStatement(
+                        sql,
+                        PreparedStatement.RETURN_GENERATED_KEYS);
+            case NO_KEYS_RETURNED:
+            default:
+                return connection.prepareStatement(sql);
         }
     }
 
@@ -121,8 +163,13 @@ class UpdateMethodImplementation extends AbstractMethodImplementation<Update> {
             final Context<Update> context)
             throws SQLException {
 
+        final Execution execution = context.getExecution();
+
         fillPreparedStatementParameters(context, statement);
+        execution.mark(Execution.Phase.PREPARE);
+
         statement.executeUpdate();
+        execution.mark(Execution.Phase.EXECUTE);
     }
 
     static final class Factory implements MethodImplementationFactory<Update> {
@@ -141,19 +188,21 @@ class UpdateMethodImplementation extends AbstractMethodImplementation<Update> {
                         "Select annotation", method);
             }
 
-            if(update.keys() == GeneratedKeys.NO_KEYS_RETURNED &&
-                    (method.getReturnType() != Void.TYPE ||
-                    method.getReturnType() == Integer.TYPE ||
-                    method.getReturnType() == Integer.class)) {
-
-                throw new InvalidQueryException("An Update method returning " +
-                        "GeneratedKeys.NO_KEYS_RETURNED must have a return " +
-                        "type of void or int.", method);
-            }
-
             if(update.batchUpdate()) {
                 BatchUpdateMethodImplementation.createParameterViewFactories(
                         method);
+                BatchUpdateMethodImplementation.validateReturnType(method);
+            } else if(update.keys() == GeneratedKeys.NO_KEYS_RETURNED) {
+                final Class<?> returnType = method.getReturnType();
+
+                if(returnType != Void.TYPE &&
+                        returnType != Integer.TYPE &&
+                        returnType != Integer.class) {
+
+                    throw new InvalidQueryException("An Update method " +
+                            "returning GeneratedKeys.NO_KEYS_RETURNED must " +
+                            "have a return type of void or int.", method);
+                }
             }
 
             Query.validate(sql, method);
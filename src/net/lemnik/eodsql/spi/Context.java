@@ -1,5 +1,7 @@
 package net.lemnik.eodsql.spi;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -10,6 +12,7 @@ import java.util.ListIterator;
 import java.util.Map;
 
 import net.lemnik.eodsql.DataSet;
+import net.lemnik.eodsql.LeakDetector;
 
 /**
  * <p>
@@ -30,6 +33,15 @@ import net.lemnik.eodsql.DataSet;
  * The {@code Context} object also stores the return-value
  * that will be returned from the invoked method. This value
  * may be changed any number of times during a single method call.
+ * </p><p>
+ * Each {@code Context} holds the {@link Execution} that measures it's
+ * method call. A child {@code Context} shares the {@code Execution} of it's
+ * parent.
+ * </p><p>
+ * A {@code Context} that is not in auto-close mode should be
+ * {@link #track(Object) tracked} against the object that will close it, so
+ * that the {@link LeakDetector} can reclaim it's resources if that object is
+ * garbage collected without being closed.
  * </p>
  * 
  * @param <A> the annotation type decorating the method that is being invoked
@@ -46,16 +58,22 @@ public class Context<A extends Annotation> {
 
     private final Object[] parameters;
 
+    private final Execution execution;
+
     private Object returnValue = null;
 
     private boolean autoclose = true;
 
     private boolean dontCloseConnection = false;
 
+    private boolean connectionReclaimable = true;
+
     private boolean closed = false;
     
     private final boolean childContext;
 
+    private Object tracker = null;
+
     /**
      * <p>
      * Create a new {@code Context} object with a specified annotation and an array of
@@ -73,10 +91,29 @@ public class Context<A extends Annotation> {
      * @param parameters the parameters passed to the method being invoked
      */
     public Context(final A annotation, final Object[] parameters) {
+        this(annotation, parameters, new Execution());
+    }
+
+    /**
+     * Create a new {@code Context} object that adds to the measurements of
+     * an existing {@link Execution}, such as that of another {@code Context}
+     * which is executed in several parts.
+     *
+     * @param annotation the annotation containing the methods invocation details
+     * @param parameters the parameters passed to the method being invoked
+     * @param execution the {@code Execution} measuring the method invocation
+     * @since 2.2
+     */
+    public Context(
+            final A annotation,
+            final Object[] parameters,
+            final Execution execution) {
+
         this.annotation = annotation;
         this.parameters = parameters != null
                 ? parameters
                 : EMPTY_PARAMETERS;
+        this.execution = execution;
         this.childContext = false;
     }
 
@@ -116,17 +153,10 @@ public class Context<A extends Annotation> {
         this.resources.putAll(parentContext.resources);
         this.parameters = newParameters;
         this.autoclose = parentContext.autoclose;
+        this.execution = parentContext.execution;
         this.childContext = true;
     }
 
-    @Override
-    protected void finalize() throws Exception {
-        if (autoclose)
-        {
-            close();
-        }
-    }
-
     /**
      * Returns the annotation that was specified in the constructor. This method may
      * return {@literal null} if no annotation was specified.
@@ -147,6 +177,16 @@ public class Context<A extends Annotation> {
         return parameters;
     }
 
+    /**
+     * Returns the {@code Execution} measuring this method invocation.
+     *
+     * @return the {@code Execution} of this {@code Context}
+     * @since 2.2
+     */
+    public Execution getExecution() {
+        return execution;
+    }
+
     /**
      * Returns the current value that is expected to be returned from this {@code Context}.
      * Sine a {@code Context} represents the internals of a method invocation, this value
@@ -256,11 +296,72 @@ public class Context<A extends Annotation> {
         this.dontCloseConnection = closeExceptConnection;
     }
     
+    /**
+     * Sets whether the {@code Connection} of this {@code Context} may be
+     * closed by the {@link LeakDetector} when it's owner is leaked. A
+     * {@code Connection} that can only be released by the thread that took
+     * it must not be, since the {@code LeakDetector} reclaims resources on
+     * it's own thread. The default is {@literal true}.
+     *
+     * @param connectionReclaimable whether the {@code Connection} may be
+     *      closed by another thread
+     * @since 2.2
+     */
+    public void setConnectionReclaimable(final boolean connectionReclaimable) {
+        this.connectionReclaimable = connectionReclaimable;
+    }
+
+    /**
+     * Returns whether the {@code Connection} of this {@code Context} may be
+     * closed by the {@link LeakDetector}.
+     *
+     * @since 2.2
+     */
+    public boolean isConnectionReclaimable() {
+        return connectionReclaimable;
+    }
+
     private final boolean isConnectionResource(Resource<?> r)
     {
 	return r.getResourceType() == Connection.class;
     }
 
+    /**
+     * <p>
+     * Tracks the resources of this {@code Context} against the object that
+     * will {@link #close() close} it, such as a
+     * {@link net.lemnik.eodsql.DataIterator}. If the {@code owner} is garbage
+     * collected while this {@code Context} is still open, the
+     * {@link LeakDetector} closes the resources it holds now. This method is
+     * a no-op on a closed or child {@code Context}, or one that is already
+     * tracked.
+     * </p>
+     *
+     * @param owner the object responsible for closing this {@code Context}
+     * @since 2.2
+     */
+    public void track(final Object owner) {
+        if(closed || childContext || tracker != null) {
+            return;
+        }
+
+        final List<Resource<?>> values = new ArrayList<Resource<?>>(
+                resources.size());
+
+        for(final Resource<?> r : resources.values()) {
+            if(!((dontCloseConnection || !connectionReclaimable) &&
+                    isConnectionResource(r))) {
+
+                values.add(r);
+            }
+        }
+
+        tracker = LeakDetector.track(
+                owner,
+                execution.getSql(),
+                new ResourceReclaimer(values));
+    }
+
     /**
      * Explicitly close this {@code Context}. This method needs to be invoked to close any
      * remaining {@code Resource}s that this {@code Context} still holds if the {@code Context}
@@ -275,6 +376,11 @@ public class Context<A extends Annotation> {
         if(!closed && !childContext) {
             closed = true;
 
+            if(tracker != null) {
+                LeakDetector.untrack(tracker);
+                tracker = null;
+            }
+
             // we want to iterate through the values in reverse
             final List<Resource<?>> values = new ArrayList<Resource<?>>(
                     resources.values());
@@ -299,4 +405,52 @@ public class Context<A extends Annotation> {
         }
     }
 
+    /**
+     * Closes a copy of the resources of a tracked {@code Context}, without
+     * referring to the {@code Context} itself (which may refer to it's owner
+     * through it's return value).
+     */
+    private static class ResourceReclaimer implements Closeable {
+
+        private final List<Resource<?>> values;
+
+        ResourceReclaimer(final List<Resource<?>> values) {
+            this.values = values;
+        }
+
+        public void close() throws IOException {
+            Exception failure = null;
+
+            final ListIterator<Resource<?>> iterator =
+                    values.listIterator(values.size());
+
+            // close as many of the resources as we can, even if some fail
+            while(iterator.hasPrevious()) {
+                final Resource<?> r = iterator.previous();
+
+                try {
+                    if(!r.isClosed()) {
+                        r.close();
+                    }
+                } catch(final SQLException sqle) {
+                    if(failure == null) {
+                        failure = sqle;
+                    }
+                } catch(final RuntimeException re) {
+                    if(failure == null) {
+                        failure = re;
+                    }
+                }
+            }
+
+            if(failure != null) {
+                final IOException ioe = new IOException(
+                        "Could not reclaim every resource");
+                ioe.initCause(failure);
+                throw ioe;
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,208 @@
+package net.lemnik.eodsql.spi;
+
+/**
+ * <p>
+ * Measures a single invocation of a query method. Each {@link Context} holds
+ * an {@code Execution}, and as the {@link MethodImplementation} works through
+ * an invocation it {@link #mark(Phase) marks} the end of each
+ * {@link Phase phase}. The time since the previous mark (or since the
+ * invocation started) is added to the phase being marked, so a phase that is
+ * marked several times (such as the chunks of a batch) accumulates all of
+ * it's time, and a phase that is never marked takes no time at all.
+ * </p><p>
+ * The {@code Execution} also counts the rows returned and affected by the
+ * invocation where they are known, and remembers the SQL that was last
+ * prepared for it. An {@code Execution} is not thread-safe, and should only
+ * be used by the thread that is invoking the method.
+ * </p><p>
+ * A {@link Listener} may be set to follow the phases of the invocation as
+ * they are marked, for example to trace them in a profiler.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see net.lemnik.eodsql.QueryMetrics
+ */
+public class Execution {
+
+    /**
+     * The phases of a query method invocation, in the order they normally
+     * happen.
+     */
+    public static enum Phase {
+        /**
+         * Taking a {@code Connection} from the {@code DataSource}, or waiting
+         * for the {@code Connection} of the query object.
+         */
+        CONNECTION,
+        /**
+         * Preparing the statement, and binding it's parameters.
+         */
+        PREPARE,
+        /**
+         * Executing the statement in the database.
+         */
+        EXECUTE,
+        /**
+         * Reading the results, and unmarshalling them into the return type.
+         */
+        FETCH,
+        /**
+         * Closing the statement and releasing the {@code Connection}.
+         */
+        CLOSE
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long started = System.nanoTime();
+
+    private final long[] times = new long[PHASES.length];
+
+    private long marked = started;
+
+    private long rowsReturned = 0;
+
+    private long rowsAffected = 0;
+
+    private String sql = null;
+
+    private int fetchSize = 0;
+
+    private Listener listener = null;
+
+    /**
+     * Adds the time since the previous mark to the given phase.
+     *
+     * @param phase the phase that has just ended
+     */
+    public void mark(final Phase phase) {
+        final long now = System.nanoTime();
+        times[phase.ordinal()] += now - marked;
+        marked = now;
+
+        if(listener != null) {
+            listener.marked(this, phase);
+        }
+    }
+
+    /**
+     * Sets the {@code Listener} told of each phase as it is marked, or
+     * {@literal null} to remove it.
+     */
+    public void setListener(final Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the time spent in a single phase, in nanoseconds.
+     *
+     * @param phase the phase to return the time of
+     * @return the time marked against the phase
+     */
+    public long getTime(final Phase phase) {
+        return times[phase.ordinal()];
+    }
+
+    /**
+     * Returns the time from the start of the invocation to the most recent
+     * mark, in nanoseconds.
+     */
+    public long getTotalTime() {
+        return marked - started;
+    }
+
+    /**
+     * Returns the value of {@code System.nanoTime()} when the invocation
+     * started.
+     */
+    public long getStartTime() {
+        return started;
+    }
+
+    /**
+     * Adds to the number of rows returned by the invocation.
+     *
+     * @param rows the number of rows read
+     */
+    public void addRowsReturned(final long rows) {
+        rowsReturned += rows;
+    }
+
+    /**
+     * Returns the number of rows returned by the invocation, or
+     * {@literal 0} if they are not known (for example: those of a
+     * {@link net.lemnik.eodsql.DataIterator} are only read after the
+     * invocation returns).
+     */
+    public long getRowsReturned() {
+        return rowsReturned;
+    }
+
+    /**
+     * Adds to the number of rows affected by the invocation. Negative counts,
+     * such as {@code Statement.SUCCESS_NO_INFO}, are ignored.
+     *
+     * @param rows the update count reported by the driver
+     */
+    public void addRowsAffected(final long rows) {
+        if(rows > 0) {
+            rowsAffected += rows;
+        }
+    }
+
+    /**
+     * Returns the number of rows affected by the invocation, as reported by
+     * the driver.
+     */
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    /**
+     * Sets the JDBC SQL that was prepared for the invocation.
+     */
+    public void setSql(final String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Returns the JDBC SQL that was last prepared for the invocation, or
+     * {@literal null} if no statement has been prepared.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Sets the fetch size that was set on the statement of the invocation.
+     */
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns the fetch size that was set on the statement of the
+     * invocation, or {@literal 0} if it was left to the driver.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Follows the phases of an {@code Execution} as they are marked.
+     */
+    public static interface Listener {
+
+        /**
+         * Invoked on the invoking thread each time a phase is marked, once
+         * the time of the phase has been added.
+         *
+         * @param execution the {@code Execution} that was marked
+         * @param phase the phase that has just ended
+         */
+        public void marked(Execution execution, Phase phase);
+
+    }
+
+}
@@ -7,8 +7,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
 
 import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.SizeStrategy;
 import net.lemnik.eodsql.InvalidDataTypeException;
 
 import net.lemnik.eodsql.spi.util.DataObjectBinding.BindingType;
@@ -40,6 +43,14 @@ import net.lemnik.eodsql.spi.util.DataObjectBinding.BindingType;
  * </ol>
  *
  * <p>
+ * If the {@link SizeStrategy} is anything other than
+ * {@link SizeStrategy#LAST_ROW}, the {@code ArrayWrapper} asks for a
+ * forward-only {@code ResultSet} and always reads it forwards into an
+ * expanding array, so that a driver emulating a scrollable
+ * {@code ResultSet} never needs to hold the rows.
+ * </p>
+ *
+ * <p>
  * Created on 2008/06/30
  * </p>
  * @author Jason Morris
@@ -55,8 +66,36 @@ class ArrayWrapper extends AbstractResultSetWrapper<Object, Object> {
      */
     private boolean useSlowWrap = false;
 
+    /**
+     * This field is set to {@literal true} if the size of the array should
+     * not be found by scrolling to the last row.
+     */
+    private final boolean forwardOnly;
+
     ArrayWrapper(final DataObjectBinding<Object> binding) {
+        this(binding, false);
+    }
+
+    ArrayWrapper(
+            final DataObjectBinding<Object> binding,
+            final boolean forwardOnly) {
+
         super(binding);
+        this.forwardOnly = forwardOnly;
+    }
+
+    /**
+     * Reads a {@code ResultSet} that is known to be before it's first row
+     * forwards into an expanding array.
+     */
+    private Object forwardWrap(final ResultSet results) throws SQLException {
+        final ExpandingArray array = new ExpandingArray();
+
+        while(results.next()) {
+            array.add(binding.unmarshall(results));
+        }
+
+        return array.toArray();
     }
 
     /**
@@ -70,6 +109,17 @@ class ArrayWrapper extends AbstractResultSetWrapper<Object, Object> {
     private Object slowWrap(final ResultSet results) throws SQLException {
         useSlowWrap = true;
 
+        return readForwards(results);
+    }
+
+    /**
+     * Reads the array as {@link #slowWrap(java.sql.ResultSet)} does, but
+     * without switching every later call to the slow path.
+     *
+     * @param results the {@code ResultSet} to wrap
+     * @return the unwrapped array object
+     */
+    private Object readForwards(final ResultSet results) throws SQLException {
         try {
             if(!results.isBeforeFirst() && !results.isFirst()) {
                 try {
@@ -114,9 +164,38 @@ class ArrayWrapper extends AbstractResultSetWrapper<Object, Object> {
         return array.toArray();
     }
 
+    @Override
+    public int getPreferredResultSetType() {
+        return forwardOnly
+                ? ResultSet.TYPE_FORWARD_ONLY
+                : super.getPreferredResultSetType();
+    }
+
+    /**
+     * Reads every row into a {@code List} which is grouped by the binding
+     * before it is copied into the array.
+     */
+    private Object groupWrap(final ResultSet results) throws SQLException {
+        final List<Object> rows = new ArrayList<Object>();
+
+        while(results.next()) {
+            rows.add(binding.unmarshall(results));
+        }
+
+        final List<Object> grouped = binding.group(rows);
+
+        return grouped.toArray((Object[])Array.newInstance(
+                binding.getObjectType(),
+                grouped.size()));
+    }
+
     @Override
     public Object wrap(final ResultSet results) throws SQLException {
-        if(useSlowWrap) {
+        if(binding.isGrouping()) {
+            return groupWrap(results);
+        } else if(forwardOnly) {
+            return forwardWrap(results);
+        } else if(useSlowWrap) {
             return slowWrap(results);
         }
 
@@ -142,14 +221,46 @@ class ArrayWrapper extends AbstractResultSetWrapper<Object, Object> {
         final Object array = Array.newInstance(binding.getObjectType(), length);
 
         int index = length;
+        boolean more;
 
         do {
-            Array.set(array, --index, binding.unmarshall(results));
-        } while(results.previous());
+            try {
+                Array.set(array, --index, binding.unmarshall(results));
+            } catch(final SQLException sqle) {
+                if(!isInvalidCursorState(sqle)) {
+                    // errors from the binding are real, and are thrown as
+                    // they are
+                    throw sqle;
+                }
+
+                // the driver moved the cursor but left it off the rows
+                return readForwards(results);
+            }
+
+            try {
+                more = results.previous();
+            } catch(final SQLException sqle) {
+                // some drivers report a scrollable ResultSet (typically for
+                // generated keys) but fail to navigate it backwards, this
+                // one is read forwards without giving up on the next
+                return readForwards(results);
+            }
+        } while(more);
 
         return array;
     }
 
+    /**
+     * Returns whether the given exception reports that the
+     * {@code ResultSet} was not on a row (SQLState class {@literal 24}),
+     * rather than that the row could not be read.
+     */
+    private static boolean isInvalidCursorState(final SQLException sqle) {
+        final String state = sqle.getSQLState();
+
+        return state != null && state.startsWith("24");
+    }
+
     /**
      * We use this class as a sort of an ArrayList. This class maintains
      * an array of the type we are going to return from
@@ -226,14 +337,18 @@ class ArrayWrapper extends AbstractResultSetWrapper<Object, Object> {
 
             final Class arrayType = (Class)genericType;
 
+            final boolean forwardOnly =
+                    parameters.containsKey(PARAMETER_SIZE_STRATEGY) &&
+                    parameters.get(PARAMETER_SIZE_STRATEGY) != SizeStrategy.LAST_ROW;
+
             if (parameters.containsKey(PARAMETER_CUSTOM_DATA_OBJECT_BINDING)) {
                 final DataObjectBinding<Object> 
                     binding = (DataObjectBinding<Object>) parameters.get(PARAMETER_CUSTOM_DATA_OBJECT_BINDING);
                 binding.setObjectType(arrayType.getComponentType());
-                return new ArrayWrapper(binding);
+                return new ArrayWrapper(binding, forwardOnly);
             } else {
             return new ArrayWrapper(DataObjectBinding.getDataObjectBinding(
-                    arrayType.getComponentType(), bindingType));
+                    arrayType.getComponentType(), bindingType), forwardOnly);
         }
         }
 
@@ -222,6 +222,13 @@ class CollectionWrapperFactory implements ResultSetWrapper.Factory {
 
         @Override
         protected T wrap(final ResultSet results) throws SQLException {
+            if(binding.isGrouping()) {
+                return newCollectionInstance(binding.group(
+                        new ArrayList<Object>(new ResultSetCollection<Object>(
+                        results,
+                        binding))));
+            }
+
             return newCollectionInstance(new ResultSetCollection<Object>(
                     results,
                     binding));
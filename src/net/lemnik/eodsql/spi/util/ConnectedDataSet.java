@@ -13,6 +13,7 @@ import java.util.NoSuchElementException;
 
 import net.lemnik.eodsql.DataSet;
 import net.lemnik.eodsql.DataSetCache;
+import net.lemnik.eodsql.SizeStrategy;
 
 import net.lemnik.eodsql.spi.Context;
 import net.lemnik.eodsql.spi.Resource;
@@ -23,6 +24,12 @@ import net.lemnik.eodsql.spi.Resource;
  */
 class ConnectedDataSet<T> implements DataSet<T> {
 
+    /**
+     * The smallest block that will be prefetched, which is also the size of
+     * the first block.
+     */
+    private static final int MIN_BLOCK_SIZE = 4;
+
     protected final Context context;
 
     protected final ResultSet results;
@@ -35,15 +42,81 @@ class ConnectedDataSet<T> implements DataSet<T> {
 
     private boolean disconnected = false;
 
+    private final SizeStrategy sizeStrategy;
+
+    /**
+     * Counts the rows without scrolling the {@code ResultSet}, if the
+     * {@code MethodImplementation} gave us one.
+     */
+    private final RowCounter counter;
+
+    /**
+     * The largest block of rows read on a single miss, if this is
+     * {@literal 1} each row is read as it is asked for.
+     */
+    private final int maxBlockSize;
+
+    private int blockSize;
+
+    /**
+     * The most recently prefetched block of rows, which starts at row
+     * {@link #blockStart} and holds {@link #blockLength} rows.
+     */
+    private Object[] block = null;
+
+    private int blockStart = 0;
+
+    private int blockLength = 0;
+
+    /**
+     * The last index passed to {@link #get(int)}, used to detect the
+     * direction the {@code DataSet} is being walked in.
+     */
+    private int lastIndex = -1;
+
+    private String[] keyColumns = null;
+
+    /**
+     * Built by the first key lookup, and dropped if the {@code ResultSet}
+     * is changed.
+     */
+    private KeyIndex keyIndex = null;
+
     /** Creates a new instance of ConnectedDataSet */
     public ConnectedDataSet(
             final DataObjectBinding<T> binding,
             final Context<?> context,
             final DataSetCache<T> cache) {
 
+        this(binding, context, cache, 0, SizeStrategy.LAST_ROW);
+    }
+
+    /**
+     * Creates a new {@code ConnectedDataSet} that reads blocks of up to
+     * {@code prefetch} rows each time a row is requested that has not
+     * already been read, and finds it's size with the given
+     * {@code SizeStrategy}.
+     */
+    public ConnectedDataSet(
+            final DataObjectBinding<T> binding,
+            final Context<?> context,
+            final DataSetCache<T> cache,
+            final int prefetch,
+            final SizeStrategy sizeStrategy) {
+
         this.binding = binding;
         this.context = context;
         this.cache = cache;
+        this.sizeStrategy = sizeStrategy;
+        this.maxBlockSize = Math.max(1, prefetch);
+        this.blockSize = Math.min(MIN_BLOCK_SIZE, maxBlockSize);
+
+        final Resource<RowCounter> counterResource =
+                context.getResource(RowCounter.class);
+
+        this.counter = counterResource != null
+                ? counterResource.get()
+                : null;
 
         final Resource<ResultSet> resultsResource =
                 context.getResource(ResultSet.class);
@@ -57,9 +130,33 @@ class ConnectedDataSet<T> implements DataSet<T> {
         this.size = size;
     }
 
+    /**
+     * Sets the columns that {@link #getByKey(Object[])} looks rows up by,
+     * {@literal null} or an empty array for the key columns of the
+     * data-object.
+     */
+    void setKeyColumns(final String[] keyColumns) {
+        this.keyColumns = keyColumns;
+    }
+
+    private void clearPrefetch() {
+        block = null;
+        blockLength = 0;
+    }
+
+    /**
+     * Discards the prefetched block and the key index, for use when the
+     * underlying {@code ResultSet} has been changed.
+     */
+    protected void resultsChanged() {
+        clearPrefetch();
+        keyIndex = null;
+    }
+
     public void close() {
         try {
             if(!disconnected) {
+                clearPrefetch();
                 cache.destroy();
                 cache = null;
 
@@ -92,7 +189,40 @@ class ConnectedDataSet<T> implements DataSet<T> {
     }
 
     public boolean isEmpty() {
-        return size() == 0;
+        return !hasRow(0);
+    }
+
+    /**
+     * Returns whether the given row exists. Unless the size is found by
+     * scrolling to the last row, this looks for the row itself rather than
+     * finding the size.
+     */
+    private boolean hasRow(final int index) {
+        if(size != null || sizeStrategy == SizeStrategy.LAST_ROW) {
+            return index < size();
+        }
+
+        if(block != null &&
+                index >= blockStart && index < blockStart + blockLength) {
+
+            return true;
+        }
+
+        try {
+            // reading the row means the following get() will find it
+            get(index);
+            return true;
+        } catch(final IndexOutOfBoundsException ioobe) {
+            // if we have just read the row before, it was the last row
+            if(index == 0 || (block != null &&
+                    index - 1 >= blockStart &&
+                    index - 1 < blockStart + blockLength)) {
+
+                size = index;
+            }
+
+            return false;
+        }
     }
 
     public T get(final int index) {
@@ -106,27 +236,178 @@ class ConnectedDataSet<T> implements DataSet<T> {
             value = cache.getObject(index);
         }
 
+        if(value == null && block != null &&
+                index >= blockStart && index < blockStart + blockLength) {
+
+            value = getBlockRow(index);
+            cache.setObject(index, value);
+        }
+
         if(value == null) {
             try {
-                if(results.absolute(index + 1)) {
-                    value = binding.unmarshall(results);
-                    cache.setObject(index, value);
-                } else {
-                    throw new IndexOutOfBoundsException(
-                            "Index out of bounds: " + index);
-                }
+                value = prefetch(index);
             } catch(final SQLException ex) {
                 throw new RuntimeException(ex);
             }
         }
 
+        lastIndex = index;
+
         return value;
     }
 
+    @SuppressWarnings("unchecked")
+    private T getBlockRow(final int index) {
+        return (T)block[index - blockStart];
+    }
+
+    /**
+     * <p>
+     * Reads a block of rows including the given index in a single forward
+     * pass over the {@code ResultSet}, so that only one
+     * {@link ResultSet#absolute(int)} call is made for the whole block.
+     * </p><p>
+     * The size of the block adapts to the way the {@code DataSet} is being
+     * walked: while each miss is close to the last index asked for the block
+     * doubles in size (up to the prefetch limit), and the block is placed
+     * ahead of the index when walking forwards, or behind it when walking
+     * backwards. A miss far from the last index looks like random access, so
+     * the block is halved and centred on the index.
+     * </p>
+     */
+    private T prefetch(final int index) throws SQLException {
+        final int delta = index - lastIndex;
+        final int start;
+
+        if(delta != 0 && Math.abs(delta) <= blockSize) {
+            blockSize = Math.min(blockSize * 2, maxBlockSize);
+
+            start = delta > 0
+                    ? index
+                    : Math.max(0, index - blockSize + 1);
+        } else {
+            blockSize = Math.max(
+                    blockSize / 2,
+                    Math.min(MIN_BLOCK_SIZE, maxBlockSize));
+
+            start = Math.max(0, index - blockSize / 2);
+        }
+
+        // some drivers answer true when positioned after the last row
+        if(!results.absolute(start + 1) || results.isAfterLast()) {
+            throw new IndexOutOfBoundsException(
+                    "Index out of bounds: " + index);
+        }
+
+        clearPrefetch();
+
+        final Object[] rows = new Object[blockSize];
+        int count = 0;
+        boolean end = false;
+
+        while(true) {
+            final int row = start + count;
+            T value = null;
+
+            // re-use any cached objects to maintain identity equality
+            if(cache.isCached(row)) {
+                value = cache.getObject(row);
+            }
+
+            if(value == null) {
+                value = binding.unmarshall(results);
+                cache.setObject(row, value);
+            }
+
+            rows[count++] = value;
+
+            if(count == rows.length) {
+                break;
+            } else if(!results.next()) {
+                end = true;
+                break;
+            }
+        }
+
+        if(end && size == null) {
+            size = start + count;
+        }
+
+        block = rows;
+        blockStart = start;
+        blockLength = count;
+
+        if(index >= start + count) {
+            throw new IndexOutOfBoundsException(
+                    "Index out of bounds: " + index);
+        }
+
+        return getBlockRow(index);
+    }
+
     public Iterator<T> iterator() {
         return new IteratorImpl(0);
     }
 
+    /**
+     * Builds the key index in a single forward pass over the rows, re-using
+     * any cached rows and caching those that had to be read.
+     */
+    private KeyIndex getKeyIndex() {
+        if(keyIndex == null) {
+            final KeyIndex index = new KeyIndex(
+                    binding.getObjectType(),
+                    keyColumns);
+
+            try {
+                if(cache instanceof HardDataSetCache) {
+                    final List<T> rows = ((HardDataSetCache<T>)cache).cache;
+
+                    for(int i = 0; i < rows.size(); i++) {
+                        index.add(rows.get(i), i);
+                    }
+                } else {
+                    results.beforeFirst();
+                    int row = 0;
+
+                    while(results.next()) {
+                        T value = null;
+
+                        if(cache.isCached(row)) {
+                            value = cache.getObject(row);
+                        }
+
+                        if(value == null) {
+                            value = binding.unmarshall(results);
+                            cache.setObject(row, value);
+                        }
+
+                        index.add(value, row++);
+                    }
+
+                    if(size == null) {
+                        size = row;
+                    }
+                }
+            } catch(final SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+
+            keyIndex = index;
+        }
+
+        return keyIndex;
+    }
+
+    public T getByKey(final Object... key) {
+        final int index = indexOfKey(key);
+        return index != -1 ? get(index) : null;
+    }
+
+    public int indexOfKey(final Object... key) {
+        return getKeyIndex().indexOf(key);
+    }
+
     public ListIterator<T> listIterator() {
         return new IteratorImpl(0);
     }
@@ -231,7 +512,7 @@ class ConnectedDataSet<T> implements DataSet<T> {
                     }
 
                     if(value == null) {
-                        binding.unmarshall(results);
+                        value = binding.unmarshall(results);
                         cache.setObject(index, value);
                     }
 
@@ -270,8 +551,12 @@ class ConnectedDataSet<T> implements DataSet<T> {
     public int size() {
         if(size == null) {
             try {
-                results.last();
-                size = results.getRow();
+                if(counter != null) {
+                    size = counter.count();
+                } else {
+                    results.last();
+                    size = results.getRow();
+                }
             } catch(SQLException ex) {
                 throw new RuntimeException(ex);
             }
@@ -290,11 +575,7 @@ class ConnectedDataSet<T> implements DataSet<T> {
         }
 
         public boolean hasNext() {
-            if(isEmpty()) {
-                return false;
-            }
-
-            return cursor < size();
+            return hasRow(cursor);
         }
 
         public T next() {
@@ -67,12 +67,16 @@ public class DataIteratorWrapper extends ResultSetWrapper<DataIterator<?>> {
             final RubberstampingDataIterator iterator =
                     new RubberstampingDataIterator(context, binding);
 
+            context.track(iterator);
+
             return iterator;
         } else {
             @SuppressWarnings("unchecked")
             final DefaultDataIterator iterator =
                     new DefaultDataIterator(context, binding);
-            
+
+            context.track(iterator);
+
             return iterator;
         }
     }
@@ -10,14 +10,17 @@ import java.lang.reflect.InvocationTargetException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
-import java.util.Arrays;
 import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
 
 import net.lemnik.eodsql.QueryTool;
 import net.lemnik.eodsql.EoDException;
 import net.lemnik.eodsql.InvalidDataTypeException;
 
+import net.lemnik.eodsql.spi.util.DataObjectBindingCache.ColumnName;
+
 /**
  * Represents the binding of a single row in a {@code ResultSet} to an object.
  * This class may be implemented by hand to allow for faster binding
@@ -235,6 +238,43 @@ public abstract class DataObjectBinding<T> {
         return true;
     }
 
+    /**
+     * <p>
+     * Returns whether the objects unmarshalled by this {@code DataObjectBinding}
+     * from several rows must be merged by {@link #group(java.util.List)}, as
+     * they are when the data-object has {@link net.lemnik.eodsql.Nested @Nested}
+     * collections spread over several rows by a {@code JOIN}.
+     * </p><p>
+     * By default this method returns {@literal false}.
+     * </p>
+     *
+     * @return {@literal true} if rows must be grouped, {@literal false} if
+     *      each row stands on it's own
+     * @since 2.2
+     */
+    public boolean isGrouping() {
+        return false;
+    }
+
+    /**
+     * <p>
+     * Merges the objects unmarshalled from a number of rows into one object
+     * for each distinct parent. This is only invoked by the
+     * {@code ResultSetWrapper}s that read every row of a {@code ResultSet},
+     * and only if {@link #isGrouping()} returns {@literal true}.
+     * </p><p>
+     * By default this method returns the given {@code List} as-is.
+     * </p>
+     *
+     * @param rows the objects unmarshalled from each row, in order
+     * @return the merged objects, in the order their first row was found
+     * @throws EoDException if the objects could not be merged
+     * @since 2.2
+     */
+    public List<T> group(final List<T> rows) throws EoDException {
+        return rows;
+    }
+
     /**
      * <p>
      * Create a new, empty instance of the data-object this object will
@@ -277,6 +317,58 @@ public abstract class DataObjectBinding<T> {
         return NO_KEY_COLUMNS;
     }
 
+    /**
+     * Returns the names of the columns this binding reads from a row, so
+     * that tools working directly on a {@code ResultSet} can select the same
+     * columns without creating any data-objects.
+     *
+     * @return by default {@literal null}, meaning any column may be read
+     * @since 2.2
+     */
+    public String[] getColumnNames() {
+        return null;
+    }
+
+    /**
+     * Returns the types of the columns this binding reads from a row, so
+     * that a query method can reject a column type it cannot return.
+     *
+     * @return by default {@literal null}, meaning the types are not known
+     * @since 2.2
+     */
+    public Class<?>[] getColumnTypes() {
+        return null;
+    }
+
+    /**
+     * <p>
+     * Returns the value of the single {@link net.lemnik.eodsql.AutoGeneratedKeys
+     * key} column of the given object. This is used to match objects returned
+     * by a multi-key query against the keys they were requested with.
+     * </p><p>
+     * The default implementation reads the key field or property of an EoD SQL
+     * "data-object", and throws an {@code EoDException} if the type does not
+     * have exactly one key column.
+     * </p>
+     *
+     * @param object the object to read the key of
+     * @return the key of the given object
+     * @throws EoDException if the key cannot be read from the object
+     * @since 2.2
+     */
+    public Object getKey(final T object) throws EoDException {
+        final Map<ColumnName, MutableColumn> keys = DataObjectBindingCache.
+                getDataObjectBindingCache(getObjectType()).getKeyColumns();
+
+        if(keys.size() != 1) {
+            throw new EoDException("Exactly one AutoGeneratedKeys field " +
+                    "or property is required to read the key of a " +
+                    getObjectType().getName() + ", found " + keys.size());
+        }
+
+        return keys.values().iterator().next().get(object);
+    }
+
     @Override
     public String toString() {
         switch(bindingType) {
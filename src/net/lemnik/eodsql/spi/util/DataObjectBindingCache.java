@@ -9,13 +9,21 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.ReflectPermission;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.List;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
 
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import net.lemnik.eodsql.Nested;
+import net.lemnik.eodsql.Prefetch;
 import net.lemnik.eodsql.ResultColumn;
 import net.lemnik.eodsql.AutoGeneratedKeys;
+import net.lemnik.eodsql.InvalidDataTypeException;
 
 /**
  * Created on Jan 30, 2009
@@ -32,23 +40,52 @@ class DataObjectBindingCache {
     private static final ReferenceQueue<DataObjectBindingCache> referenceQueue =
             new ReferenceQueue<DataObjectBindingCache>();
 
+    /**
+     * The data-object types whose bindings are being created by the current
+     * thread, used to refuse types that contain themselves through
+     * {@code @Nested} fields.
+     */
+    private static final ThreadLocal<Set<Class<?>>> creating =
+            new ThreadLocal<Set<Class<?>>>() {
+
+        @Override
+        protected Set<Class<?>> initialValue() {
+            return new HashSet<Class<?>>();
+        }
+
+    };
+
     private final Map<ColumnName, MutableColumn> normalColumns =
             new HashMap<ColumnName, MutableColumn>();
 
     private final Map<ColumnName, MutableColumn> keyColumns =
             new HashMap<ColumnName, MutableColumn>();
 
+    private final List<NestedCollection> nestedCollections =
+            new ArrayList<NestedCollection>();
+
     private DataObjectBindingCache(final Class<?> clazz) {
-        Class<?> current = clazz;
+        final Set<Class<?>> types = creating.get();
+
+        if(!types.add(clazz)) {
+            throw new InvalidDataTypeException("A data-object may not " +
+                    "contain itself through @Nested fields.", clazz);
+        }
+
+        try {
+            Class<?> current = clazz;
 
-        while(current != Object.class) {
-            final boolean keyType = current.isAnnotationPresent(
-                    AutoGeneratedKeys.class);
+            while(current != Object.class) {
+                final boolean keyType = current.isAnnotationPresent(
+                        AutoGeneratedKeys.class);
 
-            scanFields(current, keyType);
-            scanMethods(current, keyType);
+                scanFields(current, keyType);
+                scanMethods(current, keyType);
 
-            current = current.getSuperclass();
+                current = current.getSuperclass();
+            }
+        } finally {
+            types.remove(clazz);
         }
     }
 
@@ -87,6 +124,18 @@ class DataObjectBindingCache {
                     !Modifier.isTransient(f.getModifiers()) &&
                     (Modifier.isPublic(f.getModifiers()) || HAVE_ACCESSIBLE_PERMISSION)) {
 
+                if(f.isAnnotationPresent(Nested.class)) {
+                    scanNested(f);
+                    continue;
+                }
+
+                if(f.isAnnotationPresent(Prefetch.class) ||
+                        LazyBinding.isLazy(f)) {
+
+                    // these are filled in by a separate query
+                    continue;
+                }
+
                 String name = f.getName();
                 if(f.isAnnotationPresent(ResultColumn.class)) {
                     final ResultColumn col = f.getAnnotation(ResultColumn.class);
@@ -108,6 +157,68 @@ class DataObjectBindingCache {
         }
     }
 
+    /**
+     * Adds the columns of an object or collection embedded in the data-object
+     * by a {@code @Nested} field, each behind the prefix of the field.
+     */
+    private void scanNested(final Field f) {
+        final String prefix = f.getAnnotation(Nested.class).prefix();
+        final MutableField field = new MutableField(
+                f.getName(),
+                f,
+                HAVE_ACCESSIBLE_PERMISSION);
+
+        if(Collection.class.isAssignableFrom(f.getType())) {
+            final NestedCollection collection = new NestedCollection(
+                    field,
+                    f,
+                    nestedCollections.size());
+
+            nestedCollections.add(collection);
+
+            for(final MutableColumn column :
+                    getNestedColumns(collection.getElementType())) {
+
+                final MutableColumn element =
+                        collection.new ElementColumn(prefix, column);
+
+                addColumn(element.getColumnName(), element);
+            }
+        } else {
+            @SuppressWarnings("unchecked")
+            final DataObjectBinding<?> binding =
+                    new DefaultDataObjectBinding<Object>(
+                    (Class<Object>)f.getType());
+
+            for(final MutableColumn column : getNestedColumns(f.getType())) {
+                final MutableColumn nested =
+                        new NestedColumn(prefix, field, binding, column);
+
+                addColumn(nested.getColumnName(), nested);
+            }
+        }
+    }
+
+    /**
+     * Returns the columns of a nested data-object type, leaving out those of
+     * it's own nested collections (which may only be nested one level deep).
+     */
+    private static List<MutableColumn> getNestedColumns(final Class<?> type) {
+        final Collection<MutableColumn> columns =
+                getDataObjectBindingCache(type).getNormalColumns().values();
+
+        final List<MutableColumn> nested =
+                new ArrayList<MutableColumn>(columns.size());
+
+        for(final MutableColumn column : columns) {
+            if(!(column instanceof NestedCollection.ElementColumn)) {
+                nested.add(column);
+            }
+        }
+
+        return nested;
+    }
+
     private void scanMethods(
             final Class<?> clazz,
             final boolean keyType)
@@ -203,6 +314,14 @@ class DataObjectBindingCache {
         return keyColumns;
     }
 
+    /**
+     * Returns the {@code @Nested} collection fields of the data-object
+     * type, in the order of their {@link NestedCollection#getSlot() slots}.
+     */
+    List<NestedCollection> getNestedCollections() {
+        return nestedCollections;
+    }
+
     static DataObjectBindingCache getDataObjectBindingCache(final Class<?> clazz) {
         purgeOldReferences();
         final CachedBinding bindingReference = cache.get(clazz);
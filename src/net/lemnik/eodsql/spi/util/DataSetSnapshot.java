@@ -0,0 +1,434 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.List;
+import java.util.Arrays;
+
+import net.lemnik.eodsql.DataSet;
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.InvalidDataTypeException;
+
+/**
+ * <p>
+ * A {@link DataSet} saved to a file, so that it can be loaded again without
+ * querying the database, for example to seed a cache when an application
+ * restarts. Each snapshot is tagged with the SQL and parameters of the query
+ * it was selected by, so that it can be {@link #matches(String, Object[])
+ * matched} with the query it stands in for.
+ * </p><p>
+ * The rows are written in a compact binary form using the plain columns of
+ * the data-object's {@link DataObjectBinding}, and the column names are
+ * written with them. A snapshot can be loaded by a newer version of the
+ * data-object class: columns that have been removed are skipped, and columns
+ * that have been added are left with their default values. A loaded snapshot
+ * is memory-mapped, and {@link #getDataSet()} decodes each row when it is
+ * asked for.
+ * </p>
+ * <pre>
+ *     DataSetSnapshot.write(file, User.class, users, sql, department);
+ *     ...
+ *     final DataSetSnapshot&lt;User&gt; snapshot =
+ *             DataSetSnapshot.read(file, User.class);
+ *
+ *     if(snapshot.matches(sql, department)) {
+ *         cache.put(department, snapshot.getDataSet());
+ *     }
+ * </pre>
+ *
+ * @param <T> the type of the rows
+ * @since 2.2
+ * @author Jason Morris
+ */
+public final class DataSetSnapshot<T> {
+
+    /**
+     * The version of the file format written by this class. Files written in
+     * a newer format cannot be read.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x454f4453;
+
+    private final File file;
+
+    private final String sql;
+
+    private final Object[] parameters;
+
+    private final long created;
+
+    private final DisconnectedDataSet<T> dataSet;
+
+    private DataSetSnapshot(
+            final File file,
+            final String sql,
+            final Object[] parameters,
+            final long created,
+            final DisconnectedDataSet<T> dataSet) {
+
+        this.file = file;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.created = created;
+        this.dataSet = dataSet;
+    }
+
+    /**
+     * <p>
+     * Writes a snapshot of the given rows to a file. The snapshot is first
+     * written next to the file, and then renamed over it, so that a reader
+     * never sees a partial snapshot.
+     * </p><p>
+     * Snapshots never hold Java serialized values, since loading one would
+     * deserialize whatever the file holds. Parameters and column values must
+     * be primitives, {@code String}s, numbers, dates and times,
+     * {@code UUID}s, enums, or arrays of these.
+     * </p>
+     *
+     * @param file the file to write the snapshot to
+     * @param type the data-object type of the rows
+     * @param rows the rows, normally a disconnected {@code DataSet}
+     * @param sql the SQL the rows were selected with
+     * @param parameters the parameters the rows were selected with, each of
+     *      which must be a type that can be written in a snapshot
+     * @throws IOException if the file cannot be written
+     * @throws InvalidDataTypeException if the data-object type cannot be
+     *      written in a snapshot
+     * @throws EoDException if a column value cannot be written
+     */
+    public static <T> void write(
+            final File file,
+            final Class<T> type,
+            final List<? extends T> rows,
+            final String sql,
+            final Object... parameters)
+            throws IOException,
+            InvalidDataTypeException,
+            EoDException {
+
+        final RowCodec<T> codec = createCodec(type);
+        final String[] columns = codec.getColumnNames();
+
+        final File directory = file.getAbsoluteFile().getParentFile();
+        final File temp = File.createTempFile("eodsql", ".snapshot", directory);
+
+        boolean written = false;
+
+        try {
+            final OutputStream stream = new FileOutputStream(temp);
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(stream, 64 * 1024));
+
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                RowCodec.writeValue(sql, out, false);
+
+                out.writeInt(parameters.length);
+
+                for(final Object parameter : parameters) {
+                    RowCodec.writeValue(parameter, out, false);
+                }
+
+                RowCodec.writeValue(type.getName(), out, false);
+
+                if(columns == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(columns.length);
+
+                    for(final String column : columns) {
+                        RowCodec.writeValue(column, out, false);
+                    }
+                }
+
+                final int size = rows.size();
+                out.writeInt(size);
+
+                final long[] offsets = new long[size + 1];
+                final ByteArrayOutputStream rowBuffer =
+                        new ByteArrayOutputStream();
+                final DataOutputStream rowOutput =
+                        new DataOutputStream(rowBuffer);
+
+                // DataOutputStream only counts up to Integer.MAX_VALUE bytes
+                long position = out.size();
+                int index = 0;
+
+                for(final T row : rows) {
+                    if(index == size) {
+                        break;
+                    }
+
+                    rowBuffer.reset();
+                    codec.encode(row, rowOutput);
+                    rowOutput.flush();
+                    rowBuffer.writeTo(out);
+
+                    offsets[index++] = position;
+                    position += rowBuffer.size();
+                }
+
+                if(index != size) {
+                    throw new IOException("The rows changed while the " +
+                            "snapshot was being written.");
+                }
+
+                offsets[index] = position;
+
+                for(int i = 0; i <= index; i++) {
+                    out.writeLong(offsets[i]);
+                }
+
+                out.writeLong(position);
+            } finally {
+                out.close();
+            }
+
+            replace(temp, file);
+
+            written = true;
+        } finally {
+            if(!written) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Renames a new snapshot over an old one. Where the platform can rename
+     * a file over another (as POSIX systems can) the old snapshot is
+     * replaced in one step, so that a reader sees either the old or the new
+     * snapshot. Otherwise the old snapshot has to be deleted first.
+     */
+    private static void replace(final File temp, final File file)
+            throws IOException {
+
+        if(temp.renameTo(file)) {
+            return;
+        }
+
+        if(file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace the snapshot: " + file);
+        }
+
+        if(!temp.renameTo(file)) {
+            throw new IOException("Cannot rename the snapshot to: " + file);
+        }
+    }
+
+    /**
+     * Loads a snapshot from a file. The rows are memory-mapped, and not
+     * decoded until they are asked for.
+     *
+     * @param file the file to read the snapshot from
+     * @param type the data-object type of the rows
+     * @param keyColumns the columns {@link DataSet#getByKey(Object[])} looks
+     *      rows up by, or none to use the {@code AutoGeneratedKeys} columns
+     *      of the data-object
+     * @return the snapshot
+     * @throws IOException if the file cannot be read, or is not a snapshot
+     *      of the given type in a version this class can read
+     * @throws InvalidDataTypeException if the data-object type cannot be
+     *      read from a snapshot
+     */
+    public static <T> DataSetSnapshot<T> read(
+            final File file,
+            final Class<T> type,
+            final String... keyColumns)
+            throws IOException,
+            InvalidDataTypeException {
+
+        final RowCodec<T> codec = createCodec(type);
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+
+        final long created;
+        final String sql;
+        final Object[] parameters;
+        final String[] columns;
+        final int size;
+
+        try {
+            if(in.readInt() != MAGIC) {
+                throw new IOException("Not a DataSet snapshot: " + file);
+            }
+
+            final int version = in.readInt();
+
+            if(version > VERSION) {
+                throw new IOException("Cannot read version " + version +
+                        " of the snapshot format: " + file);
+            }
+
+            created = in.readLong();
+            sql = (String)RowCodec.readValue(in, String.class, false);
+            parameters = new Object[in.readInt()];
+
+            for(int i = 0; i < parameters.length; i++) {
+                parameters[i] = RowCodec.readValue(in, Object.class, false);
+            }
+
+            final String typeName = (String)RowCodec.readValue(
+                    in,
+                    String.class,
+                    false);
+
+            if(!type.getName().equals(typeName)) {
+                throw new IOException("The snapshot holds " + typeName +
+                        " and not " + type.getName() + ": " + file);
+            }
+
+            final int columnCount = in.readInt();
+
+            if(columnCount == -1) {
+                columns = null;
+            } else {
+                columns = new String[columnCount];
+
+                for(int i = 0; i < columnCount; i++) {
+                    columns[i] = (String)RowCodec.readValue(
+                            in,
+                            String.class,
+                            false);
+                }
+            }
+
+            size = in.readInt();
+        } catch(final EoDException ee) {
+            throw (IOException)new IOException("Corrupt snapshot: " + file).
+                    initCause(ee);
+        } finally {
+            in.close();
+        }
+
+        if((columns == null) != (codec.getColumnNames() == null)) {
+            throw new IOException("The snapshot holds " + type.getName() +
+                    " in a different form: " + file);
+        }
+
+        final MappedRowFile<T> rows = new MappedRowFile<T>(
+                codec,
+                file,
+                readOffsets(file, size),
+                codec.getLayout(columns));
+
+        final DisconnectedDataSet<T> dataSet =
+                new DisconnectedDataSet<T>(type, rows);
+        dataSet.setKeyColumns(keyColumns);
+
+        return new DataSetSnapshot<T>(file, sql, parameters, created, dataSet);
+    }
+
+    private static long[] readOffsets(final File file, final int size)
+            throws IOException {
+
+        final RandomAccessFile random = new RandomAccessFile(file, "r");
+
+        try {
+            final long length = random.length();
+            random.seek(length - 8);
+
+            final long table = random.readLong();
+
+            if(table < 0 || table + (size + 1) * 8L != length - 8) {
+                throw new IOException("Corrupt snapshot: " + file);
+            }
+
+            final FileChannel channel = random.getChannel();
+            final LongBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    table,
+                    (size + 1) * 8L).asLongBuffer();
+
+            final long[] offsets = new long[size + 1];
+            buffer.get(offsets);
+
+            return offsets;
+        } finally {
+            random.close();
+        }
+    }
+
+    private static <T> RowCodec<T> createCodec(final Class<T> type)
+            throws InvalidDataTypeException {
+
+        final DataObjectBinding<T> binding =
+                DataObjectBinding.getDataObjectBinding(
+                type,
+                DataObjectBinding.BindingType.NORMAL_BINDING);
+
+        // a snapshot may be read from a file anyone could have written, so
+        // it never holds serialized values
+        return RowCodec.create(binding, false);
+    }
+
+    /**
+     * Returns the file this snapshot was loaded from.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the SQL the rows of this snapshot were selected with.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns the parameters the rows of this snapshot were selected with.
+     */
+    public Object[] getParameters() {
+        return parameters.clone();
+    }
+
+    /**
+     * Returns the time this snapshot was written, in milliseconds since the
+     * epoch.
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns whether this snapshot was selected with the given SQL and
+     * parameters.
+     *
+     * @param sql the SQL of a query
+     * @param parameters the parameters of the query
+     * @return {@literal true} if this snapshot holds the rows of the query
+     */
+    public boolean matches(final String sql, final Object... parameters) {
+        return (this.sql != null ? this.sql.equals(sql) : sql == null) &&
+                Arrays.deepEquals(this.parameters, parameters);
+    }
+
+    /**
+     * Returns the rows of this snapshot, as a disconnected {@code DataSet}
+     * that decodes each row from the file as it is asked for. Closing the
+     * {@code DataSet} releases the file, but does not delete it.
+     *
+     * @return the rows of this snapshot
+     */
+    public DataSet<T> getDataSet() {
+        return dataSet;
+    }
+
+}
@@ -14,6 +14,7 @@ import java.util.Collections;
 
 import net.lemnik.eodsql.DataSet;
 import net.lemnik.eodsql.DataSetCache;
+import net.lemnik.eodsql.SizeStrategy;
 import net.lemnik.eodsql.ArrayDataSetCache;
 
 import net.lemnik.eodsql.InvalidDataTypeException;
@@ -76,12 +77,61 @@ public class DataSetWrapper extends ResultSetWrapper<DataSet> {
     public static final String PARAMETER_CACHE_CLASS =
             "net.lemnik.eodsql.spi.util.DataSetWrapper#cacheClass";
 
+    /**
+     * <p>
+     * This parameter determines the largest block of rows a connected
+     * {@code DataSet} will read in a single pass over the {@code ResultSet}.
+     * The value of this parameter should be an {@link java.lang.Integer}, by
+     * default it is {@literal 0} which disables prefetching.
+     * </p>
+     *
+     * @see net.lemnik.eodsql.Select#prefetch()
+     */
+    public static final String PARAMETER_PREFETCH =
+            "net.lemnik.eodsql.spi.util.DataSetWrapper#prefetch";
+
+    /**
+     * <p>
+     * This parameter names the columns that returned {@code DataSet} objects
+     * will look rows up by in {@link DataSet#getByKey(Object[])}. The value
+     * of this parameter should be a {@code String[]}, by default the
+     * {@code AutoGeneratedKeys} columns of the data-object are used.
+     * </p>
+     *
+     * @see net.lemnik.eodsql.Select#keyColumns()
+     */
+    public static final String PARAMETER_KEY_COLUMNS =
+            "net.lemnik.eodsql.spi.util.DataSetWrapper#keyColumns";
+
+    /**
+     * <p>
+     * This parameter determines the largest number of rows a disconnected
+     * {@code DataSet} will hold on the heap. The value of this parameter
+     * should be an {@link java.lang.Integer}, by default it is {@literal 0}
+     * which holds every row on the heap. A disconnected {@code DataSet} with
+     * more rows than this writes them to a memory-mapped temporary file,
+     * which is deleted when the {@code DataSet} is closed.
+     * </p>
+     *
+     * @see net.lemnik.eodsql.Select#spillThreshold()
+     */
+    public static final String PARAMETER_SPILL_THRESHOLD =
+            "net.lemnik.eodsql.spi.util.DataSetWrapper#spillThreshold";
+
     private boolean disconnected = false;
 
     private boolean updatable = false;
 
     private Class<? extends DataSetCache> cacheClass = ArrayDataSetCache.class;
 
+    private int prefetch = 0;
+
+    private int spillThreshold = 0;
+
+    private SizeStrategy sizeStrategy = SizeStrategy.LAST_ROW;
+
+    private String[] keyColumns = null;
+
     private DataObjectBinding binding;
 
     @SuppressWarnings("unchecked")
@@ -112,6 +162,23 @@ public class DataSetWrapper extends ResultSetWrapper<DataSet> {
                         "type DataSetCache.");
             }
         }
+
+        if(parameters.containsKey(PARAMETER_PREFETCH)) {
+            prefetch = ((Integer)parameters.get(PARAMETER_PREFETCH)).intValue();
+        }
+
+        if(parameters.containsKey(PARAMETER_SPILL_THRESHOLD)) {
+            spillThreshold = ((Integer)parameters.get(
+                    PARAMETER_SPILL_THRESHOLD)).intValue();
+        }
+
+        if(parameters.containsKey(PARAMETER_SIZE_STRATEGY)) {
+            sizeStrategy = (SizeStrategy)parameters.get(PARAMETER_SIZE_STRATEGY);
+        }
+
+        if(parameters.containsKey(PARAMETER_KEY_COLUMNS)) {
+            keyColumns = (String[])parameters.get(PARAMETER_KEY_COLUMNS);
+        }
     }
 
     private DataSetCache createCache() throws SQLException {
@@ -147,27 +214,40 @@ public class DataSetWrapper extends ResultSetWrapper<DataSet> {
     public DataSet wrap(final Context context) throws SQLException {
         if(disconnected) {
             @SuppressWarnings("unchecked")
-            final DataSet<?> dataSet = new DisconnectedDataSet(
+            final DisconnectedDataSet<?> dataSet = new DisconnectedDataSet(
                     binding,
-                    context);
+                    context,
+                    spillThreshold);
+
+            dataSet.setKeyColumns(keyColumns);
 
             return dataSet;
         } else if(updatable) {
             context.setAutoclose(false);
             @SuppressWarnings("unchecked")
-            final DataSet<?> dataSet = new UpdatableDataSet(
+            final UpdatableDataSet<?> dataSet = new UpdatableDataSet(
                     binding,
                     context,
-                    createCache());
+                    createCache(),
+                    prefetch,
+                    sizeStrategy);
+
+            dataSet.setKeyColumns(keyColumns);
+            context.track(dataSet);
 
             return dataSet;
         } else {
             context.setAutoclose(false);
             @SuppressWarnings("unchecked")
-            final DataSet<?> dataSet = new ConnectedDataSet(
+            final ConnectedDataSet<?> dataSet = new ConnectedDataSet(
                     binding,
                     context,
-                    createCache());
+                    createCache(),
+                    prefetch,
+                    sizeStrategy);
+
+            dataSet.setKeyColumns(keyColumns);
+            context.track(dataSet);
 
             return dataSet;
         }
@@ -238,6 +318,30 @@ public class DataSetWrapper extends ResultSetWrapper<DataSet> {
                 validateDataSetCache((Class<? extends DataSetCache>)cacheObject);
             }
 
+            if(parameters.containsKey(PARAMETER_PREFETCH)) {
+                final Object prefetch = parameters.get(PARAMETER_PREFETCH);
+
+                if(!(prefetch instanceof Integer) ||
+                        ((Integer)prefetch).intValue() < 0) {
+
+                    throw new InvalidQueryException("Parameter '" +
+                            PARAMETER_PREFETCH +
+                            "' must be an Integer that is not negative");
+                }
+            }
+
+            if(parameters.containsKey(PARAMETER_SPILL_THRESHOLD)) {
+                final Object threshold = parameters.get(
+                        PARAMETER_SPILL_THRESHOLD);
+
+                if(!(threshold instanceof Integer) ||
+                        ((Integer)threshold).intValue() < 0) {
+
+                    throw new InvalidQueryException("Parameter '" +
+                            PARAMETER_SPILL_THRESHOLD +
+                            "' must be an Integer that is not negative");
+                }
+            }
 
             if(isUpdatable(parameters)) {
                 if(isDisconnected(parameters)) {
@@ -12,9 +12,15 @@ import java.sql.SQLException;
 import java.sql.ResultSetMetaData;
 
 import java.util.Map;
+import java.util.List;
+import java.util.Set;
 import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.concurrent.atomic.AtomicReference;
 
+import net.lemnik.eodsql.Nested;
 import net.lemnik.eodsql.QueryTool;
 import net.lemnik.eodsql.TypeMapper;
 import net.lemnik.eodsql.ResultColumn;
@@ -37,6 +43,14 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
 
     private MutableColumn[] columns;
 
+    /**
+     * The {@code @Nested} collections of the data-object that have at least
+     * one column in the {@code ResultSet}.
+     */
+    private NestedCollection[] collections = null;
+
+    private int slots = 0;
+
     private String[] keyColumns = null;
 
     private enum State {
@@ -152,7 +166,12 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
 
             mappers = new TypeMapper[]{mapper};
             columns = new MutableColumn[]{column};
+            collections = new NestedCollection[0];
         } else {
+            final Set<NestedCollection> mapped =
+                    new LinkedHashSet<NestedCollection>();
+
+
             mappers = new TypeMapper[metaData.getColumnCount()];
             columns = new MutableColumn[metaData.getColumnCount()];
 
@@ -174,11 +193,20 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
 
                     mappers[i] = mapper;
                     columns[i] = mutable;
+
+                    if(mutable instanceof NestedCollection.ElementColumn) {
+                        mapped.add(((NestedCollection.ElementColumn)mutable).
+                                getCollection());
+                    }
                 } else {
                     mappers[i] = null;
                     columns[i] = null;
                 }
             }
+
+            collections = mapped.toArray(new NestedCollection[mapped.size()]);
+            slots = DataObjectBindingCache.getDataObjectBindingCache(
+                    getObjectType()).getNestedCollections().size();
         }
     }
 
@@ -250,6 +278,11 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
 
         final int length = columns.length;
 
+        // the elements of any @Nested collections, by slot
+        final Object[] elements = collections.length != 0
+                ? new Object[slots]
+                : null;
+
         for(int i = 0; i < length; i++) {
             if(columns[i] != null) {
                 Object value = mappers[i].get(row, i + 1);
@@ -258,9 +291,52 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
                     value = null;
                 }
 
-                columns[i].set(into, value);
+                if(columns[i] instanceof NestedCollection.ElementColumn) {
+                    if(value != null) {
+                        final NestedCollection.ElementColumn column =
+                                (NestedCollection.ElementColumn)columns[i];
+
+                        final int slot = column.getCollection().getSlot();
+
+                        if(elements[slot] == null) {
+                            elements[slot] =
+                                    column.getCollection().newElement();
+                        }
+
+                        column.setElement(elements[slot], value);
+                    }
+                } else {
+                    columns[i].set(into, value);
+                }
             }
         }
+
+        for(final NestedCollection collection : collections) {
+            collection.reset(into, elements[collection.getSlot()]);
+        }
+    }
+
+    @Override
+    public boolean isGrouping() {
+        return getBindingType() == BindingType.NORMAL_BINDING &&
+                !DataObjectBindingCache.getDataObjectBindingCache(
+                getObjectType()).getNestedCollections().isEmpty();
+    }
+
+    @Override
+    public List<T> group(final List<T> rows) throws EoDException {
+        final List<NestedCollection> nested = DataObjectBindingCache.
+                getDataObjectBindingCache(getObjectType()).
+                getNestedCollections();
+
+        if(nested.isEmpty()) {
+            return rows;
+        }
+
+        return NestedCollection.group(
+                getObjectType(),
+                nested.toArray(new NestedCollection[nested.size()]),
+                rows);
     }
 
     @Override
@@ -278,7 +354,9 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
         final int length = columns.length;
 
         for(int i = 0; i < length; i++) {
-            if(columns[i] != null) {
+            if(columns[i] != null &&
+                    !(columns[i] instanceof NestedCollection.ElementColumn)) {
+
                 final Object value = columns[i].get(from);
 
                 if(value == null) {
@@ -307,6 +385,48 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
         }
     }
 
+    @Override
+    public String[] getColumnNames() {
+        final DataObjectBindingCache cache =
+                DataObjectBindingCache.getDataObjectBindingCache(
+                getObjectType());
+
+        final Map<ColumnName, MutableColumn> map =
+                getBindingType() == BindingType.NORMAL_BINDING
+                ? cache.getNormalColumns()
+                : cache.getKeyColumns();
+
+        final List<String> names = new ArrayList<String>(map.size());
+
+        for(final Map.Entry<ColumnName, MutableColumn> entry : map.entrySet()) {
+            if(!(entry.getValue() instanceof NestedCollection.ElementColumn)) {
+                names.add(entry.getKey().getColumnName());
+            }
+        }
+
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public Class<?>[] getColumnTypes() {
+        final DataObjectBindingCache cache =
+                DataObjectBindingCache.getDataObjectBindingCache(
+                getObjectType());
+
+        final Map<ColumnName, MutableColumn> map =
+                getBindingType() == BindingType.NORMAL_BINDING
+                ? cache.getNormalColumns()
+                : cache.getKeyColumns();
+
+        final List<Class<?>> types = new ArrayList<Class<?>>(map.size());
+
+        for(final MutableColumn column : map.values()) {
+            types.add(column.getType());
+        }
+
+        return types.toArray(new Class<?>[types.size()]);
+    }
+
     public static void validate(final Class<?> dataObjectClass)
             throws InvalidDataTypeException {
 
@@ -341,6 +461,40 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
                 validateResultColumnMember(m);
             }
         }
+
+        LazyBinding.getLazyBindings(dataObjectClass);
+
+        // this will also refuse any data-object that contains itself
+        final DataObjectBindingCache cache =
+                DataObjectBindingCache.getDataObjectBindingCache(
+                dataObjectClass);
+
+        for(final NestedCollection collection : cache.getNestedCollections()) {
+            validate(collection.getElementType());
+        }
+
+        for(final Field f : fields) {
+            if(f.isAnnotationPresent(Nested.class)) {
+                if(Modifier.isFinal(f.getModifiers())) {
+                    throw new InvalidDataTypeException(
+                            "A field annotated with @Nested may "
+                            + "not be final: " + f.getName(),
+                            dataObjectClass);
+                }
+
+                if(!Collection.class.isAssignableFrom(f.getType())) {
+                    validate(f.getType());
+                }
+            }
+        }
+
+        if(!cache.getNestedCollections().isEmpty()
+                && cache.getKeyColumns().isEmpty()) {
+
+            throw new InvalidDataTypeException("A data-object with a "
+                    + "@Nested collection must have AutoGeneratedKeys "
+                    + "columns to group it's rows by.", dataObjectClass);
+        }
     }
 
     private static void validateResultColumnMember(final Member member) {
@@ -382,6 +536,13 @@ class DefaultDataObjectBinding<T> extends DataObjectBinding<T> {
         if(member instanceof Method) {
             final Method method = (Method)member;
 
+            if(method.getAnnotation(ResultColumn.class).lazy()) {
+                throw new InvalidDataTypeException(
+                        "Only a field may be a lazy @ResultColumn: "
+                        + member.getName(),
+                        member.getDeclaringClass());
+            }
+
             if(method.getParameterTypes().length != 1) {
                 throw new InvalidDataTypeException(
                         "A Method annotated with @ResultColumn "
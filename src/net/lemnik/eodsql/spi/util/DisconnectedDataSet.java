@@ -1,17 +1,33 @@
 package net.lemnik.eodsql.spi.util;
 
+import java.io.IOException;
+
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import java.util.List;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.AbstractList;
 
 import net.lemnik.eodsql.DataSet;
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.LeakDetector;
 
 import net.lemnik.eodsql.spi.Context;
 import net.lemnik.eodsql.spi.Resource;
 
 /**
+ * <p>
+ * A {@code DataSet} holding every row of it's {@code ResultSet}. The rows
+ * are normally held in an array, but when there are more of them than the
+ * spill threshold they are written to a {@link MappedRowFile} instead, and
+ * decoded from it each time they are asked for. The file is deleted when the
+ * {@code DataSet} is {@link #close() closed}, and since a disconnected
+ * {@code DataSet} need not otherwise be closed, a spilled one is tracked by
+ * the {@link LeakDetector} so that it's file is deleted if it is garbage
+ * collected without being closed.
+ * </p>
  *
  * @author jason
  */
@@ -19,30 +35,179 @@ class DisconnectedDataSet<T> extends AbstractList<T> implements DataSet<T> {
     
     private final Object[] content;
 
+    private final MappedRowFile<T> rows;
+
+    private final Class<?> objectType;
+
+    private String[] keyColumns = null;
+
+    private KeyIndex keyIndex = null;
+
+    private Object tracker = null;
+
     /** Creates a new instance of DisconnectedDataSet */
     public DisconnectedDataSet(
             final DataObjectBinding mapper,
             final Context<?> context)
             throws SQLException {
 
+        this(mapper, context, 0);
+    }
+
+    /**
+     * Creates a new {@code DisconnectedDataSet}, which writes it's rows to a
+     * temporary file if there are more than {@code spillThreshold} of them.
+     *
+     * @param mapper the binding of the rows
+     * @param context the context holding the {@code ResultSet}
+     * @param spillThreshold the largest number of rows held on the heap, or
+     *      {@literal 0} to hold every row on the heap
+     */
+    @SuppressWarnings("unchecked")
+    public DisconnectedDataSet(
+            final DataObjectBinding mapper,
+            final Context<?> context,
+            final int spillThreshold)
+            throws SQLException {
+
         final Resource<ResultSet> resultsResource =
                 context.getResource(ResultSet.class);
         final ResultSet results = resultsResource.get();
+
+        objectType = mapper.getObjectType();
         
+        if(mapper.isGrouping()) {
+            final List<Object> rows = new ArrayList<Object>();
+
+            while(results.next()) {
+                rows.add(mapper.unmarshall(results));
+            }
+
+            content = mapper.group(rows).toArray();
+            this.rows = null;
+            return;
+        }
+
         results.last();
 
         final int size = results.getRow();
-        content = new Object[size];
-        
+
         results.beforeFirst();
 
+        if(spillThreshold > 0 && size > spillThreshold &&
+                RowCodec.isSupported(mapper)) {
+
+            content = null;
+            this.rows = spill(RowCodec.create(mapper), results, size);
+            this.tracker = LeakDetector.track(
+                    this,
+                    context.getExecution().getSql(),
+                    rows);
+            return;
+        }
+
+        content = new Object[size];
+        this.rows = null;
+
         int i = 0;
         while(results.next()) {
             content[i++] = mapper.unmarshall(results);
         }
     }
 
+    /**
+     * Creates a {@code DisconnectedDataSet} holding the rows of a file.
+     *
+     * @param objectType the type of the rows
+     * @param rows the rows
+     */
+    DisconnectedDataSet(final Class<?> objectType, final MappedRowFile<T> rows) {
+        this.objectType = objectType;
+        this.rows = rows;
+        this.content = null;
+    }
+
+    private static <T> MappedRowFile<T> spill(
+            final RowCodec<T> codec,
+            final ResultSet results,
+            final int size)
+            throws SQLException {
+
+        final DataObjectBinding<T> binding = codec.getBinding();
+        final MappedRowFile<T> file;
+
+        try {
+            file = new MappedRowFile<T>(codec, size);
+        } catch(final IOException ioe) {
+            throw new EoDException("Could not create a file for the rows", ioe);
+        }
+
+        try {
+            while(file.size() < size && results.next()) {
+                file.append(binding.unmarshall(results));
+            }
+
+            file.finish();
+        } catch(final IOException ioe) {
+            file.close();
+            throw new EoDException("Could not write the rows to a file", ioe);
+        } catch(final SQLException sqle) {
+            file.close();
+            throw sqle;
+        } catch(final RuntimeException re) {
+            file.close();
+            throw re;
+        }
+
+        return file;
+    }
+
+    /**
+     * Returns whether the rows of this {@code DataSet} are held in a file.
+     */
+    boolean isSpilled() {
+        return rows != null;
+    }
+
+    /**
+     * Sets the columns that {@link #getByKey(Object[])} looks rows up by,
+     * {@literal null} or an empty array for the key columns of the
+     * data-object.
+     */
+    void setKeyColumns(final String[] keyColumns) {
+        this.keyColumns = keyColumns;
+    }
+
+    public T getByKey(final Object... key) {
+        final int index = indexOfKey(key);
+        return index != -1 ? get(index) : null;
+    }
+
+    public int indexOfKey(final Object... key) {
+        if(keyIndex == null) {
+            final KeyIndex index = new KeyIndex(objectType, keyColumns);
+
+            final int size = size();
+
+            for(int i = 0; i < size; i++) {
+                index.add(rows != null ? rows.get(i) : content[i], i);
+            }
+
+            keyIndex = index;
+        }
+
+        return keyIndex.indexOf(key);
+    }
+
     public void close() {
+        if(tracker != null) {
+            LeakDetector.untrack(tracker);
+            tracker = null;
+        }
+
+        if(rows != null) {
+            rows.close();
+        }
     }
 
     public boolean isConnected() {
@@ -54,7 +219,7 @@ class DisconnectedDataSet<T> extends AbstractList<T> implements DataSet<T> {
 
     @Override
     public int size() {
-        return content.length;
+        return rows != null ? rows.size() : content.length;
     }
 
     @Override
@@ -64,6 +229,10 @@ class DisconnectedDataSet<T> extends AbstractList<T> implements DataSet<T> {
             throw new IndexOutOfBoundsException();
         }
 
+        if(rows != null) {
+            return rows.get(index);
+        }
+
         return (T)content[index];
     }
 
@@ -0,0 +1,181 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.math.BigInteger;
+
+import java.util.Map;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Comparator;
+
+import net.lemnik.eodsql.EoDException;
+
+import net.lemnik.eodsql.spi.util.DataObjectBindingCache.ColumnName;
+
+/**
+ * <p>
+ * A hash index from the values of one or more key columns of a data-object
+ * to the first row holding them. {@code DataSet} implementations build a
+ * {@code KeyIndex} the first time they are asked for a row by it's key, in a
+ * single pass over their rows, and answer every lookup from it after that.
+ * </p><p>
+ * The key columns are read from the fields and properties of the
+ * data-objects (not from the {@code ResultSet}), so a key is given in the
+ * same type as the data-object holds it. Integral numbers are widened to
+ * {@code Long} by {@link #normalize(Object)} before they are compared.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public class KeyIndex {
+
+    private static final Comparator<ColumnName> COLUMN_ORDER =
+            new Comparator<ColumnName>() {
+
+        public int compare(final ColumnName o1, final ColumnName o2) {
+            return o1.getColumnName().compareToIgnoreCase(o2.getColumnName());
+        }
+
+    };
+
+    private final MutableColumn[] columns;
+
+    private final Map<Object, Integer> index = new HashMap<Object, Integer>();
+
+    /**
+     * Creates a new, empty {@code KeyIndex} on the given columns of a
+     * data-object type.
+     *
+     * @param type the data-object type that will be indexed
+     * @param columnNames the columns to index on, or an empty array to
+     *      index on the {@code AutoGeneratedKeys} columns of the type (in
+     *      alphabetical order)
+     * @throws EoDException if the columns cannot be found in the type
+     */
+    KeyIndex(final Class<?> type, final String[] columnNames)
+            throws EoDException {
+
+        final DataObjectBindingCache binding =
+                DataObjectBindingCache.getDataObjectBindingCache(type);
+
+        if(columnNames == null || columnNames.length == 0) {
+            final Map<ColumnName, MutableColumn> keys = binding.getKeyColumns();
+
+            if(keys.isEmpty()) {
+                throw new EoDException("Cannot look up a " + type.getName() +
+                        " by key, it has no AutoGeneratedKeys columns and " +
+                        "no key columns were specified.");
+            }
+
+            final ColumnName[] names = keys.keySet().toArray(
+                    new ColumnName[keys.size()]);
+
+            Arrays.sort(names, COLUMN_ORDER);
+            columns = new MutableColumn[names.length];
+
+            for(int i = 0; i < names.length; i++) {
+                columns[i] = keys.get(names[i]);
+            }
+        } else {
+            final Map<ColumnName, MutableColumn> normal =
+                    binding.getNormalColumns();
+
+            columns = new MutableColumn[columnNames.length];
+
+            for(int i = 0; i < columnNames.length; i++) {
+                columns[i] = normal.get(new ColumnName(columnNames[i]));
+
+                if(columns[i] == null) {
+                    throw new EoDException("Cannot find key column " +
+                            columnNames[i] + " in " + type.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Widens integral numbers to {@code Long}, so that keys of different
+     * integral types still compare equal. Any other value is returned as-is.
+     *
+     * @param key the key value to normalize
+     * @return the normalized key value
+     */
+    public static Object normalize(final Object key) {
+        if(key instanceof Integer || key instanceof Short ||
+                key instanceof Byte) {
+
+            return Long.valueOf(((Number)key).longValue());
+        } else if(key instanceof BigInteger &&
+                ((BigInteger)key).bitLength() < 64) {
+
+            return Long.valueOf(((BigInteger)key).longValue());
+        }
+
+        return key;
+    }
+
+    private Object toKey(final Object[] values) {
+        if(values.length == 1) {
+            return normalize(values[0]);
+        }
+
+        final Object[] key = new Object[values.length];
+
+        for(int i = 0; i < values.length; i++) {
+            key[i] = normalize(values[i]);
+        }
+
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Adds a row to this index, unless it's key is already held by an
+     * earlier row.
+     *
+     * @param row the row object
+     * @param rowIndex the index of the row in it's {@code DataSet}
+     * @return the index of the first row holding the key of the given row,
+     *      or {@literal -1} if the row is {@literal null}
+     */
+    int add(final Object row, final int rowIndex) {
+        if(row == null) {
+            return -1;
+        }
+
+        final Object[] values = new Object[columns.length];
+
+        for(int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].get(row);
+        }
+
+        final Object key = toKey(values);
+        final Integer first = index.get(key);
+
+        if(first != null) {
+            return first.intValue();
+        }
+
+        index.put(key, rowIndex);
+        return rowIndex;
+    }
+
+    /**
+     * Returns the index of the first row with the given key, or {@literal -1}
+     * if there is no such row.
+     *
+     * @param key the values of the key columns, in order
+     * @return the index of the row, or {@literal -1}
+     * @throws IllegalArgumentException if the wrong number of key values
+     *      was given
+     */
+    int indexOf(final Object[] key) throws IllegalArgumentException {
+        if(key == null || key.length != columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length +
+                    " key values, found " + (key == null ? 0 : key.length));
+        }
+
+        final Integer rowIndex = index.get(toKey(key));
+        return rowIndex != null ? rowIndex.intValue() : -1;
+    }
+
+}
@@ -0,0 +1,182 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+
+import java.util.Map;
+import java.util.List;
+import java.util.ArrayList;
+
+import net.lemnik.eodsql.Lazy;
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.ResultColumn;
+import net.lemnik.eodsql.InvalidDataTypeException;
+
+import net.lemnik.eodsql.spi.util.DataObjectBindingCache.ColumnName;
+
+/**
+ * <p>
+ * Binds a {@link ResultColumn#lazy() lazy} column of a data-object type to
+ * it's {@link Lazy} field. A {@code LazyBinding} describes where the column
+ * is loaded from, reads the key that each data-object loads it's value by,
+ * and assigns the {@code Lazy} objects to the data-objects. Creating the
+ * {@code Lazy} objects, and loading them, is left to the caller.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public class LazyBinding {
+
+    private final String columnName;
+
+    private final String table;
+
+    private final Class<?> valueType;
+
+    private final MutableField field;
+
+    private final MutableColumn keyColumn;
+
+    LazyBinding(final Class<?> type, final Field f)
+            throws InvalidDataTypeException {
+
+        final ResultColumn column = f.getAnnotation(ResultColumn.class);
+
+        if(f.getType() != Lazy.class) {
+            throw new InvalidDataTypeException("A lazy @ResultColumn must " +
+                    "be a field of type Lazy: " + f.getName(), type);
+        }
+
+        if(column.table().length() == 0) {
+            throw new InvalidDataTypeException("A lazy @ResultColumn must " +
+                    "name the table it is loaded from: " + f.getName(), type);
+        }
+
+        final Map<ColumnName, MutableColumn> keys =
+                DataObjectBindingCache.getDataObjectBindingCache(type).
+                getKeyColumns();
+
+        if(keys.size() != 1) {
+            throw new InvalidDataTypeException("A data-object with a lazy " +
+                    "@ResultColumn must have exactly one AutoGeneratedKeys " +
+                    "column.", type);
+        }
+
+        this.columnName = column.value();
+        this.table = column.table();
+        this.valueType = getValueType(f);
+        this.keyColumn = keys.values().iterator().next();
+        this.field = new MutableField(
+                f.getName(),
+                f,
+                DataObjectBindingCache.HAVE_ACCESSIBLE_PERMISSION);
+    }
+
+    private static Class<?> getValueType(final Field f) {
+        final Type type = f.getGenericType();
+
+        if(type instanceof ParameterizedType) {
+            final Type argument =
+                    ((ParameterizedType)type).getActualTypeArguments()[0];
+
+            if(argument instanceof Class) {
+                return (Class<?>)argument;
+            }
+        }
+
+        throw new InvalidDataTypeException("A lazy @ResultColumn must " +
+                "declare the type of it's value: " + f.getName(),
+                f.getDeclaringClass());
+    }
+
+    /**
+     * Returns whether the given field is a lazy column.
+     */
+    static boolean isLazy(final Field f) {
+        final ResultColumn column = f.getAnnotation(ResultColumn.class);
+        return column != null && column.lazy();
+    }
+
+    /**
+     * Returns the bindings of every lazy column declared by the given
+     * data-object type, or it's super-classes.
+     *
+     * @param type the data-object type
+     * @return the bindings of it's lazy columns, which may be empty
+     * @throws InvalidDataTypeException if any of the columns cannot be bound
+     */
+    public static List<LazyBinding> getLazyBindings(final Class<?> type)
+            throws InvalidDataTypeException {
+
+        final List<LazyBinding> bindings = new ArrayList<LazyBinding>();
+        Class<?> current = type;
+
+        while(current != null && current != Object.class) {
+            for(final Field f : current.getDeclaredFields()) {
+                if(isLazy(f) && !Modifier.isStatic(f.getModifiers())) {
+                    bindings.add(new LazyBinding(type, f));
+                }
+            }
+
+            current = current.getSuperclass();
+        }
+
+        return bindings;
+    }
+
+    /**
+     * Returns the name of the lazy column.
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Returns the name of the table the lazy column is loaded from.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the name of the key column the lazy column is loaded by.
+     */
+    public String getKeyColumnName() {
+        return keyColumn.getColumnName();
+    }
+
+    /**
+     * Returns the type of the value of the lazy column.
+     */
+    public Class<?> getValueType() {
+        return valueType;
+    }
+
+    /**
+     * Returns the key the given data-object loads it's lazy column by.
+     *
+     * @param object the data-object
+     * @return it's key, which may be {@literal null}
+     * @throws EoDException if the key cannot be read
+     */
+    public Object getKey(final Object object) throws EoDException {
+        return keyColumn.get(object);
+    }
+
+    /**
+     * Assigns a {@code Lazy} to the field of the given data-object.
+     *
+     * @param object the data-object
+     * @param lazy the {@code Lazy} that will load it's column
+     * @throws EoDException if the field cannot be assigned to
+     */
+    public void set(final Object object, final Lazy<?> lazy)
+            throws EoDException {
+
+        field.set(object, lazy);
+    }
+
+}
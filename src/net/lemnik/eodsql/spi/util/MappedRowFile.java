@@ -0,0 +1,386 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.io.File;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.RandomAccessFile;
+import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.lemnik.eodsql.EoDException;
+
+/**
+ * <p>
+ * A read-only list of rows held in a temporary file instead of the heap.
+ * Rows are {@link #append(Object) appended} with a {@link RowCodec} while
+ * the file is being written, and once it is {@link #finish() finished} the
+ * file is memory-mapped, and {@link #get(int)} decodes a row straight from
+ * the mapping using an index of row offsets. The file is deleted when the
+ * {@code MappedRowFile} is {@link #close() closed}, or failing that when the
+ * JVM exits.
+ * </p><p>
+ * Temporary files hold the results of queries, so they are created in a
+ * directory of the temporary directory that only the current user may read,
+ * and are themselves only readable by the current user.
+ * </p><p>
+ * A {@code MappedRowFile} can also map the rows of an existing file, such as
+ * a {@link DataSetSnapshot}, given the offset of each row in the file. Such a
+ * file is left in place when the {@code MappedRowFile} is closed.
+ * </p><p>
+ * The file is mapped in segments of up to {@link #MAX_SEGMENT_SIZE} bytes,
+ * each holding whole rows, since a single mapping cannot be larger than
+ * {@code Integer.MAX_VALUE} bytes.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+class MappedRowFile<T> implements Closeable {
+
+    /**
+     * The largest number of bytes mapped by a single segment, unless a
+     * single row is larger.
+     */
+    static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    private final RowCodec<T> codec;
+
+    private final File file;
+
+    private final long[] offsets;
+
+    private final boolean temporary;
+
+    /**
+     * The column of the codec for each encoded column, or {@literal null}
+     * if the rows were encoded by the codec itself.
+     */
+    private final int[] layout;
+
+    private int size = 0;
+
+    private long length = 0;
+
+    private DataOutputStream output;
+
+    private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream();
+
+    private final DataOutputStream rowOutput = new DataOutputStream(rowBuffer);
+
+    /**
+     * The first row of each segment.
+     */
+    private int[] segmentRows = null;
+
+    private MappedByteBuffer[] segments = null;
+
+    private volatile boolean closed = false;
+
+    /**
+     * The directory the temporary files are created in.
+     */
+    private static File directory = null;
+
+    /**
+     * Creates a new temporary file for the given number of rows.
+     *
+     * @param codec encodes and decodes the rows
+     * @param capacity the number of rows that will be appended
+     * @throws IOException if the file cannot be created
+     */
+    MappedRowFile(final RowCodec<T> codec, final int capacity)
+            throws IOException {
+
+        this.codec = codec;
+        this.offsets = new long[capacity + 1];
+        this.temporary = true;
+        this.layout = null;
+        this.file = File.createTempFile("eodsql", ".rows", getDirectory());
+
+        restrict(file);
+        file.deleteOnExit();
+
+        try {
+            final OutputStream out = new FileOutputStream(file);
+            this.output = new DataOutputStream(new BufferedOutputStream(
+                    out,
+                    64 * 1024));
+        } catch(final IOException ioe) {
+            file.delete();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Returns the directory to create temporary files in, creating it if
+     * need be. The directory is only readable by the current user, so no
+     * other user can open a file in it before it's own permissions are
+     * restricted.
+     */
+    private static synchronized File getDirectory() throws IOException {
+        if(directory == null || !directory.isDirectory()) {
+            final File created = File.createTempFile("eodsql", ".dir");
+
+            // another user may create a file or directory of the same name
+            // once we delete it, in which case mkdir() fails
+            if(!created.delete() || !created.mkdir()) {
+                throw new IOException("Could not create a directory for " +
+                        "the rows: " + created);
+            }
+
+            restrict(created);
+            created.setExecutable(false, false);
+            created.setExecutable(true, true);
+
+            // registered before any of it's files, so it is deleted after them
+            created.deleteOnExit();
+            directory = created;
+        }
+
+        return directory;
+    }
+
+    /**
+     * Takes away the permissions of everyone but the owner of a file. This
+     * is not supported on every platform.
+     */
+    private static void restrict(final File file) {
+        file.setReadable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(false, false);
+        file.setWritable(true, true);
+    }
+
+    /**
+     * Maps the rows of an existing file.
+     *
+     * @param codec decodes the rows
+     * @param file the file holding the rows
+     * @param offsets the position of each row in the file, followed by
+     *      the position of the end of the last row
+     * @param layout the column of the codec for each encoded column, or
+     *      {@literal null} if the rows were encoded by the same codec
+     * @throws IOException if the file cannot be mapped
+     */
+    MappedRowFile(
+            final RowCodec<T> codec,
+            final File file,
+            final long[] offsets,
+            final int[] layout)
+            throws IOException {
+
+        this.codec = codec;
+        this.file = file;
+        this.offsets = offsets;
+        this.temporary = false;
+        this.layout = layout;
+        this.size = offsets.length - 1;
+        this.output = null;
+
+        map();
+    }
+
+    /**
+     * Encodes a row onto the end of the file.
+     *
+     * @param row the row to append
+     * @throws IOException if the row cannot be written
+     * @throws EoDException if the row cannot be encoded
+     */
+    void append(final T row) throws IOException, EoDException {
+        rowBuffer.reset();
+        codec.encode(row, rowOutput);
+        rowOutput.flush();
+
+        rowBuffer.writeTo(output);
+
+        offsets[size] = length;
+        length += rowBuffer.size();
+        size++;
+    }
+
+    /**
+     * Finishes writing the file, and maps it into memory.
+     *
+     * @throws IOException if the file cannot be mapped
+     */
+    void finish() throws IOException {
+        offsets[size] = length;
+        output.close();
+        output = null;
+
+        map();
+    }
+
+    private void map() throws IOException {
+        int count = 0;
+        final int[] rows = new int[size + 1];
+
+        for(int row = 0; row < size; ) {
+            rows[count++] = row;
+
+            final long start = offsets[row];
+            row++;
+
+            while(row < size && offsets[row + 1] - start <= MAX_SEGMENT_SIZE) {
+                row++;
+            }
+        }
+
+        segmentRows = new int[count + 1];
+        System.arraycopy(rows, 0, segmentRows, 0, count);
+        segmentRows[count] = size;
+
+        segments = new MappedByteBuffer[count];
+
+        final RandomAccessFile random = new RandomAccessFile(file, "r");
+
+        try {
+            final FileChannel channel = random.getChannel();
+
+            for(int i = 0; i < count; i++) {
+                final long start = offsets[segmentRows[i]];
+                final long end = offsets[segmentRows[i + 1]];
+
+                segments[i] = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        start,
+                        end - start);
+            }
+        } finally {
+            // the mappings stay valid once the channel is closed
+            random.close();
+        }
+    }
+
+    /**
+     * Returns the number of rows in the file.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Decodes a row from the file, which must be {@link #finish() finished}.
+     *
+     * @param index the index of the row
+     * @return a new data-object holding the row
+     * @throws EoDException if the row cannot be decoded, or the file has
+     *      been closed
+     */
+    T get(final int index) throws EoDException {
+        // close() may be invoked by another thread at any time
+        final MappedByteBuffer[] mapped = segments;
+
+        if(closed || mapped == null) {
+            throw new EoDException("The rows have been closed.");
+        }
+
+        final int segment = getSegment(mapped, index);
+        final long start = offsets[segmentRows[segment]];
+
+        final ByteBuffer buffer = mapped[segment].duplicate();
+        buffer.limit((int)(offsets[index + 1] - start));
+        buffer.position((int)(offsets[index] - start));
+
+        try {
+            return codec.decode(
+                    new DataInputStream(new ByteBufferInputStream(buffer)),
+                    layout);
+        } catch(final IOException ioe) {
+            throw new EoDException("Could not decode row " + index, ioe);
+        }
+    }
+
+    private int getSegment(final MappedByteBuffer[] mapped, final int index) {
+        int low = 0;
+        int high = mapped.length - 1;
+
+        while(low < high) {
+            final int middle = (low + high + 1) >>> 1;
+
+            if(segmentRows[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Releases the mapping, and deletes the file if it is temporary.
+     */
+    public void close() {
+        if(closed) {
+            return;
+        }
+
+        closed = true;
+        segments = null;
+
+        if(output != null) {
+            try {
+                output.close();
+            } catch(final IOException ioe) {
+                // ignore this, we are throwing the file away
+            }
+
+            output = null;
+        }
+
+        // some platforms will not delete a file that is still mapped, the
+        // mappings are only released when they are collected, so the file
+        // is also deleted on exit
+        if(temporary) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of a {@code ByteBuffer}.
+     */
+    static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if(len == 0) {
+                return 0;
+            } else if(!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
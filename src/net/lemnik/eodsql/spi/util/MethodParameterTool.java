@@ -29,6 +29,10 @@ interface MethodParameterTool {
             return params[paramIndex];
         }
 
+        public int getParameterIndex() {
+            return paramIndex;
+        }
+
         public Class getParameterType() {
             return type;
         }
@@ -130,4 +134,49 @@ interface MethodParameterTool {
 
     }
     // </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc=" List ">
+    class List implements MethodParameterTool {
+
+        private final MethodParameterTool source;
+
+        private final Class elementType;
+
+        /** Creates a new instance of ListParameterHandler */
+        public List(final MethodParameterTool source) {
+            this.source = source;
+
+            final Class type = source.getParameterType();
+
+            this.elementType = type.isArray()
+                    ? type.getComponentType()
+                    : Object.class;
+        }
+
+        /**
+         * Returns the array or {@code Collection} to be expanded.
+         */
+        public Object getParameter(final Object... params) {
+            return source.getParameter(params);
+        }
+
+        /**
+         * Returns the type of the elements to be expanded, which is
+         * {@code Object} for a {@code Collection}.
+         */
+        public Class getParameterType() {
+            return elementType;
+        }
+
+        /**
+         * Returns the index of the method parameter that is expanded, or
+         * {@literal -1} if the list is a field or property of a parameter.
+         */
+        public int getParameterIndex() {
+            return source instanceof Parameter
+                    ? ((Parameter)source).getParameterIndex()
+                    : -1;
+        }
+
+    }
+    // </editor-fold>
 }
@@ -0,0 +1,303 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.lang.reflect.Type;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+
+import java.util.List;
+import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.InvalidDataTypeException;
+
+/**
+ * <p>
+ * A {@code Collection} field of a data-object annotated with
+ * {@link net.lemnik.eodsql.Nested @Nested}. Each row unmarshalled into the
+ * data-object creates at most one element of the collection, from the columns
+ * described by the {@link ElementColumn}s of the collection. The objects
+ * unmarshalled from several rows are then merged by
+ * {@link #group(Class, NestedCollection[], List)} into one object per
+ * parent key.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+class NestedCollection {
+
+    private final MutableField field;
+
+    private final Class<?> collectionType;
+
+    private final Class<?> elementType;
+
+    private final DataObjectBinding<Object> elementBinding;
+
+    private final int slot;
+
+    /**
+     * @param field the collection field
+     * @param f the reflected collection field
+     * @param slot the index of this collection within the collections of
+     *      it's data-object type, or {@literal -1} if it is not {@code @Nested}
+     * @throws InvalidDataTypeException if the field is not a collection of
+     *      data-objects that can be created
+     */
+    @SuppressWarnings("unchecked")
+    NestedCollection(
+            final MutableField field,
+            final Field f,
+            final int slot)
+            throws InvalidDataTypeException {
+
+        this.field = field;
+        this.collectionType = f.getType();
+        this.elementType = getElementType(f);
+        this.elementBinding = new DefaultDataObjectBinding<Object>(
+                (Class<Object>)elementType);
+
+        this.slot = slot;
+
+        if(collectionType.isInterface()) {
+            if(!collectionType.isAssignableFrom(ArrayList.class) &&
+                    !collectionType.isAssignableFrom(LinkedHashSet.class) &&
+                    !collectionType.isAssignableFrom(TreeSet.class)) {
+
+                throw new InvalidDataTypeException("Cannot create a " +
+                        collectionType.getName() + " for the field: " +
+                        f.getName(), f.getDeclaringClass());
+            }
+        } else if(Modifier.isAbstract(collectionType.getModifiers())) {
+            throw new InvalidDataTypeException("A collection field must " +
+                    "be an interface or a concrete class: " + f.getName(),
+                    f.getDeclaringClass());
+        }
+    }
+
+    private static Class<?> getElementType(final Field f) {
+        final Type type = f.getGenericType();
+
+        if(type instanceof ParameterizedType) {
+            final Type[] arguments =
+                    ((ParameterizedType)type).getActualTypeArguments();
+
+            if(arguments.length == 1 && arguments[0] instanceof Class) {
+                return (Class<?>)arguments[0];
+            }
+        }
+
+        throw new InvalidDataTypeException("A collection field must " +
+                "declare it's element type: " + f.getName(),
+                f.getDeclaringClass());
+    }
+
+    Class<?> getElementType() {
+        return elementType;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    Object newElement() throws EoDException {
+        return elementBinding.newInstance();
+    }
+
+    @SuppressWarnings("unchecked")
+    Collection<Object> newCollection() throws EoDException {
+        if(collectionType.isAssignableFrom(ArrayList.class)) {
+            return new ArrayList<Object>();
+        } else if(collectionType.isAssignableFrom(LinkedHashSet.class)) {
+            return new LinkedHashSet<Object>();
+        } else if(collectionType.isAssignableFrom(TreeSet.class)) {
+            return new TreeSet<Object>();
+        }
+
+        try {
+            return (Collection<Object>)collectionType.newInstance();
+        } catch(final InstantiationException ie) {
+            throw new EoDException("Cannot create a " +
+                    collectionType.getName() + " for " + field, ie);
+        } catch(final IllegalAccessException iae) {
+            throw new EoDException("Cannot create a " +
+                    collectionType.getName() + " for " + field, iae);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> get(final Object parent) {
+        return (Collection<Object>)field.get(parent);
+    }
+
+    void set(final Object parent, final Collection<Object> collection)
+            throws EoDException {
+
+        field.set(parent, collection);
+    }
+
+    /**
+     * Replaces the collection of the given parent object with a new
+     * collection holding only the given element.
+     *
+     * @param parent the data-object that was unmarshalled
+     * @param element the element unmarshalled from the same row, or
+     *      {@literal null} if all of it's columns were {@literal null}
+     */
+    void reset(final Object parent, final Object element) throws EoDException {
+        final Collection<Object> collection = newCollection();
+
+        if(element != null) {
+            collection.add(element);
+        }
+
+        field.set(parent, collection);
+    }
+
+    /**
+     * Removes the repeated elements (by key) from the collection of the
+     * given parent, if the element type has any key columns.
+     */
+    private void distinct(final Object parent) {
+        final Collection<Object> collection = get(parent);
+
+        if(collection == null || collection.size() < 2) {
+            return;
+        }
+
+        final KeyIndex index = new KeyIndex(elementType, null);
+        final List<Object> kept = new ArrayList<Object>(collection.size());
+
+        for(final Object element : collection) {
+            if(index.add(element, kept.size()) == kept.size()) {
+                kept.add(element);
+            }
+        }
+
+        if(kept.size() != collection.size()) {
+            collection.clear();
+            collection.addAll(kept);
+        }
+    }
+
+    private boolean isKeyed() {
+        return !DataObjectBindingCache.getDataObjectBindingCache(elementType).
+                getKeyColumns().isEmpty();
+    }
+
+    /**
+     * Merges data-objects unmarshalled from several rows that hold the same
+     * key, appending the elements of the nested collections of each repeated
+     * object to those of the first object with it's key.
+     *
+     * @param type the data-object type, which must have key columns
+     * @param collections the nested collections of the data-object type
+     * @param rows the data-objects unmarshalled from each row
+     * @return the first data-object with each key, in the order they
+     *      were found
+     * @throws EoDException if the type has no key columns
+     */
+    static <T> List<T> group(
+            final Class<?> type,
+            final NestedCollection[] collections,
+            final List<T> rows)
+            throws EoDException {
+
+        final KeyIndex index = new KeyIndex(type, null);
+        final List<T> parents = new ArrayList<T>();
+
+        for(final T row : rows) {
+            final int first = index.add(row, parents.size());
+
+            if(first == parents.size()) {
+                parents.add(row);
+            } else if(first != -1) {
+                final T parent = parents.get(first);
+
+                for(final NestedCollection collection : collections) {
+                    final Collection<Object> elements = collection.get(row);
+
+                    if(elements != null && !elements.isEmpty()) {
+                        Collection<Object> into = collection.get(parent);
+
+                        if(into == null) {
+                            into = collection.newCollection();
+                            collection.field.set(parent, into);
+                        }
+
+                        into.addAll(elements);
+                    }
+                }
+            }
+        }
+
+        for(final NestedCollection collection : collections) {
+            if(collection.isKeyed()) {
+                for(final T parent : parents) {
+                    collection.distinct(parent);
+                }
+            }
+        }
+
+        return parents;
+    }
+
+    /**
+     * A column of the element type of a {@code NestedCollection}. These
+     * columns are not set on the parent data-object directly, instead the
+     * binding unmarshalling the row collects them into a single element
+     * (using {@link #setElement(Object, Object)}), and then hands the element
+     * to {@link NestedCollection#reset(Object, Object)}.
+     */
+    class ElementColumn implements MutableColumn {
+
+        private final String columnName;
+
+        private final MutableColumn column;
+
+        ElementColumn(final String prefix, final MutableColumn column) {
+            this.columnName = prefix + column.getColumnName();
+            this.column = column;
+        }
+
+        NestedCollection getCollection() {
+            return NestedCollection.this;
+        }
+
+        void setElement(final Object element, final Object value)
+                throws EoDException {
+
+            column.set(element, value);
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+
+        public void set(final Object object, final Object value)
+                throws EoDException {
+
+            throw new EoDException("The elements of a @Nested collection " +
+                    "can only be set by unmarshalling a row: " + this);
+        }
+
+        public Object get(final Object object) throws EoDException {
+            return null;
+        }
+
+        public Class getType() {
+            return column.getType();
+        }
+
+        @Override
+        public String toString() {
+            return field + "[]." + column;
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package net.lemnik.eodsql.spi.util;
+
+import net.lemnik.eodsql.EoDException;
+
+/**
+ * <p>
+ * A column of an object embedded in a data-object with the
+ * {@link net.lemnik.eodsql.Nested @Nested} annotation. The embedded object
+ * is held in a field of the outer data-object, and is only created when a
+ * {@literal non-null} value is assigned to one of it's columns.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+class NestedColumn implements MutableColumn {
+
+    private final String columnName;
+
+    private final MutableField field;
+
+    private final DataObjectBinding<?> binding;
+
+    private final MutableColumn column;
+
+    /**
+     * @param prefix the prefix of the embedded columns
+     * @param field the field of the outer data-object holding the
+     *      embedded object
+     * @param binding a binding for the embedded type, used to create it
+     * @param column the column of the embedded type
+     */
+    NestedColumn(
+            final String prefix,
+            final MutableField field,
+            final DataObjectBinding<?> binding,
+            final MutableColumn column) {
+
+        this.columnName = prefix + column.getColumnName();
+        this.field = field;
+        this.binding = binding;
+        this.column = column;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public void set(
+            final Object object,
+            final Object value)
+            throws EoDException {
+
+        Object nested = field.get(object);
+
+        if(nested == null) {
+            if(value == null) {
+                return;
+            }
+
+            nested = binding.newInstance();
+            field.set(object, nested);
+        }
+
+        column.set(nested, value);
+    }
+
+    public Object get(final Object object) throws EoDException {
+        final Object nested = field.get(object);
+        return nested != null ? column.get(nested) : null;
+    }
+
+    public Class getType() {
+        return column.getType();
+    }
+
+    @Override
+    public String toString() {
+        return field + "." + column;
+    }
+
+}
@@ -0,0 +1,266 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+import net.lemnik.eodsql.Prefetch;
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.InvalidDataTypeException;
+
+import net.lemnik.eodsql.spi.util.DataObjectBindingCache.ColumnName;
+
+/**
+ * <p>
+ * Binds a {@link Prefetch @Prefetch} field of a data-object type to the
+ * related objects returned by it's query method. A {@code PrefetchBinding}
+ * collects the keys to query for from a number of data-objects with
+ * {@link #getKeys(Collection)}, and then hands the related objects back to
+ * the data-objects they belong to with {@link #attach(Collection, Collection)}.
+ * Invoking the query method itself is left to the caller.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+public class PrefetchBinding {
+
+    private final Prefetch prefetch;
+
+    private final MutableField field;
+
+    /**
+     * The collection held by the field, or {@literal null} if the field
+     * references a single related object.
+     */
+    private final NestedCollection collection;
+
+    private final Class<?> relatedType;
+
+    /**
+     * The column holding the key of the data-object (for a collection), or
+     * the key of the related object (for a reference).
+     */
+    private final MutableColumn keyColumn;
+
+    /**
+     * The column of the related object (for a collection), or of the
+     * data-object (for a reference) that {@link #keyColumn} is matched to.
+     */
+    private final MutableColumn joinColumn;
+
+    PrefetchBinding(final Class<?> type, final Field f)
+            throws InvalidDataTypeException {
+
+        prefetch = f.getAnnotation(Prefetch.class);
+        field = new MutableField(
+                f.getName(),
+                f,
+                DataObjectBindingCache.HAVE_ACCESSIBLE_PERMISSION);
+
+        final Class<?> owner;
+
+        if(Collection.class.isAssignableFrom(f.getType())) {
+            collection = new NestedCollection(field, f, -1);
+            relatedType = collection.getElementType();
+            owner = type;
+
+            keyColumn = getKeyColumn(type);
+            joinColumn = getColumn(relatedType, prefetch.column());
+        } else {
+            collection = null;
+            relatedType = f.getType();
+            owner = relatedType;
+
+            keyColumn = getKeyColumn(relatedType);
+            joinColumn = getColumn(type, prefetch.column());
+        }
+
+        if(keyColumn == null) {
+            throw new InvalidDataTypeException("@Prefetch field " +
+                    f.getName() + " requires exactly one AutoGeneratedKeys " +
+                    "column in " + owner.getName(), type);
+        }
+    }
+
+    private static MutableColumn getKeyColumn(final Class<?> type) {
+        final Map<ColumnName, MutableColumn> keys =
+                DataObjectBindingCache.getDataObjectBindingCache(type).
+                getKeyColumns();
+
+        return keys.size() == 1 ? keys.values().iterator().next() : null;
+    }
+
+    private static MutableColumn getColumn(
+            final Class<?> type,
+            final String name)
+            throws InvalidDataTypeException {
+
+        final MutableColumn column = DataObjectBindingCache.
+                getDataObjectBindingCache(type).
+                getNormalColumns().get(new ColumnName(name));
+
+        if(column == null) {
+            throw new InvalidDataTypeException("Cannot find the @Prefetch " +
+                    "column " + name + " in " + type.getName(), type);
+        }
+
+        return column;
+    }
+
+    /**
+     * Returns the bindings of every {@code @Prefetch} field declared by the
+     * given data-object type, or it's super-classes.
+     *
+     * @param type the data-object type
+     * @return the bindings of it's {@code @Prefetch} fields, which may be
+     *      empty
+     * @throws InvalidDataTypeException if any of the fields cannot be bound
+     */
+    public static List<PrefetchBinding> getPrefetchBindings(
+            final Class<?> type)
+            throws InvalidDataTypeException {
+
+        final List<PrefetchBinding> bindings = new ArrayList<PrefetchBinding>();
+        Class<?> current = type;
+
+        while(current != null && current != Object.class) {
+            for(final Field f : current.getDeclaredFields()) {
+                if(f.isAnnotationPresent(Prefetch.class) &&
+                        !Modifier.isStatic(f.getModifiers())) {
+
+                    bindings.add(new PrefetchBinding(type, f));
+                }
+            }
+
+            current = current.getSuperclass();
+        }
+
+        return bindings;
+    }
+
+    /**
+     * Returns the {@code @Prefetch} annotation of the bound field.
+     */
+    public Prefetch getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Returns the type of the related objects.
+     */
+    public Class<?> getRelatedType() {
+        return relatedType;
+    }
+
+    /**
+     * Returns the distinct, {@literal non-null} keys that the related objects
+     * of the given data-objects are looked up by, in the order they were found.
+     *
+     * @param objects the data-objects to prefetch for
+     * @return the keys to invoke the query method with
+     */
+    public Collection<Object> getKeys(final Collection<?> objects) {
+        final MutableColumn column = collection != null
+                ? keyColumn
+                : joinColumn;
+
+        final Map<Object, Object> keys = new LinkedHashMap<Object, Object>();
+
+        for(final Object object : objects) {
+            if(object != null) {
+                final Object key = column.get(object);
+
+                if(key != null) {
+                    final Object normalized = KeyIndex.normalize(key);
+
+                    if(!keys.containsKey(normalized)) {
+                        keys.put(normalized, key);
+                    }
+                }
+            }
+        }
+
+        return keys.values();
+    }
+
+    /**
+     * Assigns the related objects returned by the query method to the fields
+     * of the data-objects they belong to. Every data-object is assigned to,
+     * with an empty collection or {@literal null} if none of the related
+     * objects belong to it.
+     *
+     * @param objects the data-objects to attach the related objects to
+     * @param related the objects returned by the query method
+     * @throws EoDException if the field could not be assigned to
+     */
+    public void attach(
+            final Collection<?> objects,
+            final Collection<?> related)
+            throws EoDException {
+
+        if(collection != null) {
+            final Map<Object, List<Object>> children =
+                    new HashMap<Object, List<Object>>();
+
+            for(final Object child : related) {
+                if(child == null) {
+                    continue;
+                }
+
+                final Object key = KeyIndex.normalize(joinColumn.get(child));
+                List<Object> list = children.get(key);
+
+                if(list == null) {
+                    list = new ArrayList<Object>();
+                    children.put(key, list);
+                }
+
+                list.add(child);
+            }
+
+            for(final Object object : objects) {
+                if(object != null) {
+                    final Collection<Object> elements =
+                            collection.newCollection();
+
+                    final List<Object> list = children.get(
+                            KeyIndex.normalize(keyColumn.get(object)));
+
+                    if(list != null) {
+                        elements.addAll(list);
+                    }
+
+                    collection.set(object, elements);
+                }
+            }
+        } else {
+            final Map<Object, Object> references = new HashMap<Object, Object>();
+
+            for(final Object reference : related) {
+                if(reference != null) {
+                    references.put(
+                            KeyIndex.normalize(keyColumn.get(reference)),
+                            reference);
+                }
+            }
+
+            for(final Object object : objects) {
+                if(object != null) {
+                    final Object key = joinColumn.get(object);
+
+                    field.set(object, key != null
+                            ? references.get(KeyIndex.normalize(key))
+                            : null);
+                }
+            }
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import java.beans.IntrospectionException;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -17,6 +18,9 @@ import java.util.List;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.AbstractList;
 
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,7 +34,9 @@ import net.lemnik.eodsql.spi.Context;
  * This class represents an immutable EoD-SQL query. An EoD-SQL query allows for the parameter
  * description to be built into the SQL. This class parses the query and produces a plain
  * SQL string (with prepared '?' placeholders for injected parameters), and then allows for
- * extraction of the parameters from a {@link Context} object.
+ * extraction of the parameters from a {@link Context} object. A parameter written as
+ * {@code ?{1[]}} is a {@link #isListParameter(int) list parameter}, which is expanded
+ * into one placeholder for each element of an array or {@code Collection}.
  * 
  * @author Jason Morris
  */
@@ -43,6 +49,20 @@ public final class Query {
 
     private MethodParameterTool[] parameters = EMPTY_PARAMETERS;
 
+    /**
+     * The SQL between each of the list parameters, or {@literal null} if
+     * this {@code Query} has no list parameters.
+     */
+    private String[] fragments = null;
+
+    private int listParameterCount = 0;
+
+    /**
+     * The expanded SQL for each combination of list sizes that has been used.
+     */
+    private final ConcurrentMap<ListSizes, String> expansions =
+            new ConcurrentHashMap<ListSizes, String>();
+
     /**
      * <p>
      * Create a new {@code Query} object. The given query string will be
@@ -124,6 +144,122 @@ public final class Query {
         return parameters.length;
     }
 
+    /**
+     * Returns the number of list parameters (specified as {@code ?{1[]}}) in
+     * this {@code Query}.
+     *
+     * @return the number of parameters that expand to a list of values
+     * @since 2.2
+     */
+    public int getListParameterCount() {
+        return listParameterCount;
+    }
+
+    /**
+     * Returns whether the parameter at the given index is a list parameter.
+     * A list parameter is specified as {@code ?{1[]}} or {@code ?{1.ids[]}},
+     * and refers to an array or {@code Collection}. Each list parameter is
+     * expanded into a comma separated list of placeholders when the SQL is
+     * fetched with {@link #toString(int[])}, making it suitable for use in
+     * an {@code IN} clause. The {@link #getParameterType(int) type} of
+     * a list parameter is the type of it's elements ({@code Object} for
+     * a {@code Collection}).
+     *
+     * @param index the index of the parameter
+     * @return {@literal true} if the parameter expands to a list of values
+     * @since 2.2
+     */
+    public boolean isListParameter(final int index) {
+        return parameters[index] instanceof MethodParameterTool.List;
+    }
+
+    /**
+     * Returns the index of the method parameter that the given list parameter
+     * expands, or {@literal -1} if the list is read from a field or property
+     * of a method parameter.
+     *
+     * @param index the index of the list parameter in this {@code Query}
+     * @return the index of the method parameter holding the list
+     * @since 2.2
+     */
+    public int getListParameterSource(final int index) {
+        return ((MethodParameterTool.List)parameters[index]).getParameterIndex();
+    }
+
+    /**
+     * <p>
+     * Extracts a list parameter from the specified {@link Context} as a
+     * {@code List}.
+     * </p><p>
+     * A {@literal null} or empty list is rejected: there is no portable SQL
+     * for an empty {@code IN} list, and binding a {@code NULL} in it's place
+     * would have {@code NOT IN} match no rows instead of every row.
+     * </p>
+     *
+     * @param context the {@code Context} to extract the parameter from
+     * @param index the index of the list parameter in this {@code Query}
+     * @return the values of the list parameter
+     * @throws IllegalArgumentException if the list is {@literal null} or
+     *      empty
+     * @since 2.2
+     */
+    public List<?> getListParameter(final Context context, final int index) {
+        final Object value = getParameter(context, index);
+        final List<?> list;
+
+        if(value == null) {
+            list = Collections.emptyList();
+        } else if(value instanceof List) {
+            list = (List<?>)value;
+        } else if(value instanceof Collection) {
+            list = new ArrayList<Object>((Collection<?>)value);
+        } else if(value instanceof Object[]) {
+            list = Arrays.asList((Object[])value);
+        } else {
+            list = new PrimitiveArrayList(value);
+        }
+
+        if(list.isEmpty()) {
+            throw new IllegalArgumentException("The list for parameter " +
+                    (index + 1) + " of \"" + sql + "\" is " +
+                    (value == null ? "null" : "empty") + ", a query with a " +
+                    "list parameter cannot be run without any values.");
+        }
+
+        return list;
+    }
+
+    /**
+     * <p>
+     * Returns the number of placeholders a list of the given size is expanded
+     * to. Lists are padded to the next power of two (by repeating their last
+     * value) so that only a few distinct statements are ever prepared for a
+     * {@code Query}. A list that fits within {@code maxSize} is never padded
+     * beyond it.
+     * </p>
+     *
+     * @param size the number of values in the list
+     * @param maxSize the largest list that will be bound to a single statement
+     * @return the number of placeholders to expand the list to
+     * @since 2.2
+     */
+    public static int getExpandedSize(final int size, final int maxSize) {
+        if(size <= 1) {
+            return 1;
+        }
+
+        final int bucket = Integer.highestOneBit(size - 1) << 1;
+
+        if(bucket <= 0) {
+            // we've overflowed, so this list just gets what it asked for
+            return size;
+        } else if(size <= maxSize && bucket > maxSize) {
+            return maxSize;
+        }
+
+        return bucket;
+    }
+
     /**
      * Returns the SQL representation of this {@code Query}. This could be used with a
      * {@code PreparedStatement} without modification.
@@ -134,6 +270,87 @@ public final class Query {
     public String toString() {
         return sql;
     }
+
+    /**
+     * Returns the SQL of this {@code Query} with each list parameter
+     * expanded to the given number of placeholders. The SQL for each
+     * combination of sizes is only built once.
+     *
+     * @param listSizes the number of placeholders for each parameter (indexed
+     *      as for {@link #getParameter(Context, int)}), entries for parameters
+     *      that are not list parameters are ignored
+     * @return the expanded SQL
+     * @since 2.2
+     */
+    public String toString(final int[] listSizes) {
+        if(fragments == null) {
+            return sql;
+        }
+
+        return expand(listSizes);
+    }
+
+    /**
+     * Returns the SQL of this {@code Query} with each list parameter expanded
+     * to fit it's values in the given {@code Context}.
+     *
+     * @param context the {@code Context} to extract the list parameters from
+     * @param maxListSize the largest list that will be bound to a single
+     *      statement
+     * @return the expanded SQL
+     * @see #getExpandedSize(int, int)
+     * @since 2.2
+     */
+    public String toString(final Context context, final int maxListSize) {
+        if(fragments == null) {
+            return sql;
+        }
+
+        final int[] sizes = new int[parameters.length];
+
+        for(int i = 0; i < sizes.length; i++) {
+            if(isListParameter(i)) {
+                sizes[i] = getExpandedSize(
+                        getListParameter(context, i).size(),
+                        maxListSize);
+            }
+        }
+
+        return expand(sizes);
+    }
+
+    private String expand(final int[] listSizes) {
+        final int[] sizes = new int[listParameterCount];
+
+        for(int i = 0, list = 0; i < parameters.length; i++) {
+            if(isListParameter(i)) {
+                sizes[list++] = Math.max(1, listSizes[i]);
+            }
+        }
+
+        final ListSizes key = new ListSizes(sizes);
+        String expanded = expansions.get(key);
+
+        if(expanded == null) {
+            final StringBuilder builder = new StringBuilder(sql.length() * 2);
+            builder.append(fragments[0]);
+
+            for(int i = 0; i < sizes.length; i++) {
+                builder.append('?');
+
+                for(int j = 1; j < sizes[i]; j++) {
+                    builder.append(", ?");
+                }
+
+                builder.append(fragments[i + 1]);
+            }
+
+            expanded = builder.toString();
+            expansions.putIfAbsent(key, expanded);
+        }
+
+        return expanded;
+    }
     // <editor-fold defaultstate="collapsed" desc=" validation implementation ">
 
     /**
@@ -273,14 +490,25 @@ public final class Query {
         final List<MethodParameterTool> list =
                 new ArrayList<MethodParameterTool>(0);
 
+        final List<String> fragmentList = new ArrayList<String>(0);
+        int fragmentStart = 0;
+
         try {
             int ch = 0;
 
             while((ch = reader.read()) != -1) {
                 switch(ch) {
                     case '?':
+                        final MethodParameterTool handler =
+                                createParameterHandler(reader, parameterTypes);
+
+                        if(handler instanceof MethodParameterTool.List) {
+                            fragmentList.add(query.substring(fragmentStart));
+                            fragmentStart = query.length() + 1;
+                        }
+
                         query.append('?');
-                        list.add(createParameterHandler(reader, parameterTypes));
+                        list.add(handler);
                         break;
                     default:
                         query.append((char)ch);
@@ -296,6 +524,12 @@ public final class Query {
             parameters = list.toArray(new MethodParameterTool[list.size()]);
         }
 
+        if(!fragmentList.isEmpty()) {
+            fragmentList.add(query.substring(fragmentStart));
+            listParameterCount = fragmentList.size() - 1;
+            fragments = fragmentList.toArray(new String[fragmentList.size()]);
+        }
+
         return query.toString();
     }
 
@@ -317,7 +551,13 @@ public final class Query {
                     reader.getIndex());
         }
 
-        final String param = reader.readUntil('}').trim();
+        String param = reader.readUntil('}').trim();
+        final boolean listParameter = param.endsWith("[]");
+
+        if(listParameter) {
+            param = param.substring(0, param.length() - 2).trim();
+        }
+
         final String[] parts = param.split("\\.");
 
         MethodParameterTool handler = null;
@@ -362,6 +602,19 @@ public final class Query {
             }
         }
 
+        if(listParameter) {
+            final Class type = handler.getParameterType();
+
+            if(!type.isArray() && !Collection.class.isAssignableFrom(type)) {
+                throw new ParseException(
+                        "list parameter ?{" + param + "[]} must be an " +
+                        "array or Collection",
+                        reader.getIndex());
+            }
+
+            handler = new MethodParameterTool.List(handler);
+        }
+
         return handler;
     }
 
@@ -670,6 +923,52 @@ public final class Query {
             return index;
         }
 
+    }
+    // </editor-fold>
+    // <editor-fold defaultstate="collapsed" desc=" list parameter implementation ">
+
+    private static class ListSizes {
+
+        private final int[] sizes;
+
+        ListSizes(final int[] sizes) {
+            this.sizes = sizes;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(sizes);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof ListSizes &&
+                    Arrays.equals(sizes, ((ListSizes)obj).sizes);
+        }
+
+    }
+
+    private static class PrimitiveArrayList extends AbstractList<Object> {
+
+        private final Object array;
+
+        private final int size;
+
+        PrimitiveArrayList(final Object array) {
+            this.array = array;
+            this.size = Array.getLength(array);
+        }
+
+        @Override
+        public Object get(final int index) {
+            return Array.get(array, index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
     }
     // </editor-fold>
     // <editor-fold defaultstate="collapsed" desc=" parameter iterator implementation ">
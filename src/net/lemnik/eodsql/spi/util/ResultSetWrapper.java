@@ -70,6 +70,18 @@ public abstract class ResultSetWrapper<T> {
      */
     public static final String PARAMETER_CUSTOM_DATA_OBJECT_BINDING = "net.lemnik.eodsql.spi.util.ResultSetWrapper#binding";
 
+    /**
+     * The parameter that can be used to specify the
+     * {@link net.lemnik.eodsql.SizeStrategy}, which decides whether a
+     * {@code ResultSetWrapper} may scroll to the last row of the
+     * {@code ResultSet} to find it's size. If it doesn't exist,
+     * {@link net.lemnik.eodsql.SizeStrategy#LAST_ROW} is assumed.
+     *
+     * @since 2.2
+     */
+    public static final String PARAMETER_SIZE_STRATEGY =
+            "net.lemnik.eodsql.spi.util.ResultSetWrapper#sizeStrategy";
+
     private static final Set<Factory> FACTORIES = new LinkedHashSet<Factory>(4);
 
     private static final Map<String, Object> NO_PARAMETERS =
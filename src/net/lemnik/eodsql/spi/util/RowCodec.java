@@ -0,0 +1,651 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.DataOutput;
+import java.io.Serializable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.lang.reflect.Array;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import java.util.Map;
+import java.util.List;
+import java.util.UUID;
+import java.util.Date;
+import java.util.ArrayList;
+
+import net.lemnik.eodsql.EoDException;
+import net.lemnik.eodsql.InvalidDataTypeException;
+
+import net.lemnik.eodsql.spi.util.DataObjectBindingCache.ColumnName;
+
+/**
+ * <p>
+ * Encodes data-objects into a compact binary form, and decodes them again,
+ * using the columns of their {@link DataObjectBinding}. Each column value is
+ * written as a single tag byte followed by the value, so a row only costs
+ * the bytes of it's values. Types that have no encoding of their own are
+ * written with Java serialization, if they are {@code Serializable} and the
+ * {@code RowCodec} allows it. Decoding a serialized value runs
+ * {@code ObjectInputStream.readObject()} on the encoded bytes, so it is only
+ * allowed for encodings that never leave the process (such as spilled rows),
+ * and never for files that may be read back later (such as a
+ * {@link DataSetSnapshot}).
+ * </p><p>
+ * Only the plain columns of a data-object are encoded: {@code @Nested}
+ * collections, {@code @Prefetch} fields and lazy columns are not, and so a
+ * data-object with {@code @Nested} collections cannot be encoded at all. A
+ * type with a {@link net.lemnik.eodsql.TypeMapper} of it's own (such as
+ * {@code String}) is encoded as a single value.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ */
+class RowCodec<T> {
+
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte INTEGER = 2;
+
+    private static final byte LONG = 3;
+
+    private static final byte SHORT = 4;
+
+    private static final byte BYTE = 5;
+
+    private static final byte BOOLEAN = 6;
+
+    private static final byte FLOAT = 7;
+
+    private static final byte DOUBLE = 8;
+
+    private static final byte CHARACTER = 9;
+
+    private static final byte BIG_DECIMAL = 10;
+
+    private static final byte BIG_INTEGER = 11;
+
+    private static final byte BYTES = 12;
+
+    private static final byte DATE = 13;
+
+    private static final byte SQL_DATE = 14;
+
+    private static final byte TIME = 15;
+
+    private static final byte TIMESTAMP = 16;
+
+    private static final byte UUID_VALUE = 17;
+
+    private static final byte ENUM = 18;
+
+    private static final byte SERIALIZED = 19;
+
+    private static final byte ARRAY = 20;
+
+    private final DataObjectBinding<T> binding;
+
+    private final String[] columnNames;
+
+    private final MutableColumn[] columns;
+
+    private final boolean serializable;
+
+    private RowCodec(
+            final DataObjectBinding<T> binding,
+            final String[] columnNames,
+            final MutableColumn[] columns,
+            final boolean serializable) {
+
+        this.binding = binding;
+        this.columnNames = columnNames;
+        this.columns = columns;
+        this.serializable = serializable;
+    }
+
+    /**
+     * Returns whether rows of the given binding can be encoded.
+     */
+    static boolean isSupported(final DataObjectBinding<?> binding) {
+        if(binding instanceof TypeMapperDataObjectBinding) {
+            return true;
+        }
+
+        return binding instanceof DefaultDataObjectBinding &&
+                !binding.isGrouping() &&
+                DataObjectBindingCache.getDataObjectBindingCache(
+                binding.getObjectType()).getNestedCollections().isEmpty();
+    }
+
+    /**
+     * Creates a {@code RowCodec} for the rows of the given binding, which
+     * serializes values that have no encoding of their own.
+     *
+     * @param binding the binding of the data-objects to encode
+     * @return a {@code RowCodec} for the data-objects
+     * @throws InvalidDataTypeException if the rows of the binding cannot be
+     *      encoded
+     * @see #isSupported(DataObjectBinding)
+     */
+    static <T> RowCodec<T> create(final DataObjectBinding<T> binding)
+            throws InvalidDataTypeException {
+
+        return create(binding, true);
+    }
+
+    /**
+     * Creates a {@code RowCodec} for the rows of the given binding.
+     *
+     * @param binding the binding of the data-objects to encode
+     * @param serializable whether values that have no encoding of their own
+     *      are written (and read) with Java serialization
+     * @return a {@code RowCodec} for the data-objects
+     * @throws InvalidDataTypeException if the rows of the binding cannot be
+     *      encoded
+     * @see #isSupported(DataObjectBinding)
+     */
+    static <T> RowCodec<T> create(
+            final DataObjectBinding<T> binding,
+            final boolean serializable)
+            throws InvalidDataTypeException {
+
+        if(!isSupported(binding)) {
+            throw new InvalidDataTypeException("Cannot encode the rows of " +
+                    "this data-object type, only plain data-objects and " +
+                    "types with a TypeMapper can be encoded.",
+                    binding.getObjectType());
+        }
+
+        if(binding instanceof TypeMapperDataObjectBinding) {
+            return new RowCodec<T>(binding, null, null, serializable);
+        }
+
+        final DataObjectBindingCache cache =
+                DataObjectBindingCache.getDataObjectBindingCache(
+                binding.getObjectType());
+
+        final Map<ColumnName, MutableColumn> map =
+                binding.getBindingType() == DataObjectBinding.BindingType.NORMAL_BINDING
+                ? cache.getNormalColumns()
+                : cache.getKeyColumns();
+
+        final List<String> names = new ArrayList<String>(map.size());
+        final List<MutableColumn> columns =
+                new ArrayList<MutableColumn>(map.size());
+
+        for(final Map.Entry<ColumnName, MutableColumn> entry : map.entrySet()) {
+            if(!(entry.getValue() instanceof NestedCollection.ElementColumn)) {
+                names.add(entry.getKey().getColumnName());
+                columns.add(entry.getValue());
+            }
+        }
+
+        return new RowCodec<T>(
+                binding,
+                names.toArray(new String[names.size()]),
+                columns.toArray(new MutableColumn[columns.size()]),
+                serializable);
+    }
+
+    /**
+     * Returns the names of the encoded columns, in the order they are
+     * encoded, or {@literal null} if each row is a single value.
+     */
+    String[] getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Returns the binding of the encoded data-objects.
+     */
+    DataObjectBinding<T> getBinding() {
+        return binding;
+    }
+
+    /**
+     * Encodes a single row.
+     *
+     * @param row the data-object to encode
+     * @param out where to write the encoded row
+     * @throws IOException if the row cannot be written
+     * @throws EoDException if a column value cannot be read, or has no
+     *      encoding
+     */
+    void encode(final T row, final DataOutput out)
+            throws IOException,
+            EoDException {
+
+        if(columns == null) {
+            writeValue(row, out, serializable);
+            return;
+        }
+
+        for(final MutableColumn column : columns) {
+            writeValue(column.get(row), out, serializable);
+        }
+    }
+
+    /**
+     * Decodes a single row.
+     *
+     * @param in the encoded row
+     * @return a new data-object holding the decoded row
+     * @throws IOException if the row cannot be read
+     * @throws EoDException if the data-object cannot be created
+     */
+    @SuppressWarnings("unchecked")
+    T decode(final DataInput in) throws IOException, EoDException {
+        if(columns == null) {
+            return (T)readValue(in, binding.getObjectType(), serializable);
+        }
+
+        final T row = binding.newInstance();
+
+        for(final MutableColumn column : columns) {
+            final Object value = readValue(in, column.getType(), serializable);
+
+            if(value != null) {
+                column.set(row, value);
+            }
+        }
+
+        return row;
+    }
+
+    /**
+     * Decodes a single row that was encoded with the given columns, which
+     * may be in a different order to those of this {@code RowCodec}. Columns
+     * this {@code RowCodec} does not have are skipped.
+     *
+     * @param in the encoded row
+     * @param layout the column of this {@code RowCodec} for each column of
+     *      the encoded row, or {@literal null} to skip it
+     * @return a new data-object holding the decoded row
+     * @throws IOException if the row cannot be read
+     * @throws EoDException if the data-object cannot be created
+     */
+    T decode(final DataInput in, final int[] layout)
+            throws IOException,
+            EoDException {
+
+        if(columns == null || layout == null) {
+            return decode(in);
+        }
+
+        final T row = binding.newInstance();
+
+        for(final int index : layout) {
+            final Object value = readValue(
+                    in,
+                    index != -1 ? columns[index].getType() : Object.class,
+                    serializable);
+
+            if(index != -1 && value != null) {
+                columns[index].set(row, value);
+            }
+        }
+
+        return row;
+    }
+
+    /**
+     * Matches encoded column names with the columns of this
+     * {@code RowCodec}, for {@link #decode(DataInput, int[])}.
+     *
+     * @param names the encoded column names, or {@literal null} if the
+     *      rows are single values
+     * @return the layout of the encoded columns
+     */
+    int[] getLayout(final String[] names) {
+        if(names == null || columnNames == null) {
+            return null;
+        }
+
+        final int[] layout = new int[names.length];
+
+        for(int i = 0; i < names.length; i++) {
+            layout[i] = -1;
+
+            for(int j = 0; j < columnNames.length; j++) {
+                if(columnNames[j].equalsIgnoreCase(names[i])) {
+                    layout[i] = j;
+                    break;
+                }
+            }
+        }
+
+        return layout;
+    }
+
+    /**
+     * Writes a single value.
+     *
+     * @param value the value to write
+     * @param out where to write the value
+     * @param serializable whether a value with no encoding of it's own may
+     *      be written with Java serialization
+     * @throws IOException if the value cannot be written
+     * @throws EoDException if the value has no encoding
+     */
+    static void writeValue(
+            final Object value,
+            final DataOutput out,
+            final boolean serializable)
+            throws IOException,
+            EoDException {
+
+        if(value == null) {
+            out.writeByte(NULL);
+        } else if(value instanceof String) {
+            out.writeByte(STRING);
+            writeBytes(((String)value).getBytes("UTF-8"), out);
+        } else if(value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt(((Integer)value).intValue());
+        } else if(value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong(((Long)value).longValue());
+        } else if(value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort(((Short)value).shortValue());
+        } else if(value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte(((Byte)value).byteValue());
+        } else if(value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(((Boolean)value).booleanValue());
+        } else if(value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat(((Float)value).floatValue());
+        } else if(value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Double)value).doubleValue());
+        } else if(value instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar(((Character)value).charValue());
+        } else if(value instanceof BigDecimal) {
+            final BigDecimal decimal = (BigDecimal)value;
+            out.writeByte(BIG_DECIMAL);
+            out.writeInt(decimal.scale());
+            writeBytes(decimal.unscaledValue().toByteArray(), out);
+        } else if(value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(((BigInteger)value).toByteArray(), out);
+        } else if(value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes((byte[])value, out);
+        } else if(value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp)value).getTime());
+            out.writeInt(((Timestamp)value).getNanos());
+        } else if(value instanceof Time) {
+            out.writeByte(TIME);
+            out.writeLong(((Time)value).getTime());
+        } else if(value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((java.sql.Date)value).getTime());
+        } else if(value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date)value).getTime());
+        } else if(value instanceof UUID) {
+            out.writeByte(UUID_VALUE);
+            out.writeLong(((UUID)value).getMostSignificantBits());
+            out.writeLong(((UUID)value).getLeastSignificantBits());
+        } else if(value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeBytes(((Enum)value).name().getBytes("UTF-8"), out);
+        } else if(value.getClass().isArray()) {
+            writeArray(value, out, serializable);
+        } else if(serializable && value instanceof Serializable) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream object = new ObjectOutputStream(bytes);
+            object.writeObject(value);
+            object.close();
+
+            out.writeByte(SERIALIZED);
+            writeBytes(bytes.toByteArray(), out);
+        } else if(serializable) {
+            throw new EoDException("Cannot encode a value of type " +
+                    value.getClass().getName() + ", it must be Serializable.");
+        } else {
+            throw new EoDException("Cannot encode a value of type " +
+                    value.getClass().getName() + ", only primitive, String, " +
+                    "number, date and time, UUID and enum values, and " +
+                    "arrays of them, can be encoded here.");
+        }
+    }
+
+    /**
+     * Writes an array (other than a {@code byte[]}) as the tag of it's
+     * primitive component type, or {@link #NULL} for an array of objects,
+     * it's length and then each element.
+     */
+    private static void writeArray(
+            final Object array,
+            final DataOutput out,
+            final boolean serializable)
+            throws IOException,
+            EoDException {
+
+        final Class<?> component = array.getClass().getComponentType();
+        final int length = Array.getLength(array);
+
+        out.writeByte(ARRAY);
+        out.writeByte(component.isPrimitive() ? getPrimitiveTag(component) : NULL);
+        out.writeInt(length);
+
+        for(int i = 0; i < length; i++) {
+            writeValue(Array.get(array, i), out, serializable);
+        }
+    }
+
+    private static byte getPrimitiveTag(final Class<?> type) {
+        if(type == int.class) {
+            return INTEGER;
+        } else if(type == long.class) {
+            return LONG;
+        } else if(type == short.class) {
+            return SHORT;
+        } else if(type == boolean.class) {
+            return BOOLEAN;
+        } else if(type == float.class) {
+            return FLOAT;
+        } else if(type == double.class) {
+            return DOUBLE;
+        } else if(type == char.class) {
+            return CHARACTER;
+        }
+
+        return BYTE;
+    }
+
+    private static Class<?> getPrimitiveType(final byte tag)
+            throws EoDException {
+
+        switch(tag) {
+            case INTEGER:
+                return int.class;
+            case LONG:
+                return long.class;
+            case SHORT:
+                return short.class;
+            case BYTE:
+                return byte.class;
+            case BOOLEAN:
+                return boolean.class;
+            case FLOAT:
+                return float.class;
+            case DOUBLE:
+                return double.class;
+            case CHARACTER:
+                return char.class;
+            default:
+                throw new EoDException("Corrupt row encoding, unknown " +
+                        "array type tag: " + tag);
+        }
+    }
+
+    private static Object readArray(
+            final DataInput in,
+            final Class<?> type,
+            final boolean serializable)
+            throws IOException,
+            EoDException {
+
+        final byte tag = in.readByte();
+        final int length = in.readInt();
+        final Class<?> component;
+
+        if(tag != NULL) {
+            component = getPrimitiveType(tag);
+        } else if(type.isArray() && !type.getComponentType().isPrimitive()) {
+            // an array of objects is read as the array type it is assigned to
+            component = type.getComponentType();
+        } else {
+            component = Object.class;
+        }
+
+        final Object array = Array.newInstance(component, length);
+
+        for(int i = 0; i < length; i++) {
+            try {
+                Array.set(array, i, readValue(in, component, serializable));
+            } catch(final IllegalArgumentException iae) {
+                throw new EoDException("Corrupt row encoding, cannot set an " +
+                        "element of a " + component.getName() + " array", iae);
+            }
+        }
+
+        return array;
+    }
+
+    /**
+     * Reads a single value written by {@link #writeValue}.
+     *
+     * @param in where to read the value from
+     * @param type the type the value will be assigned to
+     * @param serializable whether a serialized value may be read, which
+     *      runs {@code ObjectInputStream.readObject()} on the encoding
+     * @return the value
+     * @throws IOException if the value cannot be read
+     * @throws EoDException if the encoding is corrupt, or holds a
+     *      serialized value that may not be read
+     */
+    static Object readValue(
+            final DataInput in,
+            final Class<?> type,
+            final boolean serializable)
+            throws IOException,
+            EoDException {
+
+        return readTagged(in.readByte(), in, type, serializable);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object readTagged(
+            final byte tag,
+            final DataInput in,
+            final Class<?> type,
+            final boolean serializable)
+            throws IOException,
+            EoDException {
+
+        switch(tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(in), "UTF-8");
+            case INTEGER:
+                return Integer.valueOf(in.readInt());
+            case LONG:
+                return Long.valueOf(in.readLong());
+            case SHORT:
+                return Short.valueOf(in.readShort());
+            case BYTE:
+                return Byte.valueOf(in.readByte());
+            case BOOLEAN:
+                return Boolean.valueOf(in.readBoolean());
+            case FLOAT:
+                return Float.valueOf(in.readFloat());
+            case DOUBLE:
+                return Double.valueOf(in.readDouble());
+            case CHARACTER:
+                return Character.valueOf(in.readChar());
+            case BIG_DECIMAL:
+                final int scale = in.readInt();
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case BYTES:
+                return readBytes(in);
+            case DATE:
+                return new Date(in.readLong());
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case TIME:
+                return new Time(in.readLong());
+            case TIMESTAMP:
+                final Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case UUID_VALUE:
+                return new UUID(in.readLong(), in.readLong());
+            case ENUM:
+                final String name = new String(readBytes(in), "UTF-8");
+
+                if(!type.isEnum()) {
+                    return null;
+                }
+
+                return Enum.valueOf((Class<? extends Enum>)type, name);
+            case ARRAY:
+                return readArray(in, type, serializable);
+            case SERIALIZED:
+                if(!serializable) {
+                    throw new EoDException("Refusing to decode a " +
+                            "serialized value, which this encoding may " +
+                            "not hold.");
+                }
+
+                final ObjectInputStream object = new ObjectInputStream(
+                        new ByteArrayInputStream(readBytes(in)));
+
+                try {
+                    return object.readObject();
+                } catch(final ClassNotFoundException cnfe) {
+                    throw new EoDException("Cannot decode a value", cnfe);
+                } finally {
+                    object.close();
+                }
+            default:
+                throw new EoDException("Corrupt row encoding, unknown " +
+                        "value tag: " + tag);
+        }
+    }
+
+    private static void writeBytes(final byte[] bytes, final DataOutput out)
+            throws IOException {
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(final DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,29 @@
+package net.lemnik.eodsql.spi.util;
+
+import java.sql.SQLException;
+
+/**
+ * <p>
+ * A {@code RowCounter} counts the rows selected by a query without reading
+ * them, typically by running a {@literal COUNT} query. A
+ * {@code MethodImplementation} may place a {@code RowCounter}
+ * {@link net.lemnik.eodsql.spi.Resource} in the {@code Context} before it is
+ * wrapped, which a connected {@link net.lemnik.eodsql.DataSet} will use to
+ * find it's size instead of scrolling to the last row.
+ * </p>
+ *
+ * @since 2.2
+ * @author Jason Morris
+ * @see net.lemnik.eodsql.SizeStrategy#COUNT
+ */
+public interface RowCounter {
+
+    /**
+     * Counts the rows selected by the query.
+     *
+     * @return the number of rows selected
+     * @throws SQLException if the rows cannot be counted
+     */
+    int count() throws SQLException;
+
+}
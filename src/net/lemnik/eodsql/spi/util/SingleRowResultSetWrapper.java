@@ -3,6 +3,9 @@ package net.lemnik.eodsql.spi.util;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import java.util.List;
+import java.util.ArrayList;
+
 import net.lemnik.eodsql.impl.ExceptionTranslationUtils;
 
 /**
@@ -17,6 +20,10 @@ class SingleRowResultSetWrapper<T> extends AbstractResultSetWrapper<T, T> {
 
     @Override
     public T wrap(final ResultSet results) throws SQLException {
+	if (binding.isGrouping()) {
+	    return wrapGrouped(results);
+	}
+
 	if (results.next()) {
 	    final T wrapped = binding.unmarshall(results);
 	    if (results.next()) {
@@ -28,4 +35,24 @@ class SingleRowResultSetWrapper<T> extends AbstractResultSetWrapper<T, T> {
 	}
     }
 
+    /**
+     * Reads every row, since the single object may be spread over several
+     * rows by it's nested collections.
+     */
+    private T wrapGrouped(final ResultSet results) throws SQLException {
+	final List<T> rows = new ArrayList<T>();
+
+	while (results.next()) {
+	    rows.add(binding.unmarshall(results));
+	}
+
+	final List<T> grouped = binding.group(rows);
+
+	if (grouped.size() > 1) {
+	    throw ExceptionTranslationUtils.uniqueResultExpected();
+	}
+
+	return grouped.isEmpty() ? null : grouped.get(0);
+    }
+
 }
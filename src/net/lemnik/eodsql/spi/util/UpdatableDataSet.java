@@ -7,6 +7,7 @@ import java.util.Collection;
 import net.lemnik.eodsql.spi.Context;
 
 import net.lemnik.eodsql.DataSetCache;
+import net.lemnik.eodsql.SizeStrategy;
 
 /**
  *
@@ -17,9 +18,11 @@ class UpdatableDataSet<T> extends ConnectedDataSet<T> {
     UpdatableDataSet(
             final DataObjectBinding<T> binding,
             final Context context,
-            final DataSetCache<T> cache) {
+            final DataSetCache<T> cache,
+            final int prefetch,
+            final SizeStrategy sizeStrategy) {
 
-        super(binding, context, cache);
+        super(binding, context, cache, prefetch, sizeStrategy);
     }
 
     @Override
@@ -37,6 +40,7 @@ class UpdatableDataSet<T> extends ConnectedDataSet<T> {
             results.moveToCurrentRow();
 
             setSize(null);
+            resultsChanged();
         } catch(final SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -65,6 +69,7 @@ class UpdatableDataSet<T> extends ConnectedDataSet<T> {
             results.absolute(index + 1);
             results.deleteRow();
             setSize(null);
+            resultsChanged();
         } catch(final SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -80,6 +85,7 @@ class UpdatableDataSet<T> extends ConnectedDataSet<T> {
             results.absolute(index + 1);
             binding.marshall(element, results);
             results.updateRow();
+            resultsChanged();
         } catch(final SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -68,6 +68,14 @@ public abstract class AbstractDataSetTestObject extends EoDTestCase {
 
     protected abstract DataSet<SimpleObject> getDataSet() throws Exception;
 
+    /**
+     * Returns the {@code DataSet} to look rows up in by their "id" key,
+     * which is the same as {@link #getDataSet()} unless overridden.
+     */
+    protected DataSet<SimpleObject> getKeyedDataSet() throws Exception {
+        return getDataSet();
+    }
+
     public void testListIteratorDefault() throws Exception {
         final Set<SimpleObject> validation = new HashSet<SimpleObject>();
 
@@ -129,5 +137,32 @@ public abstract class AbstractDataSetTestObject extends EoDTestCase {
 
         objects.close();
     }
+
+    public void testGetByKey() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final DataSet<SimpleObject> objects = getKeyedDataSet();
+
+        for(int i = validation.size() - 1; i >= 0; i -= 7) {
+            final SimpleObject expected = validation.get(i);
+
+            assertEquals(i, objects.indexOfKey(expected.id));
+            assertEquals(expected, objects.getByKey(expected.id));
+        }
+
+        assertEquals(-1, objects.indexOfKey(UUID.randomUUID()));
+        assertNull(objects.getByKey(UUID.randomUUID()));
+
+        try {
+            objects.getByKey(validation.get(0).id, "extra");
+            fail("Expected an IllegalArgumentException");
+        } catch(final IllegalArgumentException iae) {
+            // expected
+        }
+
+        objects.close();
+    }
     
 }
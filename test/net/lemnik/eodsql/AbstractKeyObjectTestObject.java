@@ -0,0 +1,54 @@
+package net.lemnik.eodsql;
+
+import java.util.UUID;
+
+/**
+ * A base for the tests that select {@link KeyObject}s, creating the key
+ * table for each test and filling it on request.
+ *
+ * @author Jason Morris
+ */
+public abstract class AbstractKeyObjectTestObject extends EoDTestCase {
+
+    protected AutoGeneratedKeysQuery query = null;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(
+                getConnection(),
+                AutoGeneratedKeysQuery.class);
+
+        query.createTable();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        query.dropTable();
+        query.close();
+        super.tearDown();
+    }
+
+    /**
+     * Inserts the given number of rows with random values, returning them
+     * in the order they were inserted with their generated keys.
+     */
+    protected KeyObject[] insertKeyObjects(final int count) {
+        final KeyObject[] objects = new KeyObject[count];
+
+        for(int i = 0; i < count; i++) {
+            objects[i] = new KeyObject();
+            objects[i].value = UUID.randomUUID().toString();
+        }
+
+        final KeyObject[] keys = query.insertKeysBatch(objects);
+
+        for(int i = 0; i < count; i++) {
+            objects[i].id = keys[i].id;
+        }
+
+        return objects;
+    }
+
+}
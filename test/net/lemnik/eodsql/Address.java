@@ -0,0 +1,14 @@
+package net.lemnik.eodsql;
+
+/**
+ * An object embedded in an {@link Order} by the {@link Nested} annotation.
+ *
+ * @author Jason Morris
+ */
+public class Address {
+
+    public String street;
+
+    public String city;
+
+}
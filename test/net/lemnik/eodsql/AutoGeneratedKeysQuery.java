@@ -11,6 +11,9 @@ package net.lemnik.eodsql;
 
 import java.sql.SQLException;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  *
  * @author jason
@@ -31,6 +34,39 @@ public interface AutoGeneratedKeysQuery extends BaseQuery {
     keys=GeneratedKeys.RETURNED_KEYS_FIRST_COLUMN)
     public KeyObject insertKeyFirstColumn(KeyObject o);
 
+    @Update(
+    sql="INSERT INTO keyTable (value) VALUES (?{1.value})",
+    keys=GeneratedKeys.RETURNED_KEYS_COLUMNS_SPECIFIED,
+    batchUpdate=true)
+    public KeyObject[] insertKeysBatch(KeyObject[] o);
+
+    @Update(
+    sql="INSERT INTO keyTable (value) VALUES (?{1.value})",
+    keys=GeneratedKeys.RETURNED_KEYS_FIRST_COLUMN,
+    batchUpdate=true)
+    public List<Long> insertKeysBatch(Collection<KeyObject> o);
+
+    @Update(
+    sql="INSERT INTO keyTable (value) VALUES (?{1.value})",
+    keys=GeneratedKeys.RETURNED_KEYS_FIRST_COLUMN,
+    batchUpdate=true,
+    rewriteInserts=true,
+    maxBindParameters=4)
+    public long[] insertKeysRewritten(KeyObject[] o);
+    
+    @Coalesce(value="selectKeys", window=100, maxBatchSize=8)
+    @Select("SELECT * FROM keyTable WHERE id = ?1")
+    public KeyObject selectKey(int id);
+
+    @Select("SELECT * FROM keyTable WHERE id IN (?{1[]})")
+    public KeyObject[] selectKeys(long[] ids);
+
+    @Select(sql="SELECT * FROM keyTable", pageSize=3)
+    public DataIterator<KeyObject> pageKeys();
+
+    @Select(sql="SELECT * FROM keyTable", pageSize=3, startAfter=1)
+    public DataIterator<KeyObject> pageKeys(long after);
+
     @Update("CREATE TABLE keyTable (ID BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL, value VARCHAR(36) NOT NULL)")
     public void createTable();
     
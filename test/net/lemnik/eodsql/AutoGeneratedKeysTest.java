@@ -1,6 +1,11 @@
 package net.lemnik.eodsql;
 
 import java.sql.SQLException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -42,6 +47,68 @@ public class AutoGeneratedKeysTest extends EoDTestCase {
         assertNotNull("id should have been inserted by EoD SQL", out.id);
     }
 
+    public void testBatchKeys() throws Exception {
+        query = QueryTool.getQuery(getConnection(), AutoGeneratedKeysQuery.class);
+
+        final KeyObject[] in = new KeyObject[10];
+
+        for(int i = 0; i < in.length; i++) {
+            in[i] = new KeyObject();
+            in[i].value = UUID.randomUUID().toString();
+        }
+
+        final KeyObject[] out = query.insertKeysBatch(in);
+        assertEquals(in.length, out.length);
+
+        final Set<Long> ids = new HashSet<Long>();
+
+        for(final KeyObject key : out) {
+            assertNotNull("id should have been inserted by EoD SQL", key.id);
+            ids.add(key.id);
+        }
+
+        assertEquals("each row should have a unique key", in.length, ids.size());
+    }
+
+    public void testBatchKeysRewritten() throws Exception {
+        query = QueryTool.getQuery(getConnection(), AutoGeneratedKeysQuery.class);
+
+        final KeyObject[] in = new KeyObject[10];
+
+        for(int i = 0; i < in.length; i++) {
+            in[i] = new KeyObject();
+            in[i].value = UUID.randomUUID().toString();
+        }
+
+        // 4 rows for each statement, with a tail of 2 rows
+        final long[] out = query.insertKeysRewritten(in);
+        assertEquals(in.length, out.length);
+
+        final Set<Long> ids = new HashSet<Long>();
+
+        for(final long key : out) {
+            ids.add(key);
+        }
+
+        assertEquals("each row should have a unique key", in.length, ids.size());
+    }
+
+    public void testBatchKeysFirstColumn() throws Exception {
+        query = QueryTool.getQuery(getConnection(), AutoGeneratedKeysQuery.class);
+
+        final List<KeyObject> in = new ArrayList<KeyObject>();
+
+        for(int i = 0; i < 10; i++) {
+            final KeyObject o = new KeyObject();
+            o.value = UUID.randomUUID().toString();
+            in.add(o);
+        }
+
+        final List<Long> out = query.insertKeysBatch(in);
+        assertEquals(in.size(), out.size());
+        assertEquals(in.size(), new HashSet<Long>(out).size());
+    }
+
     @Override
     protected void tearDown() throws Exception {
         super.tearDown();
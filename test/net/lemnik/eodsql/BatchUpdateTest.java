@@ -1,11 +1,28 @@
 package net.lemnik.eodsql;
 
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.PreparedStatement;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
 import java.util.UUID;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
 /**
  * Test cases for the batch update feature.
  *
@@ -185,4 +202,388 @@ public class BatchUpdateTest extends EoDTestCase {
         objects.close();
     }
 
+    public void testBatchUpdateCounts() throws Exception {
+        final SimpleObject[] objects = new SimpleObject[100];
+
+        for(int i = 0; i < objects.length; i++) {
+            objects[i] = newSimpleObject(i);
+        }
+
+        final int[] counts = query.insertBatchCounts(objects);
+
+        assertEquals(objects.length, counts.length);
+
+        for(int i = 0; i < counts.length; i++) {
+            assertEquals(1, counts[i]);
+        }
+    }
+
+    public void testBatchUpdateLargeCounts() throws Exception {
+        final Set<SimpleObject> objects = new HashSet<SimpleObject>();
+
+        for(int i = 0; i < 100; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        final long[] counts = query.insertBatchLargeCounts(objects);
+
+        assertEquals(objects.size(), counts.length);
+
+        for(int i = 0; i < counts.length; i++) {
+            assertEquals(1L, counts[i]);
+        }
+    }
+
+    public void testBatchUpdateTotal() throws Exception {
+        final Set<SimpleObject> validation = new HashSet<SimpleObject>();
+
+        insertDataBatchArray(validation);
+
+        final int total = query.updateBatchTotal(
+                new int[] { 1, 2, 3, 5000 },
+                "updated");
+
+        assertEquals(3, total);
+    }
+
+    public void testBatchUpdateIterator() throws Exception {
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 50; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        // executed in chunks of 7 rows
+        final int[] counts = query.insertBatchIterator(objects.iterator());
+
+        assertEquals(objects.size(), counts.length);
+
+        final DataSet<SimpleObject> inserted = query.getDisconnected();
+        assertEquals(objects, inserted);
+    }
+
+    public void testBatchUpdateRewritten() throws Exception {
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 50; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        // 3 rows for each statement, with a tail of 2 rows
+        final int[] counts = query.insertBatchRewritten(objects.iterator());
+
+        assertEquals(objects.size(), counts.length);
+
+        for(int i = 0; i < counts.length; i++) {
+            assertEquals(1, counts[i]);
+        }
+
+        final DataSet<SimpleObject> inserted = query.getDisconnected();
+        assertEquals(objects, inserted);
+    }
+
+    public void testBatchUpdateIterable() throws Exception {
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 10; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        final Iterable<SimpleObject> iterable = new Iterable<SimpleObject>() {
+
+            public Iterator<SimpleObject> iterator() {
+                return objects.iterator();
+            }
+
+        };
+
+        assertEquals(objects.size(), query.insertBatchIterable(iterable, "iterable"));
+
+        for(final SimpleObject object : query.getDisconnected()) {
+            assertEquals("iterable", object.data);
+        }
+    }
+
+    public void testBatchUpdateDataIterator() throws Exception {
+        final Set<SimpleObject> validation = new HashSet<SimpleObject>();
+
+        insertDataBatchArray(validation);
+
+        final long[] counts = query.insertBatchLargeCounts(
+                query.getDisconnected());
+        assertEquals(validation.size(), counts.length);
+
+        final int[] copied = query.insertBatchIterator(query.getIterator());
+        assertEquals(validation.size() * 2, copied.length);
+        assertEquals(validation.size() * 4, query.getDisconnected().size());
+    }
+
+    public void testBatchUpdateStreamMismatched() throws Exception {
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 10; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        try {
+            query.insertBatchIteratorMismatched(
+                    objects.iterator(),
+                    new String[] { "too", "short" });
+
+            fail("A mismatched batch should have failed");
+        } catch(final EoDException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Wraps a {@code Connection} so that each statement inserting more than
+     * one row reports one row less than it inserted, as an
+     * {@code INSERT IGNORE} would when it skips a row.
+     */
+    private static Connection createShortCountConnection(
+            final Connection connection,
+            final int[] statements) {
+
+        return (Connection)Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new InvocationHandler() {
+
+            public Object invoke(
+                    final Object proxy,
+                    final Method method,
+                    final Object[] args)
+                    throws Throwable {
+
+                final Object result = invokeTarget(connection, method, args);
+
+                if(!(result instanceof PreparedStatement) ||
+                        !((String)args[0]).contains("), (")) {
+
+                    return result;
+                }
+
+                final PreparedStatement statement = (PreparedStatement)result;
+
+                return Proxy.newProxyInstance(
+                        PreparedStatement.class.getClassLoader(),
+                        new Class<?>[] { PreparedStatement.class },
+                        new InvocationHandler() {
+
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args)
+                            throws Throwable {
+
+                        final Object count = invokeTarget(statement, method, args);
+
+                        if(method.getName().equals("executeUpdate")) {
+                            statements[0]++;
+                            return Integer.valueOf((Integer)count - 1);
+                        }
+
+                        return count;
+                    }
+
+                });
+            }
+
+        });
+    }
+
+    /**
+     * Wraps a {@code DataSource} so that it fails rather than open more than
+     * {@code max} {@code Connection}s at once, as a pool of that size would
+     * (after waiting for one to be returned).
+     */
+    private static DataSource createBoundedDataSource(
+            final DataSource dataSource,
+            final int max) {
+
+        final AtomicInteger open = new AtomicInteger();
+
+        return (DataSource)Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class },
+                new InvocationHandler() {
+
+            public Object invoke(
+                    final Object proxy,
+                    final Method method,
+                    final Object[] args)
+                    throws Throwable {
+
+                if(!method.getName().equals("getConnection")) {
+                    return invokeTarget(dataSource, method, args);
+                }
+
+                if(open.incrementAndGet() > max) {
+                    open.decrementAndGet();
+                    throw new SQLException("The pool is exhausted");
+                }
+
+                final Connection connection =
+                        (Connection)invokeTarget(dataSource, method, args);
+
+                return Proxy.newProxyInstance(
+                        Connection.class.getClassLoader(),
+                        new Class<?>[] { Connection.class },
+                        new InvocationHandler() {
+
+                    public Object invoke(
+                            final Object proxy,
+                            final Method method,
+                            final Object[] args)
+                            throws Throwable {
+
+                        if(method.getName().equals("close") &&
+                                !connection.isClosed()) {
+
+                            open.decrementAndGet();
+                        }
+
+                        return invokeTarget(connection, method, args);
+                    }
+
+                });
+            }
+
+        });
+    }
+
+    private static Object invokeTarget(
+            final Object target,
+            final Method method,
+            final Object[] args)
+            throws Throwable {
+
+        try {
+            return method.invoke(target, args);
+        } catch(final InvocationTargetException ite) {
+            throw ite.getCause();
+        }
+    }
+
+    public void testBatchUpdateRewrittenShortCount() throws Exception {
+        final int[] statements = new int[1];
+        final DataSetQuery shortCount = QueryTool.getQuery(
+                createShortCountConnection(getConnection(), statements),
+                DataSetQuery.class);
+
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 50; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        final long total = shortCount.insertBatchRewrittenTotal(
+                objects.iterator());
+
+        assertTrue(statements[0] > 0);
+        assertEquals(objects.size() - statements[0], total);
+    }
+
+    public void testParallelBatchUpdateUnpooled() throws Exception {
+        final DataSetQuery parallel = QueryTool.getQuery(
+                getUnpooledDataSource(),
+                DataSetQuery.class);
+
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 95; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        final int[] counts = parallel.insertBatchParallel(objects.iterator());
+        assertEquals(objects.size(), counts.length);
+
+        for(int i = 0; i < counts.length; i++) {
+            assertEquals(1, counts[i]);
+        }
+
+        assertEquals(objects.size(), query.getDisconnected().size());
+    }
+
+    public void testParallelBatchBoundedPool() throws Exception {
+        // insertBatchParallel has a parallelism of 4
+        final DataSetQuery parallel = QueryTool.getQuery(
+                createBoundedDataSource(getUnpooledDataSource(), 4),
+                DataSetQuery.class);
+
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 95; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        assertEquals(objects.size(),
+                parallel.insertBatchParallel(objects.iterator()).length);
+        assertEquals(objects.size(), query.getDisconnected().size());
+    }
+
+    public void testParallelBatchDeadline() throws Exception {
+        final DataSetQuery parallel = QueryTool.getQuery(
+                getUnpooledDataSource(),
+                DataSetQuery.class);
+
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 95; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        // the workers run under the deadline of the invoking thread
+        QueryDeadline.set(0, TimeUnit.SECONDS);
+
+        try {
+            parallel.insertBatchParallel(objects.iterator());
+            fail("The parallel batch should not run after it's deadline");
+        } catch(final ParallelBatchException pbe) {
+            boolean timedOut = false;
+
+            for(final Throwable failure : pbe.getFailures()) {
+                timedOut |= failure instanceof SQLException &&
+                        QueryCancelledException.TIMEOUT_STATE.equals(
+                        ((SQLException)failure).getSQLState());
+            }
+
+            assertTrue(timedOut);
+            assertEquals(0, pbe.getUpdateCount());
+        } finally {
+            QueryDeadline.clear();
+        }
+
+        assertEquals(0, query.getDisconnected().size());
+    }
+
+    public void testParallelBatchUpdate() throws Exception {
+        final DataSetQuery parallel = QueryTool.getQuery(
+                getDataSource(true),
+                DataSetQuery.class);
+
+        final List<SimpleObject> objects = new ArrayList<SimpleObject>();
+
+        for(int i = 0; i < 95; i++) {
+            objects.add(newSimpleObject(i));
+        }
+
+        try {
+            final int[] counts = parallel.insertBatchParallel(objects.iterator());
+            assertEquals(objects.size(), counts.length);
+
+            for(int i = 0; i < counts.length; i++) {
+                assertEquals(1, counts[i]);
+            }
+
+            assertEquals(objects.size(), parallel.insertBatchPartitioned(
+                    objects.toArray(new SimpleObject[objects.size()])));
+
+            assertEquals(objects.size() * 2, query.getDisconnected().size());
+        } finally {
+            parallel.close();
+        }
+    }
+
 }
@@ -0,0 +1,85 @@
+package net.lemnik.eodsql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class BoundedCacheDataSetTest extends AbstractDataSetTestObject {
+
+    @Override
+    protected DataSet<SimpleObject> getDataSet() throws Exception {
+        return query.getSegmentedLruCached();
+    }
+
+    public void testLruEviction() throws Exception {
+        final DataSetCacheStatistics statistics = new DataSetCacheStatistics();
+        final LruDataSetCache<String> cache =
+                new LruDataSetCache<String>(2, statistics);
+
+        cache.setObject(0, "a");
+        cache.setObject(1, "b");
+        assertEquals("a", cache.getObject(0));
+
+        // row 1 is now the least recently used
+        cache.setObject(2, "c");
+
+        assertFalse(cache.isCached(1));
+        assertTrue(cache.isCached(0));
+        assertTrue(cache.isCached(2));
+
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getEvictionCount());
+    }
+
+    public void testSegmentedLruResistsScans() throws Exception {
+        final DataSetCacheStatistics statistics = new DataSetCacheStatistics();
+        final SegmentedLruDataSetCache<Integer> cache =
+                new SegmentedLruDataSetCache<Integer>(10, statistics);
+
+        cache.setObject(0, 0);
+        assertEquals(Integer.valueOf(0), cache.getObject(0));
+
+        // a scan of 100 rows, each used once
+        for(int i = 1; i <= 100; i++) {
+            cache.setObject(i, i);
+        }
+
+        assertTrue(cache.isCached(0));
+        assertTrue(cache.isCached(100));
+        assertFalse(cache.isCached(1));
+        assertEquals(91, statistics.getEvictionCount());
+    }
+
+    public void testSoftCache() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final DataSet<SimpleObject> objects = query.getSoftCached();
+        assertDataSetEquals(validation, objects);
+
+        // the same instance should come back from the cache
+        assertSame(objects.get(5), objects.get(5));
+        objects.close();
+    }
+
+    public void testLruDataSet() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final long hits = LruDataSetCache.STATISTICS.getHitCount();
+        final DataSet<SimpleObject> objects = query.getLruCached();
+
+        assertDataSetEquals(validation, objects);
+        assertDataSetEquals(validation, objects);
+
+        assertTrue(LruDataSetCache.STATISTICS.getHitCount() >= hits + validation.size());
+        objects.close();
+    }
+
+}
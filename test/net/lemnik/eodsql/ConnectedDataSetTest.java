@@ -11,4 +11,9 @@ public class ConnectedDataSetTest extends AbstractDataSetTestObject {
         return query.getConnected();
     }
 
+    @Override
+    protected DataSet<SimpleObject> getKeyedDataSet() throws Exception {
+        return query.getConnectedByKey();
+    }
+
 }
@@ -0,0 +1,22 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+
+/**
+ * A data-object whose orders are loaded by a {@link Prefetch} query.
+ *
+ * @author Jason Morris
+ */
+public class Customer {
+
+    @AutoGeneratedKeys
+    public long id;
+
+    public String name;
+
+    @Prefetch(query = PrefetchQuery.class,
+            method = "getOrdersByCustomer",
+            column = "customer_id")
+    public List<PurchaseOrder> orders;
+
+}
@@ -1,6 +1,7 @@
 package net.lemnik.eodsql;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 /**
  * 
@@ -45,4 +46,100 @@ public interface DataSetQuery extends BaseQuery {
 
     @Select(sql = "SELECT * FROM objects ORDER BY index", readOnly = false)
     public DataSet<SimpleObject> getWritable();
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{1.data}, ?{1.order})", batchUpdate = true)
+    public int[] insertBatchCounts(SimpleObject[] object);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{1.data}, ?{1.order})", batchUpdate = true)
+    public long[] insertBatchLargeCounts(Collection<SimpleObject> object);
+
+    @Update(sql = "UPDATE objects SET data = ?2 WHERE index = ?1",
+    batchUpdate = true)
+    public int updateBatchTotal(int[] index, String data);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{1.data}, ?{1.order})", batchUpdate = true,
+    batchSize = 7)
+    public int[] insertBatchIterator(Iterator<SimpleObject> object);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{1.data}, ?{1.order})", batchUpdate = true,
+    rewriteInserts = true, maxBindParameters = 10)
+    public int[] insertBatchRewritten(Iterator<SimpleObject> object);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{1.data}, ?{1.order})", batchUpdate = true,
+    rewriteInserts = true, maxBindParameters = 10)
+    public long insertBatchRewrittenTotal(Iterator<SimpleObject> object);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?2, ?{1.order})", batchUpdate = true)
+    public int insertBatchIterable(Iterable<SimpleObject> object, String data);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{2}, ?{1.order})", batchUpdate = true)
+    public void insertBatchIteratorMismatched(Iterator<SimpleObject> object, String[] data);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{1.data}, ?{1.order})", batchUpdate = true,
+    batchSize = 10, parallelism = 4)
+    public int[] insertBatchParallel(Iterator<SimpleObject> object);
+
+    @Update(sql = "INSERT INTO objects (id, data, index) "
+    + "VALUES(?{1.id}, ?{1.data}, ?{1.order})", batchUpdate = true,
+    parallelism = 3, partitioner = OrderPartitioner.class)
+    public long insertBatchPartitioned(SimpleObject[] object);
+
+    @Select("SELECT * FROM objects ORDER BY index")
+    public DataIterator<SimpleObject> getIterator();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", disconnected = true, keyColumns = "id")
+    public DataSet<SimpleObject> getDisconnectedByKey();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", keyColumns = "id")
+    public DataSet<SimpleObject> getConnectedByKey();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", readOnly = false, keyColumns = "id")
+    public DataSet<SimpleObject> getWritableByKey();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", disconnected = true, spillThreshold = 100, keyColumns = "id")
+    public DataSet<SimpleObject> getSpilled();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", cache = NullDataSetCache.class, prefetch = 64, keyColumns = "id")
+    public DataSet<SimpleObject> getPrefetched();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", sizeStrategy = SizeStrategy.UNKNOWN, keyColumns = "id")
+    public DataSet<SimpleObject> getSizeUnknown();
+
+    @Select(sql = "SELECT * FROM objects", sizeStrategy = SizeStrategy.COUNT)
+    public DataSet<SimpleObject> getCounted();
+
+    @Select(sql = "SELECT * FROM objects WHERE index < ?1 ORDER BY index",
+    countQuery = "SELECT COUNT(*) FROM objects WHERE index < ?1")
+    public DataSet<SimpleObject> getCountedBelow(int index);
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", sizeStrategy = SizeStrategy.UNKNOWN)
+    public SimpleObject[] getArrayForwards();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", cache = LruDataSetCache.class)
+    public DataSet<SimpleObject> getLruCached();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", cache = SegmentedLruDataSetCache.class, keyColumns = "id")
+    public DataSet<SimpleObject> getSegmentedLruCached();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", cache = SoftDataSetCache.class)
+    public DataSet<SimpleObject> getSoftCached();
+
+    @Select(sql = "SELECT * FROM objects ORDER BY index", cache = SparseDataSetCache.class, keyColumns = "id")
+    public DataSet<SimpleObject> getSparseCached();
+
+    public static class OrderPartitioner implements BatchPartitioner {
+
+        public int getPartition(final Object[] parameters, final int partitions) {
+            return ((SimpleObject)parameters[0]).order % partitions;
+        }
+
+    }
 }
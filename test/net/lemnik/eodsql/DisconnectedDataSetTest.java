@@ -11,4 +11,9 @@ public class DisconnectedDataSetTest extends AbstractDataSetTestObject {
         return query.getDisconnected();
     }
 
+    @Override
+    protected DataSet<SimpleObject> getKeyedDataSet() throws Exception {
+        return query.getDisconnectedByKey();
+    }
+
 }
@@ -0,0 +1,21 @@
+package net.lemnik.eodsql;
+
+/**
+ * A data-object with lazy columns.
+ *
+ * @author Jason Morris
+ */
+public class Document {
+
+    @AutoGeneratedKeys
+    public long id;
+
+    public String title;
+
+    @ResultColumn(value = "content", lazy = true, table = "lazy_document")
+    public Lazy<String> content;
+
+    @ResultColumn(value = "data", lazy = true, table = "lazy_document")
+    public Lazy<byte[]> data;
+
+}
@@ -14,6 +14,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationHandler;
+
 import java.sql.Statement;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -175,4 +179,39 @@ public abstract class EoDTestCase extends TestCase {
         dataSource.setDefaultAutoCommit(autoCommit);
         return dataSource;
     }
+
+    /**
+     * Returns a {@code DataSource} that opens a new auto-commit
+     * {@code Connection} from the {@code DriverManager} each time it's asked
+     * for one, for tests that need a {@code DataSource} but not a pool.
+     */
+    protected DataSource getUnpooledDataSource() throws ClassNotFoundException {
+        Class.forName(driverName);
+
+        return (DataSource)Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class },
+                new InvocationHandler() {
+
+            public Object invoke(
+                    final Object proxy,
+                    final Method method,
+                    final Object[] args)
+                    throws Throwable {
+
+                if(method.getName().equals("getConnection")) {
+                    return DriverManager.getConnection(url, user, password);
+                } else if(method.getName().equals("hashCode")) {
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                } else if(method.getName().equals("equals")) {
+                    return Boolean.valueOf(proxy == args[0]);
+                } else if(method.getName().equals("toString")) {
+                    return "DataSource[" + url + "]";
+                }
+
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+        });
+    }
 }
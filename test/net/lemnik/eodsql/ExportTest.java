@@ -0,0 +1,97 @@
+package net.lemnik.eodsql;
+
+import java.io.ByteArrayOutputStream;
+
+import java.sql.Connection;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class ExportTest extends EoDTestCase {
+
+    private Connection connection;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        connection = getConnection();
+
+        QueryTool.update(connection, "CREATE TABLE export_row (" +
+                "id BIGINT PRIMARY KEY," +
+                "name VARCHAR(64)," +
+                "score DOUBLE," +
+                "active BOOLEAN," +
+                "data VARBINARY(16))");
+
+        QueryTool.update(connection, "INSERT INTO export_row VALUES " +
+                "(?1, ?2, ?3, ?4, ?5)", 1L, "plain", 1.5, true,
+                new byte[] { 1, 2, 3 });
+
+        QueryTool.update(connection, "INSERT INTO export_row VALUES " +
+                "(?1, ?2, ?3, ?4, ?5)", -2L, "a \"quoted\", line\nbreak",
+                0.25, false, new byte[] { (byte)0xff });
+
+        QueryTool.update(connection, "INSERT INTO export_row (id) " +
+                "VALUES (?1)", 3L);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        QueryTool.update(connection, "DROP TABLE export_row");
+        connection = null;
+
+        super.tearDown();
+    }
+
+    public void testCsv() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final long rows = QueryTool.export(connection, new CsvEncoder(), out,
+                "SELECT * FROM export_row ORDER BY id DESC");
+
+        assertEquals(3, rows);
+        assertEquals(
+                "ID,NAME,SCORE,ACTIVE,DATA\r\n" +
+                "3,,,,\r\n" +
+                "1,plain,1.5,true,AQID\r\n" +
+                "-2,\"a \"\"quoted\"\", line\nbreak\",0.25,false,/w==\r\n",
+                out.toString("UTF-8"));
+    }
+
+    public void testJsonLines() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final long rows = QueryTool.export(connection, new JsonLinesEncoder(),
+                out, "SELECT id, name, active, data FROM export_row " +
+                "WHERE id < ?1 ORDER BY id", 3L);
+
+        assertEquals(2, rows);
+        assertEquals(
+                "{\"ID\":-2,\"NAME\":\"a \\\"quoted\\\", line\\nbreak\"," +
+                "\"ACTIVE\":false,\"DATA\":\"/w==\"}\n" +
+                "{\"ID\":1,\"NAME\":\"plain\",\"ACTIVE\":true," +
+                "\"DATA\":\"AQID\"}\n",
+                out.toString("UTF-8"));
+    }
+
+    public void testDataObjectColumns() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        QueryTool.export(connection,
+                new CsvEncoder(ExportRow.class, ';', false), out,
+                "SELECT * FROM export_row WHERE id = ?1", 1L);
+
+        assertEquals("1;plain\r\n", out.toString("UTF-8"));
+    }
+
+    public static class ExportRow {
+
+        public long id;
+
+        public String name;
+
+    }
+
+}
@@ -0,0 +1,139 @@
+package net.lemnik.eodsql;
+
+import java.io.File;
+
+import java.lang.reflect.Method;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class FlightRecorderTest extends EoDTestCase {
+
+    private static final String[] EVENTS = {
+        "net.lemnik.eodsql.Invocation",
+        "net.lemnik.eodsql.ConnectionAcquire",
+        "net.lemnik.eodsql.Prepare",
+        "net.lemnik.eodsql.Execute",
+        "net.lemnik.eodsql.Fetch"
+    };
+
+    private MetricsQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), MetricsQuery.class);
+        query.create();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        query.drop();
+        query.close();
+        query = null;
+
+        super.tearDown();
+    }
+
+    public void testEvents() throws Exception {
+        final Class<?> recordingType;
+
+        try {
+            recordingType = Class.forName("jdk.jfr.Recording");
+        } catch(final ClassNotFoundException cnfe) {
+            // nothing to test without Flight Recorder
+            return;
+        }
+
+        final Object recording = recordingType.newInstance();
+        final Method enable = recordingType.getMethod("enable", String.class);
+
+        for(final String event : EVENTS) {
+            enable.invoke(recording, event);
+        }
+
+        recordingType.getMethod("start").invoke(recording);
+
+        try {
+            query.insert(1, "one");
+            query.insert(2, "two");
+            query.getNames();
+        } finally {
+            recordingType.getMethod("stop").invoke(recording);
+        }
+
+        final File file = File.createTempFile("eodsql", ".jfr");
+
+        try {
+            recordingType.getMethod("dump", Class.forName("java.nio.file.Path")).
+                    invoke(recording, file.toPath());
+
+            final List<Object> events = readEvents(file);
+            int invocations = 0;
+            int executes = 0;
+
+            for(final Object event : events) {
+                final String name = getTypeName(event);
+
+                if(name.equals("net.lemnik.eodsql.Invocation") &&
+                        get(event, "getString", "method").equals("insert")) {
+
+                    invocations++;
+                    assertEquals(MetricsQuery.class.getName(),
+                            get(event, "getString", "interfaceName"));
+                    assertEquals("INSERT INTO metrics_row VALUES (?, ?)",
+                            get(event, "getString", "sql"));
+                    assertEquals(Long.valueOf(1),
+                            get(event, "getLong", "rowsAffected"));
+                } else if(name.equals("net.lemnik.eodsql.Execute") &&
+                        get(event, "getString", "method").equals("getNames")) {
+
+                    executes++;
+                    assertTrue((Long)get(event, "getLong", "phaseTime") > 0);
+                    assertTrue((Long)get(event, "getLong", "phaseStart") > 0);
+                }
+            }
+
+            assertEquals(2, invocations);
+            assertEquals(1, executes);
+        } finally {
+            recordingType.getMethod("close").invoke(recording);
+            file.delete();
+        }
+    }
+
+    private static List<Object> readEvents(final File file) throws Exception {
+        final Class<?> recordingFile =
+                Class.forName("jdk.jfr.consumer.RecordingFile");
+
+        final List<?> events = (List<?>)recordingFile.getMethod(
+                "readAllEvents",
+                Class.forName("java.nio.file.Path")).
+                invoke(null, file.toPath());
+
+        return new ArrayList<Object>(events);
+    }
+
+    private static String getTypeName(final Object event) throws Exception {
+        final Object type = Class.forName("jdk.jfr.consumer.RecordedEvent").
+                getMethod("getEventType").invoke(event);
+
+        return (String)type.getClass().getMethod("getName").invoke(type);
+    }
+
+    private static Object get(
+            final Object event,
+            final String getter,
+            final String field)
+            throws Exception {
+
+        return Class.forName("jdk.jfr.consumer.RecordedObject").
+                getMethod(getter, String.class).invoke(event, field);
+    }
+
+}
@@ -13,5 +13,13 @@ public class LateDisconnectedDataSetTest extends AbstractDataSetTestObject {
 
         return ds;
     }
-    
+
+    @Override
+    protected DataSet<SimpleObject> getKeyedDataSet() throws Exception {
+        final DataSet<SimpleObject> ds = query.getConnectedByKey();
+        ds.disconnect();
+
+        return ds;
+    }
+
 }
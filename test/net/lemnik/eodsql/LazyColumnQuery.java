@@ -0,0 +1,36 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public interface LazyColumnQuery extends BaseQuery {
+
+    @Update("CREATE TABLE lazy_document (" +
+    "id BIGINT PRIMARY KEY," +
+    "title VARCHAR(32)," +
+    "content VARCHAR(1024)," +
+    "data VARBINARY(1024))")
+    void create();
+
+    @Update("DROP TABLE lazy_document")
+    void drop();
+
+    @Update("INSERT INTO lazy_document VALUES (?1, ?2, ?3, ?4)")
+    void insert(long id, String title, String content, byte[] data);
+
+    @Select("SELECT id, title FROM lazy_document ORDER BY id")
+    Document[] getDocuments();
+
+    @Select("SELECT id, title FROM lazy_document ORDER BY id")
+    List<Document> getDocumentList();
+
+    @Select("SELECT id, title FROM lazy_document WHERE id = ?1")
+    Document getDocument(long id);
+
+    @Update("UPDATE lazy_document SET content = ?2 WHERE id = ?1")
+    void updateContent(long id, String content);
+
+}
@@ -0,0 +1,127 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class LazyColumnTest extends EoDTestCase {
+
+    private LazyColumnQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), LazyColumnQuery.class);
+        query.create();
+
+        for(int i = 0; i < 8; i++) {
+            query.insert(i, "title " + i, i == 5 ? null : "content " + i,
+                    new byte[] { (byte)i, (byte)(i * 2) });
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        query.drop();
+        query = null;
+
+        super.tearDown();
+    }
+
+    public void testLoadedOnAccess() throws Exception {
+        final Document document = query.getDocument(3);
+
+        assertEquals("title 3", document.title);
+        assertNotNull(document.content);
+        assertFalse(document.content.isLoaded());
+
+        // the content is read when it is touched, not when it was selected
+        query.updateContent(3, "changed");
+
+        assertEquals("changed", document.content.get());
+        assertTrue(document.content.isLoaded());
+        assertFalse(document.data.isLoaded());
+
+        final byte[] data = document.data.get();
+        assertEquals(3, data[0]);
+        assertEquals(6, data[1]);
+    }
+
+    public void testBatchGrowth() throws Exception {
+        final Document[] documents = query.getDocuments();
+        assertEquals(8, documents.length);
+
+        assertEquals("content 0", documents[0].content.get());
+        assertFalse(documents[1].content.isLoaded());
+
+        // the second load reads two rows, the third reads four
+        assertEquals("content 1", documents[1].content.get());
+        assertTrue(documents[2].content.isLoaded());
+        assertFalse(documents[3].content.isLoaded());
+
+        assertEquals("content 3", documents[3].content.get());
+        assertTrue(documents[6].content.isLoaded());
+        assertFalse(documents[7].content.isLoaded());
+
+        assertNull(documents[5].content.get());
+        assertEquals("content 7", documents[7].content.get());
+
+        // each lazy column is loaded on it's own
+        assertFalse(documents[0].data.isLoaded());
+    }
+
+    public void testList() throws Exception {
+        final List<Document> documents = query.getDocumentList();
+
+        for(int i = 0; i < documents.size(); i++) {
+            assertEquals(i * 2, documents.get(i).data.get()[1]);
+        }
+    }
+
+    public void testDeadline() throws Exception {
+        final Document document = query.getDocument(2);
+
+        QueryDeadline.set(0, TimeUnit.SECONDS);
+
+        try {
+            document.content.get();
+            fail("The lazy column should not be loaded after the deadline");
+        } catch(final QueryCancelledException qce) {
+            assertTrue(qce.isTimedOut());
+        } finally {
+            QueryDeadline.clear();
+        }
+
+        assertFalse(document.content.isLoaded());
+        assertEquals("content 2", document.content.get());
+    }
+
+    public void testOf() throws Exception {
+        final Lazy<String> lazy = Lazy.of("value");
+
+        assertTrue(lazy.isLoaded());
+        assertEquals("value", lazy.get());
+    }
+
+    public void testDataIteratorRejected() throws Exception {
+        try {
+            QueryTool.getQuery(getConnection(), IteratorQuery.class);
+            fail("Lazy columns should not be allowed in a DataIterator");
+        } catch(final InvalidQueryException iqe) {
+            // expected
+        }
+    }
+
+    public static interface IteratorQuery extends BaseQuery {
+
+        @Select("SELECT id, title FROM lazy_document")
+        DataIterator<Document> getDocuments();
+
+    }
+
+}
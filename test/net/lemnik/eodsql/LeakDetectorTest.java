@@ -0,0 +1,202 @@
+package net.lemnik.eodsql;
+
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+
+import java.sql.Connection;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class LeakDetectorTest extends EoDTestCase {
+
+    private final List<ResourceLeak> leaks = new ArrayList<ResourceLeak>();
+
+    private MetricsQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), MetricsQuery.class);
+        query.create();
+        query.insert(1, "one");
+        query.insert(2, "two");
+
+        LeakDetector.setHandler(new LeakDetector.Handler() {
+
+            public void leaked(final ResourceLeak leak) {
+                synchronized(leaks) {
+                    leaks.add(leak);
+                    leaks.notifyAll();
+                }
+            }
+
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        LeakDetector.setHandler(null);
+        LeakDetector.setSampleRate(0);
+        LeakDetector.setMaxAge(-1, TimeUnit.SECONDS);
+        LeakDetector.setForceClose(false);
+
+        query.drop();
+        query.close();
+        query = null;
+
+        super.tearDown();
+    }
+
+    private ResourceLeak awaitLeak(final boolean collectGarbage)
+            throws Exception {
+
+        final long deadline = System.currentTimeMillis() + 10000;
+
+        synchronized(leaks) {
+            while(leaks.isEmpty() && System.currentTimeMillis() < deadline) {
+                if(collectGarbage) {
+                    System.gc();
+                }
+
+                leaks.wait(100);
+            }
+
+            assertFalse("No leak was reported", leaks.isEmpty());
+            return leaks.get(0);
+        }
+    }
+
+    private void leakIterator() {
+        leakIterator(query);
+    }
+
+    private void leakIterator(final MetricsQuery source) {
+        final DataIterator<String> names = source.iterateNames();
+        assertEquals("one", names.next());
+    }
+
+    /**
+     * Returns a {@code DataSource} that adds each {@code Connection} it
+     * opens to {@code opened}.
+     */
+    private DataSource getRecordingDataSource(final List<Connection> opened)
+            throws Exception {
+
+        final DataSource delegate = getUnpooledDataSource();
+
+        return (DataSource)Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class },
+                new InvocationHandler() {
+
+            public Object invoke(
+                    final Object proxy,
+                    final Method method,
+                    final Object[] args)
+                    throws Throwable {
+
+                try {
+                    final Object result = method.invoke(delegate, args);
+
+                    if(result instanceof Connection) {
+                        synchronized(opened) {
+                            opened.add((Connection)result);
+                        }
+                    }
+
+                    return result;
+                } catch(final InvocationTargetException ite) {
+                    throw ite.getCause();
+                }
+            }
+
+        });
+    }
+
+    public void testCollectedIteratorIsReclaimed() throws Exception {
+        LeakDetector.setSampleRate(1);
+        final long reclaimed = LeakDetector.getReclaimedCount();
+
+        leakIterator();
+
+        final ResourceLeak leak = awaitLeak(true);
+        assertTrue(leak.isCollected());
+        assertTrue(leak.isReclaimed());
+        assertNotNull(leak.getAllocationSite());
+        assertTrue(leak.getSql().startsWith("SELECT name FROM metrics_row"));
+
+        assertEquals(reclaimed + 1, LeakDetector.getReclaimedCount());
+    }
+
+    public void testCollectedConnectionIsClosed() throws Exception {
+        final List<Connection> opened = new ArrayList<Connection>();
+        final MetricsQuery pooled = QueryTool.getQuery(
+                getRecordingDataSource(opened),
+                MetricsQuery.class);
+
+        leakIterator(pooled);
+
+        final ResourceLeak leak = awaitLeak(true);
+        assertTrue(leak.isReclaimed());
+
+        synchronized(opened) {
+            assertFalse(opened.isEmpty());
+
+            for(final Connection connection : opened) {
+                assertTrue(connection.isClosed());
+            }
+        }
+    }
+
+    public void testOpenResources() throws Exception {
+        final int open = LeakDetector.getOpenResources().size();
+        final DataIterator<String> names = query.iterateNames();
+
+        final List<ResourceLeak> resources = LeakDetector.getOpenResources();
+        assertEquals(open + 1, resources.size());
+        assertFalse(resources.get(resources.size() - 1).isCollected());
+        assertNull(resources.get(resources.size() - 1).getAllocationSite());
+
+        names.close();
+        assertEquals(open, LeakDetector.getOpenResources().size());
+    }
+
+    public void testMaxAgeForceClose() throws Exception {
+        final DataIterator<String> names = query.iterateNames();
+
+        try {
+            LeakDetector.setForceClose(true);
+            LeakDetector.setMaxAge(0, TimeUnit.MILLISECONDS);
+            LeakDetector.check();
+
+            final ResourceLeak leak = awaitLeak(false);
+            assertFalse(leak.isCollected());
+            assertTrue(leak.isReclaimed());
+
+            // the single Connection is left to the thread that holds it
+            assertFalse(getConnection().isClosed());
+
+            try {
+                names.next();
+                fail("The iterator should have been closed");
+            } catch(final RuntimeException re) {
+                // expected
+            }
+        } finally {
+            names.close();
+        }
+    }
+
+}
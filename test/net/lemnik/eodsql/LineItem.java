@@ -0,0 +1,15 @@
+package net.lemnik.eodsql;
+
+/**
+ * The elements of the {@link Nested} collection of an {@link Order}.
+ *
+ * @author Jason Morris
+ */
+public class LineItem {
+
+    @AutoGeneratedKeys
+    public long id;
+
+    public String product;
+
+}
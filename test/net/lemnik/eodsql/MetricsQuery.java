@@ -0,0 +1,39 @@
+package net.lemnik.eodsql;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public interface MetricsQuery extends BaseQuery {
+
+    @Update("CREATE TABLE metrics_row (" +
+    "id BIGINT PRIMARY KEY," +
+    "name VARCHAR(64))")
+    void create();
+
+    @Update("DROP TABLE metrics_row")
+    void drop();
+
+    @Update("INSERT INTO metrics_row VALUES (?1, ?2)")
+    int insert(long id, String name);
+
+    @Update("UPDATE metrics_row SET name = ?1")
+    int rename(String name);
+
+    @Select("SELECT name FROM metrics_row ORDER BY id")
+    String[] getNames();
+
+    @Select("SELECT name FROM metrics_row ORDER BY id")
+    DataIterator<String> iterateNames();
+
+    @Select(value = "SELECT name FROM metrics_row ORDER BY id", timeout = 5)
+    String[] getNamesWithTimeout();
+
+    @Select(value = "SELECT name FROM metrics_row WHERE id < ?1 ORDER BY id",
+    adaptiveFetchSize = true, fetchSize = 64)
+    String[] getNamesAdaptive(long limit);
+
+    @Select("SELECT name FROM metrics_row WHERE missing_column = ?1")
+    String[] getBroken(long id);
+
+}
@@ -0,0 +1,187 @@
+package net.lemnik.eodsql;
+
+import java.lang.reflect.Method;
+
+import javax.management.ObjectName;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+
+import net.lemnik.eodsql.spi.Execution.Phase;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class MetricsTest extends EoDTestCase {
+
+    private MetricsQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), MetricsQuery.class);
+        query.create();
+
+        QueryMetrics.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        query.drop();
+        query.close();
+        query = null;
+
+        super.tearDown();
+    }
+
+    private static MethodMetrics getMetrics(
+            final String name,
+            final Class<?>... parameters)
+            throws Exception {
+
+        final Method method = MetricsQuery.class.getMethod(name, parameters);
+        return QueryMetrics.getMethodMetrics(method);
+    }
+
+    public void testCounts() throws Exception {
+        for(int i = 0; i < 5; i++) {
+            assertEquals(1, query.insert(i, "row" + i));
+        }
+
+        assertEquals(5, query.rename("renamed"));
+        assertEquals(5, query.getNames().length);
+        assertEquals(5, query.getNames().length);
+
+        final MethodMetrics insert = getMetrics("insert", long.class, String.class);
+        assertEquals(5, insert.getCallCount());
+        assertEquals(0, insert.getErrorCount());
+        assertEquals(5, insert.getRowsAffected());
+        assertEquals(0, insert.getRowsReturned());
+        assertEquals(5, insert.getLatency().getCount());
+        assertEquals(5, insert.getLatency(Phase.EXECUTE).getCount());
+
+        final MethodMetrics rename = getMetrics("rename", String.class);
+        assertEquals(1, rename.getCallCount());
+        assertEquals(5, rename.getRowsAffected());
+
+        final MethodMetrics names = getMetrics("getNames");
+        assertEquals(2, names.getCallCount());
+        assertEquals(10, names.getRowsReturned());
+        assertTrue(names.getLatency().getTotal() > 0);
+        assertTrue(names.getLatency().getMax() >=
+                names.getLatency(Phase.EXECUTE).getMax());
+
+        assertTrue(QueryMetrics.getMethodMetrics().contains(names));
+    }
+
+    public void testAdaptiveFetchSize() throws Exception {
+        for(int i = 0; i < 100; i++) {
+            query.insert(i, "row" + i);
+        }
+
+        final MethodMetrics adaptive = getMetrics("getNamesAdaptive", long.class);
+
+        // the fetch size is left to the driver until it has a few samples
+        assertEquals(3, query.getNamesAdaptive(3).length);
+        assertEquals(0, adaptive.getFetchSize());
+
+        for(int i = 0; i < 10; i++) {
+            query.getNamesAdaptive(3);
+        }
+
+        query.getNamesAdaptive(3);
+        assertEquals(16, adaptive.getFetchSize());
+
+        // larger results raise the fetch size, up to the cap of 64
+        for(int i = 0; i < 100; i++) {
+            query.getNamesAdaptive(20);
+        }
+
+        query.getNamesAdaptive(20);
+        assertEquals(32, adaptive.getFetchSize());
+
+        for(int i = 0; i < 100; i++) {
+            query.getNamesAdaptive(100);
+        }
+
+        query.getNamesAdaptive(100);
+        assertEquals(64, adaptive.getFetchSize());
+    }
+
+    public void testErrors() throws Exception {
+        try {
+            query.getBroken(1);
+            fail("The query should not have executed");
+        } catch(final RuntimeException re) {
+            // expected
+        }
+
+        final MethodMetrics broken = getMetrics("getBroken", long.class);
+        assertEquals(1, broken.getCallCount());
+        assertEquals(1, broken.getErrorCount());
+    }
+
+    public void testDisabled() throws Exception {
+        QueryMetrics.setEnabled(false);
+
+        try {
+            query.insert(1, "one");
+        } finally {
+            QueryMetrics.setEnabled(true);
+        }
+
+        assertEquals(0, getMetrics("insert", long.class, String.class).
+                getCallCount());
+    }
+
+    public void testMBeans() throws Exception {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        query.insert(1, "one");
+
+        QueryMetrics.registerMBeans(server);
+
+        try {
+            final MethodMetrics insert = getMetrics(
+                    "insert",
+                    long.class,
+                    String.class);
+
+            final ObjectName name = QueryMetrics.getObjectName(insert);
+            assertEquals(Long.valueOf(1), server.getAttribute(name, "CallCount"));
+
+            // methods first called after registration are published too
+            query.getNames();
+
+            assertTrue(server.isRegistered(QueryMetrics.getObjectName(
+                    getMetrics("getNames"))));
+        } finally {
+            QueryMetrics.unregisterMBeans();
+        }
+
+        assertTrue(server.queryNames(
+                new ObjectName(QueryMetrics.DOMAIN + ":*"), null).isEmpty());
+    }
+
+    public void testHistogram() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for(long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+
+        final long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 500000 && median <= 500000 * 1.07);
+
+        final long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990000 && p99 <= 1000000);
+
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+        assertEquals(5, new LatencyHistogram() {{ record(5); }}.
+                getValueAtPercentile(50));
+    }
+
+}
@@ -0,0 +1,105 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class NestedMappingTest extends EoDTestCase {
+
+    private NestedQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), NestedQuery.class);
+        query.createOrders();
+        query.createItems();
+
+        query.insertOrder(1, "Alice", "1 Long Street", "Cape Town");
+        query.insertOrder(2, "Bob", null, null);
+        query.insertItem(10, 1, "apple");
+        query.insertItem(11, 1, "pear");
+        query.insertItem(12, 1, "plum");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        query.dropItems();
+        query.dropOrders();
+        query = null;
+
+        super.tearDown();
+    }
+
+    private void assertAlice(final Order order) {
+        assertNotNull(order);
+        assertEquals(1, order.id);
+        assertEquals("Alice", order.customer);
+
+        assertNotNull("address should have been embedded", order.address);
+        assertEquals("1 Long Street", order.address.street);
+        assertEquals("Cape Town", order.address.city);
+
+        assertNotNull(order.items);
+        assertEquals(3, order.items.size());
+        assertEquals(10, order.items.get(0).id);
+        assertEquals("apple", order.items.get(0).product);
+        assertEquals("pear", order.items.get(1).product);
+        assertEquals("plum", order.items.get(2).product);
+    }
+
+    private void assertBob(final Order order) {
+        assertNotNull(order);
+        assertEquals(2, order.id);
+        assertEquals("Bob", order.customer);
+        assertNull("all null columns should not be embedded", order.address);
+        assertNotNull(order.items);
+        assertTrue(order.items.isEmpty());
+    }
+
+    public void testArray() throws Exception {
+        final Order[] orders = query.getOrders();
+
+        assertEquals(2, orders.length);
+        assertAlice(orders[0]);
+        assertBob(orders[1]);
+    }
+
+    public void testList() throws Exception {
+        final List<Order> orders = query.getOrderList();
+
+        assertEquals(2, orders.size());
+        assertAlice(orders.get(0));
+        assertBob(orders.get(1));
+    }
+
+    public void testDisconnectedDataSet() throws Exception {
+        final DataSet<Order> orders = query.getOrderDataSet();
+
+        try {
+            assertEquals(2, orders.size());
+            assertAlice(orders.get(0));
+            assertBob(orders.getByKey(2L));
+        } finally {
+            orders.close();
+        }
+    }
+
+    public void testSingleObject() throws Exception {
+        assertAlice(query.getOrder(1));
+        assertBob(query.getOrder(2));
+        assertNull(query.getOrder(3));
+    }
+
+    public void testRepeatedChildren() throws Exception {
+        final Order[] orders = query.getRepeatedItems();
+
+        assertEquals(1, orders.length);
+        assertEquals(3, orders[0].items.size());
+        assertNull(orders[0].address);
+    }
+
+}
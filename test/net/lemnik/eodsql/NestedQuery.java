@@ -0,0 +1,59 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public interface NestedQuery extends BaseQuery {
+
+    String ORDERS = "SELECT o.id, o.customer, " +
+            "o.street AS address_street, o.city AS address_city, " +
+            "i.id AS item_id, i.product AS item_product " +
+            "FROM nested_order o LEFT JOIN nested_item i ON i.order_id = o.id ";
+
+    @Update("CREATE TABLE nested_order (" +
+    "id BIGINT PRIMARY KEY," +
+    "customer VARCHAR(32)," +
+    "street VARCHAR(32)," +
+    "city VARCHAR(32))")
+    void createOrders();
+
+    @Update("CREATE TABLE nested_item (" +
+    "id BIGINT PRIMARY KEY," +
+    "order_id BIGINT," +
+    "product VARCHAR(32))")
+    void createItems();
+
+    @Update("DROP TABLE nested_order")
+    void dropOrders();
+
+    @Update("DROP TABLE nested_item")
+    void dropItems();
+
+    @Update("INSERT INTO nested_order VALUES (?1, ?2, ?3, ?4)")
+    void insertOrder(long id, String customer, String street, String city);
+
+    @Update("INSERT INTO nested_item VALUES (?1, ?2, ?3)")
+    void insertItem(long id, long order, String product);
+
+    @Select(ORDERS + "ORDER BY o.id, i.id")
+    Order[] getOrders();
+
+    @Select(ORDERS + "ORDER BY o.id, i.id")
+    List<Order> getOrderList();
+
+    @Select(sql = ORDERS + "ORDER BY o.id, i.id", disconnected = true)
+    DataSet<Order> getOrderDataSet();
+
+    @Select(ORDERS + "WHERE o.id = ?1 ORDER BY i.id")
+    Order getOrder(long id);
+
+    @Select("SELECT o.id, o.customer, i.id AS item_id, " +
+            "i.product AS item_product " +
+            "FROM nested_order o JOIN nested_item i ON i.order_id = o.id " +
+            "JOIN nested_item j ON j.order_id = o.id ORDER BY o.id, i.id")
+    Order[] getRepeatedItems();
+
+}
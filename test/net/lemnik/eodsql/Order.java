@@ -0,0 +1,23 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+
+/**
+ * A data-object with both an embedded object and a nested collection.
+ *
+ * @author Jason Morris
+ */
+public class Order {
+
+    @AutoGeneratedKeys
+    public long id;
+
+    public String customer;
+
+    @Nested(prefix = "address_")
+    public Address address;
+
+    @Nested(prefix = "item_")
+    public List<LineItem> items;
+
+}
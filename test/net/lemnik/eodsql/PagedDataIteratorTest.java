@@ -0,0 +1,54 @@
+package net.lemnik.eodsql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class PagedDataIteratorTest extends AbstractKeyObjectTestObject {
+
+    public void testPagedSelect() throws Exception {
+        final KeyObject[] keys = insertKeyObjects(10);
+        final List<Long> out = new ArrayList<Long>();
+
+        for(final KeyObject o : query.pageKeys()) {
+            out.add(o.id);
+        }
+
+        assertEquals(keys.length, out.size());
+
+        for(int i = 0; i < keys.length; i++) {
+            assertEquals(keys[i].id, out.get(i));
+        }
+
+        // resume after the sixth row, in the middle of the second page
+        final DataIterator<KeyObject> resumed = query.pageKeys(keys[5].id);
+        int index = 6;
+
+        while(resumed.hasNext()) {
+            assertEquals(keys[index++].id, resumed.next().id);
+        }
+
+        assertEquals(keys.length, index);
+        assertTrue(resumed.isClosed());
+    }
+
+    public void testOrderedPagedSelectRejected() throws Exception {
+        try {
+            QueryTool.getQuery(getConnection(), OrderedPageQuery.class);
+            fail("A paginated Select should not be ordered");
+        } catch(final InvalidQueryException iqe) {
+            // expected
+        }
+    }
+
+    public static interface OrderedPageQuery extends BaseQuery {
+
+        @Select(sql = "SELECT * FROM keyTable ORDER BY value", pageSize = 3)
+        DataIterator<KeyObject> pageKeys();
+
+    }
+
+}
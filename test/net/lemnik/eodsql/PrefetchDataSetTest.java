@@ -0,0 +1,49 @@
+package net.lemnik.eodsql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class PrefetchDataSetTest extends AbstractDataSetTestObject {
+
+    @Override
+    protected DataSet<SimpleObject> getDataSet() throws Exception {
+        return query.getPrefetched();
+    }
+
+    public void testReverseAndRandomAccess() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final DataSet<SimpleObject> objects = getDataSet();
+        final ListIterator<SimpleObject> li = objects.listIterator(objects.size());
+
+        for(int i = validation.size() - 1; i >= 0; i--) {
+            assertTrue(li.hasPrevious());
+            assertEquals(validation.get(i), li.previous());
+        }
+
+        for(int i = 0; i < validation.size(); i += 37) {
+            assertEquals(validation.get(i), objects.get(i));
+        }
+
+        assertEquals(validation.get(500), objects.get(500));
+        assertEquals(validation.get(3), objects.get(3));
+        assertEquals(validation.get(999), objects.get(999));
+
+        try {
+            objects.get(validation.size());
+            fail("Expected an IndexOutOfBoundsException");
+        } catch(final IndexOutOfBoundsException ioobe) {
+            // expected
+        }
+
+        objects.close();
+    }
+
+}
@@ -0,0 +1,67 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+import java.util.Collection;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public interface PrefetchQuery extends BaseQuery {
+
+    @Update("CREATE TABLE prefetch_customer (" +
+    "id BIGINT PRIMARY KEY," +
+    "name VARCHAR(32))")
+    void createCustomers();
+
+    @Update("CREATE TABLE prefetch_order (" +
+    "id BIGINT PRIMARY KEY," +
+    "customer_id BIGINT," +
+    "product_id BIGINT)")
+    void createOrders();
+
+    @Update("CREATE TABLE prefetch_product (" +
+    "id BIGINT PRIMARY KEY," +
+    "name VARCHAR(32))")
+    void createProducts();
+
+    @Update("DROP TABLE prefetch_customer")
+    void dropCustomers();
+
+    @Update("DROP TABLE prefetch_order")
+    void dropOrders();
+
+    @Update("DROP TABLE prefetch_product")
+    void dropProducts();
+
+    @Update("INSERT INTO prefetch_customer VALUES (?1, ?2)")
+    void insertCustomer(long id, String name);
+
+    @Update("INSERT INTO prefetch_order VALUES (?1, ?2, ?3)")
+    void insertOrder(long id, long customer, Long product);
+
+    @Update("INSERT INTO prefetch_product VALUES (?1, ?2)")
+    void insertProduct(long id, String name);
+
+    @Select("SELECT * FROM prefetch_customer ORDER BY id")
+    Customer[] getCustomers();
+
+    @Select("SELECT * FROM prefetch_customer ORDER BY id")
+    List<Customer> getCustomerList();
+
+    @Select(sql = "SELECT * FROM prefetch_customer ORDER BY id",
+            disconnected = true)
+    DataSet<Customer> getCustomerDataSet();
+
+    @Select("SELECT * FROM prefetch_customer WHERE id = ?1")
+    Customer getCustomer(long id);
+
+    @Select(sql = "SELECT * FROM prefetch_order " +
+            "WHERE customer_id IN (?{1[]}) ORDER BY id",
+            maxListSize = 2)
+    PurchaseOrder[] getOrdersByCustomer(long[] customers);
+
+    @Select("SELECT * FROM prefetch_product WHERE id IN (?{1[]})")
+    List<Product> getProductsById(Collection<Long> products);
+
+}
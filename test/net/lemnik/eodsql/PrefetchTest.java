@@ -0,0 +1,121 @@
+package net.lemnik.eodsql;
+
+import java.util.List;
+import java.util.Arrays;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class PrefetchTest extends EoDTestCase {
+
+    private PrefetchQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), PrefetchQuery.class);
+        query.createCustomers();
+        query.createOrders();
+        query.createProducts();
+
+        query.insertProduct(100, "apple");
+        query.insertProduct(101, "pear");
+
+        query.insertCustomer(1, "Alice");
+        query.insertCustomer(2, "Bob");
+        query.insertCustomer(3, "Carol");
+
+        query.insertOrder(10, 1, 100L);
+        query.insertOrder(11, 1, 101L);
+        query.insertOrder(12, 3, 100L);
+        query.insertOrder(13, 3, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        query.dropProducts();
+        query.dropOrders();
+        query.dropCustomers();
+        query = null;
+
+        super.tearDown();
+    }
+
+    private void assertCustomers(final List<Customer> customers) {
+        assertEquals(3, customers.size());
+
+        final Customer alice = customers.get(0);
+        assertEquals(2, alice.orders.size());
+        assertEquals(10, alice.orders.get(0).id);
+        assertEquals("apple", alice.orders.get(0).product.name);
+        assertEquals(11, alice.orders.get(1).id);
+        assertEquals("pear", alice.orders.get(1).product.name);
+
+        final Customer bob = customers.get(1);
+        assertNotNull("customers without orders get an empty List", bob.orders);
+        assertTrue(bob.orders.isEmpty());
+
+        // these orders were fetched in a second IN list
+        final Customer carol = customers.get(2);
+        assertEquals(2, carol.orders.size());
+        assertEquals("apple", carol.orders.get(0).product.name);
+        assertNull(carol.orders.get(1).product);
+    }
+
+    public void testArray() throws Exception {
+        assertCustomers(Arrays.asList(query.getCustomers()));
+    }
+
+    public void testList() throws Exception {
+        assertCustomers(query.getCustomerList());
+    }
+
+    public void testDisconnectedDataSet() throws Exception {
+        final DataSet<Customer> customers = query.getCustomerDataSet();
+
+        try {
+            assertCustomers(customers);
+        } finally {
+            customers.close();
+        }
+    }
+
+    public void testSingleObject() throws Exception {
+        final Customer alice = query.getCustomer(1);
+
+        assertEquals(2, alice.orders.size());
+        assertEquals("pear", alice.orders.get(1).product.name);
+        assertNull(query.getCustomer(4));
+    }
+
+    public void testInvalidPrefetch() throws Exception {
+        try {
+            QueryTool.getQuery(getConnection(), BrokenPrefetchQuery.class);
+            fail("A @Prefetch of a missing method should be rejected");
+        } catch(final InvalidQueryException iqe) {
+            // expected
+        }
+    }
+
+    public static class BrokenCustomer {
+
+        @AutoGeneratedKeys
+        public long id;
+
+        @Prefetch(query = PrefetchQuery.class,
+                method = "getMissing",
+                column = "customer_id")
+        public List<PurchaseOrder> orders;
+
+    }
+
+    public static interface BrokenPrefetchQuery extends BaseQuery {
+
+        @Select("SELECT * FROM prefetch_customer")
+        BrokenCustomer[] getCustomers();
+
+    }
+
+}
@@ -10,6 +10,9 @@ package net.lemnik.eodsql;
 
 import java.sql.SQLException;
 
+import java.util.List;
+import java.util.Collection;
+
 /**
  *
  * @author jason
@@ -32,6 +35,22 @@ public interface PrimitiveQuery extends BaseQuery {
     @Select("SELECT my_integer FROM primitive_table ORDER BY my_integer ASC")
     public int[] sortedInts();
 
+    @Select("SELECT my_integer FROM primitive_table " +
+    "WHERE my_integer IN (?{1[]}) ORDER BY my_integer ASC")
+    public int[] selectInts(int[] values);
+
+    @Select("SELECT my_integer FROM primitive_table " +
+    "WHERE my_integer NOT IN (?{1[]}) ORDER BY my_integer ASC")
+    public int[] selectIntsNotIn(int[] values);
+
+    @Select(sql = "SELECT my_integer FROM primitive_table " +
+    "WHERE my_integer IN (?{1[]}) ORDER BY my_integer ASC", maxListSize = 4)
+    public int[] selectIntsSplit(List<Integer> values);
+
+    @Update(sql = "DELETE FROM primitive_table WHERE my_integer IN (?{1[]})",
+    maxListSize = 4)
+    public int deleteInts(Collection<Integer> values);
+
     @Update("DELETE FROM primitive_table")
     public void deleteAll();
 
@@ -0,0 +1,14 @@
+package net.lemnik.eodsql;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class Product {
+
+    @AutoGeneratedKeys
+    public long id;
+
+    public String name;
+
+}
@@ -0,0 +1,25 @@
+package net.lemnik.eodsql;
+
+/**
+ * A data-object that references a {@link Product} loaded by a
+ * {@link Prefetch} query.
+ *
+ * @author Jason Morris
+ */
+public class PurchaseOrder {
+
+    @AutoGeneratedKeys
+    public long id;
+
+    @ResultColumn("customer_id")
+    public long customerId;
+
+    @ResultColumn("product_id")
+    public Long productId;
+
+    @Prefetch(query = PrefetchQuery.class,
+            method = "getProductsById",
+            column = "product_id")
+    public Product product;
+
+}
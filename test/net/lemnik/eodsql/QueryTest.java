@@ -45,6 +45,42 @@ public class QueryTest extends TestCase {
         Query.validate("INSERT INTO keys (id, value) VALUES(?{id}, ?{value})", method);
     }
 
+    public void testListParameter() throws Exception {
+        final Query query = Query.getQuery(
+                "SELECT * FROM users WHERE id IN (?{1[]}) AND name = ?2",
+                long[].class, String.class);
+
+        assertEquals(1, query.getListParameterCount());
+        assertTrue(query.isListParameter(0));
+        assertFalse(query.isListParameter(1));
+        assertSame(Long.TYPE, query.getParameterType(0));
+        assertEquals(0, query.getListParameterSource(0));
+
+        assertEquals("SELECT * FROM users WHERE id IN (?, ?, ?, ?) AND name = ?",
+                query.toString(new int[] { 4, 0 }));
+        assertEquals("SELECT * FROM users WHERE id IN (?) AND name = ?",
+                query.toString(new int[] { 0, 0 }));
+    }
+
+    public void testListParameterExpandedSize() {
+        assertEquals(1, Query.getExpandedSize(0, 512));
+        assertEquals(1, Query.getExpandedSize(1, 512));
+        assertEquals(4, Query.getExpandedSize(3, 512));
+        assertEquals(8, Query.getExpandedSize(5, 512));
+        assertEquals(512, Query.getExpandedSize(512, 512));
+        assertEquals(500, Query.getExpandedSize(300, 500));
+        assertEquals(1024, Query.getExpandedSize(600, 512));
+    }
+
+    public void testInvalidListParameter() {
+        try {
+            new Query("SELECT * FROM users WHERE id IN (?{1[]})", String.class);
+            fail("A String cannot be a list parameter");
+        } catch(final ParseException pe) {
+            // pass!
+        }
+    }
+
     public void testInvalidQueryString() {
         try {
             new Query("SELECT * FROM users WHERE id = ?");
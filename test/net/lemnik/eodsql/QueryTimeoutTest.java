@@ -0,0 +1,258 @@
+package net.lemnik.eodsql;
+
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationHandler;
+
+import java.sql.Statement;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import net.lemnik.eodsql.impl.StatementWatchdog;
+import net.lemnik.eodsql.impl.ExceptionTranslator;
+import net.lemnik.eodsql.impl.ExceptionTranslationUtils;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class QueryTimeoutTest extends EoDTestCase {
+
+    private MetricsQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), MetricsQuery.class);
+        query.create();
+        query.insert(1, "one");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        QueryDeadline.clear();
+        Thread.interrupted();
+
+        query.drop();
+        query.close();
+        query = null;
+
+        super.tearDown();
+    }
+
+    /**
+     * Creates a {@code Statement} that records the methods invoked on it.
+     */
+    private static Statement createStatement(final List<String> calls) {
+        return (Statement)Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[] { Statement.class },
+                new InvocationHandler() {
+
+            public Object invoke(
+                    final Object proxy,
+                    final Method method,
+                    final Object[] args) {
+
+                synchronized(calls) {
+                    calls.add(args != null
+                            ? method.getName() + args[0]
+                            : method.getName());
+                }
+
+                return null;
+            }
+
+        });
+    }
+
+    private static void awaitCancel(final List<String> calls) {
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while(System.currentTimeMillis() < deadline) {
+            synchronized(calls) {
+                if(calls.contains("cancel")) {
+                    return;
+                }
+            }
+
+            // the thread may be interrupted, so we can't sleep
+            Thread.yield();
+        }
+
+        fail("The statement was not cancelled");
+    }
+
+    public void testTimeout() throws Exception {
+        assertEquals(1, query.getNamesWithTimeout().length);
+    }
+
+    public void testExpiredDeadline() throws Exception {
+        QueryDeadline.set(0, TimeUnit.SECONDS);
+        assertEquals(0, QueryDeadline.getRemaining(TimeUnit.MILLISECONDS));
+
+        try {
+            query.getNames();
+            fail("The query should not have run");
+        } catch(final QueryCancelledException qce) {
+            assertTrue(qce.isTimedOut());
+        }
+
+        QueryDeadline.clear();
+        assertEquals(-1, QueryDeadline.getRemaining(TimeUnit.MILLISECONDS));
+        assertEquals(1, query.getNames().length);
+    }
+
+    /**
+     * Creates an {@code ExceptionTranslator} that does not translate
+     * cancellations, and wraps every exception in a plain
+     * {@code EoDException}.
+     */
+    private static ExceptionTranslator createPlainTranslator() {
+        return new ExceptionTranslator() {
+
+            public RuntimeException translateException(
+                    final DataSource dataSource,
+                    final String task,
+                    final String sql,
+                    final SQLException ex) {
+
+                return new EoDException(ex);
+            }
+
+            public RuntimeException translateException(
+                    final Connection connection,
+                    final String task,
+                    final String sql,
+                    final SQLException ex) {
+
+                return new EoDException(ex);
+            }
+
+            public RuntimeException uniqueResultExpected() {
+                return new EoDException();
+            }
+
+        };
+    }
+
+    public void testPlainExceptionTranslator() throws Exception {
+        final ExceptionTranslator original =
+                ExceptionTranslationUtils.getExceptionTranslator();
+
+        ExceptionTranslationUtils.setExceptionTranslator(
+                createPlainTranslator());
+
+        try {
+            QueryDeadline.set(0, TimeUnit.SECONDS);
+            query.getNames();
+            fail("The query should not have run");
+        } catch(final QueryCancelledException qce) {
+            assertTrue(qce.isTimedOut());
+        } finally {
+            ExceptionTranslationUtils.setExceptionTranslator(original);
+        }
+    }
+
+    public void testDatabaseCancellation() throws Exception {
+        final ExceptionTranslator original =
+                ExceptionTranslationUtils.getExceptionTranslator();
+
+        // such as a PostgreSQL statement_timeout, which EoD SQL didn't cause
+        final SQLException cancelled = new SQLException("canceled", "57014");
+
+        assertFalse(StatementWatchdog.isWatchdogCancellation(cancelled));
+        assertTrue(ExceptionTranslationUtils.isCancellation(cancelled));
+        assertTrue(ExceptionTranslationUtils.translateException(
+                (Connection)null, "task", "sql", cancelled)
+                instanceof QueryCancelledException);
+
+        ExceptionTranslationUtils.setExceptionTranslator(
+                createPlainTranslator());
+
+        try {
+            final RuntimeException translated =
+                    ExceptionTranslationUtils.translateException(
+                    (Connection)null, "task", "sql", cancelled);
+
+            assertFalse(translated instanceof QueryCancelledException);
+            assertSame(cancelled, translated.getCause());
+        } finally {
+            ExceptionTranslationUtils.setExceptionTranslator(original);
+        }
+    }
+
+    public void testInterrupted() throws Exception {
+        Thread.currentThread().interrupt();
+
+        try {
+            query.getNames();
+            fail("The query should not have run");
+        } catch(final QueryCancelledException qce) {
+            assertFalse(qce.isTimedOut());
+        }
+
+        assertTrue(Thread.interrupted());
+        assertEquals(1, query.getNames().length);
+    }
+
+    public void testWatchdogCancelsOnInterrupt() throws Exception {
+        final List<String> calls = new ArrayList<String>();
+        final StatementWatchdog.Watch watch = StatementWatchdog.begin();
+
+        try {
+            StatementWatchdog.apply(createStatement(calls), 0);
+            assertFalse(calls.contains("setQueryTimeout0"));
+
+            Thread.currentThread().interrupt();
+            awaitCancel(calls);
+            Thread.interrupted();
+
+            assertTrue(watch.isCancelled());
+
+            final SQLException translated =
+                    watch.translate(new SQLException("driver"));
+            assertEquals(QueryCancelledException.CANCELLED_STATE,
+                    translated.getSQLState());
+            assertTrue(ExceptionTranslationUtils.isCancellation(translated));
+            assertTrue(StatementWatchdog.isWatchdogCancellation(translated));
+        } finally {
+            watch.end();
+        }
+    }
+
+    public void testWatchdogCancelsAtDeadline() throws Exception {
+        final List<String> calls = new ArrayList<String>();
+
+        QueryDeadline.set(100, TimeUnit.MILLISECONDS);
+        final StatementWatchdog.Watch watch = StatementWatchdog.begin();
+
+        try {
+            StatementWatchdog.apply(createStatement(calls), 30);
+            assertTrue(calls.contains("setQueryTimeout1"));
+
+            awaitCancel(calls);
+
+            assertEquals(QueryCancelledException.TIMEOUT_STATE,
+                    watch.translate(new SQLException("driver")).getSQLState());
+        } finally {
+            watch.end();
+        }
+    }
+
+    public void testIsCancellation() throws Exception {
+        assertTrue(ExceptionTranslationUtils.isCancellation(
+                new SQLException("canceled", "57014")));
+        assertFalse(ExceptionTranslationUtils.isCancellation(
+                new SQLException("syntax", "42000")));
+    }
+
+}
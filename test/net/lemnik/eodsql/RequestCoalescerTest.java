@@ -0,0 +1,153 @@
+package net.lemnik.eodsql;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class RequestCoalescerTest extends AbstractKeyObjectTestObject {
+
+    public void testCoalescedSelect() throws Exception {
+        final KeyObject[] keys = insertKeyObjects(10);
+
+        // one more thread than there are rows, to look for a missing key
+        final Thread[] threads = new Thread[keys.length + 1];
+        final KeyObject[] out = new KeyObject[threads.length];
+        final Throwable[] failures = new Throwable[threads.length];
+
+        for(int i = 0; i < threads.length; i++) {
+            final int index = i;
+            final int id = index < keys.length
+                    ? keys[index].id.intValue()
+                    : Integer.MAX_VALUE;
+
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        out[index] = query.selectKey(id);
+                    } catch(final Throwable t) {
+                        failures[index] = t;
+                    }
+                }
+
+            };
+
+            threads[i].start();
+        }
+
+        for(int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertNull(failures[i]);
+        }
+
+        for(int i = 0; i < keys.length; i++) {
+            assertNotNull(out[i]);
+            assertEquals(keys[i].id, out[i].id);
+            assertEquals(keys[i].value, out[i].value);
+        }
+
+        assertNull(out[keys.length]);
+    }
+
+    /**
+     * Starts a thread selecting a single key, once the batch it should
+     * join has been opened by the current thread.
+     */
+    private Thread startSelect(
+            final int id,
+            final boolean interrupt,
+            final long deadline,
+            final Object[] out) {
+
+        final Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                if(deadline >= 0) {
+                    QueryDeadline.set(deadline, TimeUnit.MILLISECONDS);
+                }
+
+                try {
+                    out[0] = query.selectKey(id);
+                } catch(final Throwable t) {
+                    out[0] = t;
+                } finally {
+                    out[1] = Boolean.valueOf(isInterrupted());
+                    QueryDeadline.clear();
+                }
+            }
+
+        };
+
+        thread.start();
+
+        if(interrupt) {
+            thread.interrupt();
+        }
+
+        return thread;
+    }
+
+    public void testLeaderInterrupted() throws Exception {
+        final KeyObject[] keys = insertKeyObjects(2);
+        final Object[] leader = new Object[2];
+        final Object[] follower = new Object[2];
+
+        final Thread first = new Thread() {
+
+            @Override
+            public void run() {
+                interrupt();
+
+                try {
+                    leader[0] = query.selectKey(keys[0].id.intValue());
+                } catch(final Throwable t) {
+                    leader[0] = t;
+                }
+
+                leader[1] = Boolean.valueOf(isInterrupted());
+            }
+
+        };
+
+        first.start();
+        Thread.sleep(20);
+
+        startSelect(keys[1].id.intValue(), false, -1, follower).join();
+        first.join();
+
+        // the leader's interrupt must not cancel the batch
+        assertEquals(keys[0].value, ((KeyObject)leader[0]).value);
+        assertEquals(Boolean.TRUE, leader[1]);
+        assertEquals(keys[1].value, ((KeyObject)follower[0]).value);
+    }
+
+    public void testFollowerLeaves() throws Exception {
+        final KeyObject[] keys = insertKeyObjects(3);
+        final Object[] leader = new Object[2];
+        final Object[] timedOut = new Object[2];
+        final Object[] interrupted = new Object[2];
+
+        final Thread first = startSelect(keys[0].id.intValue(), false, -1, leader);
+        Thread.sleep(20);
+
+        final Thread second = startSelect(keys[1].id.intValue(), false, 10, timedOut);
+        final Thread third = startSelect(keys[2].id.intValue(), true, -1, interrupted);
+
+        second.join();
+        third.join();
+
+        // both gave up while the leader was still waiting for the window
+        assertTrue(first.isAlive());
+        assertTrue(((QueryCancelledException)timedOut[0]).isTimedOut());
+        assertFalse(((QueryCancelledException)interrupted[0]).isTimedOut());
+        assertEquals(Boolean.TRUE, interrupted[1]);
+
+        first.join();
+        assertEquals(keys[0].value, ((KeyObject)leader[0]).value);
+    }
+
+}
@@ -1,6 +1,9 @@
 package net.lemnik.eodsql;
 
+import java.util.List;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.ArrayList;
 
 /**
  *
@@ -55,6 +58,80 @@ public class SelectPrimitiveTest extends EoDTestCase {
         assertEquals(0, array.length);
     }
 
+    private int[] sortedValues(final int count) {
+        final int[] values = new int[count];
+
+        for(int i = 0; i < count; i++) {
+            values[i] = allData[i].intValue;
+        }
+
+        Arrays.sort(values);
+        return values;
+    }
+
+    private List<Integer> toList(final int[] values) {
+        final List<Integer> list = new ArrayList<Integer>(values.length);
+
+        for(final int value : values) {
+            list.add(value);
+        }
+
+        return list;
+    }
+
+    public void testListParameter() throws Exception {
+        final int[] values = sortedValues(5);
+
+        // expanded to 8 placeholders, padded with the last value
+        assertTrue(Arrays.equals(values, query.selectInts(values)));
+    }
+
+    public void testSplitListParameter() throws Exception {
+        final int[] values = sortedValues(10);
+
+        // split into lists of 4, 4 and 2 values
+        assertTrue(Arrays.equals(values, query.selectIntsSplit(toList(values))));
+    }
+
+    public void testEmptyListParameter() throws Exception {
+        try {
+            query.selectInts(new int[0]);
+            fail("An empty list should be rejected");
+        } catch(final IllegalArgumentException iae) {
+            // expected
+        }
+
+        try {
+            query.selectIntsSplit(null);
+            fail("A null list should be rejected");
+        } catch(final IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    public void testNotInListParameter() throws Exception {
+        final int[] values = sortedValues(5);
+
+        assertEquals(
+                allData.length - values.length,
+                query.selectIntsNotIn(values).length);
+
+        try {
+            // "NOT IN (NULL)" would match no rows at all
+            query.selectIntsNotIn(new int[0]);
+            fail("An empty list should be rejected");
+        } catch(final IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    public void testUpdateListParameter() throws Exception {
+        final int[] values = sortedValues(10);
+
+        assertEquals(values.length, query.deleteInts(toList(values)));
+        assertEquals(allData.length - values.length, query.sortedInts().length);
+    }
+
     @Override
     protected void tearDown() throws Exception {
         query.dropPrimitiveTable();
@@ -0,0 +1,89 @@
+package net.lemnik.eodsql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class SizeUnknownDataSetTest extends AbstractDataSetTestObject {
+
+    @Override
+    protected DataSet<SimpleObject> getDataSet() throws Exception {
+        return query.getSizeUnknown();
+    }
+
+    public void testIteration() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final DataSet<SimpleObject> objects = getDataSet();
+        assertFalse(objects.isEmpty());
+
+        int index = 0;
+
+        for(final SimpleObject o : objects) {
+            assertEquals(validation.get(index++), o);
+        }
+
+        assertEquals(validation.size(), index);
+        assertEquals(validation.size(), objects.size());
+
+        objects.close();
+    }
+
+    public void testEmpty() throws Exception {
+        final DataSet<SimpleObject> objects = getDataSet();
+
+        assertTrue(objects.isEmpty());
+        assertFalse(objects.iterator().hasNext());
+        assertEquals(0, objects.size());
+
+        objects.close();
+    }
+
+    public void testCount() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final DataSet<SimpleObject> counted = query.getCounted();
+        assertEquals(validation.size(), counted.size());
+        assertTrue(validation.contains(counted.get(10)));
+        counted.close();
+
+        final DataSet<SimpleObject> below = query.getCountedBelow(250);
+        assertEquals(250, below.size());
+        assertEquals(validation.get(249), below.get(249));
+        below.close();
+    }
+
+    public void testOrderedCountRejected() throws Exception {
+        try {
+            QueryTool.getQuery(getConnection(), OrderedCountQuery.class);
+            fail("An ordered query should not be counted as a sub-query");
+        } catch(final InvalidQueryException iqe) {
+            // expected
+        }
+    }
+
+    public void testArrayForwards() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        assertEquals(validation, Arrays.asList(query.getArrayForwards()));
+    }
+
+    public static interface OrderedCountQuery extends BaseQuery {
+
+        @Select(sql = "SELECT * FROM objects ORDER BY index",
+        sizeStrategy = SizeStrategy.COUNT)
+        DataSet<SimpleObject> getCounted();
+
+    }
+
+}
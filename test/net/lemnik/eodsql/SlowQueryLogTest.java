@@ -0,0 +1,182 @@
+package net.lemnik.eodsql;
+
+import java.lang.reflect.Method;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+
+import net.lemnik.eodsql.spi.Context;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class SlowQueryLogTest extends EoDTestCase {
+
+    private final List<SlowQuery> logged =
+            Collections.synchronizedList(new ArrayList<SlowQuery>());
+
+    private MetricsQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), MetricsQuery.class);
+        query.create();
+
+        SlowQueryLog.setHandler(new SlowQueryLog.Handler() {
+
+            public void log(final SlowQuery entry) {
+                logged.add(entry);
+            }
+
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SlowQueryLog.setThreshold(-1, TimeUnit.NANOSECONDS);
+        SlowQueryLog.setHandler(null);
+        SlowQueryLog.setRedactor(null);
+
+        query.drop();
+        query.close();
+        query = null;
+
+        super.tearDown();
+    }
+
+    public void testDisabled() throws Exception {
+        assertEquals(-1, SlowQueryLog.getThreshold(TimeUnit.MILLISECONDS));
+
+        query.insert(1, "one");
+
+        assertTrue(SlowQueryLog.flush(5, TimeUnit.SECONDS));
+        assertTrue(logged.isEmpty());
+    }
+
+    public void testLogged() throws Exception {
+        SlowQueryLog.setThreshold(0, TimeUnit.MILLISECONDS);
+        SlowQueryLog.setRedactor(new SlowQueryLog.Redactor() {
+
+            public Object redact(
+                    final Method method,
+                    final int index,
+                    final Object value) {
+
+                return index == 1 ? "****" : value;
+            }
+
+        });
+
+        query.insert(1, "secret");
+        query.getNames();
+
+        assertTrue(SlowQueryLog.flush(5, TimeUnit.SECONDS));
+        assertEquals(2, logged.size());
+
+        final SlowQuery insert = logged.get(0);
+        assertEquals(MetricsQuery.class.getMethod(
+                "insert",
+                long.class,
+                String.class), insert.getMethod());
+        assertTrue(insert.getSql().startsWith("INSERT INTO metrics_row"));
+        assertEquals("1", insert.getParameters()[0]);
+        assertEquals("****", insert.getParameters()[1]);
+        assertEquals(1, insert.getRowsAffected());
+        assertFalse(insert.isFailed());
+        assertFalse(insert.toString().contains("secret"));
+
+        assertEquals(1, logged.get(1).getRowsReturned());
+    }
+
+    public void testBrokenRedactor() throws Exception {
+        SlowQueryLog.setThreshold(0, TimeUnit.MILLISECONDS);
+        SlowQueryLog.setRedactor(new SlowQueryLog.Redactor() {
+
+            public Object redact(
+                    final Method method,
+                    final int index,
+                    final Object value) {
+
+                throw new IllegalStateException("broken");
+            }
+
+        });
+
+        query.insert(1, "one");
+        assertEquals(1, query.getNames().length);
+    }
+
+    public void testLargeParameter() throws Exception {
+        SlowQueryLog.setThreshold(0, TimeUnit.NANOSECONDS);
+
+        final Method method = MetricsQuery.class.getMethod("getNames");
+        final List<String> names = new ArrayList<String>();
+
+        for(int i = 0; i < 100000; i++) {
+            names.add("name" + i);
+        }
+
+        SlowQueryLog.record(
+                method,
+                new Context<Select>((Select)null, new Object[] {
+                    new long[1000000], names, new int[0][]
+                }),
+                false);
+
+        assertTrue(SlowQueryLog.flush(5, TimeUnit.SECONDS));
+        assertEquals(1, logged.size());
+
+        final String[] parameters = logged.get(0).getParameters();
+        assertEquals(SlowQueryLog.MAX_PARAMETER_LENGTH + 3, parameters[0].length());
+        assertTrue(parameters[0].startsWith("[0, 0, 0"));
+        assertTrue(parameters[0].endsWith("..."));
+        assertTrue(parameters[1].startsWith("[name0, name1, name2"));
+        assertEquals(SlowQueryLog.MAX_PARAMETER_LENGTH + 3, parameters[1].length());
+        assertEquals("[]", parameters[2]);
+    }
+
+    public void testFullBuffer() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        SlowQueryLog.setThreshold(0, TimeUnit.NANOSECONDS);
+        SlowQueryLog.setHandler(new SlowQueryLog.Handler() {
+
+            public void log(final SlowQuery entry) {
+                try {
+                    release.await();
+                } catch(final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+
+                logged.add(entry);
+            }
+
+        });
+
+        final Method method = MetricsQuery.class.getMethod("getNames");
+        final long dropped = SlowQueryLog.getDroppedCount();
+
+        for(int i = 0; i < SlowQueryLog.CAPACITY + 10; i++) {
+            SlowQueryLog.record(
+                    method,
+                    new Context<Select>((Select)null, new Object[] { i }),
+                    false);
+        }
+
+        release.countDown();
+
+        assertTrue(SlowQueryLog.flush(5, TimeUnit.SECONDS));
+        assertTrue(SlowQueryLog.getDroppedCount() - dropped >= 10);
+        assertEquals(SlowQueryLog.CAPACITY + 10,
+                logged.size() + SlowQueryLog.getDroppedCount() - dropped);
+        assertEquals("0", logged.get(0).getParameters()[0]);
+    }
+
+}
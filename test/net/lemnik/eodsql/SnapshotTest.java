@@ -0,0 +1,109 @@
+package net.lemnik.eodsql;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.FileOutputStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.lemnik.eodsql.spi.util.DataSetSnapshot;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class SnapshotTest extends AbstractDataSetTestObject {
+
+    private static final String SQL = "SELECT * FROM objects ORDER BY index";
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        file = File.createTempFile("eodsql-test", ".snapshot");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+
+        super.tearDown();
+    }
+
+    @Override
+    protected DataSet<SimpleObject> getDataSet() throws Exception {
+        final DataSet<SimpleObject> objects = query.getDisconnected();
+        DataSetSnapshot.write(file, SimpleObject.class, objects, SQL, 1000);
+        objects.close();
+
+        return DataSetSnapshot.read(file, SimpleObject.class, "id").
+                getDataSet();
+    }
+
+    public void testTags() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        DataSetSnapshot.write(file, SimpleObject.class, validation, SQL,
+                "parameter", new int[] { 1, 2 });
+
+        final DataSetSnapshot<SimpleObject> snapshot =
+                DataSetSnapshot.read(file, SimpleObject.class);
+
+        assertEquals(SQL, snapshot.getSql());
+        assertTrue(snapshot.getCreated() > 0);
+        assertTrue(snapshot.matches(SQL, "parameter", new int[] { 1, 2 }));
+        assertFalse(snapshot.matches(SQL, "parameter", new int[] { 1, 3 }));
+        assertFalse(snapshot.matches("SELECT * FROM objects", "parameter",
+                new int[] { 1, 2 }));
+
+        assertDataSetEquals(validation, snapshot.getDataSet());
+        snapshot.getDataSet().close();
+    }
+
+    public void testSerializableTag() throws Exception {
+        try {
+            DataSetSnapshot.write(file, SimpleObject.class,
+                    new ArrayList<SimpleObject>(), SQL,
+                    new ArrayList<String>());
+
+            fail("A tag that needs serialization was written");
+        } catch(final EoDException ee) {
+            // expected
+        }
+
+        assertEquals(0, file.length());
+    }
+
+    public void testWrongType() throws Exception {
+        DataSetSnapshot.write(file, String.class, new ArrayList<String>(), SQL);
+
+        try {
+            DataSetSnapshot.read(file, SimpleObject.class);
+            fail("A snapshot of Strings should not load as SimpleObjects");
+        } catch(final IOException ioe) {
+            // expected
+        }
+
+        assertTrue(DataSetSnapshot.read(file, String.class).
+                getDataSet().isEmpty());
+    }
+
+    public void testNotASnapshot() throws Exception {
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        out.close();
+
+        try {
+            DataSetSnapshot.read(file, SimpleObject.class);
+            fail("Garbage should not load as a snapshot");
+        } catch(final IOException ioe) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package net.lemnik.eodsql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class SparseCacheDataSetTest extends AbstractDataSetTestObject {
+
+    @Override
+    protected DataSet<SimpleObject> getDataSet() throws Exception {
+        return query.getSparseCached();
+    }
+
+    public void testSparseRows() throws Exception {
+        final SparseDataSetCache<Integer> cache = new SparseDataSetCache<Integer>();
+        final List<Integer> held = new ArrayList<Integer>();
+        final Random random = new Random(42);
+
+        for(int i = 0; i < 5000; i++) {
+            final Integer row = Integer.valueOf(random.nextInt(Integer.MAX_VALUE));
+            held.add(row);
+            cache.setObject(row.intValue(), row);
+        }
+
+        for(final Integer row : held) {
+            assertTrue(cache.isCached(row.intValue()));
+            assertSame(row, cache.getObject(row.intValue()));
+        }
+
+        int missing = 0;
+
+        while(held.contains(Integer.valueOf(missing))) {
+            missing++;
+        }
+
+        assertFalse(cache.isCached(missing));
+        assertNull(cache.getObject(missing));
+        cache.destroy();
+    }
+
+    public void testCapacityFollowsRowCount() throws Exception {
+        final SparseDataSetCache<Integer> cache = new SparseDataSetCache<Integer>();
+        final List<Integer> held = new ArrayList<Integer>();
+
+        for(int i = 0; i < 100; i++) {
+            final Integer row = Integer.valueOf(i);
+            held.add(row);
+            cache.setObject(i, row);
+        }
+
+        final Integer far = Integer.valueOf(5000000);
+        held.add(far);
+        cache.setObject(5000000, far);
+
+        // 101 rows at no more than three quarters full
+        assertEquals(256, cache.getCapacity());
+        assertSame(far, cache.getObject(5000000));
+        assertFalse(cache.isCached(4999999));
+        assertFalse(cache.isCached(100));
+
+        for(int i = 0; i < 100; i++) {
+            assertSame(held.get(i), cache.getObject(i));
+        }
+
+        cache.destroy();
+    }
+
+    public void testIdentity() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final DataSet<SimpleObject> objects = getDataSet();
+        final SimpleObject row = objects.get(999);
+
+        assertSame(row, objects.get(999));
+        assertEquals(validation.get(999), row);
+        objects.close();
+    }
+
+}
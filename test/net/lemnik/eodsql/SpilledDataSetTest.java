@@ -0,0 +1,93 @@
+package net.lemnik.eodsql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class SpilledDataSetTest extends AbstractDataSetTestObject {
+
+    @Override
+    protected DataSet<SimpleObject> getDataSet() throws Exception {
+        return query.getSpilled();
+    }
+
+    public void testRowsAreDecoded() throws Exception {
+        final List<SimpleObject> validation = new ArrayList<SimpleObject>();
+
+        insertData(validation);
+
+        final DataSet<SimpleObject> objects = getDataSet();
+        assertFalse(objects.isConnected());
+
+        // each row is decoded from the file when it is asked for
+        assertEquals(objects.get(500), objects.get(500));
+        assertNotSame(objects.get(500), objects.get(500));
+
+        objects.close();
+
+        try {
+            objects.get(500);
+            fail("A closed spilled DataSet should not return rows");
+        } catch(final EoDException ee) {
+            // expected
+        }
+    }
+
+    public void testUnderThreshold() throws Exception {
+        for(int i = 0; i < 10; i++) {
+            query.insert(newSimpleObject(i));
+        }
+
+        final DataSet<SimpleObject> objects = getDataSet();
+
+        assertEquals(10, objects.size());
+        assertSame(objects.get(5), objects.get(5));
+
+        objects.close();
+    }
+
+    private void leakDataSet() throws Exception {
+        final DataSet<SimpleObject> objects = getDataSet();
+        assertNotNull(objects.get(500));
+    }
+
+    public void testLeakedRowsAreReclaimed() throws Exception {
+        final List<ResourceLeak> leaks = new ArrayList<ResourceLeak>();
+
+        insertData(new ArrayList<SimpleObject>());
+
+        LeakDetector.setHandler(new LeakDetector.Handler() {
+
+            public void leaked(final ResourceLeak leak) {
+                synchronized(leaks) {
+                    leaks.add(leak);
+                    leaks.notifyAll();
+                }
+            }
+
+        });
+
+        try {
+            leakDataSet();
+
+            final long deadline = System.currentTimeMillis() + 10000;
+
+            synchronized(leaks) {
+                while(leaks.isEmpty() && System.currentTimeMillis() < deadline) {
+                    System.gc();
+                    leaks.wait(100);
+                }
+
+                assertFalse("No leak was reported", leaks.isEmpty());
+                assertTrue(leaks.get(0).getOwnerType().endsWith("DisconnectedDataSet"));
+                assertTrue(leaks.get(0).isReclaimed());
+            }
+        } finally {
+            LeakDetector.setHandler(null);
+        }
+    }
+
+}
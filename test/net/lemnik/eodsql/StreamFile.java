@@ -0,0 +1,19 @@
+package net.lemnik.eodsql;
+
+import java.io.Reader;
+import java.io.InputStream;
+
+/**
+ * A data-object reading it's columns as streams.
+ *
+ * @author Jason Morris
+ */
+public class StreamFile {
+
+    public long id;
+
+    public Reader name;
+
+    public InputStream data;
+
+}
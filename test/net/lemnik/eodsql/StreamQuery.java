@@ -0,0 +1,35 @@
+package net.lemnik.eodsql;
+
+import java.io.Reader;
+import java.io.InputStream;
+
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public interface StreamQuery extends BaseQuery {
+
+    @Update("CREATE TABLE stream_file (" +
+    "id BIGINT PRIMARY KEY," +
+    "name VARCHAR(1024)," +
+    "data VARBINARY(65536))")
+    void create();
+
+    @Update("DROP TABLE stream_file")
+    void drop();
+
+    @Update("INSERT INTO stream_file VALUES (?1, ?2, ?3)")
+    void insert(long id, Reader name, InputStream data);
+
+    @Update("INSERT INTO stream_file VALUES (?1, ?2, ?3)")
+    void insertChannel(long id, String name, ReadableByteChannel data);
+
+    @Select("SELECT * FROM stream_file ORDER BY id")
+    DataIterator<StreamFile> getFiles();
+
+    @Select("SELECT data FROM stream_file WHERE id = ?1")
+    DataIterator<InputStream> getData(long id);
+
+}
@@ -0,0 +1,167 @@
+package net.lemnik.eodsql;
+
+import java.io.Reader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.nio.channels.Channels;
+
+import java.util.List;
+import java.util.Arrays;
+
+/**
+ *
+ * @author Jason Morris
+ */
+public class StreamTypesTest extends EoDTestCase {
+
+    private StreamQuery query;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        query = QueryTool.getQuery(getConnection(), StreamQuery.class);
+        query.create();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        query.drop();
+        query = null;
+
+        super.tearDown();
+    }
+
+    private static byte[] createData(final int length) {
+        final byte[] data = new byte[length];
+
+        for(int i = 0; i < length; i++) {
+            data[i] = (byte)(i * 31);
+        }
+
+        return data;
+    }
+
+    private static byte[] read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+
+        for(int r = in.read(buffer); r != -1; r = in.read(buffer)) {
+            out.write(buffer, 0, r);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static String read(final Reader in) throws IOException {
+        final StringBuilder out = new StringBuilder();
+        final char[] buffer = new char[1024];
+
+        for(int r = in.read(buffer); r != -1; r = in.read(buffer)) {
+            out.append(buffer, 0, r);
+        }
+
+        return out.toString();
+    }
+
+    public void testStreams() throws Exception {
+        final byte[] data = createData(40000);
+
+        query.insert(1, new StringReader("first.bin"),
+                new ByteArrayInputStream(data));
+        query.insert(2, new StringReader("second.bin"), null);
+
+        final DataIterator<StreamFile> files = query.getFiles();
+
+        try {
+            assertTrue(files.hasNext());
+            StreamFile file = files.next();
+            assertEquals("first.bin", read(file.name));
+            assertTrue(Arrays.equals(data, read(file.data)));
+
+            assertTrue(files.hasNext());
+            file = files.next();
+            assertEquals("second.bin", read(file.name));
+            assertNull(file.data);
+
+            assertFalse(files.hasNext());
+        } finally {
+            files.close();
+        }
+    }
+
+    public void testChannel() throws Exception {
+        final byte[] data = createData(1000);
+
+        query.insertChannel(1, "channel.bin",
+                Channels.newChannel(new ByteArrayInputStream(data)));
+
+        final DataIterator<InputStream> streams = query.getData(1);
+
+        try {
+            assertTrue(streams.hasNext());
+            assertTrue(Arrays.equals(data, read(streams.next())));
+        } finally {
+            streams.close();
+        }
+    }
+
+    private void assertRejected(final Class<? extends BaseQuery> type)
+            throws Exception {
+
+        try {
+            QueryTool.getQuery(getConnection(), type);
+            fail("Stream columns should not be allowed in " + type.getSimpleName());
+        } catch(final InvalidQueryException iqe) {
+            // expected
+        }
+    }
+
+    public void testReadAheadRejected() throws Exception {
+        assertRejected(ArrayQuery.class);
+        assertRejected(ListQuery.class);
+        assertRejected(DisconnectedQuery.class);
+        assertRejected(PrefetchQuery.class);
+        assertRejected(SingleQuery.class);
+    }
+
+    public static interface ArrayQuery extends BaseQuery {
+
+        @Select("SELECT * FROM stream_file")
+        StreamFile[] getFiles();
+
+    }
+
+    public static interface ListQuery extends BaseQuery {
+
+        @Select("SELECT data FROM stream_file")
+        List<InputStream> getData();
+
+    }
+
+    public static interface DisconnectedQuery extends BaseQuery {
+
+        @Select(sql = "SELECT * FROM stream_file", disconnected = true)
+        DataSet<StreamFile> getFiles();
+
+    }
+
+    public static interface PrefetchQuery extends BaseQuery {
+
+        @Select(sql = "SELECT * FROM stream_file", prefetch = 16)
+        DataSet<StreamFile> getFiles();
+
+    }
+
+    public static interface SingleQuery extends BaseQuery {
+
+        @Select("SELECT data FROM stream_file WHERE id = ?1")
+        InputStream getData(long id);
+
+    }
+
+}
@@ -18,6 +18,11 @@ public class WritableDataSetTest extends AbstractDataSetTestObject {
         return query.getWritable();
     }
 
+    @Override
+    protected DataSet<SimpleObject> getKeyedDataSet() throws Exception {
+        return query.getWritableByKey();
+    }
+
     public void testStatementDatabaseSupport() throws Exception {
         final Connection connection = getConnection();
         final Statement statement = connection.createStatement(